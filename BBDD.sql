@@ -1,28 +1,41 @@
 
+-- Secuencias para los ids: Hibernate reserva bloques de 50 (allocationSize) y agrupa los INSERT en lotes.
+-- Las columnas id toman el siguiente valor de la secuencia si el INSERT no lo indica.
+CREATE SEQUENCE agencia_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE propietario_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE inmueble_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE cliente_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE visita_seq START WITH 1 INCREMENT BY 50;
+
+-- En una base de datos que ya tenga filas, la aplicación (AjusteSecuencias) adelanta al arrancar cada secuencia
+-- que vaya por detrás del id máximo de su tabla.
+
 CREATE TABLE agencia (
-             id INT AUTO_INCREMENT PRIMARY KEY,
+             id INT DEFAULT (NEXT VALUE FOR agencia_seq) PRIMARY KEY,
              nombre VARCHAR(100) NOT NULL,
              direccion VARCHAR(200),
              facturacion_anual FLOAT,
              codigo_postal INT,
              abierto_sabados BOOLEAN,
-             fecha_fundacion DATE
+             fecha_fundacion DATE,
+             version BIGINT NOT NULL DEFAULT 0 -- Control optimista (@Version): es el ETag de la API
 );
 
 
 CREATE TABLE propietario (
-             id INT AUTO_INCREMENT PRIMARY KEY,
+             id INT DEFAULT (NEXT VALUE FOR propietario_seq) PRIMARY KEY,
              dni VARCHAR(20) NOT NULL UNIQUE,
              nombre VARCHAR(100) NOT NULL,
              telefono VARCHAR(15) NOT NULL,
              comision FLOAT,
              es_empresa BOOLEAN,
-             fecha_alta DATE
+             fecha_alta DATE,
+             version BIGINT NOT NULL DEFAULT 0
 );
 
 
 CREATE TABLE inmueble (
-              id INT AUTO_INCREMENT PRIMARY KEY,
+              id INT DEFAULT (NEXT VALUE FOR inmueble_seq) PRIMARY KEY,
               titulo VARCHAR(150) NOT NULL,
               precio FLOAT NOT NULL,
               metros INT,
@@ -32,25 +45,27 @@ CREATE TABLE inmueble (
               fecha_publicacion DATE,
               agencia_id INT,
               propietario_id INT,
+              version BIGINT NOT NULL DEFAULT 0,
               FOREIGN KEY (agencia_id) REFERENCES agencia(id),
               FOREIGN KEY (propietario_id) REFERENCES propietario(id)
 );
 
 
 CREATE TABLE cliente (
-             id INT AUTO_INCREMENT PRIMARY KEY,
+             id INT DEFAULT (NEXT VALUE FOR cliente_seq) PRIMARY KEY,
              email VARCHAR(100) NOT NULL UNIQUE,
              password VARCHAR(255) NOT NULL,
              telefono VARCHAR(20),
              presupuesto_maximo FLOAT,
              edad INT,
              fecha_alta DATE,
-             suscrito BOOLEAN
+             suscrito BOOLEAN,
+             version BIGINT NOT NULL DEFAULT 0
 );
 
 
 CREATE TABLE visita (
-            id INT AUTO_INCREMENT PRIMARY KEY,
+            id INT DEFAULT (NEXT VALUE FOR visita_seq) PRIMARY KEY,
             fecha_hora DATETIME NOT NULL,
             comentarios VARCHAR(255),
             estado VARCHAR(20) DEFAULT 'PENDIENTE',
@@ -59,6 +74,24 @@ CREATE TABLE visita (
             recordatorio_activo BOOLEAN,
             cliente_id INT,
             inmueble_id INT,
+            version BIGINT NOT NULL DEFAULT 0,
             FOREIGN KEY (cliente_id) REFERENCES cliente(id) ON DELETE CASCADE,
             FOREIGN KEY (inmueble_id) REFERENCES inmueble(id)
-);
\ No newline at end of file
+);
+
+-- Índices para los filtros de findByFilter y las consultas JPQL/SQL
+-- (los filtros LIKE '%texto%' no pueden usar índice y no se incluyen)
+CREATE INDEX idx_agencia_cp_sabados ON agencia (codigo_postal, abierto_sabados);
+CREATE INDEX idx_propietario_es_empresa ON propietario (es_empresa);
+CREATE INDEX idx_inmueble_ascensor_precio ON inmueble (ascensor, precio);
+CREATE INDEX idx_inmueble_precio ON inmueble (precio);
+CREATE INDEX idx_inmueble_metros ON inmueble (metros);
+CREATE INDEX idx_cliente_suscrito_presupuesto ON cliente (suscrito, presupuesto_maximo);
+CREATE INDEX idx_visita_estado_fecha ON visita (estado, fecha_hora);
+CREATE INDEX idx_visita_fecha ON visita (fecha_hora);
+
+-- Índices para ordenar los listados paginados por cursor (el id lo añade InnoDB a cada índice)
+CREATE INDEX idx_agencia_nombre ON agencia (nombre);
+CREATE INDEX idx_propietario_nombre ON propietario (nombre);
+CREATE INDEX idx_inmueble_fecha_publicacion ON inmueble (fecha_publicacion);
+CREATE INDEX idx_cliente_fecha_alta ON cliente (fecha_alta);
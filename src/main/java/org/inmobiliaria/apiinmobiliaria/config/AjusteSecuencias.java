@@ -0,0 +1,52 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Al arrancar, antes de atender peticiones, deja cada secuencia de ids por encima del id máximo de su tabla.
+ * Una base de datos que ya tenía filas con IDENTITY recibe las secuencias de ddl-auto=update empezando en 1,
+ * y sin este ajuste los primeros INSERT chocarían con las claves primarias existentes.
+ * Solo toca las secuencias que van por detrás de su tabla; las demás no cambian.
+ */
+@Component
+@DependsOn("entityManagerFactory") // El esquema (y las secuencias) ya está creado
+public class AjusteSecuencias {
+
+    // Tabla -> secuencia de sus ids (ClienteV2 comparte la de cliente)
+    private static final Map<String, String> SECUENCIAS = Map.of(
+            "agencia", "agencia_seq",
+            "propietario", "propietario_seq",
+            "inmueble", "inmueble_seq",
+            "cliente", "cliente_seq",
+            "visita", "visita_seq");
+
+    // allocationSize de los @SequenceGenerator: con el optimizador pooled, un valor de la secuencia
+    // da a Hibernate los ids del bloque de 50 que termina en él
+    private static final long BLOQUE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void ajustar() {
+        SECUENCIAS.forEach(this::ajustar);
+    }
+
+    private void ajustar(String tabla, String secuencia) {
+        Long maximo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabla, Long.class);
+        if (maximo == null) {
+            return;
+        }
+        // Consume un valor (un bloque que no se usará): es la única lectura común a MariaDB y H2
+        Long siguiente = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + secuencia, Long.class);
+        if (siguiente - BLOQUE < maximo) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + (maximo + BLOQUE + 1));
+        }
+    }
+}
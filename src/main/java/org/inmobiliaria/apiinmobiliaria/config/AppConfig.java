@@ -2,10 +2,14 @@ package org.inmobiliaria.apiinmobiliaria.config;
 
 import org.modelmapper.ModelMapper;
 import org.modelmapper.convention.MatchingStrategies;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 
 @Configuration
+// La caché va por fuera de @Transactional: un acierto no abre transacción y los @CachePut/@CacheEvict se aplican tras el commit
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class AppConfig {
     @Bean
     public ModelMapper modelMapper() {
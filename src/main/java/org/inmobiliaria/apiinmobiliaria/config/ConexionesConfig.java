@@ -0,0 +1,113 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envuelve el pool de Hikari que crea Spring Boot:
+ * - LazyConnectionDataSourceProxy: Hibernate pide la conexión al empezar la transacción, y con el proxy solo se
+ *   saca del pool cuando se lanza la primera sentencia. Los findById que resuelven la caché o el filtro de ids
+ *   no llegan a ocupar ninguna.
+ * - DataSourceMedido: mide cuánto tiempo se tiene cada conexión del pool y lo publica por endpoint.
+ * - Con replicas.urls, EnrutadoDataSource entre el proxy y los pools: un pool por réplica, con la misma
+ *   configuración que el de la primaria salvo la URL.
+ */
+@Configuration
+public class ConexionesConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de beans de la configuración
+    @Bean
+    public static BeanPostProcessor envolverDataSource(ObjectProvider<MeterRegistry> meterRegistry,
+                                                       @Value("${replicas.urls:}") List<String> urlsReplicas,
+                                                       @Value("${replicas.lectura-tras-escritura:5s}") Duration lecturaTrasEscritura,
+                                                       @Value("${replicas.comprobacion:10s}") Duration comprobacion,
+                                                       @Value("${replicas.timeout-conexion:1s}") Duration timeoutConexion) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                DataSource primaria = new DataSourceMedido(hikari, "primaria", meterRegistry);
+                if (urlsReplicas.isEmpty()) {
+                    return new DataSourceConexiones(primaria, List.of(hikari));
+                }
+
+                List<EnrutadoDataSource.Replica> replicas = new ArrayList<>();
+                for (String url : urlsReplicas) {
+                    String nombre = "replica-" + (replicas.size() + 1);
+                    replicas.add(new EnrutadoDataSource.Replica(nombre,
+                            new DataSourceMedido(poolReplica(hikari, nombre, url, timeoutConexion), nombre, meterRegistry)));
+                }
+                EnrutadoDataSource enrutado = new EnrutadoDataSource(primaria, replicas, lecturaTrasEscritura, comprobacion, meterRegistry);
+                return new DataSourceConexiones(enrutado, List.of(enrutado, hikari));
+            }
+        };
+    }
+
+    // Spring Boot solo publica las métricas hikaricp.* del pool de la primaria; las de las réplicas (etiqueta pool=replica-N) se añaden aquí
+    @Bean
+    public MeterBinder metricasPoolsReplicas(DataSource dataSource) {
+        return registro -> {
+            try {
+                if (!dataSource.isWrapperFor(EnrutadoDataSource.class)) {
+                    return;
+                }
+                for (EnrutadoDataSource.Replica replica : dataSource.unwrap(EnrutadoDataSource.class).getReplicas()) {
+                    HikariDataSource pool = replica.dataSource().unwrap(HikariDataSource.class);
+                    if (pool.getMetricsTrackerFactory() == null && pool.getMetricRegistry() == null) {
+                        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registro));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static HikariDataSource poolReplica(HikariDataSource primaria, String nombre, String url, Duration timeoutConexion) {
+        HikariConfig config = new HikariConfig();
+        primaria.copyStateTo(config);
+        config.setPoolName(nombre);
+        config.setJdbcUrl(url);
+        config.setReadOnly(true);
+        // Una réplica caída tiene que fallar rápido para que la lectura pase a la primaria
+        config.setConnectionTimeout(timeoutConexion.toMillis());
+        // Y no impedir el arranque: la comprobación periódica la da por caída hasta que responda
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    // Sustituye al bean dataSource: su close() es el que llama Spring al cerrar el contexto y cierra los pools de debajo
+    static class DataSourceConexiones extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        private final List<AutoCloseable> pools;
+
+        DataSourceConexiones(DataSource destino, List<AutoCloseable> pools) {
+            super(destino);
+            this.pools = pools;
+        }
+
+        @Override
+        public void close() throws Exception {
+            for (AutoCloseable pool : pools) {
+                pool.close();
+            }
+        }
+    }
+}
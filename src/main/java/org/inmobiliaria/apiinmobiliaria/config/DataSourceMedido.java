@@ -0,0 +1,97 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource que mide el tiempo entre que se saca una conexión del pool y se devuelve (close),
+ * en el timer jdbc.conexiones.uso con las etiquetas endpoint ("GET /inmuebles/{id}") y destino (primaria, replica-N).
+ * Las conexiones que no se piden desde una petición HTTP (arranque, tareas) van a "fuera_de_peticion".
+ */
+public class DataSourceMedido extends DelegatingDataSource {
+
+    public static final String METRICA = "jdbc.conexiones.uso";
+
+    private final String destino;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public DataSourceMedido(DataSource pool, String destino, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(pool);
+        this.destino = destino;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return medida(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return medida(super.getConnection(username, password));
+    }
+
+    private Connection medida(Connection conexion) {
+        String endpoint = endpointActual();
+        long inicio = System.nanoTime();
+        boolean[] cerrada = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        // close puede llamarse más de una vez: solo cuenta la primera
+                        if (!cerrada[0]) {
+                            cerrada[0] = true;
+                            registrar(endpoint, System.nanoTime() - inicio);
+                        }
+                        yield invocar(conexion, metodo, args);
+                    }
+                    default -> invocar(conexion, metodo, args);
+                });
+    }
+
+    private void registrar(String endpoint, long nanos) {
+        MeterRegistry registro = meterRegistry.getIfAvailable();
+        if (registro != null) {
+            Timer.builder(METRICA)
+                    .description("Tiempo que se tiene ocupada una conexión del pool")
+                    .tag("endpoint", endpoint)
+                    .tag("destino", destino)
+                    .register(registro)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Object invocar(Connection conexion, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(conexion, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // Método y patrón de la ruta que atiende el hilo actual (el patrón evita una etiqueta por cada id)
+    private static String endpointActual() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos) {
+            HttpServletRequest peticion = atributos.getRequest();
+            Object patron = peticion.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return peticion.getMethod() + " " + ((patron != null) ? patron : "desconocido");
+        }
+        return "fuera_de_peticion";
+    }
+}
@@ -0,0 +1,173 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Reparte las conexiones entre la base de datos primaria y sus réplicas de lectura:
+ * - A una réplica (en rueda, saltando las caídas) solo van las transacciones readOnly de una petición HTTP.
+ *   Las cargas internas (filtro de ids, índice geográfico), las lecturas que llenan cachés (LecturaPrimaria)
+ *   y las escrituras van siempre a la primaria.
+ * - Un cliente que acaba de escribir lleva la cookie de EscrituraRecienteFilter; mientras no haya pasado
+ *   la ventana de lectura tras escritura, sus lecturas van a la primaria y ve lo que ha escrito.
+ * - Si una réplica no da conexión se marca caída y la petición sigue en la primaria. Las réplicas se
+ *   comprueban cada cierto tiempo y vuelven a usarse en cuanto responden.
+ * Tiene que ir debajo de un LazyConnectionDataSourceProxy: readOnly solo se conoce cuando la transacción
+ * ya ha empezado, es decir, al lanzar la primera sentencia y no al pedir la conexión.
+ */
+public class EnrutadoDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public static final String METRICA_CAIDAS = "replicas.caidas";
+
+    private final DataSource primaria;
+    private final List<Replica> replicas;
+    private final Duration lecturaTrasEscritura;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final ScheduledExecutorService comprobaciones;
+
+    // Estado de cada réplica en el mismo orden que la lista: 1 sana, 0 caída
+    private final AtomicIntegerArray sanas;
+
+    public record Replica(String nombre, DataSource dataSource) {
+    }
+
+    public EnrutadoDataSource(DataSource primaria, List<Replica> replicas, Duration lecturaTrasEscritura,
+                              Duration comprobacion, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.primaria = primaria;
+        this.replicas = List.copyOf(replicas);
+        this.lecturaTrasEscritura = lecturaTrasEscritura;
+        this.meterRegistry = meterRegistry;
+        this.sanas = new AtomicIntegerArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            sanas.set(i, 1);
+        }
+        this.comprobaciones = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("replicas-comprobacion").factory());
+        comprobaciones.scheduleWithFixedDelay(this::comprobarReplicas, 0, comprobacion.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int replica = elegirReplica();
+        if (replica >= 0) {
+            try {
+                return replicas.get(replica).dataSource().getConnection();
+            } catch (SQLException | RuntimeException e) {
+                // Pool agotado o réplica caída: la lectura sigue en la primaria
+                marcarCaida(replica);
+            }
+        }
+        return primaria.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primaria.getConnection(username, password);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    // Spring Boot llega al pool de la primaria (métricas, health) desenvolviendo el DataSource
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : primaria.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primaria.isWrapperFor(iface);
+    }
+
+    // Vuelve a probar todas las réplicas (lo llama el comprobador periódico)
+    public void comprobarReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean sana;
+            try (Connection conexion = replicas.get(i).dataSource().getConnection()) {
+                sana = conexion.isValid(1);
+            } catch (SQLException | RuntimeException e) {
+                sana = false;
+            }
+            if (sana) {
+                sanas.set(i, 1);
+            } else {
+                marcarCaida(i);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        comprobaciones.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource() instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+    }
+
+    // Índice de la réplica que atiende esta conexión, o -1 si va a la primaria
+    private int elegirReplica() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || LecturaPrimaria.activa()) {
+            return -1;
+        }
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos)
+                || escrituraReciente(atributos.getRequest())) {
+            return -1;
+        }
+        int inicio = Math.floorMod(siguiente.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidata = (inicio + i) % replicas.size();
+            if (sanas.get(candidata) == 1) {
+                return candidata;
+            }
+        }
+        return -1;
+    }
+
+    private boolean escrituraReciente(HttpServletRequest peticion) {
+        Cookie[] cookies = peticion.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (EscrituraRecienteFilter.COOKIE.equals(cookie.getName())) {
+                try {
+                    long escritura = Long.parseLong(cookie.getValue());
+                    return System.currentTimeMillis() - escritura < lecturaTrasEscritura.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void marcarCaida(int replica) {
+        boolean estabaSana = sanas.getAndSet(replica, 0) == 1;
+        MeterRegistry registro = meterRegistry.getIfAvailable();
+        if (estabaSana && registro != null) {
+            registro.counter(METRICA_CAIDAS, "replica", replicas.get(replica).nombre()).increment();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Marca con una cookie a los clientes que escriben (POST, PUT, PATCH, DELETE). La cookie guarda el instante
+ * de la escritura y caduca con la ventana de lectura tras escritura; mientras la envíe, EnrutadoDataSource
+ * manda sus lecturas a la primaria para que no lea de una réplica que aún no tiene su cambio.
+ * Solo existe si hay réplicas configuradas.
+ */
+@Component
+@ConditionalOnProperty("replicas.urls")
+public class EscrituraRecienteFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "escritura-reciente";
+
+    private static final Set<String> ESCRITURAS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    @Value("${replicas.lectura-tras-escritura:5s}")
+    private Duration lecturaTrasEscritura;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Antes de atender la petición: después la respuesta puede estar ya enviada y no admitir cabeceras
+        if (ESCRITURAS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(System.currentTimeMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (lecturaTrasEscritura.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
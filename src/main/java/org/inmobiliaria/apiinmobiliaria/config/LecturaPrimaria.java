@@ -0,0 +1,37 @@
+package org.inmobiliaria.apiinmobiliaria.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Lecturas que EnrutadoDataSource manda a la primaria aunque la transacción sea readOnly: las que llenan
+ * cachés que duran más que el retraso de las réplicas (DTO de findById y del multi-get, caché de consultas
+ * de Hibernate). Leído de una réplica atrasada, un dato viejo quedaría en la caché hasta la siguiente
+ * escritura de la tabla. Solo cuesta en los fallos de caché: un acierto no llega a la base de datos.
+ * La conexión se elige al lanzar la primera sentencia (LazyConnectionDataSourceProxy), así que basta con
+ * que esa sentencia salga desde dentro de leer().
+ */
+public final class LecturaPrimaria {
+
+    private static final ThreadLocal<Boolean> ACTIVA = new ThreadLocal<>();
+
+    private LecturaPrimaria() {
+    }
+
+    public static <T> T leer(Supplier<T> lectura) {
+        Boolean anterior = ACTIVA.get();
+        ACTIVA.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            if (anterior == null) {
+                ACTIVA.remove();
+            } else {
+                ACTIVA.set(anterior);
+            }
+        }
+    }
+
+    static boolean activa() {
+        return ACTIVA.get() != null;
+    }
+}
@@ -1,23 +1,28 @@
 package org.inmobiliaria.apiinmobiliaria.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
-import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
+import org.inmobiliaria.apiinmobiliaria.mapper.AgenciaMapper;
 import org.inmobiliaria.apiinmobiliaria.service.AgenciaService;
-import org.modelmapper.ModelMapper;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 public class AgenciaController {
@@ -26,26 +31,62 @@ public class AgenciaController {
     private AgenciaService agenciaService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private LecturasCompartidas lecturasCompartidas;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    @Value("${listados.cache-control.agencias:public, max-age=60}")
+    private String cacheControlListado;
+
+    @Autowired
+    private AgenciaMapper agenciaMapper;
 
     // 1. GET ALL (Con filtros opcionales)
     @GetMapping("/agencias")
     public ResponseEntity<List<AgenciaOutDto>> getAll(
             @RequestParam(required = false) String nombre,
             @RequestParam(required = false) Integer codigoPostal,
-            @RequestParam(required = false) Boolean abiertoSabados
+            @RequestParam(required = false) Boolean abiertoSabados,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest peticion
     ) {
-        List<AgenciaOutDto> agencias = agenciaService.findAll(nombre, codigoPostal, abiertoSabados);
-        return ResponseEntity.ok(agencias);
+        // El ETag sale del contador de modificaciones de la tabla y los filtros: con If-None-Match igual no se lee nada
+        String etag = modificacionesTablas.etag(CacheDtos.AGENCIAS, nombre, codigoPostal, abiertoSabados, orden, after, limit, fields);
+        return Listados.respuesta(peticion, etag, cacheControlListado, () -> {
+            // Con orden, after o limit se devuelve una página y el cursor de la siguiente en las cabeceras
+            if (Paginacion.solicitada(orden, after, limit)) {
+                return Paginacion.respuesta(agenciaService.findPagina(nombre, codigoPostal, abiertoSabados, orden, after, limit));
+            }
+
+            // Con fields el SELECT lleva solo esas columnas (y el id); Jackson escribe solo esas propiedades
+            if (fields != null) {
+                return ResponseEntity.ok(lecturasCompartidas.leer("agencias.findProyeccion",
+                        () -> agenciaService.findProyeccion(nombre, codigoPostal, abiertoSabados, fields), nombre, codigoPostal, abiertoSabados, fields, etag));
+            }
+
+            List<AgenciaOutDto> agencias = lecturasCompartidas.leer("agencias.findAll",
+                    () -> agenciaService.findAll(nombre, codigoPostal, abiertoSabados), nombre, codigoPostal, abiertoSabados, etag);
+            return ResponseEntity.ok(agencias);
+        });
+    }
+
+    // GET por lote de ids (multi-get): /agencias?ids=3,1,2 en una sola petición, en vez de una por id
+    @GetMapping(value = "/agencias", params = "ids")
+    public ResponseEntity<List<AgenciaOutDto>> getByIds(@RequestParam List<Long> ids) {
+        return Lotes.respuesta(agenciaService.findByIds(ids));
     }
 
     // 2. GET BY ID
     @GetMapping("/agencias/{id}")
     public ResponseEntity<AgenciaOutDto> getById(@PathVariable long id) throws AgenciaNotFoundException {
-        AgenciaOutDto agencia = agenciaService.findById(id);
+        AgenciaOutDto agencia = lecturasCompartidas.leer("agencias.findById", () -> agenciaService.findById(id), id);
 
         //sin abreviar: return new ResponseEntity<>(agencia, HttpStatus.OK);
-        return ResponseEntity.ok(agencia);
+        return Etags.respuesta(agencia);
     }
 
     // 3. POST (Crear nueva)
@@ -53,13 +94,13 @@ public class AgenciaController {
     public ResponseEntity<AgenciaOutDto> addAgencia(@Valid @RequestBody AgenciaInDto agenciaInDto) {
         // A. Convertimos el DTO de entrada a Entidad (porque el servicio espera Entidad)
         //pero podríamos trabajar solo con la Entidad como en la capa Service
-        Agencia agencia = modelMapper.map(agenciaInDto, Agencia.class);
+        Agencia agencia = agenciaMapper.toEntity(agenciaInDto);
 
         // B. Llamamos al servicio
         Agencia nuevaAgencia = agenciaService.add(agencia);
 
         // C. Convertimos la Entidad guardada a DTO de salida
-        AgenciaOutDto agenciaOutDto = modelMapper.map(nuevaAgencia, AgenciaOutDto.class);
+        AgenciaOutDto agenciaOutDto = agenciaMapper.toOutDto(nuevaAgencia);
 
         return new ResponseEntity<>(agenciaOutDto, HttpStatus.CREATED);
     }
@@ -68,49 +109,30 @@ public class AgenciaController {
     @PutMapping("/agencias/{id}")
     public ResponseEntity<AgenciaOutDto> modifyAgencia(
             @PathVariable long id,
-            @Valid @RequestBody AgenciaInDto agenciaInDto
+            @Valid @RequestBody AgenciaInDto agenciaInDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws AgenciaNotFoundException {
         // Aquí tu Servicie SÍ acepta el DTO directamente, así que es más limpio
-        AgenciaOutDto agenciaModificada = agenciaService.modify(id, agenciaInDto);
-
-        //abreviado: return ResponseEntity.ok(agenciaModificada)
-        return new ResponseEntity<>(agenciaModificada, HttpStatus.OK);
-    }
-
-    // 5. DELETE
-    @DeleteMapping("/agencias/{id}")
-    public ResponseEntity<Void> deleteAgencia(@PathVariable long id) throws AgenciaNotFoundException {
-        agenciaService.delete(id);
-
-        //abreviado: return ResponseEntity.noContent().build();
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT); // 204 No Content (estándar para borrados)
-    }
+        AgenciaOutDto agenciaModificada = agenciaService.modify(id, agenciaInDto, Etags.versionEsperada(ifMatch));
 
-    @ExceptionHandler(Exception.class) //Error 500
-    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
-        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        // 200 con el ETag de la versión nueva
+        return Etags.respuesta(agenciaModificada);
     }
 
-    @ExceptionHandler(AgenciaNotFoundException.class) //Error 404
-    public ResponseEntity<ErrorResponse> handleException(AgenciaNotFoundException anfe) {
-        ErrorResponse errorResponse = ErrorResponse.notFound("La agencia no existe");
-
-        //abreviado: return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error)
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    // PATCH (JSON Merge Patch): solo cambian los campos que vienen en el cuerpo
+    @PatchMapping(value = "/agencias/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<AgenciaOutDto> patchAgencia(@PathVariable long id, @RequestBody JsonNode cambios,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws AgenciaNotFoundException {
+        return Etags.respuesta(agenciaService.patch(id, cambios, Etags.versionEsperada(ifMatch)));
     }
 
-    @ExceptionHandler(MethodArgumentNotValidException.class) //Error 400
-    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
-        Map<String, String> errors = new HashMap<>();
-        manve.getBindingResult().getAllErrors().forEach(error -> {
-            String fieldName = ((FieldError) error).getField();
-            String message = error.getDefaultMessage();
-            errors.put(fieldName, message);
-        });
+    // 5. DELETE
+    @DeleteMapping("/agencias/{id}")
+    public ResponseEntity<Void> deleteAgencia(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws AgenciaNotFoundException {
+        BorradoOutDto borrado = agenciaService.delete(id, Etags.versionEsperada(ifMatch));
 
-        ErrorResponse errorResponse = ErrorResponse.validationError(errors);
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        // 204 No Content (estándar para borrados), con lo borrado en cascada en las cabeceras
+        return Borrados.respuesta(borrado);
     }
 
     // Endpoint JPQL: Agencias máxima facturación y sábados abierto
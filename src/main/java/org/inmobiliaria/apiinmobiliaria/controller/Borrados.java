@@ -0,0 +1,24 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Respuesta de un DELETE con cascada: sigue siendo 204 sin cuerpo, y las filas hijas borradas
+ * junto con la entidad van en las cabeceras X-Borrados-Inmuebles y X-Borrados-Visitas.
+ */
+final class Borrados {
+
+    static final String CABECERA_INMUEBLES = "X-Borrados-Inmuebles";
+    static final String CABECERA_VISITAS = "X-Borrados-Visitas";
+
+    private Borrados() {
+    }
+
+    static ResponseEntity<Void> respuesta(BorradoOutDto borrado) {
+        return ResponseEntity.noContent()
+                .header(CABECERA_INMUEBLES, String.valueOf(borrado.getInmuebles()))
+                .header(CABECERA_VISITAS, String.valueOf(borrado.getVisitas()))
+                .build();
+    }
+}
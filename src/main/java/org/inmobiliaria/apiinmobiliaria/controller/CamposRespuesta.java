@@ -0,0 +1,103 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.inmobiliaria.apiinmobiliaria.dto.VersionadoOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.CamposInvalidosException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sparse fieldsets en todos los GET: con ?fields=id,titulo,precio Jackson solo escribe esas propiedades
+ * (y el id) de los DTO con el filtro de VersionadoOutDto. Los listados además las leen con un SELECT de
+ * esas columnas (findProyeccion); los findById salen de la caché y aquí solo se recorta lo que se escribe.
+ * También registra en el ObjectMapper el filtro que lo deja pasar todo, el que usan las demás respuestas.
+ */
+@RestControllerAdvice(basePackageClasses = CamposRespuesta.class)
+public class CamposRespuesta extends AbstractMappingJacksonResponseBodyAdvice
+        implements Jackson2ObjectMapperBuilderCustomizer {
+
+    public static final String PARAMETRO = "fields";
+
+    private static final SimpleFilterProvider TODOS = new SimpleFilterProvider()
+            .addFilter(VersionadoOutDto.FILTRO_CAMPOS, SimpleBeanPropertyFilter.serializeAll());
+
+    // Propiedades que se pueden pedir, por clase de DTO
+    private final Map<Class<?>, Set<String>> propiedades = new ConcurrentHashMap<>();
+
+    @Override
+    public void customize(Jackson2ObjectMapperBuilder builder) {
+        builder.filters(TODOS);
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue cuerpo, MediaType tipo, MethodParameter metodo,
+                                           ServerHttpRequest peticion, ServerHttpResponse respuesta) {
+        if (peticion.getMethod() != HttpMethod.GET || !(peticion instanceof ServletServerHttpRequest servlet)) {
+            return;
+        }
+        String parametro = servlet.getServletRequest().getParameter(PARAMETRO);
+        if (parametro == null) {
+            return;
+        }
+
+        Set<String> campos = new LinkedHashSet<>();
+        campos.add("id");
+        for (String campo : parametro.split(",")) {
+            if (!campo.isBlank()) {
+                campos.add(campo.trim());
+            }
+        }
+        validar(cuerpo.getValue(), campos);
+        cuerpo.setFilters(new SimpleFilterProvider()
+                .addFilter(VersionadoOutDto.FILTRO_CAMPOS, SimpleBeanPropertyFilter.filterOutAllExcept(campos)));
+    }
+
+    // Se mira el DTO (o el primero del listado); un error o un listado vacío no tienen nada que comprobar
+    private void validar(Object valor, Set<String> campos) {
+        Object muestra = (valor instanceof Collection<?> lista) ? lista.stream().findFirst().orElse(null) : valor;
+        if (muestra == null || AnnotationUtils.findAnnotation(muestra.getClass(), JsonFilter.class) == null) {
+            return;
+        }
+        Set<String> permitidas = propiedades.computeIfAbsent(muestra.getClass(), CamposRespuesta::propiedadesDe);
+        for (String campo : campos) {
+            if (!permitidas.contains(campo)) {
+                throw new CamposInvalidosException("El campo " + campo + " no existe. Valores permitidos: " + permitidas);
+            }
+        }
+    }
+
+    private static Set<String> propiedadesDe(Class<?> clase) {
+        Set<String> nombres = new TreeSet<>();
+        for (PropertyDescriptor propiedad : BeanUtils.getPropertyDescriptors(clase)) {
+            Field campo = ReflectionUtils.findField(clase, propiedad.getName());
+            if (propiedad.getReadMethod() != null && campo != null && !campo.isAnnotationPresent(JsonIgnore.class)) {
+                nombres.add(propiedad.getName());
+            }
+        }
+        return nombres;
+    }
+}
@@ -1,5 +1,8 @@
 package org.inmobiliaria.apiinmobiliaria.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDto;
@@ -7,17 +10,23 @@ import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDtoV2;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDtoV2;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
-import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
+import org.inmobiliaria.apiinmobiliaria.mapper.ClienteMapper;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
 import org.inmobiliaria.apiinmobiliaria.service.ClienteService;
 import org.inmobiliaria.apiinmobiliaria.service.ClienteServiceV2;
-import org.modelmapper.ModelMapper;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -29,36 +38,87 @@ public class ClienteController {
     @Autowired
     private ClienteService clienteService;
 
+    @Autowired
+    private LecturasCompartidas lecturasCompartidas;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    @Value("${listados.cache-control.clientes:private, no-cache}")
+    private String cacheControlListado;
+
     @Autowired
     private ClienteServiceV2 clienteServiceV2; // Inyectado para la V2
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ClienteMapper clienteMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     // 1. GET ALL (con filtros
     @GetMapping("/clientes")
     public ResponseEntity<List<ClienteOutDto>> getAll(
             @RequestParam(required = false) String email,
             @RequestParam(required = false) String telefono,
-            @RequestParam(required = false) Boolean suscrito
+            @RequestParam(required = false) Boolean suscrito,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest peticion
     ) {
-        List<ClienteOutDto> clientes = clienteService.findAll(email, telefono, suscrito);
-        return ResponseEntity.ok(clientes);
+        // El ETag sale del contador de modificaciones de la tabla y los filtros: con If-None-Match igual no se lee nada
+        String etag = modificacionesTablas.etag(CacheDtos.CLIENTES, email, telefono, suscrito, orden, after, limit, fields);
+        return Listados.respuesta(peticion, etag, cacheControlListado, () -> {
+            // Con orden, after o limit se devuelve una página y el cursor de la siguiente en las cabeceras
+            if (Paginacion.solicitada(orden, after, limit)) {
+                return Paginacion.respuesta(clienteService.findPagina(email, telefono, suscrito, orden, after, limit));
+            }
+
+            // Con fields el SELECT lleva solo esas columnas (y el id); Jackson escribe solo esas propiedades
+            if (fields != null) {
+                return ResponseEntity.ok(lecturasCompartidas.leer("clientes.findProyeccion",
+                        () -> clienteService.findProyeccion(email, telefono, suscrito, fields), email, telefono, suscrito, fields, etag));
+            }
+
+            List<ClienteOutDto> clientes = lecturasCompartidas.leer("clientes.findAll",
+                    () -> clienteService.findAll(email, telefono, suscrito), email, telefono, suscrito, etag);
+            return ResponseEntity.ok(clientes);
+        });
+    }
+
+    // 1b. GET ALL (NDJSON en streaming)
+    @GetMapping(value = "/clientes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportar(
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String telefono,
+            @RequestParam(required = false) Boolean suscrito,
+            HttpServletResponse response
+    ) throws IOException {
+        Ndjson.<ClienteOutDto>escribir(response, objectMapper,
+                destino -> clienteService.exportar(email, telefono, suscrito, destino));
+    }
+
+    // GET por lote de ids (multi-get): /clientes?ids=3,1,2 en una sola petición, en vez de una por id
+    @GetMapping(value = "/clientes", params = "ids")
+    public ResponseEntity<List<ClienteOutDto>> getByIds(@RequestParam List<Long> ids) {
+        return Lotes.respuesta(clienteService.findByIds(ids));
     }
 
     // 2. GET BY ID
     @GetMapping("/clientes/{id}")
     public ResponseEntity<ClienteOutDto> getById(@PathVariable long id) throws ClienteNotFoundException {
-        ClienteOutDto cliente = clienteService.findById(id);
-        return ResponseEntity.ok(cliente);
+        ClienteOutDto cliente = lecturasCompartidas.leer("clientes.findById", () -> clienteService.findById(id), id);
+        return Etags.respuesta(cliente);
     }
 
     // 3. POST
     @PostMapping("/clientes")
     public ResponseEntity<ClienteOutDto> addCliente(@Valid @RequestBody ClienteInDto clienteInDto) {
-        Cliente cliente = modelMapper.map(clienteInDto, Cliente.class);
+        Cliente cliente = clienteMapper.toEntity(clienteInDto);
         Cliente nuevoCliente = clienteService.add(cliente);
-        ClienteOutDto clienteOutDto = modelMapper.map(nuevoCliente, ClienteOutDto.class);
+        ClienteOutDto clienteOutDto = clienteMapper.toOutDto(nuevoCliente);
         return new ResponseEntity<>(clienteOutDto, HttpStatus.CREATED);
     }
 
@@ -66,42 +126,27 @@ public class ClienteController {
     @PutMapping("/clientes/{id}")
     public ResponseEntity<ClienteOutDto> modifyCliente(
             @PathVariable long id,
-            @Valid @RequestBody ClienteInDto clienteInDto
+            @Valid @RequestBody ClienteInDto clienteInDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws ClienteNotFoundException {
-        ClienteOutDto clienteModificado = clienteService.modify(id, clienteInDto);
-        return ResponseEntity.ok(clienteModificado);
+        ClienteOutDto clienteModificado = clienteService.modify(id, clienteInDto, Etags.versionEsperada(ifMatch));
+        return Etags.respuesta(clienteModificado);
+    }
+
+    // PATCH (JSON Merge Patch): solo cambian los campos que vienen en el cuerpo
+    @PatchMapping(value = "/clientes/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ClienteOutDto> patchCliente(@PathVariable long id, @RequestBody JsonNode cambios,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ClienteNotFoundException {
+        return Etags.respuesta(clienteService.patch(id, cambios, Etags.versionEsperada(ifMatch)));
     }
 
     // 5. DELETE
     @DeleteMapping("/clientes/{id}")
-    public ResponseEntity<Void> deleteCliente(@PathVariable long id) throws ClienteNotFoundException {
-        clienteService.delete(id);
+    public ResponseEntity<Void> deleteCliente(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ClienteNotFoundException {
+        clienteService.delete(id, Etags.versionEsperada(ifMatch));
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
-    // --- ERRORES ---
-
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
-        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
-    }
-
-    @ExceptionHandler(ClienteNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleException(ClienteNotFoundException cnfe) {
-        ErrorResponse errorResponse = ErrorResponse.notFound("El cliente no existe");
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
-    }
-
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
-        Map<String, String> errors = new HashMap<>();
-        manve.getBindingResult().getAllErrors().forEach(error -> {
-            errors.put(((FieldError) error).getField(), error.getDefaultMessage());
-        });
-        return new ResponseEntity<>(ErrorResponse.validationError(errors), HttpStatus.BAD_REQUEST);
-    }
-
     // Endpoint JPQL: Clientes VIP
     @GetMapping("/clientes/vip")
     public ResponseEntity<List<ClienteOutDto>> getClientesVip(@RequestParam Float presupuesto) {
@@ -122,7 +167,7 @@ public class ClienteController {
     @GetMapping("/v2/clientes/{id}")
     public ResponseEntity<ClienteOutDtoV2> getByIdV2(@PathVariable long id) throws ClienteNotFoundException {
         ClienteOutDtoV2 cliente = clienteServiceV2.findById(id);
-        return ResponseEntity.ok(cliente);
+        return Etags.respuesta(cliente);
     }
 
     /**
@@ -144,10 +189,11 @@ public class ClienteController {
     @PutMapping("/v2/clientes/{id}")
     public ResponseEntity<ClienteOutDtoV2> modifyClienteV2(
             @PathVariable long id,
-            @Valid @RequestBody ClienteInDtoV2 clienteInDtoV2
+            @Valid @RequestBody ClienteInDtoV2 clienteInDtoV2,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws ClienteNotFoundException {
-        ClienteOutDtoV2 clienteModificado = clienteServiceV2.modify(id, clienteInDtoV2);
-        return ResponseEntity.ok(clienteModificado);
+        ClienteOutDtoV2 clienteModificado = clienteServiceV2.modify(id, clienteInDtoV2, Etags.versionEsperada(ifMatch));
+        return Etags.respuesta(clienteModificado);
     }
 
     /**
@@ -156,8 +202,9 @@ public class ClienteController {
       JSON que incluye datos de auditoría (ID eliminado y fecha/hora de baja).
      */
     @DeleteMapping("/v2/clientes/{id}")
-    public ResponseEntity<Map<String, Object>> deleteClienteV2(@PathVariable long id) throws ClienteNotFoundException {
-        clienteServiceV2.delete(id);
+    public ResponseEntity<Map<String, Object>> deleteClienteV2(@PathVariable long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ClienteNotFoundException {
+        clienteServiceV2.delete(id, Etags.versionEsperada(ifMatch));
 
         Map<String, Object> response = new HashMap<>();
         response.put("mensaje", "Cliente dado de baja permanentemente (V2)");
@@ -0,0 +1,40 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import org.inmobiliaria.apiinmobiliaria.dto.VersionadoOutDto;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * El ETag de una entidad es su columna version entre comillas ("3"). Con él en la respuesta, Spring
+ * contesta 304 sin cuerpo a los GET cuyo If-None-Match coincide. Los PUT, PATCH y DELETE con If-Match
+ * solo se aplican si la versión sigue siendo esa.
+ */
+final class Etags {
+
+    private Etags() {
+    }
+
+    static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static <T extends VersionadoOutDto> ResponseEntity<T> respuesta(T dto) {
+        return ResponseEntity.ok().eTag(etag(dto.getVersion())).body(dto);
+    }
+
+    // null si no hay que comprobar (sin If-Match o con *). Un ETag débil, una lista o algo que no es
+    // una versión nuestra da -1, que no coincide con ninguna y acaba en 412
+    static Long versionEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.length() < 3 || !valor.startsWith("\"") || !valor.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(valor.substring(1, valor.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
@@ -1,23 +1,34 @@
 package org.inmobiliaria.apiinmobiliaria.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleClusterOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
-import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleImportacionService;
 import org.inmobiliaria.apiinmobiliaria.service.InmuebleService;
-import org.modelmapper.ModelMapper;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 public class InmuebleController {
@@ -26,24 +37,75 @@ public class InmuebleController {
     private InmuebleService inmuebleService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private LecturasCompartidas lecturasCompartidas;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    @Value("${listados.cache-control.inmuebles:public, max-age=10}")
+    private String cacheControlListado;
+
+    @Autowired
+    private InmuebleImportacionService inmuebleImportacionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     // 1. GET ALL (Filtros específicos de Inmueble)
     @GetMapping("/inmuebles")
     public ResponseEntity<List<InmuebleOutDto>> getAll(
             @RequestParam(required = false) Float precioMax,
             @RequestParam(required = false) Integer metrosMin,
-            @RequestParam(required = false) Boolean ascensor
+            @RequestParam(required = false) Boolean ascensor,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest peticion
     ) {
-        List<InmuebleOutDto> inmuebles = inmuebleService.findAll(precioMax, metrosMin, ascensor);
-        return ResponseEntity.ok(inmuebles);
+        // El ETag sale del contador de modificaciones de la tabla y los filtros: con If-None-Match igual no se lee nada
+        String etag = modificacionesTablas.etag(CacheDtos.INMUEBLES, precioMax, metrosMin, ascensor, orden, after, limit, fields);
+        return Listados.respuesta(peticion, etag, cacheControlListado, () -> {
+            // Con orden, after o limit se devuelve una página y el cursor de la siguiente en las cabeceras
+            if (Paginacion.solicitada(orden, after, limit)) {
+                return Paginacion.respuesta(inmuebleService.findPagina(precioMax, metrosMin, ascensor, orden, after, limit));
+            }
+
+            // Con fields el SELECT lleva solo esas columnas (y el id); Jackson escribe solo esas propiedades
+            if (fields != null) {
+                return ResponseEntity.ok(lecturasCompartidas.leer("inmuebles.findProyeccion",
+                        () -> inmuebleService.findProyeccion(precioMax, metrosMin, ascensor, fields), precioMax, metrosMin, ascensor, fields, etag));
+            }
+
+            List<InmuebleOutDto> inmuebles = lecturasCompartidas.leer("inmuebles.findAll",
+                    () -> inmuebleService.findAll(precioMax, metrosMin, ascensor), precioMax, metrosMin, ascensor, etag);
+            return ResponseEntity.ok(inmuebles);
+        });
+    }
+
+    // 1b. GET ALL en streaming (Accept: application/x-ndjson), para exportaciones completas
+    @GetMapping(value = "/inmuebles", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportar(
+            @RequestParam(required = false) Float precioMax,
+            @RequestParam(required = false) Integer metrosMin,
+            @RequestParam(required = false) Boolean ascensor,
+            HttpServletResponse response
+    ) throws IOException {
+        Ndjson.<InmuebleOutDto>escribir(response, objectMapper,
+                destino -> inmuebleService.exportar(precioMax, metrosMin, ascensor, destino));
+    }
+
+    // GET por lote de ids (multi-get): /inmuebles?ids=3,1,2 en una sola petición, en vez de una por id
+    @GetMapping(value = "/inmuebles", params = "ids")
+    public ResponseEntity<List<InmuebleOutDto>> getByIds(@RequestParam List<Long> ids) {
+        return Lotes.respuesta(inmuebleService.findByIds(ids));
     }
 
     // 2. GET BY ID
     @GetMapping("/inmuebles/{id}")
     public ResponseEntity<InmuebleOutDto> getById(@PathVariable long id) throws InmuebleNotFoundException {
-        InmuebleOutDto inmueble = inmuebleService.findById(id);
-        return ResponseEntity.ok(inmueble);
+        InmuebleOutDto inmueble = lecturasCompartidas.leer("inmuebles.findById", () -> inmuebleService.findById(id), id);
+        return Etags.respuesta(inmueble);
     }
 
     // 3. POST
@@ -53,48 +115,40 @@ public class InmuebleController {
         return new ResponseEntity<>(nuevoInmueble, HttpStatus.CREATED);
     }
 
+    // 3b. POST masivo: el cuerpo (CSV con cabecera o NDJSON) se lee en streaming y se devuelve el informe por fila
+    @PostMapping(value = "/inmuebles/importacion", consumes = "text/csv")
+    public ResponseEntity<ImportacionOutDto> importarCsv(InputStream entrada) throws IOException {
+        return ResponseEntity.ok(inmuebleImportacionService.importarCsv(entrada));
+    }
+
+    @PostMapping(value = "/inmuebles/importacion", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportacionOutDto> importarNdjson(InputStream entrada) throws IOException {
+        return ResponseEntity.ok(inmuebleImportacionService.importarNdjson(entrada));
+    }
+
     // 4. PUT
     @PutMapping("/inmuebles/{id}")
     public ResponseEntity<InmuebleOutDto> modifyInmueble(
             @PathVariable long id,
-            @Valid @RequestBody InmuebleInDto inmuebleInDto
+            @Valid @RequestBody InmuebleInDto inmuebleInDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws InmuebleNotFoundException {
-        InmuebleOutDto inmuebleModificado = inmuebleService.modify(id, inmuebleInDto);
-        return ResponseEntity.ok(inmuebleModificado);
-    }
-
-    // 5. DELETE
-    @DeleteMapping("/inmuebles/{id}")
-    public ResponseEntity<Void> deleteInmueble(@PathVariable long id) throws InmuebleNotFoundException {
-        inmuebleService.delete(id);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-    }
-
-    // --- MANEJO DE ERRORES ---
-
-    @ExceptionHandler(Exception.class) // Error 500
-    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
-        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        InmuebleOutDto inmuebleModificado = inmuebleService.modify(id, inmuebleInDto, Etags.versionEsperada(ifMatch));
+        return Etags.respuesta(inmuebleModificado);
     }
 
-    @ExceptionHandler(InmuebleNotFoundException.class) // Error 404
-    public ResponseEntity<ErrorResponse> handleException(InmuebleNotFoundException infe) {
-        ErrorResponse errorResponse = ErrorResponse.notFound("El inmueble no existe");
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    // PATCH (JSON Merge Patch): solo cambian los campos que vienen en el cuerpo
+    @PatchMapping(value = "/inmuebles/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<InmuebleOutDto> patchInmueble(@PathVariable long id, @RequestBody JsonNode cambios,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws InmuebleNotFoundException {
+        return Etags.respuesta(inmuebleService.patch(id, cambios, Etags.versionEsperada(ifMatch)));
     }
 
-    @ExceptionHandler(MethodArgumentNotValidException.class) // Error 400
-    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
-        Map<String, String> errors = new HashMap<>();
-        manve.getBindingResult().getAllErrors().forEach(error -> {
-            String fieldName = ((FieldError) error).getField();
-            String message = error.getDefaultMessage();
-            errors.put(fieldName, message);
-        });
-
-        ErrorResponse errorResponse = ErrorResponse.validationError(errors);
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    // 5. DELETE
+    @DeleteMapping("/inmuebles/{id}")
+    public ResponseEntity<Void> deleteInmueble(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws InmuebleNotFoundException {
+        BorradoOutDto borrado = inmuebleService.delete(id, Etags.versionEsperada(ifMatch));
+        return Borrados.respuesta(borrado);
     }
 
     // Endpoint JPQL: Inmuebles por rango de precio
@@ -112,4 +166,51 @@ public class InmuebleController {
     public ResponseEntity<List<InmuebleOutDto>> getGrandesSql(@RequestParam Integer metros) {
         return ResponseEntity.ok(inmuebleService.getGrandesSql(metros));
     }
+
+    // GEO: Inmuebles en un radio (km) alrededor de un punto, ordenados por distancia
+    @GetMapping("/inmuebles/cerca")
+    public ResponseEntity<List<InmuebleOutDto>> getCerca(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam Double radioKm
+    ) {
+        return ResponseEntity.ok(inmuebleService.findCerca(lat, lon, radioKm));
+    }
+
+    // GEO KNN: Los k inmuebles más cercanos a un punto (filtros opcionales como en GET /inmuebles)
+    @GetMapping("/inmuebles/cercanos")
+    public ResponseEntity<List<InmuebleOutDto>> getMasCercanos(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(defaultValue = "20") Integer k,
+            @RequestParam(required = false) Float precioMax,
+            @RequestParam(required = false) Integer metrosMin,
+            @RequestParam(required = false) Boolean ascensor
+    ) {
+        return ResponseEntity.ok(inmuebleService.findMasCercanos(lat, lon, k, precioMax, metrosMin, ascensor));
+    }
+
+    // GEO KNN: Los k inmuebles comparables más cercanos a uno dado (para tasaciones)
+    @GetMapping("/inmuebles/{id}/comparables")
+    public ResponseEntity<List<InmuebleOutDto>> getComparables(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "20") Integer k,
+            @RequestParam(required = false) Float precioMax,
+            @RequestParam(required = false) Integer metrosMin,
+            @RequestParam(required = false) Boolean ascensor
+    ) throws InmuebleNotFoundException {
+        return ResponseEntity.ok(inmuebleService.findComparables(id, k, precioMax, metrosMin, ascensor));
+    }
+
+    // GEO CLUSTERS: Inmuebles agrupados de la zona visible del mapa (latMin/lonMin = esquina suroeste)
+    @GetMapping("/inmuebles/clusters")
+    public ResponseEntity<List<InmuebleClusterOutDto>> getClusters(
+            @RequestParam Double latMin,
+            @RequestParam Double lonMin,
+            @RequestParam Double latMax,
+            @RequestParam Double lonMax,
+            @RequestParam Integer zoom
+    ) {
+        return ResponseEntity.ok(inmuebleService.findClusters(latMin, lonMin, latMax, lonMax, zoom));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Respuesta de un GET de listado con su Cache-Control y el ETag de ModificacionesTablas.
+ * El If-None-Match se compara antes de leer: si coincide, el 304 sale sin consultar la base de datos.
+ * La misma URL sirve también la exportación NDJSON según el Accept: Vary: Accept evita que una caché
+ * compartida entregue (o revalide con el mismo ETag) la otra representación.
+ */
+final class Listados {
+
+    private Listados() {
+    }
+
+    // etag null: sin validador (desactivado o réplicas aún por ponerse al día), solo la política de caché
+    static <T> ResponseEntity<T> respuesta(WebRequest peticion, String etag, String cacheControl,
+                                           Supplier<ResponseEntity<T>> leer) {
+        // checkNotModified deja el ETag en la respuesta, coincida o no
+        if (etag != null && peticion.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build();
+        }
+        ResponseEntity<T> respuesta = leer.get();
+        return ResponseEntity.status(respuesta.getStatusCode())
+                .headers(respuesta.getHeaders())
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(respuesta.getBody());
+    }
+}
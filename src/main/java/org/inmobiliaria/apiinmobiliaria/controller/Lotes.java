@@ -0,0 +1,29 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Respuesta de un GET por lote de ids (?ids=3,1,2): el cuerpo es la lista de siempre con los que existen,
+ * en el orden pedido, y los ids que no existen van en la cabecera X-No-Encontrados separados por comas.
+ */
+final class Lotes {
+
+    static final String CABECERA_NO_ENCONTRADOS = "X-No-Encontrados";
+
+    private Lotes() {
+    }
+
+    static <T> ResponseEntity<List<T>> respuesta(LoteOutDto<T> lote) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (!lote.getNoEncontrados().isEmpty()) {
+            respuesta.header(CABECERA_NO_ENCONTRADOS, lote.getNoEncontrados().stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+        }
+        return respuesta.body(lote.getContenido());
+    }
+}
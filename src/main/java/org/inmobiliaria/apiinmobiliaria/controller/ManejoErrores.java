@@ -0,0 +1,129 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.BusquedaGeoInvalidaException;
+import org.inmobiliaria.apiinmobiliaria.exception.CamposInvalidosException;
+import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
+import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.LoteInvalidoException;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+import org.inmobiliaria.apiinmobiliaria.exception.PatchInvalidoException;
+import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.RecursoNoEncontradoException;
+import org.inmobiliaria.apiinmobiliaria.exception.VersionNoCoincideException;
+import org.inmobiliaria.apiinmobiliaria.exception.VisitaNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manejo de errores común a todos los controladores (antes repetido en cada uno).
+ * Solo se aplica a los controladores de este paquete, para no cambiar las respuestas de Spring
+ * a otras rutas (recursos estáticos, actuator).
+ */
+@RestControllerAdvice(basePackageClasses = ManejoErrores.class)
+public class ManejoErrores {
+
+    // 404 de las instancias compartidas, ya serializados: la respuesta es siempre la misma
+    private final Map<RecursoNoEncontradoException, ResponseEntity<byte[]>> noEncontrados = new IdentityHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    public ManejoErrores(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.objectMapper = objectMapper;
+        for (RecursoNoEncontradoException e : List.of(AgenciaNotFoundException.INSTANCIA, ClienteNotFoundException.INSTANCIA,
+                InmuebleNotFoundException.INSTANCIA, PropietarioNotFoundException.INSTANCIA, VisitaNotFoundException.INSTANCIA)) {
+            noEncontrados.put(e, noEncontrado(e));
+        }
+    }
+
+    @ExceptionHandler(Exception.class) // Error 500
+    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(RecursoNoEncontradoException.class) // Error 404
+    public ResponseEntity<byte[]> handleException(RecursoNoEncontradoException rnee) throws JsonProcessingException {
+        ResponseEntity<byte[]> respuesta = noEncontrados.get(rnee);
+        return (respuesta != null) ? respuesta : noEncontrado(rnee);
+    }
+
+    @ExceptionHandler(PaginacionInvalidaException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(PaginacionInvalidaException pie) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(400, "bad-request", pie.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(LoteInvalidoException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(LoteInvalidoException lie) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(400, "bad-request", lie.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(BusquedaGeoInvalidaException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(BusquedaGeoInvalidaException bgie) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(400, "bad-request", bgie.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(CamposInvalidosException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(CamposInvalidosException cie) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(400, "bad-request", cie.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(VersionNoCoincideException.class) // Error 412
+    public ResponseEntity<ErrorResponse> handleException(VersionNoCoincideException vnce) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(412, "precondition-failed", vnce.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Otra petición ha modificado la fila entre la lectura y el UPDATE (el WHERE version = ? no la encuentra)
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class) // Error 412
+    public ResponseEntity<ErrorResponse> handleException(ObjectOptimisticLockingFailureException oolfe) {
+        ErrorResponse errorResponse = ErrorResponse.generalError(412, "precondition-failed",
+                "El recurso ha cambiado mientras se modificaba");
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(PatchInvalidoException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(PatchInvalidoException pie) {
+        ErrorResponse errorResponse = pie.getErrores().isEmpty()
+                ? ErrorResponse.generalError(400, "bad-request", pie.getMessage())
+                : ErrorResponse.validationError(pie.getErrores());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class) // Error 400
+    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
+        Map<String, String> errors = new HashMap<>();
+        manve.getBindingResult().getAllErrors().forEach(error -> {
+            String fieldName = ((FieldError) error).getField();
+            String message = error.getDefaultMessage();
+            errors.put(fieldName, message);
+        });
+
+        ErrorResponse errorResponse = ErrorResponse.validationError(errors);
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<byte[]> noEncontrado(RecursoNoEncontradoException e) throws JsonProcessingException {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectMapper.writeValueAsBytes(ErrorResponse.notFound(e.getMessage())));
+    }
+}
@@ -0,0 +1,40 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Escritura de listados en NDJSON (un objeto JSON por línea) directamente en la respuesta:
+ * cada DTO se serializa en cuanto lo entrega el servicio, sin construir la lista entera.
+ */
+final class Ndjson {
+
+    private Ndjson() {
+    }
+
+    static <T> void escribir(HttpServletResponse response, ObjectMapper objectMapper,
+                             Consumer<Consumer<T>> exportacion) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            // Jackson separa los valores de primer nivel con un espacio; aquí el separador es el salto de línea
+            generador.setRootValueSeparator(null);
+            exportacion.accept(dto -> {
+                try {
+                    generador.writeObject(dto);
+                    generador.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.inmobiliaria.apiinmobiliaria.controller;
+
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Respuesta de un listado paginado: el cuerpo sigue siendo la lista de siempre y el cursor
+ * de la página siguiente va en la cabecera X-Next-Cursor y en un Link rel="next"
+ * que conserva los filtros de la petición.
+ */
+final class Paginacion {
+
+    static final String CABECERA_CURSOR = "X-Next-Cursor";
+
+    private Paginacion() {
+    }
+
+    static boolean solicitada(String orden, String after, Integer limit) {
+        return orden != null || after != null || limit != null;
+    }
+
+    static <T> ResponseEntity<List<T>> respuesta(PaginaOutDto<T> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguiente() != null) {
+            String enlace = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", pagina.getSiguiente())
+                    .toUriString();
+            respuesta.header(CABECERA_CURSOR, pagina.getSiguiente())
+                    .header(HttpHeaders.LINK, "<" + enlace + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina.getContenido());
+    }
+}
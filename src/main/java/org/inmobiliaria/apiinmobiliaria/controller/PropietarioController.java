@@ -1,23 +1,28 @@
 package org.inmobiliaria.apiinmobiliaria.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioOutDto;
-import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.PropietarioMapper;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
 import org.inmobiliaria.apiinmobiliaria.service.PropietarioService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 public class PropietarioController {
@@ -26,36 +31,66 @@ public class PropietarioController {
     private PropietarioService propietarioService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private LecturasCompartidas lecturasCompartidas;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    @Value("${listados.cache-control.propietarios:public, max-age=60}")
+    private String cacheControlListado;
+
+    @Autowired
+    private PropietarioMapper propietarioMapper;
 
     // 1. GET ALL (con filtros)
     @GetMapping("/propietarios")
     public ResponseEntity<List<PropietarioOutDto>> getAll(
             @RequestParam(required = false) String dni,
             @RequestParam(required = false) String nombre,
-            @RequestParam(required = false) Boolean esEmpresa
+            @RequestParam(required = false) Boolean esEmpresa,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest peticion
     ) {
-        List<PropietarioOutDto> propietarios = propietarioService.findAll(dni, nombre, esEmpresa);
-        return ResponseEntity.ok(propietarios);
+        // El ETag sale del contador de modificaciones de la tabla y los filtros: con If-None-Match igual no se lee nada
+        String etag = modificacionesTablas.etag(CacheDtos.PROPIETARIOS, dni, nombre, esEmpresa, orden, after, limit, fields);
+        return Listados.respuesta(peticion, etag, cacheControlListado, () -> {
+            // Con orden, after o limit se devuelve una página y el cursor de la siguiente en las cabeceras
+            if (Paginacion.solicitada(orden, after, limit)) {
+                return Paginacion.respuesta(propietarioService.findPagina(dni, nombre, esEmpresa, orden, after, limit));
+            }
+
+            // Con fields el SELECT lleva solo esas columnas (y el id); Jackson escribe solo esas propiedades
+            if (fields != null) {
+                return ResponseEntity.ok(lecturasCompartidas.leer("propietarios.findProyeccion",
+                        () -> propietarioService.findProyeccion(dni, nombre, esEmpresa, fields), dni, nombre, esEmpresa, fields, etag));
+            }
+
+            List<PropietarioOutDto> propietarios = lecturasCompartidas.leer("propietarios.findAll",
+                    () -> propietarioService.findAll(dni, nombre, esEmpresa), dni, nombre, esEmpresa, etag);
+            return ResponseEntity.ok(propietarios);
+        });
     }
 
     // 2. GET BY ID
     @GetMapping("/propietarios/{id}")
     public ResponseEntity<PropietarioOutDto> getById(@PathVariable long id) throws PropietarioNotFoundException {
-        PropietarioOutDto propietario = propietarioService.findById(id);
-        return ResponseEntity.ok(propietario);
+        PropietarioOutDto propietario = lecturasCompartidas.leer("propietarios.findById", () -> propietarioService.findById(id), id);
+        return Etags.respuesta(propietario);
     }
 
     // 3. POST
     @PostMapping("/propietarios")
     public ResponseEntity<PropietarioOutDto> addPropietario(@Valid @RequestBody PropietarioInDto propietarioInDto) {
         // Conversión DTO -> Entidad
-        Propietario propietario = modelMapper.map(propietarioInDto, Propietario.class);
+        Propietario propietario = propietarioMapper.toEntity(propietarioInDto);
 
         Propietario nuevoPropietario = propietarioService.add(propietario);
 
         // Conversión Entidad -> DTO Salida
-        PropietarioOutDto propietarioOutDto = modelMapper.map(nuevoPropietario, PropietarioOutDto.class);
+        PropietarioOutDto propietarioOutDto = propietarioMapper.toOutDto(nuevoPropietario);
         return new ResponseEntity<>(propietarioOutDto, HttpStatus.CREATED);
     }
 
@@ -63,44 +98,25 @@ public class PropietarioController {
     @PutMapping("/propietarios/{id}")
     public ResponseEntity<PropietarioOutDto> modifyPropietario(
             @PathVariable long id,
-            @Valid @RequestBody PropietarioInDto propietarioInDto
+            @Valid @RequestBody PropietarioInDto propietarioInDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws PropietarioNotFoundException {
-        PropietarioOutDto propietarioModificado = propietarioService.modify(id, propietarioInDto);
-        return ResponseEntity.ok(propietarioModificado);
+        PropietarioOutDto propietarioModificado = propietarioService.modify(id, propietarioInDto, Etags.versionEsperada(ifMatch));
+        return Etags.respuesta(propietarioModificado);
     }
 
-    // 5. DELETE
-    @DeleteMapping("/propietarios/{id}")
-    public ResponseEntity<Void> deletePropietario(@PathVariable long id) throws PropietarioNotFoundException {
-        propietarioService.delete(id);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    // PATCH (JSON Merge Patch): solo cambian los campos que vienen en el cuerpo
+    @PatchMapping(value = "/propietarios/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<PropietarioOutDto> patchPropietario(@PathVariable long id, @RequestBody JsonNode cambios,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws PropietarioNotFoundException {
+        return Etags.respuesta(propietarioService.patch(id, cambios, Etags.versionEsperada(ifMatch)));
     }
 
-    // --- MANEJO DE ERRORES ---
-
-    @ExceptionHandler(Exception.class) // Error 500
-    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
-        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
-    }
-
-    @ExceptionHandler(PropietarioNotFoundException.class) // Error 404
-    public ResponseEntity<ErrorResponse> handleException(PropietarioNotFoundException pnfe) {
-        ErrorResponse errorResponse = ErrorResponse.notFound("El propietario no existe");
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
-    }
-
-    @ExceptionHandler(MethodArgumentNotValidException.class) // Error 400
-    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
-        Map<String, String> errors = new HashMap<>();
-        manve.getBindingResult().getAllErrors().forEach(error -> {
-            String fieldName = ((FieldError) error).getField();
-            String message = error.getDefaultMessage();
-            errors.put(fieldName, message);
-        });
-
-        ErrorResponse errorResponse = ErrorResponse.validationError(errors);
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    // 5. DELETE
+    @DeleteMapping("/propietarios/{id}")
+    public ResponseEntity<Void> deletePropietario(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws PropietarioNotFoundException {
+        BorradoOutDto borrado = propietarioService.delete(id, Etags.versionEsperada(ifMatch));
+        return Borrados.respuesta(borrado);
     }
 
     // SQL GET PROPIETARIO ES EMPRESA
@@ -1,24 +1,30 @@
 package org.inmobiliaria.apiinmobiliaria.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.inmobiliaria.apiinmobiliaria.domain.Visita;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaOutDto;
-import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
 import org.inmobiliaria.apiinmobiliaria.exception.VisitaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
 import org.inmobiliaria.apiinmobiliaria.service.VisitaService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 public class VisitaController {
@@ -27,24 +33,66 @@ public class VisitaController {
     private VisitaService visitaService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private LecturasCompartidas lecturasCompartidas;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    @Value("${listados.cache-control.visitas:private, no-cache}")
+    private String cacheControlListado;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     // 1. GET ALL
     @GetMapping("/visitas")
     public ResponseEntity<List<VisitaOutDto>> getAll(
             @RequestParam(required = false) String estado,
             @RequestParam(required = false) LocalDateTime fechaDesde,
-            @RequestParam(required = false) Float valoracionMin
+            @RequestParam(required = false) Float valoracionMin,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest peticion
     ) {
-        List<VisitaOutDto> visitas = visitaService.findAll(estado, fechaDesde, valoracionMin);
-        return ResponseEntity.ok(visitas);
+        // El ETag sale del contador de modificaciones de la tabla y los filtros: con If-None-Match igual no se lee nada
+        String etag = modificacionesTablas.etag(CacheDtos.VISITAS, estado, fechaDesde, valoracionMin, orden, after, limit, fields);
+        return Listados.respuesta(peticion, etag, cacheControlListado, () -> {
+            // Con orden, after o limit se devuelve una página y el cursor de la siguiente en las cabeceras
+            if (Paginacion.solicitada(orden, after, limit)) {
+                return Paginacion.respuesta(visitaService.findPagina(estado, fechaDesde, valoracionMin, orden, after, limit));
+            }
+
+            // Con fields el SELECT lleva solo esas columnas (y el id); Jackson escribe solo esas propiedades
+            if (fields != null) {
+                return ResponseEntity.ok(lecturasCompartidas.leer("visitas.findProyeccion",
+                        () -> visitaService.findProyeccion(estado, fechaDesde, valoracionMin, fields), estado, fechaDesde, valoracionMin, fields, etag));
+            }
+
+            List<VisitaOutDto> visitas = lecturasCompartidas.leer("visitas.findAll",
+                    () -> visitaService.findAll(estado, fechaDesde, valoracionMin), estado, fechaDesde, valoracionMin, etag);
+            return ResponseEntity.ok(visitas);
+        });
+    }
+
+    // 1b. GET ALL en NDJSON: una visita por línea, sin cargar la lista en memoria
+    @GetMapping(value = "/visitas", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportar(
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) LocalDateTime fechaDesde,
+            @RequestParam(required = false) Float valoracionMin,
+            HttpServletResponse response
+    ) throws IOException {
+        Ndjson.<VisitaOutDto>escribir(response, objectMapper,
+                destino -> visitaService.exportar(estado, fechaDesde, valoracionMin, destino));
     }
 
     // 2. GET BY ID
     @GetMapping("/visitas/{id}")
     public ResponseEntity<VisitaOutDto> getById(@PathVariable long id) throws VisitaNotFoundException {
-        VisitaOutDto visita = visitaService.findById(id);
-        return ResponseEntity.ok(visita);
+        VisitaOutDto visita = lecturasCompartidas.leer("visitas.findById", () -> visitaService.findById(id), id);
+        return Etags.respuesta(visita);
     }
 
     // 3. POST
@@ -61,42 +109,27 @@ public class VisitaController {
     @PutMapping("/visitas/{id}")
     public ResponseEntity<VisitaOutDto> modifyVisita(
             @PathVariable long id,
-            @Valid @RequestBody VisitaInDto visitaInDto
+            @Valid @RequestBody VisitaInDto visitaInDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws VisitaNotFoundException {
-        VisitaOutDto visitaModificada = visitaService.modify(id, visitaInDto);
-        return ResponseEntity.ok(visitaModificada);
+        VisitaOutDto visitaModificada = visitaService.modify(id, visitaInDto, Etags.versionEsperada(ifMatch));
+        return Etags.respuesta(visitaModificada);
+    }
+
+    // PATCH (JSON Merge Patch): solo cambian los campos que vienen en el cuerpo
+    @PatchMapping(value = "/visitas/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<VisitaOutDto> patchVisita(@PathVariable long id, @RequestBody JsonNode cambios,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws VisitaNotFoundException {
+        return Etags.respuesta(visitaService.patch(id, cambios, Etags.versionEsperada(ifMatch)));
     }
 
     // 5. DELETE
     @DeleteMapping("/visitas/{id}")
-    public ResponseEntity<Void> deleteVisita(@PathVariable long id) throws VisitaNotFoundException {
-        visitaService.delete(id);
+    public ResponseEntity<Void> deleteVisita(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws VisitaNotFoundException {
+        visitaService.delete(id, Etags.versionEsperada(ifMatch));
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
-    // --- ERRORES ---
-
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleInternalServerError(Exception ex) {
-        ErrorResponse errorResponse = ErrorResponse.generalError(500, "Internal Server Error", ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
-    }
-
-    @ExceptionHandler(VisitaNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleException(VisitaNotFoundException vnfe) {
-        ErrorResponse errorResponse = ErrorResponse.notFound("La visita no existe");
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
-    }
-
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<ErrorResponse> handleException(MethodArgumentNotValidException manve) {
-        Map<String, String> errors = new HashMap<>();
-        manve.getBindingResult().getAllErrors().forEach(error -> {
-            errors.put(((FieldError) error).getField(), error.getDefaultMessage());
-        });
-        return new ResponseEntity<>(ErrorResponse.validationError(errors), HttpStatus.BAD_REQUEST);
-    }
-
     // SQL GET BY VISTAS PASADAS
     @GetMapping("/visitas/pasadas")
     public ResponseEntity<List<VisitaOutDto>> getPasadasSql() {
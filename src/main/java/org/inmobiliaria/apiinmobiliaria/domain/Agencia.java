@@ -9,20 +9,36 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data  //Para llamar a lombok que nos va a crear todos los getter y setter
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor //Creamos todos los constructores
 @NoArgsConstructor //Creamos todos los constructores tb sin argumentos.
 @Entity(name="Agencia") //Le indicamos cual va a ser la entidad.
-@Table
+@DynamicUpdate
+// Caché de segundo nivel: cambia poco y se lee en cada alta de inmueble
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "agencia")
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
+@Table(indexes = {
+        @Index(name = "idx_agencia_cp_sabados", columnList = "codigo_postal, abierto_sabados"),
+        @Index(name = "idx_agencia_nombre", columnList = "nombre")
+})
 
-public class Agencia {
+public class Agencia extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "agencia_seq")
+    @SequenceGenerator(name = "agencia_seq", sequenceName = "agencia_seq", allocationSize = 50)
     private long id;
 
     @Column
@@ -5,21 +5,32 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name = "Cliente")
-@Table(name = "cliente")
+@DynamicUpdate
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
+@Table(name = "cliente", indexes = {
+        @Index(name = "idx_cliente_suscrito_presupuesto", columnList = "suscrito, presupuesto_maximo"),
+        @Index(name = "idx_cliente_fecha_alta", columnList = "fecha_alta")
+})
 
-public class Cliente {
+public class Cliente extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cliente_seq")
+    @SequenceGenerator(name = "cliente_seq", sequenceName = "cliente_seq", allocationSize = 50)
     private long id;
 
     @Column
@@ -5,18 +5,25 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 import java.time.LocalDate;
 
 @Data
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name = "ClienteV2")
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
 @Table(name = "cliente")// Tabla independiente
-public class ClienteV2 {
+public class ClienteV2 extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Misma secuencia que Cliente porque comparten tabla
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cliente_v2_seq")
+    @SequenceGenerator(name = "cliente_v2_seq", sequenceName = "cliente_seq", allocationSize = 50)
     private long id;
 
     @Column
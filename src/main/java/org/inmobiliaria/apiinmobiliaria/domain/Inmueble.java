@@ -6,19 +6,36 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name = "Inmueble")
-@Table(name = "inmueble")
-public class Inmueble {
+// UPDATE solo con las columnas que han cambiado: un PATCH de precio no reescribe la fila entera
+@DynamicUpdate
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
+@Table(name = "inmueble", indexes = {
+        @Index(name = "idx_inmueble_ascensor_precio", columnList = "ascensor, precio"),
+        @Index(name = "idx_inmueble_precio", columnList = "precio"),
+        @Index(name = "idx_inmueble_metros", columnList = "metros"),
+        @Index(name = "idx_inmueble_fecha_publicacion", columnList = "fecha_publicacion")
+})
+public class Inmueble extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia con bloques de 50 ids: Hibernate no necesita un INSERT por fila para conocer el id
+    // y puede agrupar las altas en lotes JDBC (hibernate.jdbc.batch_size)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inmueble_seq")
+    @SequenceGenerator(name = "inmueble_seq", sequenceName = "inmueble_seq", allocationSize = 50)
     private long id;
 
     @Column
@@ -54,13 +71,15 @@ public class Inmueble {
     private LocalDate fechaPublicacion;
 
     // Relación N:1 con Agencia
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "agencia_id")
+    @ToString.Exclude
     private Agencia agencia;
 
     // Relación N:1 con Propietario
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "propietario_id")
+    @ToString.Exclude
     private Propietario propietario;
 
     // Relación 1:N con Visitas
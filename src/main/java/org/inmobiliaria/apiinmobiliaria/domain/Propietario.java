@@ -9,21 +9,37 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name="Propietario") //Le indicamos cual va a ser la entidad.
-@Table
+@DynamicUpdate
+// Entidad de referencia en la caché de segundo nivel (casi nunca cambia)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "propietario")
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
+@Table(indexes = {
+        @Index(name = "idx_propietario_es_empresa", columnList = "es_empresa"),
+        @Index(name = "idx_propietario_nombre", columnList = "nombre")
+})
 
-public class Propietario {
+public class Propietario extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "propietario_seq")
+    @SequenceGenerator(name = "propietario_seq", sequenceName = "propietario_seq", allocationSize = 50)
     private long id;
 
     @Column
@@ -0,0 +1,23 @@
+package org.inmobiliaria.apiinmobiliaria.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Columna version para el control de concurrencia optimista: Hibernate la incrementa en cada UPDATE
+ * y la añade al WHERE, así que una escritura sobre una versión ya modificada falla en vez de pisarla.
+ * La API la publica como ETag. Está en una superclase para no cambiar los constructores de Lombok.
+ * Las entidades no la usan en equals/hashCode (callSuper = false): es metadato de concurrencia, no identidad.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+public abstract class Versionada {
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+}
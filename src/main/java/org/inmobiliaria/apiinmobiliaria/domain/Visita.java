@@ -4,18 +4,32 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIdsListener;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesListener;
 
 import java.time.LocalDateTime;
 
 @Data
+@EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name = "Visita")
-@Table(name = "visita")
-public class Visita {
+@DynamicUpdate
+@EntityListeners({FiltroIdsListener.class, ModificacionesListener.class})
+@Table(name = "visita", indexes = {
+        @Index(name = "idx_visita_estado_fecha", columnList = "estado, fecha_hora"),
+        @Index(name = "idx_visita_fecha", columnList = "fecha_hora")
+})
+public class Visita extends Versionada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visita_seq")
+    @SequenceGenerator(name = "visita_seq", sequenceName = "visita_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "fecha_hora")
@@ -42,14 +56,17 @@ public class Visita {
     @NotNull(message = "Debe indicar si el recordatorio está activo")
     private Boolean recordatorioActivo;
 
-    // Relación N:1 con Cliente
-    @ManyToOne
+    // Relación N:1 con Cliente (ON DELETE CASCADE, como en BBDD.sql: DELETE /v2/clientes cuenta con ello)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cliente_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
     private Cliente cliente;
 
     // Relación N:1 con Inmueble
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "inmueble_id")
+    @ToString.Exclude
     private Inmueble inmueble;
 
     public Long getClienteId() {
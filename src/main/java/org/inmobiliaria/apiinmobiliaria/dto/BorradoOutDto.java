@@ -0,0 +1,15 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BorradoOutDto {
+    // Filas borradas en cascada junto con la entidad pedida
+    private int inmuebles;
+
+    private int visitas;
+}
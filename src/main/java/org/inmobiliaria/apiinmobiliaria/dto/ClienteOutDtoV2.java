@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
@@ -11,7 +12,8 @@ import java.time.LocalDate;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class ClienteOutDtoV2 {
+@EqualsAndHashCode(callSuper = true)
+public class ClienteOutDtoV2 extends VersionadoOutDto {
     private long id;
 
     @NotBlank(message = "El email es obligatorio")
@@ -0,0 +1,18 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ErrorImportacionOutDto {
+    // Número de línea en el fichero subido (la cabecera del CSV es la línea 1)
+    private int fila;
+
+    // Campo -> mensaje, como en los errores de validación de POST /inmuebles
+    private Map<String, String> errores;
+}
@@ -0,0 +1,20 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportacionOutDto {
+    // Filas leídas (sin contar la cabecera del CSV ni las líneas vacías)
+    private int total;
+
+    private int importados;
+
+    // Una entrada por fila rechazada
+    private List<ErrorImportacionOutDto> errores;
+}
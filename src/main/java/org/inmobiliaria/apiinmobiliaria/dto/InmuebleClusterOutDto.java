@@ -0,0 +1,24 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InmuebleClusterOutDto {
+    // Número de inmuebles agrupados
+    private int cantidad;
+
+    // Centroide del grupo
+    private Double latitud;
+
+    private Double longitud;
+
+    private Float precioMin;
+
+    private Float precioMedio;
+
+    private Float precioMax;
+}
@@ -0,0 +1,18 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoteOutDto<T> {
+    // En el orden en que se pidieron los ids (sin repetidos)
+    private List<T> contenido;
+
+    // Ids pedidos que no existen
+    private List<Long> noEncontrados;
+}
@@ -0,0 +1,17 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaOutDto<T> {
+    private List<T> contenido;
+
+    // Cursor opaco para pedir la página siguiente (null si es la última)
+    private String siguiente;
+}
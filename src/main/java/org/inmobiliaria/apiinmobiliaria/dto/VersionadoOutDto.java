@@ -0,0 +1,25 @@
+package org.inmobiliaria.apiinmobiliaria.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Versión de la entidad cuando se leyó. No sale en el cuerpo: los controladores la envían en la cabecera ETag
+ * y la esperan en If-Match. Se guarda con el DTO en la caché de los findById.
+ * Entra en equals/hashCode: dos lecturas de versiones distintas (ETag distinto) no son el mismo DTO.
+ * El filtro FILTRO_CAMPOS es el que aplica ?fields= en los GET; sin el parámetro se escriben todas las propiedades.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+@JsonFilter(VersionadoOutDto.FILTRO_CAMPOS)
+public abstract class VersionadoOutDto {
+
+    public static final String FILTRO_CAMPOS = "campos";
+
+    @JsonIgnore
+    private long version;
+}
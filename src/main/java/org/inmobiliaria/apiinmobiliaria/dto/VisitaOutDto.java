@@ -2,14 +2,16 @@ package org.inmobiliaria.apiinmobiliaria.dto;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@EqualsAndHashCode(callSuper = true)
 @AllArgsConstructor
 @NoArgsConstructor
-public class VisitaOutDto {
+public class VisitaOutDto extends VersionadoOutDto {
     private Long id;
 
     @NotNull(message = "La fecha y hora son obligatorias")
@@ -1,6 +1,9 @@
 package org.inmobiliaria.apiinmobiliaria.exception;
 
-public class AgenciaNotFoundException extends RuntimeException {
+public class AgenciaNotFoundException extends RecursoNoEncontradoException {
+
+    public static final AgenciaNotFoundException INSTANCIA = new AgenciaNotFoundException("La agencia no existe");
+
     public AgenciaNotFoundException(String message) {
         super(message);
     }
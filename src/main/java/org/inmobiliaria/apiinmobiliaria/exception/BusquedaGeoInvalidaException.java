@@ -0,0 +1,7 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+public class BusquedaGeoInvalidaException extends RuntimeException {
+    public BusquedaGeoInvalidaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+public class CamposInvalidosException extends RuntimeException {
+    public CamposInvalidosException(String message) {
+        super(message);
+    }
+}
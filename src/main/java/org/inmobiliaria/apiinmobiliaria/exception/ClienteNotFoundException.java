@@ -1,6 +1,9 @@
 package org.inmobiliaria.apiinmobiliaria.exception;
 
-public class ClienteNotFoundException extends RuntimeException {
+public class ClienteNotFoundException extends RecursoNoEncontradoException {
+
+    public static final ClienteNotFoundException INSTANCIA = new ClienteNotFoundException("El cliente no existe");
+
     public ClienteNotFoundException(String message) {
         super(message);
     }
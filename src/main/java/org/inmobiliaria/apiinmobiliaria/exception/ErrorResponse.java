@@ -4,7 +4,6 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Data
@@ -16,12 +15,13 @@ public class ErrorResponse {
     public String message;
     private Map<String, String> errors;
 
+    // Sin errores por campo: mapa vacío inmutable y compartido
     public static ErrorResponse generalError(int code, String title, String message) {
-        return new ErrorResponse(code, title, message, new HashMap<>());
+        return new ErrorResponse(code, title, message, Map.of());
     }
 
     public static ErrorResponse notFound(String message) {
-        return new ErrorResponse(404, "not-found", message, new HashMap<>());
+        return new ErrorResponse(404, "not-found", message, Map.of());
     }
 
     public static ErrorResponse validationError(Map<String, String> errors) {
@@ -1,6 +1,9 @@
 package org.inmobiliaria.apiinmobiliaria.exception;
 
-public class InmuebleNotFoundException extends RuntimeException {
+public class InmuebleNotFoundException extends RecursoNoEncontradoException {
+
+    public static final InmuebleNotFoundException INSTANCIA = new InmuebleNotFoundException("El inmueble no existe");
+
     public InmuebleNotFoundException(String message) {
         super(message);
     }
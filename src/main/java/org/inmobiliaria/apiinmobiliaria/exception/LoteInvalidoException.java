@@ -0,0 +1,7 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+public class LoteInvalidoException extends RuntimeException {
+    public LoteInvalidoException(String message) {
+        super(message);
+    }
+}
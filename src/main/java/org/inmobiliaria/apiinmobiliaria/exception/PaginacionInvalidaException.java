@@ -0,0 +1,7 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+public class PaginacionInvalidaException extends RuntimeException {
+    public PaginacionInvalidaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+public class PatchInvalidoException extends RuntimeException {
+
+    // Campo -> mensaje, como en los errores de validación de @Valid
+    private final Map<String, String> errores;
+
+    public PatchInvalidoException(String message, Map<String, String> errores) {
+        super(message);
+        this.errores = errores;
+    }
+}
@@ -1,6 +1,9 @@
 package org.inmobiliaria.apiinmobiliaria.exception;
 
-public class PropietarioNotFoundException extends RuntimeException {
+public class PropietarioNotFoundException extends RecursoNoEncontradoException {
+
+    public static final PropietarioNotFoundException INSTANCIA = new PropietarioNotFoundException("El propietario no existe");
+
     public PropietarioNotFoundException(String message) {
         super(message);
     }
@@ -0,0 +1,14 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+/**
+ * Base de las excepciones de "no encontrado" (404). No captura la traza ni admite excepciones suprimidas:
+ * el 404 es la respuesta más habitual con los scrapers y la traza no se usa para nada.
+ * Al ser inmutables, cada subclase tiene una instancia compartida (INSTANCIA) para las búsquedas por id,
+ * que se puede lanzar desde cualquier hilo sin crear nada.
+ */
+public abstract class RecursoNoEncontradoException extends RuntimeException {
+
+    protected RecursoNoEncontradoException(String message) {
+        super(message, null, false, false);
+    }
+}
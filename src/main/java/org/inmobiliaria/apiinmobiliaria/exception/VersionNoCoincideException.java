@@ -0,0 +1,8 @@
+package org.inmobiliaria.apiinmobiliaria.exception;
+
+// If-Match con una versión que ya no es la actual (412 Precondition Failed)
+public class VersionNoCoincideException extends RuntimeException {
+    public VersionNoCoincideException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,9 @@
 package org.inmobiliaria.apiinmobiliaria.exception;
 
-public class VisitaNotFoundException extends RuntimeException {
+public class VisitaNotFoundException extends RecursoNoEncontradoException {
+
+    public static final VisitaNotFoundException INSTANCIA = new VisitaNotFoundException("La visita no existe");
+
     public VisitaNotFoundException(String message) {
         super(message);
     }
@@ -0,0 +1,65 @@
+package org.inmobiliaria.apiinmobiliaria.mapper;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.dto.AgenciaInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversión Agencia <-> DTO escrita a mano (sin reflexión), con la misma semántica
+ * que tenía ModelMapper en modo STRICT.
+ */
+@Component
+public class AgenciaMapper {
+
+    public AgenciaOutDto toOutDto(Agencia agencia) {
+        AgenciaOutDto outDto = new AgenciaOutDto(
+                agencia.getId(),
+                agencia.getNombre(),
+                agencia.getDireccion(),
+                agencia.getFacturacionAnual(),
+                agencia.getCodigoPostal(),
+                agencia.getAbiertoSabados(),
+                agencia.getFechaFundacion());
+        outDto.setVersion(agencia.getVersion());
+        return outDto;
+    }
+
+    public List<AgenciaOutDto> toOutDtoList(List<Agencia> agencias) {
+        List<AgenciaOutDto> resultado = new ArrayList<>(agencias.size());
+        for (Agencia agencia : agencias) {
+            resultado.add(toOutDto(agencia));
+        }
+        return resultado;
+    }
+
+    public Agencia toEntity(AgenciaInDto inDto) {
+        Agencia agencia = new Agencia();
+        updateEntity(inDto, agencia);
+        return agencia;
+    }
+
+    // Estado actual como InDto: la base sobre la que se aplica un PATCH
+    public AgenciaInDto toInDto(Agencia agencia) {
+        return new AgenciaInDto(
+                agencia.getNombre(),
+                agencia.getDireccion(),
+                agencia.getFacturacionAnual(),
+                agencia.getCodigoPostal(),
+                agencia.getAbiertoSabados(),
+                agencia.getFechaFundacion());
+    }
+
+    // Vuelca el DTO sobre la entidad (también los nulos); el id y las relaciones no se tocan
+    public void updateEntity(AgenciaInDto inDto, Agencia agencia) {
+        agencia.setNombre(inDto.getNombre());
+        agencia.setDireccion(inDto.getDireccion());
+        agencia.setFacturacionAnual(inDto.getFacturacionAnual());
+        agencia.setCodigoPostal(inDto.getCodigoPostal());
+        agencia.setAbiertoSabados(inDto.getAbiertoSabados());
+        agencia.setFechaFundacion(inDto.getFechaFundacion());
+    }
+}
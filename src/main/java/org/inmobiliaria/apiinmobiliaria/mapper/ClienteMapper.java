@@ -0,0 +1,65 @@
+package org.inmobiliaria.apiinmobiliaria.mapper;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper de Cliente. La contraseña entra desde ClienteInDto pero nunca sale en ClienteOutDto.
+ */
+@Component
+public class ClienteMapper {
+
+    public ClienteOutDto toOutDto(Cliente cliente) {
+        ClienteOutDto outDto = new ClienteOutDto(
+                cliente.getId(),
+                cliente.getEmail(),
+                cliente.getTelefono(),
+                cliente.getPresupuestoMaximo(),
+                cliente.getEdad(),
+                cliente.getSuscrito());
+        outDto.setVersion(cliente.getVersion());
+        return outDto;
+    }
+
+    public List<ClienteOutDto> toOutDtoList(List<Cliente> clientes) {
+        List<ClienteOutDto> resultado = new ArrayList<>(clientes.size());
+        for (Cliente cliente : clientes) {
+            resultado.add(toOutDto(cliente));
+        }
+        return resultado;
+    }
+
+    public Cliente toEntity(ClienteInDto inDto) {
+        Cliente cliente = new Cliente();
+        updateEntity(inDto, cliente);
+        return cliente;
+    }
+
+    // Base de un PATCH: lleva la contraseña guardada para que el InDto siga siendo válido
+    public ClienteInDto toInDto(Cliente cliente) {
+        return new ClienteInDto(
+                cliente.getEmail(),
+                cliente.getPassword(),
+                cliente.getTelefono(),
+                cliente.getPresupuestoMaximo(),
+                cliente.getEdad(),
+                cliente.getFechaAlta(),
+                cliente.getSuscrito());
+    }
+
+    // Vuelca el DTO sobre la entidad (también los nulos); el id y las relaciones no se tocan
+    public void updateEntity(ClienteInDto inDto, Cliente cliente) {
+        cliente.setEmail(inDto.getEmail());
+        cliente.setPassword(inDto.getPassword());
+        cliente.setTelefono(inDto.getTelefono());
+        cliente.setPresupuestoMaximo(inDto.getPresupuestoMaximo());
+        cliente.setEdad(inDto.getEdad());
+        cliente.setFechaAlta(inDto.getFechaAlta());
+        cliente.setSuscrito(inDto.getSuscrito());
+    }
+}
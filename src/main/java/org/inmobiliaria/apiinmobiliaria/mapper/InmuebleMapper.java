@@ -0,0 +1,72 @@
+package org.inmobiliaria.apiinmobiliaria.mapper;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper de Inmueble. En la salida se aplanan las relaciones con getAgenciaId() y getPropietarioId();
+ * en la entrada agenciaId y propietarioId se ignoran porque las relaciones las asigna el servicio.
+ */
+@Component
+public class InmuebleMapper {
+
+    public InmuebleOutDto toOutDto(Inmueble inmueble) {
+        InmuebleOutDto outDto = new InmuebleOutDto(
+                inmueble.getId(),
+                inmueble.getTitulo(),
+                inmueble.getPrecio(),
+                inmueble.getMetros(),
+                inmueble.getLatitud(),
+                inmueble.getLongitud(),
+                inmueble.getAscensor(),
+                inmueble.getFechaPublicacion(),
+                inmueble.getAgenciaId(),
+                inmueble.getPropietarioId());
+        outDto.setVersion(inmueble.getVersion());
+        return outDto;
+    }
+
+    public List<InmuebleOutDto> toOutDtoList(List<Inmueble> inmuebles) {
+        List<InmuebleOutDto> resultado = new ArrayList<>(inmuebles.size());
+        for (Inmueble inmueble : inmuebles) {
+            resultado.add(toOutDto(inmueble));
+        }
+        return resultado;
+    }
+
+    public Inmueble toEntity(InmuebleInDto inDto) {
+        Inmueble inmueble = new Inmueble();
+        updateEntity(inDto, inmueble);
+        return inmueble;
+    }
+
+    // Estado actual como InDto (con los ids de las relaciones), base de un PATCH
+    public InmuebleInDto toInDto(Inmueble inmueble) {
+        return new InmuebleInDto(
+                inmueble.getTitulo(),
+                inmueble.getPrecio(),
+                inmueble.getMetros(),
+                inmueble.getLatitud(),
+                inmueble.getLongitud(),
+                inmueble.getAscensor(),
+                inmueble.getFechaPublicacion(),
+                inmueble.getAgenciaId(),
+                inmueble.getPropietarioId());
+    }
+
+    // Vuelca el DTO sobre la entidad (también los nulos); el id y las relaciones no se tocan
+    public void updateEntity(InmuebleInDto inDto, Inmueble inmueble) {
+        inmueble.setTitulo(inDto.getTitulo());
+        inmueble.setPrecio(inDto.getPrecio());
+        inmueble.setMetros(inDto.getMetros());
+        inmueble.setLatitud(inDto.getLatitud());
+        inmueble.setLongitud(inDto.getLongitud());
+        inmueble.setAscensor(inDto.getAscensor());
+        inmueble.setFechaPublicacion(inDto.getFechaPublicacion());
+    }
+}
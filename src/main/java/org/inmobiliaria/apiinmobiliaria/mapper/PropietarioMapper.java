@@ -0,0 +1,64 @@
+package org.inmobiliaria.apiinmobiliaria.mapper;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.PropietarioInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PropietarioOutDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper de Propietario (entidad <-> PropietarioInDto / PropietarioOutDto).
+ */
+@Component
+public class PropietarioMapper {
+
+    public PropietarioOutDto toOutDto(Propietario propietario) {
+        PropietarioOutDto outDto = new PropietarioOutDto(
+                propietario.getId(),
+                propietario.getDni(),
+                propietario.getNombre(),
+                propietario.getTelefono(),
+                propietario.getComision(),
+                propietario.getEsEmpresa(),
+                propietario.getFechaAlta());
+        outDto.setVersion(propietario.getVersion());
+        return outDto;
+    }
+
+    public List<PropietarioOutDto> toOutDtoList(List<Propietario> propietarios) {
+        List<PropietarioOutDto> resultado = new ArrayList<>(propietarios.size());
+        for (Propietario propietario : propietarios) {
+            resultado.add(toOutDto(propietario));
+        }
+        return resultado;
+    }
+
+    public Propietario toEntity(PropietarioInDto inDto) {
+        Propietario propietario = new Propietario();
+        updateEntity(inDto, propietario);
+        return propietario;
+    }
+
+    // Estado actual como InDto, para aplicarle un PATCH
+    public PropietarioInDto toInDto(Propietario propietario) {
+        return new PropietarioInDto(
+                propietario.getDni(),
+                propietario.getNombre(),
+                propietario.getTelefono(),
+                propietario.getComision(),
+                propietario.getEsEmpresa(),
+                propietario.getFechaAlta());
+    }
+
+    // Vuelca el DTO sobre la entidad (también los nulos); el id y las relaciones no se tocan
+    public void updateEntity(PropietarioInDto inDto, Propietario propietario) {
+        propietario.setDni(inDto.getDni());
+        propietario.setNombre(inDto.getNombre());
+        propietario.setTelefono(inDto.getTelefono());
+        propietario.setComision(inDto.getComision());
+        propietario.setEsEmpresa(inDto.getEsEmpresa());
+        propietario.setFechaAlta(inDto.getFechaAlta());
+    }
+}
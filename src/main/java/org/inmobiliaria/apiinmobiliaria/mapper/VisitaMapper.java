@@ -0,0 +1,69 @@
+package org.inmobiliaria.apiinmobiliaria.mapper;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.inmobiliaria.apiinmobiliaria.dto.VisitaInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.VisitaOutDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper de Visita. clienteId e inmuebleId salen de las relaciones; al entrar no se tocan
+ * porque el servicio busca el Cliente y el Inmueble.
+ */
+@Component
+public class VisitaMapper {
+
+    public VisitaOutDto toOutDto(Visita visita) {
+        VisitaOutDto outDto = new VisitaOutDto(
+                visita.getId(),
+                visita.getFechaHora(),
+                visita.getComentarios(),
+                visita.getEstado(),
+                visita.getValoracion(),
+                visita.getDuracionEstimada(),
+                visita.getRecordatorioActivo(),
+                visita.getClienteId(),
+                visita.getInmuebleId());
+        outDto.setVersion(visita.getVersion());
+        return outDto;
+    }
+
+    public List<VisitaOutDto> toOutDtoList(List<Visita> visitas) {
+        List<VisitaOutDto> resultado = new ArrayList<>(visitas.size());
+        for (Visita visita : visitas) {
+            resultado.add(toOutDto(visita));
+        }
+        return resultado;
+    }
+
+    public Visita toEntity(VisitaInDto inDto) {
+        Visita visita = new Visita();
+        updateEntity(inDto, visita);
+        return visita;
+    }
+
+    // Estado actual como InDto (con clienteId e inmuebleId), base de un PATCH
+    public VisitaInDto toInDto(Visita visita) {
+        return new VisitaInDto(
+                visita.getFechaHora(),
+                visita.getComentarios(),
+                visita.getEstado(),
+                visita.getValoracion(),
+                visita.getDuracionEstimada(),
+                visita.getRecordatorioActivo(),
+                visita.getClienteId(),
+                visita.getInmuebleId());
+    }
+
+    // Vuelca el DTO sobre la entidad (también los nulos); el id y las relaciones no se tocan
+    public void updateEntity(VisitaInDto inDto, Visita visita) {
+        visita.setFechaHora(inDto.getFechaHora());
+        visita.setComentarios(inDto.getComentarios());
+        visita.setEstado(inDto.getEstado());
+        visita.setValoracion(inDto.getValoracion());
+        visita.setDuracionEstimada(inDto.getDuracionEstimada());
+        visita.setRecordatorioActivo(inDto.getRecordatorioActivo());
+    }
+}
@@ -1,28 +1,48 @@
 package org.inmobiliaria.apiinmobiliaria.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface AgenciaRepository extends CrudRepository<Agencia, Long> {
+public interface AgenciaRepository extends CrudRepository<Agencia, Long>, JpaSpecificationExecutor<Agencia> {
 
     /* Si dejamos este método para JPA haga la mágia no es válido si falta algún campo
     List<Agencia> findByNombreContainingIgnoreCaseAndCodigoPostalAndAbiertoSabados(String nombre, Integer codigoPostal, Boolean abiertoSabados);
     */
 
-    @Query("SELECT a FROM Agencia a WHERE " +
-            "(:nombre IS NULL OR LOWER(a.nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))) AND " +
-            "(:codigoPostal IS NULL OR a.codigoPostal = :codigoPostal) AND " +
-            "(:abiertoSabados IS NULL OR a.abiertoSabados = :abiertoSabados)")
-    List<Agencia> findByFilter(String nombre, Integer codigoPostal, Boolean abiertoSabados);
+    //Consulta dinámica: solo se filtra por los parámetros que no son nulos
+    default List<Agencia> findByFilter(String nombre, Integer codigoPostal, Boolean abiertoSabados) {
+        return findAll(AgenciaSpecifications.filtro(nombre, codigoPostal, abiertoSabados));
+    }
 
+    // Los listados de agencias van a la caché de consultas de Hibernate (solo guarda los ids;
+    // las agencias salen de la caché de segundo nivel). Se invalida sola cuando cambia la tabla agencia.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Agencia> findAll();
 
+    // Se redeclara para que findByFilter también use la caché de consultas
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Agencia> findAll(Specification<Agencia> spec);
+
 
     @Query(value = "SELECT a FROM Agencia a WHERE a.facturacionAnual > :facturacion AND a.abiertoSabados = true")
     List<Agencia> findAgenciasMaximaFacturacionAndAbiertoSabados(Double facturacion);
+
+    //Ids existentes, para cargar el filtro de ids (FiltroIds)
+    @Query("SELECT a.id FROM Agencia a")
+    List<Long> findAllIds();
+
+    // De JpaRepository (lo implementa SimpleJpaRepository): escribe ya los cambios pendientes,
+    // para que el DTO que se devuelve lleve la versión nueva
+    void flush();
 }
@@ -0,0 +1,35 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro dinámico de agencias para findByFilter.
+ * Solo se añaden los predicados de los parámetros informados (antes se usaba
+ * "(:x IS NULL OR ...)" y la base de datos tenía que preparar un único plan para todos los casos).
+ */
+public final class AgenciaSpecifications {
+
+    private AgenciaSpecifications() {
+    }
+
+    public static Specification<Agencia> filtro(String nombre, Integer codigoPostal, Boolean abiertoSabados) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (nombre != null) {
+                predicados.add(cb.like(cb.lower(root.get("nombre")), "%" + nombre.toLowerCase() + "%"));
+            }
+            if (codigoPostal != null) {
+                predicados.add(cb.equal(root.get("codigoPostal"), codigoPostal));
+            }
+            if (abiertoSabados != null) {
+                predicados.add(cb.equal(root.get("abiertoSabados"), abiertoSabados));
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Borrados en cascada con DELETE por conjuntos en orden de dependencias (visitas, inmuebles y la fila raíz),
+ * sin cargar las entidades hijas: con CascadeType.ALL Hibernate traería cada inmueble y cada visita
+ * para borrarlos de uno en uno. Solo se leen los ids de lo que se borra, para limpiar después lo que
+ * se guarda en memoria (cachés, filtro de ids, índice geográfico).
+ * Hay que llamarlo dentro de una transacción de escritura.
+ */
+@Repository
+public class BorradoMasivoRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // filas: filas raíz borradas (0 si no existía); inmuebles y visitas: ids borrados en cascada
+    public record Borrado(int filas, List<Long> inmuebles, List<Long> visitas) {
+    }
+
+    // Versión actual de la fila raíz, bloqueándola (SELECT ... FOR UPDATE) hasta el final de la transacción
+    public Optional<Long> versionBloqueada(Class<?> entidad, long id) {
+        return entityManager.createQuery("SELECT e.version FROM " + entidad.getSimpleName() + " e WHERE e.id = :id", Long.class)
+                .setParameter("id", id)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultStream()
+                .findFirst();
+    }
+
+    public Borrado borrarAgencia(long id) {
+        return borrarConInmuebles("Agencia", "agencia", id);
+    }
+
+    public Borrado borrarPropietario(long id) {
+        return borrarConInmuebles("Propietario", "propietario", id);
+    }
+
+    public Borrado borrarInmueble(long id) {
+        List<Long> visitas = ids("SELECT v.id FROM Visita v WHERE v.inmueble.id = :id", id);
+        borrar("DELETE FROM Visita v WHERE v.inmueble.id = :id", id);
+        int filas = borrar("DELETE FROM Inmueble i WHERE i.id = :id", id);
+        return new Borrado(filas, (filas > 0) ? List.of(id) : List.of(), visitas);
+    }
+
+    // entidad: nombre JPQL de la raíz; relacion: atributo de Inmueble que apunta a ella
+    private Borrado borrarConInmuebles(String entidad, String relacion, long id) {
+        // 1. Ids de lo que va a desaparecer
+        List<Long> inmuebles = ids("SELECT i.id FROM Inmueble i WHERE i." + relacion + ".id = :id", id);
+        List<Long> visitas = ids("SELECT v.id FROM Visita v WHERE v.inmueble." + relacion + ".id = :id", id);
+
+        // 2. DELETE de hijos a padres, cada uno en una sola sentencia
+        borrar("DELETE FROM Visita v WHERE v.inmueble.id IN (SELECT i.id FROM Inmueble i WHERE i." + relacion + ".id = :id)", id);
+        borrar("DELETE FROM Inmueble i WHERE i." + relacion + ".id = :id", id);
+        int filas = borrar("DELETE FROM " + entidad + " e WHERE e.id = :id", id);
+        return new Borrado(filas, inmuebles, visitas);
+    }
+
+    private List<Long> ids(String jpql, long id) {
+        return entityManager.createQuery(jpql, Long.class).setParameter("id", id).getResultList();
+    }
+
+    private int borrar(String jpql, long id) {
+        return entityManager.createQuery(jpql).setParameter("id", id).executeUpdate();
+    }
+}
@@ -1,6 +1,7 @@
 package org.inmobiliaria.apiinmobiliaria.repository;
 
 import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
@@ -8,16 +9,14 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ClienteRepository extends CrudRepository<Cliente, Long> {
+public interface ClienteRepository extends CrudRepository<Cliente, Long>, JpaSpecificationExecutor<Cliente> {
 
     //List<Cliente> findByEmailContainingAndTelefonoContainingAndSuscrito(String email, String telefono, Boolean suscrito);
 
-    @Query("SELECT c FROM Cliente c WHERE " +
-            "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
-            "(:telefono IS NULL OR c.telefono LIKE CONCAT('%', :telefono, '%')) AND " +
-            "(:suscrito IS NULL OR c.suscrito = :suscrito)")
-    List<Cliente> findByFilter(String email, String telefono, Boolean suscrito
-    );
+    //Consulta dinámica: solo se filtra por los parámetros que no son nulos
+    default List<Cliente> findByFilter(String email, String telefono, Boolean suscrito) {
+        return findAll(ClienteSpecifications.filtro(email, telefono, suscrito));
+    }
 
     List<Cliente> findAll();
 
@@ -25,4 +24,12 @@ public interface ClienteRepository extends CrudRepository<Cliente, Long> {
     List<Cliente> findClientesVip(Float cantidad);
 
     String telefono(String telefono);
+
+    //Ids existentes, para cargar el filtro de ids (FiltroIds)
+    @Query("SELECT c.id FROM Cliente c")
+    List<Long> findAllIds();
+
+    // De JpaRepository (lo implementa SimpleJpaRepository): escribe ya los cambios pendientes,
+    // para que el DTO que se devuelve lleve la versión nueva
+    void flush();
 }
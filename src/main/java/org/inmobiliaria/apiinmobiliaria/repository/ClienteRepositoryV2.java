@@ -6,4 +6,7 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ClienteRepositoryV2 extends CrudRepository<ClienteV2, Long> {
+
+    // De JpaRepository: el PUT devuelve el DTO con la versión nueva, que es su ETag
+    void flush();
 }
\ No newline at end of file
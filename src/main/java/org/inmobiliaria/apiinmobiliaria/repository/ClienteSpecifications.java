@@ -0,0 +1,33 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro dinámico de clientes: cada parámetro nulo simplemente no aparece en el WHERE.
+ */
+public final class ClienteSpecifications {
+
+    private ClienteSpecifications() {
+    }
+
+    public static Specification<Cliente> filtro(String email, String telefono, Boolean suscrito) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (email != null) {
+                predicados.add(cb.like(cb.lower(root.get("email")), "%" + email.toLowerCase() + "%"));
+            }
+            if (telefono != null) {
+                predicados.add(cb.like(root.get("telefono"), "%" + telefono + "%"));
+            }
+            if (suscrito != null) {
+                predicados.add(cb.equal(root.get("suscrito"), suscrito));
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
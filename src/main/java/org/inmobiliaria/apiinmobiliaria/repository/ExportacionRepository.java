@@ -0,0 +1,56 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Recorrido de una tabla entera para las exportaciones en streaming.
+ * La consulta se lee con un cursor de solo avance (el driver de MariaDB trae las filas
+ * de FETCH_SIZE en FETCH_SIZE) y el contexto de persistencia se vacía cada bloque,
+ * así la memoria no crece con el tamaño de la tabla.
+ * Hay que llamarlo dentro de una transacción para que la conexión siga abierta.
+ */
+@Repository
+public class ExportacionRepository {
+
+    public static final int FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> void recorrer(Class<T> tipo, Specification<T> filtro, Consumer<T> accion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(tipo);
+        Root<T> root = query.from(tipo);
+        Predicate predicado = filtro.toPredicate(root, query, cb);
+        if (predicado != null) {
+            query.where(predicado);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        try (Stream<T> filas = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int leidas = 0;
+            for (Iterator<T> iterador = filas.iterator(); iterador.hasNext(); ) {
+                accion.accept(iterador.next());
+                // Las entidades ya escritas (y sus relaciones) no se vuelven a usar
+                if (++leidas % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Alta de lotes de entidades en una sola transacción para las importaciones masivas.
+ * Con ids de secuencia los INSERT se envían en lotes JDBC (hibernate.jdbc.batch_size) al hacer flush,
+ * y después se vacía el contexto de persistencia para que no acumule todo el fichero.
+ */
+@Repository
+public class ImportacionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public <T> void guardarLote(List<T> entidades) {
+        for (T entidad : entidades) {
+            entityManager.persist(entidad);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,6 +1,7 @@
 package org.inmobiliaria.apiinmobiliaria.repository;
 
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -9,14 +10,13 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface InmuebleRepository extends CrudRepository<Inmueble, Long> {
+public interface InmuebleRepository extends CrudRepository<Inmueble, Long>, JpaSpecificationExecutor<Inmueble> {
 
     //List<Inmueble> findByPrecioLessThanEqualAndMetrosGreaterThanEqualAndAscensor(Float precioMax, Integer metrosMin, Boolean ascensor);
-    @Query("SELECT i FROM Inmueble i WHERE " +
-            "(:precioMax IS NULL OR i.precio <= :precioMax) AND " +
-            "(:metrosMin IS NULL OR i.metros >= :metrosMin) AND " +
-            "(:ascensor IS NULL OR i.ascensor = :ascensor)")
-    List<Inmueble> findByFilter(Float precioMax, Integer metrosMin, Boolean ascensor);
+    //Consulta dinámica: solo se filtra por los parámetros que no son nulos
+    default List<Inmueble> findByFilter(Float precioMax, Integer metrosMin, Boolean ascensor) {
+        return findAll(InmuebleSpecifications.filtro(precioMax, metrosMin, ascensor));
+    }
 
     List<Inmueble> findAll();
 
@@ -27,4 +27,16 @@ public interface InmuebleRepository extends CrudRepository<Inmueble, Long> {
     //SQL Nativo
     @NativeQuery(value = "SELECT * FROM inmueble WHERE metros > :metros")
     List<Inmueble> findInmueblesGrandesNativo(Integer metros);
+
+    //Datos para cargar el índice geográfico (sin cargar las relaciones)
+    @Query("SELECT i.id, i.latitud, i.longitud, i.precio, i.metros, i.ascensor FROM Inmueble i")
+    List<Object[]> findDatosGeo();
+
+    //Ids existentes, para cargar el filtro de ids (FiltroIds)
+    @Query("SELECT i.id FROM Inmueble i")
+    List<Long> findAllIds();
+
+    // De JpaRepository (lo implementa SimpleJpaRepository): escribe ya los cambios pendientes,
+    // para que el DTO que se devuelve lleve la versión nueva
+    void flush();
 }
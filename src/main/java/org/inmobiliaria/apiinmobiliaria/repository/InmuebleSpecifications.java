@@ -0,0 +1,35 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro dinámico de inmuebles (precio máximo, metros mínimos, ascensor).
+ * Al generar solo los predicados necesarios, MariaDB puede usar los índices
+ * idx_inmueble_ascensor_precio, idx_inmueble_precio o idx_inmueble_metros según la combinación.
+ */
+public final class InmuebleSpecifications {
+
+    private InmuebleSpecifications() {
+    }
+
+    public static Specification<Inmueble> filtro(Float precioMax, Integer metrosMin, Boolean ascensor) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (precioMax != null) {
+                predicados.add(cb.lessThanOrEqualTo(root.get("precio"), precioMax));
+            }
+            if (metrosMin != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("metros"), metrosMin));
+            }
+            if (ascensor != null) {
+                predicados.add(cb.equal(root.get("ascensor"), ascensor));
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
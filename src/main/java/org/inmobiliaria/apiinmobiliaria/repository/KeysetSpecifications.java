@@ -0,0 +1,67 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Path;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Condición de "seek" para la paginación por cursor: las filas posteriores a (valor, id)
+ * en el orden (campo ASC, id ASC). Con un índice sobre el campo (InnoDB añade el id a
+ * los índices secundarios) la base de datos salta directamente a la posición del cursor,
+ * así que la página 1000 cuesta lo mismo que la primera, al contrario que con OFFSET.
+ * Los campos de orden tienen que ser NOT NULL.
+ */
+public final class KeysetSpecifications {
+
+    private KeysetSpecifications() {
+    }
+
+    public static <T> Specification<T> despuesDe(String campo, String valor, long id) {
+        return (root, query, cb) -> {
+            Path<Long> pathId = root.get("id");
+            if ("id".equals(campo)) {
+                return cb.greaterThan(pathId, id);
+            }
+            Path<Comparable<Object>> path = root.get(campo);
+            Comparable<Object> ultimo = convertir(valor, path.getJavaType());
+            // campo > valor OR (campo = valor AND id > ultimoId)
+            return cb.or(
+                    cb.greaterThan(path, ultimo),
+                    cb.and(cb.equal(path, ultimo), cb.greaterThan(pathId, id)));
+        };
+    }
+
+    // El id desempata siempre, así el orden es total y ninguna fila se repite ni se salta
+    public static Sort orden(String campo) {
+        return "id".equals(campo) ? Sort.by("id") : Sort.by(campo, "id");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> convertir(String valor, Class<?> tipo) {
+        try {
+            Object resultado;
+            if (tipo == Float.class) {
+                resultado = Float.valueOf(valor);
+            } else if (tipo == Double.class) {
+                resultado = Double.valueOf(valor);
+            } else if (tipo == Integer.class) {
+                resultado = Integer.valueOf(valor);
+            } else if (tipo == Long.class) {
+                resultado = Long.valueOf(valor);
+            } else if (tipo == LocalDate.class) {
+                resultado = LocalDate.parse(valor);
+            } else if (tipo == LocalDateTime.class) {
+                resultado = LocalDateTime.parse(valor);
+            } else {
+                resultado = valor;
+            }
+            return (Comparable<Object>) resultado;
+        } catch (RuntimeException e) {
+            throw new PaginacionInvalidaException("Cursor no válido");
+        }
+    }
+}
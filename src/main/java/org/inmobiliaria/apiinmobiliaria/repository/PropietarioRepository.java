@@ -1,6 +1,7 @@
 package org.inmobiliaria.apiinmobiliaria.repository;
 
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -9,19 +10,26 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface PropietarioRepository  extends CrudRepository<Propietario,Long> {
+public interface PropietarioRepository  extends CrudRepository<Propietario, Long>, JpaSpecificationExecutor<Propietario> {
 
     //List<Propietario> findByDniContainingAndNombreContainingAndEsEmpresa(String dni, String nombre, Boolean esEmpresa);
 
-    @Query("SELECT p FROM Propietario p WHERE " +
-            "(:dni IS NULL OR LOWER(p.dni) LIKE LOWER(CONCAT('%', :dni, '%'))) AND " +
-            "(:nombre IS NULL OR LOWER(p.nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))) AND " +
-            "(:esEmpresa IS NULL OR p.esEmpresa = :esEmpresa)")
-    List<Propietario> findByFilter(String dni, String nombre, Boolean esEmpresa);
+    //Consulta dinámica: solo se filtra por los parámetros que no son nulos
+    default List<Propietario> findByFilter(String dni, String nombre, Boolean esEmpresa) {
+        return findAll(PropietarioSpecifications.filtro(dni, nombre, esEmpresa));
+    }
 
     List<Propietario> findAll();
 
 
     @NativeQuery(value = "SELECT * FROM propietario WHERE es_empresa = true")
     List<Propietario> findEmpresasNativas();
+
+    //Ids existentes, para cargar el filtro de ids (FiltroIds)
+    @Query("SELECT p.id FROM Propietario p")
+    List<Long> findAllIds();
+
+    // De JpaRepository (lo implementa SimpleJpaRepository): escribe ya los cambios pendientes,
+    // para que el DTO que se devuelve lleve la versión nueva
+    void flush();
 }
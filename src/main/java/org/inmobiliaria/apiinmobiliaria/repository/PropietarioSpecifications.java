@@ -0,0 +1,33 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro dinámico de propietarios por DNI, nombre y si es empresa (los nulos no filtran).
+ */
+public final class PropietarioSpecifications {
+
+    private PropietarioSpecifications() {
+    }
+
+    public static Specification<Propietario> filtro(String dni, String nombre, Boolean esEmpresa) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (dni != null) {
+                predicados.add(cb.like(cb.lower(root.get("dni")), "%" + dni.toLowerCase() + "%"));
+            }
+            if (nombre != null) {
+                predicados.add(cb.like(cb.lower(root.get("nombre")), "%" + nombre.toLowerCase() + "%"));
+            }
+            if (esEmpresa != null) {
+                predicados.add(cb.equal(root.get("esEmpresa"), esEmpresa));
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
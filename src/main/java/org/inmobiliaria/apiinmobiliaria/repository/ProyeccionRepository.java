@@ -0,0 +1,53 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listados con solo algunas columnas (?fields=...): consulta de tuplas con los mismos filtros (Specification)
+ * que el findAll completo, pero el SELECT lleva únicamente las columnas pedidas y no se crean entidades.
+ */
+@Repository
+public class ProyeccionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // columnas: alias -> propiedad de la entidad; "agencia.id" se resuelve con la clave ajena, sin JOIN
+    public <T> List<Tuple> buscar(Class<T> tipo, Specification<T> filtro, Map<String, String> columnas) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(tipo);
+
+        List<Selection<?>> seleccion = new ArrayList<>(columnas.size());
+        columnas.forEach((alias, propiedad) -> seleccion.add(ruta(root, propiedad).alias(alias)));
+        query.multiselect(seleccion);
+
+        Predicate predicado = filtro.toPredicate(root, query, cb);
+        if (predicado != null) {
+            query.where(predicado);
+        }
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static Path<?> ruta(Root<?> root, String propiedad) {
+        Path<?> ruta = root;
+        for (String parte : propiedad.split("\\.")) {
+            ruta = ruta.get(parte);
+        }
+        return ruta;
+    }
+}
@@ -2,6 +2,7 @@ package org.inmobiliaria.apiinmobiliaria.repository;
 
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
 import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -11,14 +12,13 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface VisitaRepository extends CrudRepository<Visita,Long> {
+public interface VisitaRepository extends CrudRepository<Visita, Long>, JpaSpecificationExecutor<Visita> {
 
     //List<Visita> findByEstadoAndFechaHoraGreaterThanEqualAndValoracionGreaterThanEqual(String estado, LocalDateTime fechaDesde, Float valoracionMin);
-    @Query("SELECT v FROM Visita v WHERE " +
-            "(:estado IS NULL OR v.estado = :estado) AND " +
-            "(:fechaDesde IS NULL OR v.fechaHora >= :fechaDesde) AND " +
-            "(:valoracionMin IS NULL OR v.valoracion >= :valoracionMin)")
-    List<Visita> findByFilter(String estado, LocalDateTime fechaDesde, Float valoracionMin);
+    //Consulta dinámica: solo se filtra por los parámetros que no son nulos
+    default List<Visita> findByFilter(String estado, LocalDateTime fechaDesde, Float valoracionMin) {
+        return findAll(VisitaSpecifications.filtro(estado, fechaDesde, valoracionMin));
+    }
 
     List<Visita> findAll();
 
@@ -26,4 +26,11 @@ public interface VisitaRepository extends CrudRepository<Visita,Long> {
     @NativeQuery(value = "SELECT * FROM visita WHERE fecha_hora < CURRENT_TIMESTAMP")
     List<Visita> findVisitasPasadasNativas();
 
+    //Ids existentes, para cargar el filtro de ids (FiltroIds)
+    @Query("SELECT v.id FROM Visita v")
+    List<Long> findAllIds();
+
+    // De JpaRepository (lo implementa SimpleJpaRepository): escribe ya los cambios pendientes,
+    // para que el DTO que se devuelve lleve la versión nueva
+    void flush();
 }
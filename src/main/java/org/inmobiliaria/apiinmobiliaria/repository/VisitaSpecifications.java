@@ -0,0 +1,35 @@
+package org.inmobiliaria.apiinmobiliaria.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro dinámico de visitas. Con estado y fecha informados la consulta puede
+ * resolverse con el índice idx_visita_estado_fecha.
+ */
+public final class VisitaSpecifications {
+
+    private VisitaSpecifications() {
+    }
+
+    public static Specification<Visita> filtro(String estado, LocalDateTime fechaDesde, Float valoracionMin) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (estado != null) {
+                predicados.add(cb.equal(root.get("estado"), estado));
+            }
+            if (fechaDesde != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("fechaHora"), fechaDesde));
+            }
+            if (valoracionMin != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("valoracion"), valoracionMin));
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
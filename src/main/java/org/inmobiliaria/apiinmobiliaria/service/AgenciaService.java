@@ -1,36 +1,99 @@
 package org.inmobiliaria.apiinmobiliaria.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.AgenciaMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaSpecifications;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.crossstore.ChangeSetPersister;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Transactional(readOnly = true)
 public class AgenciaService {
 
+    // Campos de orden permitidos en la paginación
+    private static final Set<String> ORDENES = Set.of("id", "nombre");
+
+    // FIND ALL con sparse fieldset (?fields=): el SELECT lleva solo las columnas pedidas
+    public List<AgenciaOutDto> findProyeccion(String nombre, Integer codigoPostal, Boolean abiertoSabados, List<String> campos) {
+        return Proyecciones.proyectar(proyeccionRepository, Agencia.class, AgenciaSpecifications.filtro(nombre, codigoPostal, abiertoSabados),
+                COLUMNAS, campos, AgenciaOutDto::new);
+    }
+
+    // Propiedades que admite ?fields= y la columna de la que salen
+    private static final Map<String, String> COLUMNAS = Map.of(
+            "id", "id",
+            "nombre", "nombre",
+            "direccion", "direccion",
+            "facturacionAnual", "facturacionAnual",
+            "codigoPostal", "codigoPostal",
+            "abiertoSabados", "abiertoSabados",
+            "fechaFundacion", "fechaFundacion");
+
     @Autowired
     private AgenciaRepository agenciaRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProyeccionRepository proyeccionRepository;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private LecturasPorIds lecturasPorIds;
+
+    @Autowired
+    private AgenciaMapper agenciaMapper;
+
+    @Autowired
+    private MergePatch mergePatch;
+
+    @Autowired
+    private BorradoMasivoRepository borradoMasivoRepository;
 
+    @Autowired
+    private BorradosMasivos borradosMasivos;
+
+    @Transactional
     public Agencia add(Agencia agencia){
         return agenciaRepository.save(agencia);
     }
 
-    public void delete(long id) throws AgenciaNotFoundException {
-        Agencia agencia = agenciaRepository.findById(id)
-                .orElseThrow(() -> new AgenciaNotFoundException("Agencia no encontrada con ID: " + id));
-
-        agenciaRepository.delete(agencia);
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.AGENCIAS, key = "#id")
+    public BorradoOutDto delete(long id, Long versionEsperada) throws AgenciaNotFoundException {
+        if (versionEsperada != null) {
+            // Se bloquea la fila para que nadie la modifique entre la comprobación y el DELETE
+            long version = borradoMasivoRepository.versionBloqueada(Agencia.class, id)
+                    .orElseThrow(() -> AgenciaNotFoundException.INSTANCIA);
+            Versiones.comprobar(versionEsperada, version);
+        }
+        // Sus inmuebles (y las visitas de estos) se borran en cascada, sin cargarlos
+        BorradoMasivoRepository.Borrado borrado = borradoMasivoRepository.borrarAgencia(id);
+        if (borrado.filas() == 0) {
+            // Deshace la transacción: no se ha borrado nada
+            throw AgenciaNotFoundException.INSTANCIA;
+        }
+        return borradosMasivos.aplicar(CacheDtos.AGENCIAS, id, borrado);
     }
 
     public List<AgenciaOutDto> findAll(String nombre, Integer codigoPostal, Boolean abiertoSabados) {
@@ -40,6 +103,7 @@ public class AgenciaService {
         // Si todo es nulo o vacío, usamos findAll().
         boolean hayFiltros = nombre != null || codigoPostal != null || abiertoSabados != null;
 
+        // Las dos consultas van a la caché de consultas de Hibernate: se leen de la primaria, no de una réplica atrasada
         if (hayFiltros) {
             /* aquí debes pasar LOS 3 parámetros.
              Si uno es null, la búsqueda podría no devolver nada.
@@ -47,44 +111,76 @@ public class AgenciaService {
                     nombre, codigoPostal, abiertoSabados);*/
 
             //con la query que hemos creado en repository ya podemos pasar el filtro que queramos
-            agencias = agenciaRepository.findByFilter(nombre, codigoPostal, abiertoSabados);
+            agencias = LecturaPrimaria.leer(() -> agenciaRepository.findByFilter(nombre, codigoPostal, abiertoSabados));
 
         } else {
             // Si no hay filtros, devolvemos todas
-            agencias = agenciaRepository.findAll();
+            agencias = LecturaPrimaria.leer(() -> agenciaRepository.findAll());
         }
 
-        // Convertimos la lista de Agencias a AgenciaOutDto usando ModelMapper y TypeToken
-        return modelMapper.map(agencias, new TypeToken<List<AgenciaOutDto>>() {}.getType());
+        // Convertimos la lista de Agencias a AgenciaOutDto con AgenciaMapper
+        return agenciaMapper.toOutDtoList(agencias);
     }
 
 
+    public PaginaOutDto<AgenciaOutDto> findPagina(String nombre, Integer codigoPostal, Boolean abiertoSabados, String orden, String after, Integer limit) {
+        return Paginador.paginar(agenciaRepository, AgenciaSpecifications.filtro(nombre, codigoPostal, abiertoSabados), ORDENES, orden, after, limit,
+                agenciaMapper::toOutDtoList);
+    }
+
+    @Cacheable(cacheNames = CacheDtos.AGENCIAS, key = "#id")
     public AgenciaOutDto findById(long id) throws AgenciaNotFoundException {
-        Agencia agencia = agenciaRepository.findById(id)
-                .orElseThrow(() -> new AgenciaNotFoundException("Agencia no encontrada con ID: " + id));
+        // Lo leído se queda en la caché: de la primaria, no de una réplica que puede ir atrasada
+        Agencia agencia = LecturaPrimaria.leer(() -> filtroIds.buscar(CacheDtos.AGENCIAS, id, agenciaRepository::findById))
+                .orElseThrow(() -> AgenciaNotFoundException.INSTANCIA);
+
+        return agenciaMapper.toOutDto(agencia);
+    }
 
-        return modelMapper.map(agencia, AgenciaOutDto.class);
+    // FIND BY IDS (multi-get): en el orden pedido y con los ids que no existen aparte
+    public LoteOutDto<AgenciaOutDto> findByIds(List<Long> ids) {
+        return lecturasPorIds.leer(CacheDtos.AGENCIAS, ids, agenciaRepository::findAllById, Agencia::getId, agenciaMapper::toOutDto);
     }
 
 
-    public AgenciaOutDto modify(long id, AgenciaInDto agenciaInDto) {
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.AGENCIAS, key = "#id")
+    public AgenciaOutDto modify(long id, AgenciaInDto agenciaInDto, Long versionEsperada) {
         Agencia agenciaExistente = agenciaRepository.findById(id)
-                .orElseThrow(() -> new AgenciaNotFoundException("Agencia no encontrada con ID: " + id));
+                .orElseThrow(() -> AgenciaNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, agenciaExistente.getVersion());
 
-        // ModelMapper vuelca los datos del DTO sobre la entidad existente
-        modelMapper.map(agenciaInDto, agenciaExistente);
+        // El mapper vuelca los datos del DTO sobre la entidad existente
+        agenciaMapper.updateEntity(agenciaInDto, agenciaExistente);
 
         // Aseguramos el ID
         agenciaExistente.setId(id);
 
+        // Con flush el DTO sale ya con la versión nueva, que es el ETag de la respuesta
         Agencia agenciaGuardada = agenciaRepository.save(agenciaExistente);
-        return modelMapper.map(agenciaGuardada, AgenciaOutDto.class);
+        agenciaRepository.flush();
+        return agenciaMapper.toOutDto(agenciaGuardada);
+    }
+
+    // PATCH (JSON Merge Patch): solo se escriben las columnas que cambian (@DynamicUpdate)
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.AGENCIAS, key = "#id")
+    public AgenciaOutDto patch(long id, JsonNode cambios, Long versionEsperada) throws AgenciaNotFoundException {
+        Agencia agencia = agenciaRepository.findById(id)
+                .orElseThrow(() -> AgenciaNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, agencia.getVersion());
+
+        AgenciaInDto agenciaInDto = mergePatch.aplicar(agenciaMapper.toInDto(agencia), cambios);
+        // La entidad está gestionada: el flush lanza el UPDATE con lo que haya cambiado y sube la versión
+        agenciaMapper.updateEntity(agenciaInDto, agencia);
+        agenciaRepository.flush();
+        return agenciaMapper.toOutDto(agencia);
     }
 
     public List<AgenciaOutDto> findAgenciasMaximaFacturacionAndAbiertoSabados(Double minFacturacion) {
         List<Agencia> agencias;
 
         agencias = agenciaRepository.findAgenciasMaximaFacturacionAndAbiertoSabados(minFacturacion);
-        return modelMapper.map(agencias, new TypeToken<List<AgenciaOutDto>>() {}.getType());
+        return agenciaMapper.toOutDtoList(agencias);
     }
 }
@@ -0,0 +1,55 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Los DELETE masivos de BorradoMasivoRepository no pasan por las entidades: ni FiltroIdsListener ni las
+ * anotaciones de caché se enteran de las filas hijas. Aquí se quitan de los DTO cacheados, del filtro de ids
+ * y del índice geográfico, al confirmar la transacción (si se deshace, no se ha borrado nada).
+ * También se cuentan en ModificacionesTablas, para que cambie el ETag de los listados afectados.
+ */
+@Component
+public class BorradosMasivos {
+
+    @Autowired
+    private CacheDtos cacheDtos;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private InmuebleGeoIndex geoIndex;
+
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
+    // entidad e id: la fila raíz (clave de CacheDtos); su DTO lo quita el @CacheEvict del servicio
+    public BorradoOutDto aplicar(String entidad, long id, BorradoMasivoRepository.Borrado borrado) {
+        modificacionesTablas.modificada(entidad);
+        if (!borrado.inmuebles().isEmpty()) {
+            modificacionesTablas.modificada(CacheDtos.INMUEBLES);
+        }
+        if (!borrado.visitas().isEmpty()) {
+            modificacionesTablas.modificada(CacheDtos.VISITAS);
+        }
+
+        Runnable limpiar = () -> {
+            filtroIds.eliminar(entidad, id);
+            cacheDtos.evictar(CacheDtos.INMUEBLES, borrado.inmuebles());
+            cacheDtos.evictar(CacheDtos.VISITAS, borrado.visitas());
+            for (long inmueble : borrado.inmuebles()) {
+                filtroIds.eliminar(CacheDtos.INMUEBLES, inmueble);
+                geoIndex.eliminar(inmueble);
+            }
+            for (long visita : borrado.visitas()) {
+                filtroIds.eliminar(CacheDtos.VISITAS, visita);
+            }
+        };
+
+        TrasCommit.ejecutar(limpiar);
+        return new BorradoOutDto(borrado.inmuebles().size(), borrado.visitas().size());
+    }
+}
@@ -0,0 +1,47 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Cachés de los OutDto que devuelven los findById (Caffeine, configuradas en application.properties).
+ * Los servicios las mantienen con @Cacheable, @CachePut y @CacheEvict; aquí se borran además las entradas
+ * de los hijos que desaparecen en cascada, que las anotaciones no ven porque solo conocen el id borrado.
+ * Los DTO cacheados se comparten entre peticiones: no hay que modificarlos después de devolverlos.
+ */
+@Component
+public class CacheDtos {
+
+    public static final String AGENCIAS = "agencias";
+    public static final String CLIENTES = "clientes";
+    public static final String INMUEBLES = "inmuebles";
+    public static final String PROPIETARIOS = "propietarios";
+    public static final String VISITAS = "visitas";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Filas borradas por ids, sin cargar las entidades (BorradosMasivos)
+    public void evictar(String nombre, Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(nombre);
+        for (Long id : ids) {
+            cache.evict(id);
+        }
+    }
+
+    // Visitas borradas en cascada desde su cliente
+    public void evictarVisitas(Collection<Visita> visitas) {
+        if (visitas == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(VISITAS);
+        for (Visita visita : visitas) {
+            cache.evict(visita.getId());
+        }
+    }
+}
@@ -1,38 +1,88 @@
 package org.inmobiliaria.apiinmobiliaria.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.ClienteMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.inmobiliaria.apiinmobiliaria.repository.ClienteSpecifications;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
+@Transactional(readOnly = true)
 public class ClienteService {
 
+    // Ordenaciones admitidas en el listado paginado
+    private static final Set<String> ORDENES = Set.of("id", "fechaAlta");
+
+    // Campos que se pueden pedir con ?fields= (el password no sale nunca)
+    private static final Map<String, String> COLUMNAS = Map.of(
+            "id", "id",
+            "email", "email",
+            "telefono", "telefono",
+            "presupuestoMaximo", "presupuestoMaximo",
+            "edad", "edad",
+            "suscrito", "suscrito");
+
     @Autowired
     private ClienteRepository clienteRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProyeccionRepository proyeccionRepository;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private LecturasPorIds lecturasPorIds;
+
+    @Autowired
+    private ExportacionRepository exportacionRepository;
+
+    @Autowired
+    private ClienteMapper clienteMapper;
+
+    @Autowired
+    private MergePatch mergePatch;
+
+    @Autowired
+    private CacheDtos cacheDtos;
 
     // ADD
+    @Transactional
     public Cliente add(Cliente cliente) {
         return clienteRepository.save(cliente);
     }
 
     // DELETE
-    public void delete(long id) throws ClienteNotFoundException {
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.CLIENTES, key = "#id")
+    public void delete(long id, Long versionEsperada) throws ClienteNotFoundException {
         Cliente cliente = clienteRepository.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente no encontrado con ID: " + id));
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, cliente.getVersion());
 
         clienteRepository.delete(cliente);
+        // Sus visitas se borran en cascada
+        cacheDtos.evictarVisitas(cliente.getVisitas());
     }
 
     // FIND ALL (Filtros: Email, Teléfono, Suscrito)
@@ -51,32 +101,76 @@ public class ClienteService {
             clientes = clienteRepository.findAll();
         }
 
-        return modelMapper.map(clientes, new TypeToken<List<ClienteOutDto>>() {}.getType());
+        return clienteMapper.toOutDtoList(clientes);
+    }
+
+    // FIND ALL solo con los campos pedidos (?fields=), sin cargar entidades
+    public List<ClienteOutDto> findProyeccion(String email, String telefono, Boolean suscrito, List<String> campos) {
+        return Proyecciones.proyectar(proyeccionRepository, Cliente.class, ClienteSpecifications.filtro(email, telefono, suscrito),
+                COLUMNAS, campos, ClienteOutDto::new);
+    }
+
+    // FIND PAGINADO (Filtros + cursor)
+    public PaginaOutDto<ClienteOutDto> findPagina(String email, String telefono, Boolean suscrito, String orden, String after, Integer limit) {
+        return Paginador.paginar(clienteRepository, ClienteSpecifications.filtro(email, telefono, suscrito), ORDENES, orden, after, limit,
+                clienteMapper::toOutDtoList);
+    }
+
+    // EXPORTAR (streaming, memoria constante)
+    public void exportar(String email, String telefono, Boolean suscrito, Consumer<ClienteOutDto> destino) {
+        exportacionRepository.recorrer(Cliente.class, ClienteSpecifications.filtro(email, telefono, suscrito),
+                cliente -> destino.accept(clienteMapper.toOutDto(cliente)));
     }
 
     // FIND BY ID
+    @Cacheable(cacheNames = CacheDtos.CLIENTES, key = "#id")
     public ClienteOutDto findById(long id) throws ClienteNotFoundException {
-        Cliente cliente = clienteRepository.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente no encontrado con ID: " + id));
+        // Lo leído se queda en la caché: de la primaria, no de una réplica que puede ir atrasada
+        Cliente cliente = LecturaPrimaria.leer(() -> filtroIds.buscar(CacheDtos.CLIENTES, id, clienteRepository::findById))
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
 
-        return modelMapper.map(cliente, ClienteOutDto.class);
+        return clienteMapper.toOutDto(cliente);
+    }
+
+    // FIND BY IDS (multi-get): en el orden pedido y con los ids que no existen aparte
+    public LoteOutDto<ClienteOutDto> findByIds(List<Long> ids) {
+        return lecturasPorIds.leer(CacheDtos.CLIENTES, ids, clienteRepository::findAllById, Cliente::getId, clienteMapper::toOutDto);
     }
 
     // MODIFY
-    public ClienteOutDto modify(long id, ClienteInDto clienteInDto) throws ClienteNotFoundException {
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.CLIENTES, key = "#id")
+    public ClienteOutDto modify(long id, ClienteInDto clienteInDto, Long versionEsperada) throws ClienteNotFoundException {
         Cliente clienteExistente = clienteRepository.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente no encontrado con ID: " + id));
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, clienteExistente.getVersion());
 
-        modelMapper.map(clienteInDto, clienteExistente);
+        clienteMapper.updateEntity(clienteInDto, clienteExistente);
         clienteExistente.setId(id);
 
+        // Con flush el DTO sale ya con la versión nueva, que es el ETag de la respuesta
         Cliente clienteGuardado = clienteRepository.save(clienteExistente);
-        return modelMapper.map(clienteGuardado, ClienteOutDto.class);
+        clienteRepository.flush();
+        return clienteMapper.toOutDto(clienteGuardado);
+    }
+
+    // PATCH
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.CLIENTES, key = "#id")
+    public ClienteOutDto patch(long id, JsonNode cambios, Long versionEsperada) throws ClienteNotFoundException {
+        Cliente cliente = clienteRepository.findById(id)
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, cliente.getVersion());
+
+        ClienteInDto clienteInDto = mergePatch.aplicar(clienteMapper.toInDto(cliente), cambios);
+        clienteMapper.updateEntity(clienteInDto, cliente);
+        clienteRepository.flush();
+        return clienteMapper.toOutDto(cliente);
     }
 
     public List<ClienteOutDto> findClientesVip(Float presupuestoMinimo) {
         List<Cliente> clientes;
         clientes = clienteRepository.findClientesVip(presupuestoMinimo);
-        return modelMapper.map(clientes, new TypeToken<List<ClienteOutDto>>() {}.getType());
+        return clienteMapper.toOutDtoList(clientes);
     }
 }
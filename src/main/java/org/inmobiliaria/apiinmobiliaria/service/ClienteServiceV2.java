@@ -7,23 +7,33 @@ import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepositoryV2;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 
 @Service
+@Transactional(readOnly = true)
 public class ClienteServiceV2 {
 
     @Autowired
     private ClienteRepositoryV2 clienteRepositoryV2;
 
+    @Autowired
+    private FiltroIds filtroIds;
+
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ModificacionesTablas modificacionesTablas;
+
     public ClienteOutDtoV2 findById(long id) throws ClienteNotFoundException {
-        ClienteV2 cliente = clienteRepositoryV2.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente V2 no encontrado con ID: " + id));
+        ClienteV2 cliente = filtroIds.buscar(CacheDtos.CLIENTES, id, clienteRepositoryV2::findById)
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
 
         ClienteOutDtoV2 outDto = modelMapper.map(cliente, ClienteOutDtoV2.class);
         // Calculamos los días registrados
@@ -34,15 +44,20 @@ public class ClienteServiceV2 {
         return outDto;
     }
 
+    @Transactional
     public ClienteOutDtoV2 add(ClienteInDtoV2 inDto) {
         ClienteV2 cliente = modelMapper.map(inDto, ClienteV2.class);
         ClienteV2 guardado = clienteRepositoryV2.save(cliente);
         return modelMapper.map(guardado, ClienteOutDtoV2.class);
     }
 
-    public ClienteOutDtoV2 modify(long id, ClienteInDtoV2 inDto) throws ClienteNotFoundException {
+    // V2 escribe en la misma tabla que ClienteService: su DTO cacheado deja de valer
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.CLIENTES, key = "#id")
+    public ClienteOutDtoV2 modify(long id, ClienteInDtoV2 inDto, Long versionEsperada) throws ClienteNotFoundException {
         ClienteV2 clienteExistente = clienteRepositoryV2.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente V2 no encontrado con ID: " + id));
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, clienteExistente.getVersion());
 
         // LÓGICA V2: Se actualiza todo EXCEPTO el email y la fecha de alta (se mantienen los originales)
         String emailOriginal = clienteExistente.getEmail();
@@ -55,12 +70,22 @@ public class ClienteServiceV2 {
         clienteExistente.setFechaAlta(fechaAltaOriginal);
 
         ClienteV2 modificado = clienteRepositoryV2.save(clienteExistente);
+        clienteRepositoryV2.flush();
         return modelMapper.map(modificado, ClienteOutDtoV2.class);
     }
 
-    public void delete(long id) throws ClienteNotFoundException {
+    // La base de datos borra sus visitas en cascada (ON DELETE CASCADE) y aquí no tenemos sus ids
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheDtos.CLIENTES, key = "#id"),
+            @CacheEvict(cacheNames = CacheDtos.VISITAS, allEntries = true)
+    })
+    public void delete(long id, Long versionEsperada) throws ClienteNotFoundException {
         ClienteV2 cliente = clienteRepositoryV2.findById(id)
-                .orElseThrow(() -> new ClienteNotFoundException("Cliente V2 no encontrado con ID: " + id));
+                .orElseThrow(() -> ClienteNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, cliente.getVersion());
         clienteRepositoryV2.delete(cliente);
+        // Las visitas borradas por la cascada no pasan por ModificacionesListener: el ETag de /visitas tiene que cambiar
+        modificacionesTablas.modificada(CacheDtos.VISITAS);
     }
 }
@@ -0,0 +1,29 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición de una página: campo de orden, valor de ese campo y id de la última fila devuelta.
+ * Se envía al cliente codificado en Base64 para que lo trate como un valor opaco.
+ */
+public record Cursor(String campo, String valor, long id) {
+
+    public String codificar() {
+        String texto = campo + "|" + id + "|" + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodificar(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // El valor va al final porque puede contener cualquier carácter
+            String[] partes = texto.split("\\|", 3);
+            return new Cursor(partes[0], partes[2], Long.parseLong(partes[1]));
+        } catch (RuntimeException e) {
+            throw new PaginacionInvalidaException("Cursor no válido");
+        }
+    }
+}
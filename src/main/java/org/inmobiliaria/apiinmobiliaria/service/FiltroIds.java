@@ -0,0 +1,176 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.VisitaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Mapa de bits con los ids que existen de cada entidad (claves de CacheDtos), para contestar 404
+ * sin consultar la base de datos cuando se pide un id que seguro que no existe.
+ * Los ids salen de secuencias y son casi consecutivos, así que un bit por id ocupa poco (unos 125 KB por
+ * millón de ids) y, a diferencia de un filtro de Bloom, es exacto y admite borrados.
+ * Se carga al arrancar y FiltroIdsListener lo mantiene en cada alta y cada borrado de JPA.
+ * Un id marcado que ya no existe (hijos borrados en cascada, bajas hechas desde fuera) solo cuesta la consulta
+ * y se cuenta como falso positivo. Si varias instancias escriben en la misma base de datos, una no ve las altas
+ * de las demás: en ese caso hay que desactivarlo con filtro.ids.activo=false.
+ */
+@Component
+public class FiltroIds {
+
+    public static final String METRICA = "filtro.ids";
+
+    // Cada página cubre 2^16 ids con 1024 longs (8 KB); solo se crean las páginas con algún id
+    private static final int BITS_PAGINA = 16;
+    private static final long MASCARA = (1L << BITS_PAGINA) - 1;
+
+    private record Contadores(Counter descartado, Counter consultado, Counter falsoPositivo) {}
+
+    private final Map<String, MapaBits> mapas = new ConcurrentHashMap<>();
+
+    // Los contadores de cada entidad se registran una sola vez: el 404 descartado no crea nada
+    private final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    @Value("${filtro.ids.activo:true}")
+    private boolean activo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    // CARGA INICIAL: hasta que termina no se descarta ningún id
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        if (!activo) {
+            return;
+        }
+        cargar(CacheDtos.AGENCIAS, agenciaRepository.findAllIds());
+        cargar(CacheDtos.CLIENTES, clienteRepository.findAllIds());
+        cargar(CacheDtos.INMUEBLES, inmuebleRepository.findAllIds());
+        cargar(CacheDtos.PROPIETARIOS, propietarioRepository.findAllIds());
+        cargar(CacheDtos.VISITAS, visitaRepository.findAllIds());
+    }
+
+    public void cargar(String entidad, Iterable<Long> ids) {
+        MapaBits mapa = mapa(entidad);
+        ids.forEach(mapa::marcar);
+        mapa.cargado = true;
+    }
+
+    // ALTA
+    public void anadir(String entidad, long id) {
+        mapa(entidad).marcar(id);
+    }
+
+    // BAJA
+    public void eliminar(String entidad, long id) {
+        mapa(entidad).desmarcar(id);
+    }
+
+    // BUSCAR POR ID: si el id seguro que no existe devuelve vacío sin ir a la base de datos
+    public <T> Optional<T> buscar(String entidad, long id, Function<Long, Optional<T>> busqueda) {
+        if (descartado(entidad, id)) {
+            return Optional.empty();
+        }
+        Optional<T> resultado = busqueda.apply(id);
+        if (resultado.isEmpty()) {
+            noEncontrado(entidad);
+        }
+        return resultado;
+    }
+
+    // true si el id no está en el mapa (solo cuando el mapa ya está cargado)
+    public boolean descartado(String entidad, long id) {
+        MapaBits mapa = mapa(entidad);
+        if (!activo || !mapa.cargado) {
+            return false;
+        }
+        boolean descartado = !mapa.contiene(id);
+        Contadores contadoresEntidad = contadores(entidad);
+        (descartado ? contadoresEntidad.descartado() : contadoresEntidad.consultado()).increment();
+        return descartado;
+    }
+
+    // El id pasó el filtro pero la base de datos no lo tenía
+    public void noEncontrado(String entidad) {
+        if (activo && mapa(entidad).cargado) {
+            contadores(entidad).falsoPositivo().increment();
+        }
+    }
+
+    private MapaBits mapa(String entidad) {
+        return mapas.computeIfAbsent(entidad, e -> new MapaBits());
+    }
+
+    private Contadores contadores(String entidad) {
+        return contadores.computeIfAbsent(entidad, e -> new Contadores(
+                contador(e, "descartado"), contador(e, "consultado"), contador(e, "falso_positivo")));
+    }
+
+    private Counter contador(String entidad, String resultado) {
+        return Counter.builder(METRICA)
+                .description("Búsquedas por id resueltas por el filtro (descartado), que van a la base de datos "
+                        + "(consultado) y, de estas, las que no encuentran nada (falso_positivo)")
+                .tag("entidad", entidad)
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private static final class MapaBits {
+
+        private final Map<Long, AtomicLongArray> paginas = new ConcurrentHashMap<>();
+
+        private volatile boolean cargado;
+
+        void marcar(long id) {
+            AtomicLongArray pagina = paginas.computeIfAbsent(id >>> BITS_PAGINA, p -> new AtomicLongArray(1 << (BITS_PAGINA - 6)));
+            int bit = (int) (id & MASCARA);
+            pagina.getAndAccumulate(bit >>> 6, 1L << bit, (actual, mascara) -> actual | mascara);
+        }
+
+        void desmarcar(long id) {
+            AtomicLongArray pagina = paginas.get(id >>> BITS_PAGINA);
+            if (pagina != null) {
+                int bit = (int) (id & MASCARA);
+                pagina.getAndAccumulate(bit >>> 6, ~(1L << bit), (actual, mascara) -> actual & mascara);
+            }
+        }
+
+        boolean contiene(long id) {
+            AtomicLongArray pagina = paginas.get(id >>> BITS_PAGINA);
+            if (pagina == null) {
+                return false;
+            }
+            int bit = (int) (id & MASCARA);
+            return (pagina.get(bit >>> 6) & (1L << bit)) != 0;
+        }
+    }
+}
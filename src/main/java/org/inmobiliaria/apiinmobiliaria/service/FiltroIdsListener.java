@@ -0,0 +1,72 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.inmobiliaria.apiinmobiliaria.domain.ClienteV2;
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Mantiene FiltroIds desde JPA, así cuenta cualquier alta o baja (servicios, importación, repositorios).
+ * Las altas se marcan en cuanto se insertan: si la transacción se deshace, el id sobra y solo cuesta una consulta.
+ * Las bajas se quitan al confirmar, para no dar 404 de una fila cuyo borrado se deshace.
+ */
+public class FiltroIdsListener {
+
+    // Lazy: FiltroIds usa los repositorios, que necesitan el EntityManagerFactory que crea este listener
+    @Autowired
+    @Lazy
+    private FiltroIds filtroIds;
+
+    @PostPersist
+    public void alta(Object entidad) {
+        filtroIds.anadir(clave(entidad), id(entidad));
+    }
+
+    @PostRemove
+    public void baja(Object entidad) {
+        String clave = clave(entidad);
+        long id = id(entidad);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            filtroIds.eliminar(clave, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                filtroIds.eliminar(clave, id);
+            }
+        });
+    }
+
+    static String clave(Object entidad) {
+        return switch (entidad) {
+            case Agencia a -> CacheDtos.AGENCIAS;
+            case Cliente c -> CacheDtos.CLIENTES;
+            case ClienteV2 c -> CacheDtos.CLIENTES;
+            case Inmueble i -> CacheDtos.INMUEBLES;
+            case Propietario p -> CacheDtos.PROPIETARIOS;
+            case Visita v -> CacheDtos.VISITAS;
+            default -> throw new IllegalArgumentException("Entidad sin filtro de ids: " + entidad.getClass());
+        };
+    }
+
+    private static long id(Object entidad) {
+        return switch (entidad) {
+            case Agencia a -> a.getId();
+            case Cliente c -> c.getId();
+            case ClienteV2 c -> c.getId();
+            case Inmueble i -> i.getId();
+            case Propietario p -> p.getId();
+            case Visita v -> v.getId();
+            default -> throw new IllegalArgumentException("Entidad sin filtro de ids: " + entidad.getClass());
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agregados de inmuebles por celda en una rejilla jerárquica (para pintar clusters en el mapa).
+ * El nivel 0 usa las celdas de InmuebleGeoIndex y cada nivel superior junta 2 x 2 celdas del anterior.
+ * Lo mantiene InmuebleGeoIndex en cada alta, modificación o baja, así que consultar
+ * los clusters de una zona solo depende del número de celdas visibles.
+ */
+public class InmuebleClusterIndex {
+
+    // Nivel 0 = 0.01º ... nivel 14 ≈ 164º
+    public static final int NUM_NIVELES = 15;
+
+    // Columnas de una fila en cualquier nivel (las del nivel 0 caben de sobra)
+    private static final long ANCHO_CLAVE = 1L << 16;
+
+    private final List<Map<Long, Cluster>> niveles = new ArrayList<>();
+
+    /**
+     * Agregado inmutable de una celda: se sustituye entero en cada cambio
+     * para que las lecturas concurrentes nunca vean un estado a medias.
+     */
+    public record Cluster(int cantidad, double sumaLatitud, double sumaLongitud,
+                          int conPrecio, double sumaPrecio, Float precioMin, Float precioMax) {
+
+        static Cluster de(InmuebleGeoIndex.Punto punto) {
+            Float precio = punto.precio();
+            return new Cluster(1, punto.latitud(), punto.longitud(),
+                    precio != null ? 1 : 0, precio != null ? precio : 0, precio, precio);
+        }
+
+        static Cluster sumar(Cluster a, Cluster b) {
+            return new Cluster(a.cantidad + b.cantidad, a.sumaLatitud + b.sumaLatitud,
+                    a.sumaLongitud + b.sumaLongitud, a.conPrecio + b.conPrecio, a.sumaPrecio + b.sumaPrecio,
+                    minimo(a.precioMin, b.precioMin), maximo(a.precioMax, b.precioMax));
+        }
+
+        public double latitud() {
+            return sumaLatitud / cantidad;
+        }
+
+        public double longitud() {
+            return sumaLongitud / cantidad;
+        }
+
+        public Float precioMedio() {
+            return conPrecio > 0 ? (float) (sumaPrecio / conPrecio) : null;
+        }
+    }
+
+    public InmuebleClusterIndex() {
+        for (int nivel = 0; nivel < NUM_NIVELES; nivel++) {
+            niveles.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    // Nivel de la rejilla adecuado para un zoom de mapa web (0 = mundo entero, 20 = calle)
+    public static int nivelParaZoom(int zoom) {
+        // Buscamos celdas de unos 64 px: 360º / 256 px * 64 px / 2^zoom = 90 / 2^zoom grados
+        double grados = 90 / Math.pow(2, zoom);
+        int nivel = (int) Math.round(Math.log(grados / InmuebleGeoIndex.TAMANO_CELDA) / Math.log(2));
+        return Math.max(0, Math.min(NUM_NIVELES - 1, nivel));
+    }
+
+    // ALTA: se suma el punto en su celda de cada nivel (fila y columna del nivel 0)
+    void sumar(InmuebleGeoIndex.Punto punto, int fila, int columna) {
+        Cluster nuevo = Cluster.de(punto);
+        for (int nivel = 0; nivel < NUM_NIVELES; nivel++) {
+            niveles.get(nivel).merge(clave(fila >> nivel, columna >> nivel), nuevo, Cluster::sumar);
+        }
+    }
+
+    // BAJA: el nivel 0 se recalcula con los puntos que quedan en la celda y cada nivel
+    // superior con sus 4 hijas, así el mínimo y el máximo siguen siendo exactos
+    void restar(int fila, int columna, Collection<InmuebleGeoIndex.Punto> restantes) {
+        Cluster base = null;
+        for (InmuebleGeoIndex.Punto punto : restantes) {
+            base = (base == null) ? Cluster.de(punto) : Cluster.sumar(base, Cluster.de(punto));
+        }
+        guardar(0, fila, columna, base);
+
+        for (int nivel = 1; nivel < NUM_NIVELES; nivel++) {
+            int f = fila >> nivel;
+            int c = columna >> nivel;
+            Map<Long, Cluster> hijas = niveles.get(nivel - 1);
+            Cluster total = null;
+            for (int df = 0; df <= 1; df++) {
+                for (int dc = 0; dc <= 1; dc++) {
+                    Cluster hija = hijas.get(clave(2 * f + df, 2 * c + dc));
+                    if (hija != null) {
+                        total = (total == null) ? hija : Cluster.sumar(total, hija);
+                    }
+                }
+            }
+            guardar(nivel, f, c, total);
+        }
+    }
+
+    // CONSULTA: clusters del nivel que tocan el rectángulo de celdas del nivel 0 [filaMin..filaMax] x [colMin..colMax]
+    // (colMin > colMax = cruza el antimeridiano)
+    List<Cluster> buscar(int nivel, int filaMin, int filaMax, int colMin, int colMax, int numColumnas) {
+        Map<Long, Cluster> celdas = niveles.get(nivel);
+        int fMin = filaMin >> nivel;
+        int fMax = filaMax >> nivel;
+        int cMin = colMin >> nivel;
+        int cMax = colMax >> nivel;
+        int columnasNivel = ((numColumnas - 1) >> nivel) + 1;
+        int ancho = (cMin <= cMax) ? cMax - cMin + 1 : columnasNivel - cMin + cMax + 1;
+
+        List<Cluster> resultado = new ArrayList<>();
+
+        // Si la zona tiene más celdas que las ocupadas, recorremos solo las ocupadas
+        if ((long) (fMax - fMin + 1) * ancho > celdas.size()) {
+            celdas.forEach((clave, cluster) -> {
+                int f = (int) (clave / ANCHO_CLAVE);
+                int c = (int) (clave % ANCHO_CLAVE);
+                boolean dentroColumnas = (cMin <= cMax) ? c >= cMin && c <= cMax : c >= cMin || c <= cMax;
+                if (f >= fMin && f <= fMax && dentroColumnas) {
+                    resultado.add(cluster);
+                }
+            });
+            return resultado;
+        }
+
+        for (int f = fMin; f <= fMax; f++) {
+            for (int i = 0; i < ancho; i++) {
+                Cluster cluster = celdas.get(clave(f, (cMin + i) % columnasNivel));
+                if (cluster != null) {
+                    resultado.add(cluster);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private void guardar(int nivel, int fila, int columna, Cluster cluster) {
+        if (cluster == null) {
+            niveles.get(nivel).remove(clave(fila, columna));
+        } else {
+            niveles.get(nivel).put(clave(fila, columna), cluster);
+        }
+    }
+
+    private static long clave(int fila, int columna) {
+        return fila * ANCHO_CLAVE + columna;
+    }
+
+    private static Float minimo(Float a, Float b) {
+        if (a == null || b == null) {
+            return (a != null) ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private static Float maximo(Float a, Float b) {
+        if (a == null || b == null) {
+            return (a != null) ? a : b;
+        }
+        return Math.max(a, b);
+    }
+}
@@ -0,0 +1,398 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Índice geográfico en memoria de los inmuebles.
+ * Divide el mapa en celdas de TAMANO_CELDA grados y guarda cada inmueble en la celda
+ * que le corresponde por latitud/longitud. Las búsquedas por radio o rectángulo
+ * solo recorren las celdas candidatas en lugar de toda la tabla.
+ * Las celdas se agrupan en bloques de CELDAS_POR_BLOQUE x CELDAS_POR_BLOQUE para que
+ * el KNN pueda saltar zonas vacías sin recorrer celda a celda.
+ * Además de las coordenadas se guardan precio, metros y ascensor para poder
+ * aplicar los filtros de findByFilter sin ir a la base de datos.
+ */
+@Component
+public class InmuebleGeoIndex {
+
+    // Tamaño de la celda en grados (0.01º ≈ 1,1 km de latitud)
+    public static final double TAMANO_CELDA = 0.01;
+
+    // Un bloque agrupa 16 x 16 celdas (0.16º ≈ 18 km)
+    public static final int CELDAS_POR_BLOQUE = 16;
+
+    private static final int NUM_FILAS = (int) Math.round(180 / TAMANO_CELDA);
+    private static final int NUM_COLUMNAS = (int) Math.round(360 / TAMANO_CELDA);
+    private static final int NUM_FILAS_BLOQUE = NUM_FILAS / CELDAS_POR_BLOQUE;
+    private static final int NUM_COLUMNAS_BLOQUE = NUM_COLUMNAS / CELDAS_POR_BLOQUE;
+    private static final double RADIO_TIERRA_KM = 6371.0088;
+    private static final double KM_POR_GRADO = 111.32;
+
+    // Celda -> (id inmueble -> punto)
+    private final Map<Long, Map<Long, Punto>> celdas = new ConcurrentHashMap<>();
+
+    // Bloque -> celdas ocupadas del bloque
+    private final Map<Long, Set<Long>> bloques = new ConcurrentHashMap<>();
+
+    // id inmueble -> punto (para poder moverlo o borrarlo de su celda)
+    private final Map<Long, Punto> puntos = new ConcurrentHashMap<>();
+
+    // Agregados por niveles para los clusters del mapa
+    private final InmuebleClusterIndex clusters = new InmuebleClusterIndex();
+
+    // Serializa las escrituras (las lecturas no se bloquean). ReentrantLock y no synchronized para no fijar
+    // el hilo portador cuando las peticiones van en hilos virtuales
+    private final ReentrantLock escritura = new ReentrantLock();
+
+    public record Punto(long id, double latitud, double longitud, Float precio, Integer metros, Boolean ascensor) {}
+
+    public record Resultado(long id, double distanciaKm) {}
+
+    // Elemento pendiente del KNN: un bloque o una celda (fila/columna en sus propias unidades)
+    private record Pendiente(boolean esBloque, int fila, int columna, double distanciaMinKm) {}
+
+    // ALTA / MODIFICACIÓN desde la entidad
+    public void actualizar(Inmueble inmueble) {
+        if (inmueble.getLatitud() == null || inmueble.getLongitud() == null) {
+            eliminar(inmueble.getId());
+            return;
+        }
+        actualizar(new Punto(inmueble.getId(), inmueble.getLatitud(), inmueble.getLongitud(),
+                inmueble.getPrecio(), inmueble.getMetros(), inmueble.getAscensor()));
+    }
+
+    // ALTA / MODIFICACIÓN (si el inmueble ya estaba se mueve a su nueva celda)
+    public void actualizar(Punto punto) {
+        escritura.lock();
+        try {
+            eliminar(punto.id());
+
+            int fila = fila(punto.latitud());
+            int columna = columna(punto.longitud());
+            puntos.put(punto.id(), punto);
+            celdas.compute(clave(fila, columna), (clave, contenido) -> {
+                Map<Long, Punto> celda = (contenido != null) ? contenido : new ConcurrentHashMap<>();
+                celda.put(punto.id(), punto);
+                return celda;
+            });
+            bloques.computeIfAbsent(claveBloque(fila, columna), clave -> ConcurrentHashMap.newKeySet())
+                    .add(clave(fila, columna));
+            clusters.sumar(punto, fila, columna);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    // BAJA
+    public void eliminar(long id) {
+        escritura.lock();
+        try {
+            Punto anterior = puntos.remove(id);
+            if (anterior == null) {
+                return;
+            }
+
+            int fila = fila(anterior.latitud());
+            int columna = columna(anterior.longitud());
+            Map<Long, Punto> restantes = celdas.computeIfPresent(clave(fila, columna), (clave, contenido) -> {
+                contenido.remove(id);
+                return contenido.isEmpty() ? null : contenido;
+            });
+            if (restantes == null) {
+                // La celda se ha quedado vacía: la quitamos de su bloque
+                bloques.computeIfPresent(claveBloque(fila, columna), (clave, ocupadas) -> {
+                    ocupadas.remove(clave(fila, columna));
+                    return ocupadas.isEmpty() ? null : ocupadas;
+                });
+            }
+            clusters.restar(fila, columna, (restantes != null) ? restantes.values() : List.of());
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    public int tamano() {
+        return puntos.size();
+    }
+
+    // RADIO: Inmuebles a menos de radioKm del punto, ordenados por distancia
+    public List<Resultado> buscarEnRadio(double latitud, double longitud, double radioKm) {
+        List<Resultado> resultados = new ArrayList<>();
+        if (radioKm <= 0) {
+            return resultados;
+        }
+
+        // Rectángulo que envuelve la circunferencia
+        double deltaLat = radioKm / KM_POR_GRADO;
+        double latMin = Math.max(-90, latitud - deltaLat);
+        double latMax = Math.min(90, latitud + deltaLat);
+
+        double coseno = Math.cos(Math.toRadians(latitud));
+        boolean todasLasLongitudes = latMin <= -90 || latMax >= 90 || coseno < 1e-6
+                || radioKm / (KM_POR_GRADO * coseno) >= 180;
+
+        int colMin = 0;
+        int colMax = NUM_COLUMNAS - 1;
+        if (!todasLasLongitudes) {
+            double deltaLon = radioKm / (KM_POR_GRADO * coseno);
+            colMin = columna(longitud - deltaLon);
+            colMax = columna(longitud + deltaLon);
+        }
+
+        recorrerCeldas(fila(latMin), fila(latMax), colMin, colMax, punto -> {
+            double distancia = distanciaKm(latitud, longitud, punto.latitud(), punto.longitud());
+            if (distancia <= radioKm) {
+                resultados.add(new Resultado(punto.id(), distancia));
+            }
+        });
+
+        resultados.sort(Comparator.comparingDouble(Resultado::distanciaKm));
+        return resultados;
+    }
+
+    // KNN: los k inmuebles más cercanos que cumplen el filtro.
+    // Búsqueda best-first en dos niveles: se sacan bloques y celdas ocupadas en orden de
+    // distancia mínima al punto y se para en cuanto el siguiente está más lejos que el k-ésimo.
+    public List<Resultado> buscarMasCercanos(double latitud, double longitud, int k, Predicate<Punto> filtro) {
+        if (k <= 0 || puntos.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Montículo de máximos con los k mejores hasta ahora (la cima es el peor de ellos)
+        PriorityQueue<Resultado> mejores = new PriorityQueue<>(
+                Comparator.comparingDouble(Resultado::distanciaKm).reversed());
+        PriorityQueue<Pendiente> pendientes = new PriorityQueue<>(
+                Comparator.comparingDouble(Pendiente::distanciaMinKm));
+        Set<Long> bloquesEncolados = new HashSet<>();
+        Set<Long> celdasRecorridas = new HashSet<>();
+
+        int filaBloque = fila(latitud) / CELDAS_POR_BLOQUE;
+        int columnaBloque = columna(longitud) / CELDAS_POR_BLOQUE;
+        pendientes.add(new Pendiente(true, filaBloque, columnaBloque, 0));
+        bloquesEncolados.add((long) filaBloque * NUM_COLUMNAS_BLOQUE + columnaBloque);
+
+        // Si hay que cruzar muchos bloques vacíos es más barato recorrer solo las celdas ocupadas
+        int limiteBloques = Math.max(64, 4 * bloques.size());
+
+        while (!pendientes.isEmpty()) {
+            Pendiente pendiente = pendientes.poll();
+            if (mejores.size() == k && pendiente.distanciaMinKm() > mejores.peek().distanciaKm()) {
+                break;
+            }
+
+            if (!pendiente.esBloque()) {
+                long clave = clave(pendiente.fila(), pendiente.columna());
+                celdasRecorridas.add(clave);
+                Map<Long, Punto> contenido = celdas.get(clave);
+                if (contenido != null) {
+                    contenido.values().forEach(punto -> considerar(latitud, longitud, k, filtro, mejores, punto));
+                }
+                continue;
+            }
+
+            if (bloquesEncolados.size() > limiteBloques) {
+                recorrerOcupadasRestantes(latitud, longitud, k, filtro, mejores, celdasRecorridas);
+                break;
+            }
+
+            // Encolamos las celdas ocupadas del bloque
+            Set<Long> ocupadas = bloques.get((long) pendiente.fila() * NUM_COLUMNAS_BLOQUE + pendiente.columna());
+            if (ocupadas != null) {
+                for (long clave : ocupadas) {
+                    int fila = (int) (clave / NUM_COLUMNAS);
+                    int columna = (int) (clave % NUM_COLUMNAS);
+                    pendientes.add(new Pendiente(false, fila, columna,
+                            distanciaMinima(latitud, longitud, fila, columna, 1)));
+                }
+            }
+
+            // Encolamos los 8 bloques vecinos
+            for (int df = -1; df <= 1; df++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int fila = pendiente.fila() + df;
+                    if (fila < 0 || fila >= NUM_FILAS_BLOQUE) {
+                        continue;
+                    }
+                    int columna = Math.floorMod(pendiente.columna() + dc, NUM_COLUMNAS_BLOQUE);
+                    if (bloquesEncolados.add((long) fila * NUM_COLUMNAS_BLOQUE + columna)) {
+                        pendientes.add(new Pendiente(true, fila, columna,
+                                distanciaMinima(latitud, longitud, fila, columna, CELDAS_POR_BLOQUE)));
+                    }
+                }
+            }
+        }
+
+        List<Resultado> resultados = new ArrayList<>(mejores);
+        resultados.sort(Comparator.comparingDouble(Resultado::distanciaKm));
+        return resultados;
+    }
+
+    // Filtro equivalente a InmuebleRepository.findByFilter (los parámetros nulos no filtran)
+    public static Predicate<Punto> filtro(Float precioMax, Integer metrosMin, Boolean ascensor) {
+        return punto -> (precioMax == null || (punto.precio() != null && punto.precio() <= precioMax))
+                && (metrosMin == null || (punto.metros() != null && punto.metros() >= metrosMin))
+                && (ascensor == null || ascensor.equals(punto.ascensor()));
+    }
+
+    // RECTÁNGULO: Si lonMin > lonMax el rectángulo cruza el antimeridiano
+    public List<Punto> buscarEnRectangulo(double latMin, double lonMin, double latMax, double lonMax) {
+        List<Punto> resultados = new ArrayList<>();
+        if (latMin > latMax) {
+            return resultados;
+        }
+
+        boolean todasLasLongitudes = lonMax - lonMin >= 360;
+        double lonIni = normalizarLongitud(lonMin);
+        double lonFin = normalizarLongitud(lonMax);
+        int colMin = todasLasLongitudes ? 0 : columna(lonIni);
+        int colMax = todasLasLongitudes ? NUM_COLUMNAS - 1 : columna(lonFin);
+
+        recorrerCeldas(fila(latMin), fila(latMax), colMin, colMax, punto -> {
+            boolean dentroLat = punto.latitud() >= latMin && punto.latitud() <= latMax;
+            boolean dentroLon = todasLasLongitudes || (lonIni <= lonFin
+                    ? punto.longitud() >= lonIni && punto.longitud() <= lonFin
+                    : punto.longitud() >= lonIni || punto.longitud() <= lonFin);
+            if (dentroLat && dentroLon) {
+                resultados.add(punto);
+            }
+        });
+        return resultados;
+    }
+
+    // CLUSTERS: agregados de la zona visible con el tamaño de celda que corresponde al zoom
+    public List<InmuebleClusterIndex.Cluster> buscarClusters(double latMin, double lonMin,
+                                                             double latMax, double lonMax, int zoom) {
+        if (latMin > latMax) {
+            return new ArrayList<>();
+        }
+
+        boolean todasLasLongitudes = lonMax - lonMin >= 360;
+        int colMin = todasLasLongitudes ? 0 : columna(normalizarLongitud(lonMin));
+        int colMax = todasLasLongitudes ? NUM_COLUMNAS - 1 : columna(normalizarLongitud(lonMax));
+        return clusters.buscar(InmuebleClusterIndex.nivelParaZoom(zoom),
+                fila(latMin), fila(latMax), colMin, colMax, NUM_COLUMNAS);
+    }
+
+    // Distancia entre dos coordenadas (fórmula del haversine)
+    public static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static void considerar(double latitud, double longitud, int k, Predicate<Punto> filtro,
+                                   PriorityQueue<Resultado> mejores, Punto punto) {
+        if (!filtro.test(punto)) {
+            return;
+        }
+        double distancia = distanciaKm(latitud, longitud, punto.latitud(), punto.longitud());
+        if (mejores.size() < k) {
+            mejores.add(new Resultado(punto.id(), distancia));
+        } else if (distancia < mejores.peek().distanciaKm()) {
+            mejores.poll();
+            mejores.add(new Resultado(punto.id(), distancia));
+        }
+    }
+
+    // Último recurso del KNN: celdas ocupadas que aún no se han visitado y pueden mejorar el resultado
+    private void recorrerOcupadasRestantes(double latitud, double longitud, int k, Predicate<Punto> filtro,
+                                           PriorityQueue<Resultado> mejores, Set<Long> recorridas) {
+        celdas.forEach((clave, contenido) -> {
+            if (recorridas.contains(clave)) {
+                return;
+            }
+            int fila = (int) (clave / NUM_COLUMNAS);
+            int columna = (int) (clave % NUM_COLUMNAS);
+            if (mejores.size() == k
+                    && distanciaMinima(latitud, longitud, fila, columna, 1) > mejores.peek().distanciaKm()) {
+                return;
+            }
+            contenido.values().forEach(punto -> considerar(latitud, longitud, k, filtro, mejores, punto));
+        });
+    }
+
+    // Distancia (aproximada) desde el punto al borde más cercano de una celda (tamano = 1)
+    // o de un bloque (tamano = CELDAS_POR_BLOQUE); fila y columna van en esas mismas unidades
+    private static double distanciaMinima(double latitud, double longitud, int fila, int columna, int tamano) {
+        double grados = tamano * TAMANO_CELDA;
+        double latMin = fila * grados - 90;
+        double lonMin = columna * grados - 180;
+        double latCercana = Math.max(latMin, Math.min(latMin + grados, latitud));
+
+        double lonCercana = longitud;
+        double lonRelativa = normalizarLongitud(longitud - lonMin);
+        if (lonRelativa < 0 || lonRelativa > grados) {
+            double haciaInicio = Math.abs(normalizarLongitud(longitud - lonMin));
+            double haciaFin = Math.abs(normalizarLongitud(longitud - (lonMin + grados)));
+            lonCercana = (haciaInicio <= haciaFin) ? lonMin : lonMin + grados;
+        }
+        return distanciaKm(latitud, longitud, latCercana, lonCercana);
+    }
+
+    // Recorre las celdas [filaMin..filaMax] x [colMin..colMax] (colMin > colMax = cruza el antimeridiano)
+    private void recorrerCeldas(int filaMin, int filaMax, int colMin, int colMax, Consumer<Punto> accion) {
+        int numColumnas = (colMin <= colMax) ? colMax - colMin + 1 : NUM_COLUMNAS - colMin + colMax + 1;
+        long numCeldas = (long) (filaMax - filaMin + 1) * numColumnas;
+
+        // Si el rectángulo tiene más celdas que las ocupadas, recorremos solo las ocupadas
+        if (numCeldas > celdas.size()) {
+            celdas.forEach((clave, contenido) -> {
+                int fila = (int) (clave / NUM_COLUMNAS);
+                int columna = (int) (clave % NUM_COLUMNAS);
+                boolean dentroColumnas = (colMin <= colMax)
+                        ? columna >= colMin && columna <= colMax
+                        : columna >= colMin || columna <= colMax;
+                if (fila >= filaMin && fila <= filaMax && dentroColumnas) {
+                    contenido.values().forEach(accion);
+                }
+            });
+            return;
+        }
+
+        for (int fila = filaMin; fila <= filaMax; fila++) {
+            for (int i = 0; i < numColumnas; i++) {
+                Map<Long, Punto> contenido = celdas.get(clave(fila, (colMin + i) % NUM_COLUMNAS));
+                if (contenido != null) {
+                    contenido.values().forEach(accion);
+                }
+            }
+        }
+    }
+
+    private static int fila(double latitud) {
+        int fila = (int) Math.floor((latitud + 90) / TAMANO_CELDA);
+        return Math.max(0, Math.min(NUM_FILAS - 1, fila));
+    }
+
+    private static int columna(double longitud) {
+        return Math.floorMod((int) Math.floor((longitud + 180) / TAMANO_CELDA), NUM_COLUMNAS);
+    }
+
+    private static long clave(int fila, int columna) {
+        return (long) fila * NUM_COLUMNAS + columna;
+    }
+
+    private static long claveBloque(int fila, int columna) {
+        return (long) (fila / CELDAS_POR_BLOQUE) * NUM_COLUMNAS_BLOQUE + columna / CELDAS_POR_BLOQUE;
+    }
+
+    private static double normalizarLongitud(double longitud) {
+        return ((longitud + 180) % 360 + 360) % 360 - 180;
+    }
+}
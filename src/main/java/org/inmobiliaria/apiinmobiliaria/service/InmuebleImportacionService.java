@@ -0,0 +1,175 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.ErrorImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
+import org.inmobiliaria.apiinmobiliaria.mapper.InmuebleMapper;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ImportacionRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de la cartera de inmuebles de una agencia (CSV o NDJSON).
+ * El fichero se procesa en lotes de TAMANO_LOTE filas: se validan en paralelo con las reglas de InmuebleInDto,
+ * se resuelven las agencias y propietarios del lote con una consulta cada uno y las filas correctas
+ * se guardan en una transacción por lote. Las filas con errores no se guardan y se devuelven en el informe.
+ */
+@Service
+public class InmuebleImportacionService {
+
+    public static final int TAMANO_LOTE = 1000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private ImportacionRepository importacionRepository;
+
+    @Autowired
+    private InmuebleMapper inmuebleMapper;
+
+    @Autowired
+    private InmuebleGeoIndex geoIndex;
+
+    // IMPORTAR CSV (con cabecera: titulo,precio,metros,latitud,longitud,ascensor,fechaPublicacion,agenciaId,propietarioId)
+    public ImportacionOutDto importarCsv(InputStream entrada) throws IOException {
+        try (BufferedReader lector = abrir(entrada)) {
+            return importar(LectorImportacion.csv(lector, objectMapper, InmuebleInDto.class));
+        }
+    }
+
+    // IMPORTAR NDJSON (un InmuebleInDto por línea)
+    public ImportacionOutDto importarNdjson(InputStream entrada) throws IOException {
+        try (BufferedReader lector = abrir(entrada)) {
+            return importar(LectorImportacion.ndjson(lector, objectMapper, InmuebleInDto.class));
+        }
+    }
+
+    private ImportacionOutDto importar(Iterator<LectorImportacion.Fila<InmuebleInDto>> filas) {
+        ImportacionOutDto informe = new ImportacionOutDto(0, 0, new ArrayList<>());
+        List<LectorImportacion.Fila<InmuebleInDto>> lote = new ArrayList<>(TAMANO_LOTE);
+        while (filas.hasNext()) {
+            lote.add(filas.next());
+            if (lote.size() == TAMANO_LOTE) {
+                procesarLote(lote, informe);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            procesarLote(lote, informe);
+        }
+        return informe;
+    }
+
+    private void procesarLote(List<LectorImportacion.Fila<InmuebleInDto>> lote, ImportacionOutDto informe) {
+        // 1. VALIDAMOS en paralelo (el Validator es thread-safe)
+        List<LectorImportacion.Fila<InmuebleInDto>> validadas = lote.parallelStream()
+                .map(this::validar)
+                .toList();
+
+        // 2. RESOLVEMOS las agencias y propietarios de todo el lote con una consulta cada uno
+        Map<Long, Agencia> agencias = porId(agenciaRepository.findAllById(ids(validadas, InmuebleInDto::getAgenciaId)), Agencia::getId);
+        Map<Long, Propietario> propietarios = porId(propietarioRepository.findAllById(ids(validadas, InmuebleInDto::getPropietarioId)), Propietario::getId);
+
+        // 3. CREAMOS los inmuebles de las filas correctas y apuntamos los errores del resto
+        List<Inmueble> nuevos = new ArrayList<>();
+        List<Integer> numeros = new ArrayList<>();
+        for (LectorImportacion.Fila<InmuebleInDto> fila : validadas) {
+            Map<String, String> errores = new HashMap<>(fila.errores());
+            if (fila.valida()) {
+                InmuebleInDto dto = fila.dto();
+                if (!agencias.containsKey(dto.getAgenciaId())) {
+                    errores.put("agenciaId", "La agencia con ID " + dto.getAgenciaId() + " no existe");
+                }
+                if (!propietarios.containsKey(dto.getPropietarioId())) {
+                    errores.put("propietarioId", "El propietario con ID " + dto.getPropietarioId() + " no existe");
+                }
+            }
+
+            if (!errores.isEmpty()) {
+                informe.getErrores().add(new ErrorImportacionOutDto(fila.numero(), errores));
+                continue;
+            }
+            Inmueble inmueble = inmuebleMapper.toEntity(fila.dto());
+            inmueble.setAgencia(agencias.get(fila.dto().getAgenciaId()));
+            inmueble.setPropietario(propietarios.get(fila.dto().getPropietarioId()));
+            nuevos.add(inmueble);
+            numeros.add(fila.numero());
+        }
+        informe.setTotal(informe.getTotal() + lote.size());
+
+        // 4. GUARDAMOS el lote en una transacción; si falla, ninguna de sus filas queda guardada
+        if (nuevos.isEmpty()) {
+            return;
+        }
+        try {
+            importacionRepository.guardarLote(nuevos);
+        } catch (DataAccessException e) {
+            for (Integer numero : numeros) {
+                informe.getErrores().add(new ErrorImportacionOutDto(numero,
+                        Map.of("fila", "No se ha podido guardar el lote: " + e.getMostSpecificCause().getMessage())));
+            }
+            return;
+        }
+        nuevos.forEach(geoIndex::actualizar);
+        informe.setImportados(informe.getImportados() + nuevos.size());
+    }
+
+    private LectorImportacion.Fila<InmuebleInDto> validar(LectorImportacion.Fila<InmuebleInDto> fila) {
+        if (!fila.valida()) {
+            return fila;
+        }
+        Map<String, String> errores = new HashMap<>();
+        validator.validate(fila.dto()).forEach(violacion ->
+                errores.put(violacion.getPropertyPath().toString(), violacion.getMessage()));
+        return fila.conErrores(errores);
+    }
+
+    private static Set<Long> ids(List<LectorImportacion.Fila<InmuebleInDto>> filas, Function<InmuebleInDto, Long> id) {
+        return filas.stream()
+                .filter(LectorImportacion.Fila::valida)
+                .map(fila -> id.apply(fila.dto()))
+                .collect(Collectors.toSet());
+    }
+
+    private static <T> Map<Long, T> porId(Iterable<T> entidades, Function<T, Long> id) {
+        Map<Long, T> resultado = new HashMap<>();
+        entidades.forEach(entidad -> resultado.put(id.apply(entidad), entidad));
+        return resultado;
+    }
+
+    private static BufferedReader abrir(InputStream entrada) {
+        return new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+    }
+}
@@ -1,30 +1,84 @@
 package org.inmobiliaria.apiinmobiliaria.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleClusterOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.BusquedaGeoInvalidaException;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.InmuebleMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.InmuebleSpecifications;
 import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
+@Transactional(readOnly = true)
 public class InmuebleService {
 
+    // Campos por los que se puede ordenar el listado paginado (todos con índice)
+    private static final Set<String> ORDENES = Set.of("id", "precio", "metros", "fechaPublicacion");
+
+    // Búsquedas geográficas: radio máximo y número máximo de inmuebles que se leen de la base de datos
+    public static final double RADIO_MAXIMO_KM = 50;
+    public static final int K_MAXIMO = LecturasPorIds.MAXIMO_IDS;
+
+    // Campos de ?fields=: propiedad del DTO -> propiedad de la entidad (las claves ajenas sin JOIN)
+    private static final Map<String, String> COLUMNAS = Map.of(
+            "id", "id",
+            "titulo", "titulo",
+            "precio", "precio",
+            "metros", "metros",
+            "latitud", "latitud",
+            "longitud", "longitud",
+            "ascensor", "ascensor",
+            "fechaPublicacion", "fechaPublicacion",
+            "agenciaId", "agencia.id",
+            "propietarioId", "propietario.id");
+
     @Autowired
     private InmuebleRepository inmuebleRepository;
 
+    @Autowired
+    private ProyeccionRepository proyeccionRepository;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private LecturasPorIds lecturasPorIds;
+
+    @Autowired
+    private ExportacionRepository exportacionRepository;
+
     @Autowired
     private AgenciaRepository agenciaRepository;
 
@@ -32,9 +86,22 @@ public class InmuebleService {
     private PropietarioRepository propietarioRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private InmuebleMapper inmuebleMapper;
+
+    @Autowired
+    private MergePatch mergePatch;
+
+    @Autowired
+    private BorradoMasivoRepository borradoMasivoRepository;
+
+    @Autowired
+    private BorradosMasivos borradosMasivos;
+
+    @Autowired
+    private InmuebleGeoIndex geoIndex;
 
     // ADD
+    @Transactional
     public InmuebleOutDto add(InmuebleInDto inmuebleInDto) {
         // 1. Buscamos la Agencia por su ID
         Agencia agencia = agenciaRepository.findById(inmuebleInDto.getAgenciaId())
@@ -46,7 +113,7 @@ public class InmuebleService {
 
         // 3. Creamos el Inmueble y mapeamos los datos básicos (precio, metros, etc.)
         Inmueble inmueble = new Inmueble();
-        modelMapper.map(inmuebleInDto, inmueble);
+        inmuebleMapper.updateEntity(inmuebleInDto, inmueble);
 
         // 4. ASIGNAMOS LAS RELACIONES
         inmueble.setAgencia(agencia);
@@ -54,14 +121,25 @@ public class InmuebleService {
 
         // 5. Guardamos y devolvemos DTO
         Inmueble inmuebleGuardado = inmuebleRepository.save(inmueble);
-        return modelMapper.map(inmuebleGuardado, InmuebleOutDto.class);
+        indexarTrasCommit(inmuebleGuardado);
+        return inmuebleMapper.toOutDto(inmuebleGuardado);
     }
     // DELETE
-    public void delete(long id) throws InmuebleNotFoundException {
-        Inmueble inmueble = inmuebleRepository.findById(id)
-                .orElseThrow(() -> new InmuebleNotFoundException("Inmueble no encontrado con ID: " + id));
-
-        inmuebleRepository.delete(inmueble);
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.INMUEBLES, key = "#id")
+    public BorradoOutDto delete(long id, Long versionEsperada) throws InmuebleNotFoundException {
+        if (versionEsperada != null) {
+            // Se bloquea la fila para que nadie la modifique entre la comprobación y el DELETE
+            long version = borradoMasivoRepository.versionBloqueada(Inmueble.class, id)
+                    .orElseThrow(() -> InmuebleNotFoundException.INSTANCIA);
+            Versiones.comprobar(versionEsperada, version);
+        }
+        // Sus visitas se borran en la misma transacción; el índice geográfico se actualiza al confirmar
+        BorradoMasivoRepository.Borrado borrado = borradoMasivoRepository.borrarInmueble(id);
+        if (borrado.filas() == 0) {
+            throw InmuebleNotFoundException.INSTANCIA;
+        }
+        return borradosMasivos.aplicar(CacheDtos.INMUEBLES, id, borrado);
     }
 
     // FIND ALL (Filtros: Precio Máximo, Metros Mínimos, Ascensor)
@@ -79,42 +157,184 @@ public class InmuebleService {
             inmuebles = inmuebleRepository.findAll();
         }
 
-        return modelMapper.map(inmuebles, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+        return inmuebleMapper.toOutDtoList(inmuebles);
+    }
+
+    // FIND ALL con sparse fieldset (?fields=id,titulo,precio): SELECT de esas columnas y nada más
+    public List<InmuebleOutDto> findProyeccion(Float precioMax, Integer metrosMin, Boolean ascensor, List<String> campos) {
+        return Proyecciones.proyectar(proyeccionRepository, Inmueble.class, InmuebleSpecifications.filtro(precioMax, metrosMin, ascensor),
+                COLUMNAS, campos, InmuebleOutDto::new);
+    }
+
+    // FIND PAGINADO (mismos filtros que findAll; el coste no depende de la profundidad de la página)
+    public PaginaOutDto<InmuebleOutDto> findPagina(Float precioMax, Integer metrosMin, Boolean ascensor, String orden, String after, Integer limit) {
+        return Paginador.paginar(inmuebleRepository, InmuebleSpecifications.filtro(precioMax, metrosMin, ascensor), ORDENES, orden, after, limit,
+                inmuebleMapper::toOutDtoList);
+    }
+
+    // EXPORTAR (NDJSON): cada inmueble se mapea y se entrega en cuanto llega del cursor
+    public void exportar(Float precioMax, Integer metrosMin, Boolean ascensor, Consumer<InmuebleOutDto> destino) {
+        exportacionRepository.recorrer(Inmueble.class, InmuebleSpecifications.filtro(precioMax, metrosMin, ascensor),
+                inmueble -> destino.accept(inmuebleMapper.toOutDto(inmueble)));
     }
 
     // FIND BY ID
+    @Cacheable(cacheNames = CacheDtos.INMUEBLES, key = "#id")
     public InmuebleOutDto findById(long id) throws InmuebleNotFoundException {
-        Inmueble inmueble = inmuebleRepository.findById(id)
-                .orElseThrow(() -> new InmuebleNotFoundException("Inmueble no encontrado con ID: " + id));
+        // Lo leído se queda en la caché: de la primaria, no de una réplica que puede ir atrasada
+        Inmueble inmueble = LecturaPrimaria.leer(() -> filtroIds.buscar(CacheDtos.INMUEBLES, id, inmuebleRepository::findById))
+                .orElseThrow(() -> InmuebleNotFoundException.INSTANCIA);
+
+        return inmuebleMapper.toOutDto(inmueble);
+    }
 
-        return modelMapper.map(inmueble, InmuebleOutDto.class);
+    // FIND BY IDS (multi-get): en el orden pedido y con los ids que no existen aparte
+    public LoteOutDto<InmuebleOutDto> findByIds(List<Long> ids) {
+        return lecturasPorIds.leer(CacheDtos.INMUEBLES, ids, inmuebleRepository::findAllById, Inmueble::getId, inmuebleMapper::toOutDto);
     }
 
     // MODIFY (PODRÍA RECIBIR SOLO ENTIDAD)
-    public InmuebleOutDto modify(long id, InmuebleInDto inmuebleInDto) throws InmuebleNotFoundException {
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.INMUEBLES, key = "#id")
+    public InmuebleOutDto modify(long id, InmuebleInDto inmuebleInDto, Long versionEsperada) throws InmuebleNotFoundException {
         Inmueble inmuebleExistente = inmuebleRepository.findById(id)
-                .orElseThrow(() -> new InmuebleNotFoundException("Inmueble no encontrado con ID: " + id));
+                .orElseThrow(() -> InmuebleNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, inmuebleExistente.getVersion());
 
-        // Mapeamos cambios
-        modelMapper.map(inmuebleInDto, inmuebleExistente);
+        // Mapeamos cambios, también de agencia y propietario (como en PATCH)
+        asignarRelaciones(inmuebleInDto, inmuebleExistente);
+        inmuebleMapper.updateEntity(inmuebleInDto, inmuebleExistente);
 
         // Aseguramos ID
         inmuebleExistente.setId(id);
 
+        // Con flush el DTO sale ya con la versión nueva, que es el ETag de la respuesta
         Inmueble inmuebleGuardado = inmuebleRepository.save(inmuebleExistente);
-        return modelMapper.map(inmuebleGuardado, InmuebleOutDto.class);
+        inmuebleRepository.flush();
+        indexarTrasCommit(inmuebleGuardado);
+        return inmuebleMapper.toOutDto(inmuebleGuardado);
+    }
+
+    // PATCH (JSON Merge Patch). Un cambio de precio, el más habitual, queda en
+    // UPDATE inmueble SET precio=? WHERE id=? gracias a @DynamicUpdate
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.INMUEBLES, key = "#id")
+    public InmuebleOutDto patch(long id, JsonNode cambios, Long versionEsperada) throws InmuebleNotFoundException {
+        Inmueble inmueble = inmuebleRepository.findById(id)
+                .orElseThrow(() -> InmuebleNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, inmueble.getVersion());
+
+        // 1. Aplicamos y validamos el parche sobre el estado actual
+        InmuebleInDto inmuebleInDto = mergePatch.aplicar(inmuebleMapper.toInDto(inmueble), cambios);
+
+        // 2. Las relaciones solo se buscan si cambian
+        asignarRelaciones(inmuebleInDto, inmueble);
+
+        // 3. Volcamos el resto y lanzamos el UPDATE (el DTO necesita la versión nueva)
+        inmuebleMapper.updateEntity(inmuebleInDto, inmueble);
+        inmuebleRepository.flush();
+        indexarTrasCommit(inmueble);
+        return inmuebleMapper.toOutDto(inmueble);
+    }
+
+    // PUT y PATCH: agencia y propietario solo se buscan si el DTO los cambia
+    private void asignarRelaciones(InmuebleInDto inmuebleInDto, Inmueble inmueble) {
+        if (!Objects.equals(inmuebleInDto.getAgenciaId(), inmueble.getAgenciaId())) {
+            inmueble.setAgencia(agenciaRepository.findById(inmuebleInDto.getAgenciaId())
+                    .orElseThrow(() -> new AgenciaNotFoundException("La agencia con ID " + inmuebleInDto.getAgenciaId() + " no existe")));
+        }
+        if (!Objects.equals(inmuebleInDto.getPropietarioId(), inmueble.getPropietarioId())) {
+            inmueble.setPropietario(propietarioRepository.findById(inmuebleInDto.getPropietarioId())
+                    .orElseThrow(() -> new PropietarioNotFoundException("El propietario con ID " + inmuebleInDto.getPropietarioId() + " no existe")));
+        }
+    }
+
+    // El índice (y sus clusters) se actualiza al confirmar: si el commit falla no queda un inmueble o un precio
+    // que no se ha guardado, y hasta entonces /cercanos y /clusters no ven datos sin confirmar
+    private void indexarTrasCommit(Inmueble inmueble) {
+        TrasCommit.ejecutar(() -> geoIndex.actualizar(inmueble));
     }
 
     // JPQL
     public List<InmuebleOutDto> findInmueblesRangoPrecio(Float min, Float max) {
         List<Inmueble> inmuebles;
         inmuebles = inmuebleRepository.findInmueblesRangoPrecio(min, max);
-        return modelMapper.map(inmuebles, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+        return inmuebleMapper.toOutDtoList(inmuebles);
     }
 
     // SQL
     public List<InmuebleOutDto> getGrandesSql(Integer metros) {
         List<Inmueble> lista = inmuebleRepository.findInmueblesGrandesNativo(metros);
-        return modelMapper.map(lista, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+        return inmuebleMapper.toOutDtoList(lista);
+    }
+
+    // GEO: Inmuebles a menos de radioKm del punto, ordenados por distancia (los K_MAXIMO más cercanos)
+    public List<InmuebleOutDto> findCerca(double latitud, double longitud, double radioKm) {
+        if (!(radioKm <= RADIO_MAXIMO_KM)) {
+            throw new BusquedaGeoInvalidaException("El radio no puede pasar de " + RADIO_MAXIMO_KM + " km");
+        }
+        List<InmuebleGeoIndex.Resultado> resultados = geoIndex.buscarEnRadio(latitud, longitud, radioKm);
+        return cargarEnOrden(idsDe(resultados.subList(0, Math.min(resultados.size(), K_MAXIMO))));
+    }
+
+    // GEO KNN: los k inmuebles más cercanos a un punto (con los filtros opcionales de findAll)
+    public List<InmuebleOutDto> findMasCercanos(double latitud, double longitud, int k,
+                                                Float precioMax, Integer metrosMin, Boolean ascensor) {
+        comprobarK(k);
+        Predicate<InmuebleGeoIndex.Punto> filtro = InmuebleGeoIndex.filtro(precioMax, metrosMin, ascensor);
+        return cargarEnOrden(idsDe(geoIndex.buscarMasCercanos(latitud, longitud, k, filtro)));
+    }
+
+    // GEO KNN: los k inmuebles comparables más cercanos a uno dado (excluido él mismo)
+    public List<InmuebleOutDto> findComparables(long id, int k,
+                                                Float precioMax, Integer metrosMin, Boolean ascensor) throws InmuebleNotFoundException {
+        comprobarK(k);
+        Inmueble inmueble = inmuebleRepository.findById(id)
+                .orElseThrow(() -> InmuebleNotFoundException.INSTANCIA);
+        // Sin coordenadas no está en el índice ni tiene vecinos
+        if (inmueble.getLatitud() == null || inmueble.getLongitud() == null) {
+            return List.of();
+        }
+
+        Predicate<InmuebleGeoIndex.Punto> filtro = InmuebleGeoIndex.filtro(precioMax, metrosMin, ascensor)
+                .and(punto -> punto.id() != id);
+        return cargarEnOrden(idsDe(geoIndex.buscarMasCercanos(inmueble.getLatitud(), inmueble.getLongitud(), k, filtro)));
+    }
+
+    // GEO CLUSTERS: inmuebles agrupados de la zona visible del mapa según el zoom
+    public List<InmuebleClusterOutDto> findClusters(double latMin, double lonMin, double latMax, double lonMax, int zoom) {
+        return geoIndex.buscarClusters(latMin, lonMin, latMax, lonMax, zoom).stream()
+                .map(cluster -> new InmuebleClusterOutDto(cluster.cantidad(), cluster.latitud(), cluster.longitud(),
+                        cluster.precioMin(), cluster.precioMedio(), cluster.precioMax()))
+                .toList();
+    }
+
+    // GEO: Carga inicial del índice geográfico al arrancar la aplicación
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarIndiceGeo() {
+        for (Object[] fila : inmuebleRepository.findDatosGeo()) {
+            if (fila[1] != null && fila[2] != null) {
+                geoIndex.actualizar(new InmuebleGeoIndex.Punto((Long) fila[0], (Double) fila[1], (Double) fila[2],
+                        (Float) fila[3], (Integer) fila[4], (Boolean) fila[5]));
+            }
+        }
+    }
+
+    private static void comprobarK(int k) {
+        if (k < 1 || k > K_MAXIMO) {
+            throw new BusquedaGeoInvalidaException("k tiene que estar entre 1 y " + K_MAXIMO);
+        }
+    }
+
+    private static List<Long> idsDe(List<InmuebleGeoIndex.Resultado> resultados) {
+        return resultados.stream().map(InmuebleGeoIndex.Resultado::id).toList();
+    }
+
+    // Carga los inmuebles en el orden de los IDs recibidos con las consultas IN por bloques del multi-get
+    // (y su caché de findById). Los que no aparecen se saltan sin tocar el índice: esta lectura puede no ver
+    // un alta sin confirmar, y el índice ya lo mantienen las escrituras tras el commit
+    private List<InmuebleOutDto> cargarEnOrden(List<Long> ids) {
+        return lecturasPorIds.leer(CacheDtos.INMUEBLES, ids, inmuebleRepository::findAllById, Inmueble::getId,
+                inmuebleMapper::toOutDto).getContenido();
     }
 }
\ No newline at end of file
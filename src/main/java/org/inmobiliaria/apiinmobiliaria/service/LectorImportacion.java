@@ -0,0 +1,176 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Lee un fichero de importación línea a línea y entrega cada fila ya convertida al DTO de entrada,
+ * sin cargar el fichero entero en memoria. Una línea que no se puede convertir no corta la lectura:
+ * se entrega con sus errores para que aparezca en el informe.
+ * Formatos:
+ * - NDJSON: un objeto JSON por línea, con los mismos campos que el cuerpo del POST.
+ * - CSV: separado por comas, con una cabecera con los nombres de los campos y comillas dobles
+ *   opcionales ("" dentro de un campo entrecomillado). No admite saltos de línea dentro de un campo.
+ */
+final class LectorImportacion<T> implements Iterator<LectorImportacion.Fila<T>> {
+
+    /**
+     * Fila leída: el DTO (null si la línea no se ha podido convertir) y los errores encontrados hasta ahora.
+     */
+    record Fila<T>(int numero, T dto, Map<String, String> errores) {
+
+        Fila<T> conErrores(Map<String, String> nuevos) {
+            return new Fila<>(numero, dto, nuevos);
+        }
+
+        boolean valida() {
+            return errores.isEmpty();
+        }
+    }
+
+    private interface Conversor<T> {
+        T convertir(String linea) throws JsonProcessingException;
+    }
+
+    private final BufferedReader lector;
+    private final Conversor<T> conversor;
+    private int numeroLinea;
+    private Fila<T> siguiente;
+
+    private LectorImportacion(BufferedReader lector, int numeroLinea, Conversor<T> conversor) {
+        this.lector = lector;
+        this.numeroLinea = numeroLinea;
+        this.conversor = conversor;
+    }
+
+    static <T> LectorImportacion<T> ndjson(BufferedReader lector, ObjectMapper objectMapper, Class<T> tipo) {
+        return new LectorImportacion<>(lector, 0, linea -> {
+            // "null" se convertiría en un DTO null sin error; un número o un array tampoco son una fila
+            if (!linea.strip().startsWith("{")) {
+                throw new JsonMappingException(null, "Cada línea tiene que ser un objeto JSON");
+            }
+            return objectMapper.readValue(linea, tipo);
+        });
+    }
+
+    static <T> LectorImportacion<T> csv(BufferedReader lector, ObjectMapper objectMapper, Class<T> tipo) throws IOException {
+        // La primera línea con contenido es la cabecera
+        String cabecera;
+        int numero = 0;
+        do {
+            cabecera = lector.readLine();
+            numero++;
+        } while (cabecera != null && cabecera.isBlank());
+
+        List<String> columnas = (cabecera != null)
+                ? separarCsv(cabecera).stream().map(String::strip).toList()
+                : List.of();
+        return new LectorImportacion<>(lector, numero, linea -> {
+            List<String> valores = separarCsv(linea);
+            if (valores.size() != columnas.size()) {
+                throw new JsonMappingException(null, "Se esperaban " + columnas.size() + " columnas y hay " + valores.size());
+            }
+            // Las celdas vacías son nulos; Jackson convierte el texto de cada celda al tipo del campo
+            ObjectNode nodo = objectMapper.createObjectNode();
+            for (int i = 0; i < columnas.size(); i++) {
+                String valor = valores.get(i).strip();
+                nodo.put(columnas.get(i), valor.isEmpty() ? null : valor);
+            }
+            return objectMapper.treeToValue(nodo, tipo);
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (siguiente == null) {
+            siguiente = leer();
+        }
+        return siguiente != null;
+    }
+
+    @Override
+    public Fila<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Fila<T> fila = siguiente;
+        siguiente = null;
+        return fila;
+    }
+
+    private Fila<T> leer() {
+        try {
+            String linea;
+            do {
+                linea = lector.readLine();
+                numeroLinea++;
+            } while (linea != null && linea.isBlank());
+
+            if (linea == null) {
+                return null;
+            }
+            try {
+                T dto = conversor.convertir(linea);
+                if (dto == null) {
+                    return new Fila<>(numeroLinea, null, Map.of("fila", "Formato no válido: la fila está vacía"));
+                }
+                return new Fila<>(numeroLinea, dto, Map.of());
+            } catch (JsonProcessingException e) {
+                return new Fila<>(numeroLinea, null, erroresDe(e));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Si Jackson sabe qué campo ha fallado (p.ej. "precio": "abc") el error va en ese campo
+    private static Map<String, String> erroresDe(JsonProcessingException e) {
+        if (e instanceof JsonMappingException jme && !jme.getPath().isEmpty()) {
+            String campo = jme.getPath().stream()
+                    .map(JsonMappingException.Reference::getFieldName)
+                    .collect(Collectors.joining("."));
+            return Map.of(campo, "Valor no válido");
+        }
+        return Map.of("fila", "Formato no válido: " + e.getOriginalMessage());
+    }
+
+    static List<String> separarCsv(String linea) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+}
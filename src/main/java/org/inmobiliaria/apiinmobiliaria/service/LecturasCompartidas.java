@@ -0,0 +1,109 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa las lecturas idénticas que llegan a la vez (single-flight): la primera petición de una clave
+ * (operación + parámetros) ejecuta la lectura y las que llegan mientras tanto esperan y reciben su mismo
+ * resultado, o su misma excepción. Si hay ventana, el resultado se sigue compartiendo durante ese tiempo
+ * después de terminar; los errores no se comparten fuera de la lectura en curso.
+ * Cada petición cuenta en la métrica lecturas.compartidas con resultado=ejecutada o resultado=compartida.
+ */
+@Component
+public class LecturasCompartidas {
+
+    public static final String METRICA = "lecturas.compartidas";
+
+    private record Clave(String operacion, List<Object> parametros) {}
+
+    private record Contadores(Counter ejecutada, Counter compartida) {}
+
+    private final Map<Clave, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+
+    // Los contadores de cada operación se registran una sola vez y se reutilizan en cada lectura
+    private final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    @Value("${lecturas.compartidas.ventana:0ms}")
+    private Duration ventana;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // LEER: ejecuta la lectura o se une a la que ya está en curso con los mismos parámetros
+    @SuppressWarnings("unchecked")
+    public <T> T leer(String operacion, Supplier<T> lectura, Object... parametros) {
+        Clave clave = new Clave(operacion, Arrays.asList(parametros));
+        CompletableFuture<Object> nueva = new CompletableFuture<>();
+        CompletableFuture<Object> existente = enCurso.putIfAbsent(clave, nueva);
+
+        // 1. COMPARTIMOS el resultado de la lectura que ya está en curso
+        if (existente != null) {
+            contadores(operacion).compartida().increment();
+            return (T) esperar(existente);
+        }
+
+        // 2. EJECUTAMOS la lectura y se la pasamos a las que estén esperando
+        contadores(operacion).ejecutada().increment();
+        try {
+            T resultado = lectura.get();
+            nueva.complete(resultado);
+            liberar(clave, nueva, ventana);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            nueva.completeExceptionally(e);
+            liberar(clave, nueva, Duration.ZERO);
+            throw e;
+        }
+    }
+
+    private void liberar(Clave clave, CompletableFuture<Object> lectura, Duration espera) {
+        if (espera.isZero()) {
+            enCurso.remove(clave, lectura);
+        } else {
+            CompletableFuture.delayedExecutor(espera.toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> enCurso.remove(clave, lectura));
+        }
+    }
+
+    private static Object esperar(CompletableFuture<Object> lectura) {
+        try {
+            return lectura.join();
+        } catch (CompletionException e) {
+            // Misma excepción que la petición que ejecutó la lectura (p. ej. el NotFound para el 404)
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private Contadores contadores(String operacion) {
+        return contadores.computeIfAbsent(operacion, o -> new Contadores(
+                contador(o, "ejecutada"), contador(o, "compartida")));
+    }
+
+    private Counter contador(String operacion, String resultado) {
+        return Counter.builder(METRICA)
+                .description("Lecturas ejecutadas y compartidas con otra petición idéntica en curso")
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,95 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.LoteInvalidoException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Lectura de varias entidades por id en una petición (multi-get). Los DTO que ya están en la caché de findById
+ * (CacheDtos) se sirven de ahí, FiltroIds descarta los ids que seguro que no existen y el resto se lee
+ * con consultas IN de BLOQUE ids como mucho. Lo leído se guarda en la caché igual que en findById.
+ */
+@Component
+public class LecturasPorIds {
+
+    public static final int MAXIMO_IDS = 1000;
+
+    // Ids por consulta IN: un lote grande se lee en varias sentencias de tamaño acotado
+    static final int BLOQUE = 200;
+
+    private final CacheManager cacheManager;
+
+    private final FiltroIds filtroIds;
+
+    public LecturasPorIds(CacheManager cacheManager, FiltroIds filtroIds) {
+        this.cacheManager = cacheManager;
+        this.filtroIds = filtroIds;
+    }
+
+    // entidad: clave de CacheDtos y FiltroIds; buscar: una consulta IN (p.ej. findAllById del repositorio)
+    public <E, D> LoteOutDto<D> leer(String entidad, List<Long> ids, Function<List<Long>, Iterable<E>> buscar,
+                                     Function<E, Long> id, Function<E, D> mapear) {
+        // 1. Ids pedidos, sin repetidos y en su orden
+        Set<Long> pedidos = new LinkedHashSet<>();
+        ids.stream().filter(Objects::nonNull).forEach(pedidos::add);
+        if (pedidos.size() > MAXIMO_IDS) {
+            throw new LoteInvalidoException("Se pueden pedir como mucho " + MAXIMO_IDS + " ids a la vez");
+        }
+
+        // 2. Los que están en la caché de findById no se consultan
+        Cache cache = cacheManager.getCache(entidad);
+        Map<Long, D> encontrados = new HashMap<>();
+        List<Long> pendientes = new ArrayList<>();
+        for (Long pedido : pedidos) {
+            Cache.ValueWrapper cacheado = cache.get(pedido);
+            if (cacheado != null) {
+                @SuppressWarnings("unchecked")
+                D dto = (D) cacheado.get();
+                encontrados.put(pedido, dto);
+            } else if (!filtroIds.descartado(entidad, pedido)) {
+                pendientes.add(pedido);
+            }
+        }
+
+        // 3. El resto, en bloques y de la primaria: lo leído se guarda en la caché
+        for (int desde = 0; desde < pendientes.size(); desde += BLOQUE) {
+            List<Long> bloque = pendientes.subList(desde, Math.min(desde + BLOQUE, pendientes.size()));
+            for (E fila : LecturaPrimaria.leer(() -> buscar.apply(bloque))) {
+                D dto = mapear.apply(fila);
+                encontrados.put(id.apply(fila), dto);
+                cache.put(id.apply(fila), dto);
+            }
+        }
+        for (Long pendiente : pendientes) {
+            if (!encontrados.containsKey(pendiente)) {
+                // Pasó FiltroIds pero no existe
+                filtroIds.noEncontrado(entidad);
+            }
+        }
+
+        // 4. Resultado en el orden pedido
+        List<D> contenido = new ArrayList<>(encontrados.size());
+        List<Long> noEncontrados = new ArrayList<>();
+        for (Long pedido : pedidos) {
+            D dto = encontrados.get(pedido);
+            if (dto != null) {
+                contenido.add(dto);
+            } else {
+                noEncontrados.add(pedido);
+            }
+        }
+        return new LoteOutDto<>(contenido, noEncontrados);
+    }
+}
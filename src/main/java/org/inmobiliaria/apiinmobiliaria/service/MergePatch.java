@@ -0,0 +1,61 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.inmobiliaria.apiinmobiliaria.exception.PatchInvalidoException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON Merge Patch (RFC 7396) sobre el InDto de una entidad: los campos que no vienen se quedan como estaban
+ * y los que vienen a null se borran. El resultado se valida con las mismas anotaciones que el PUT,
+ * así que poner a null un campo obligatorio da 400.
+ */
+@Component
+public class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public MergePatch(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    // actual: el InDto construido desde la entidad; se modifica y se devuelve
+    public <T> T aplicar(T actual, JsonNode cambios) {
+        if (cambios == null || !cambios.isObject()) {
+            throw new PatchInvalidoException("El cuerpo del PATCH tiene que ser un objeto JSON", Map.of());
+        }
+
+        T resultado;
+        try {
+            resultado = objectMapper.readerForUpdating(actual).readValue(cambios);
+        } catch (JsonMappingException e) {
+            String campo = e.getPath().isEmpty() ? "" : e.getPath().getLast().getFieldName();
+            throw new PatchInvalidoException("Valor no válido", Map.of(campo, "Valor no válido"));
+        } catch (IOException e) {
+            throw new PatchInvalidoException(e.getMessage(), Map.of());
+        }
+
+        Set<ConstraintViolation<T>> violaciones = validator.validate(resultado);
+        if (!violaciones.isEmpty()) {
+            Map<String, String> errores = new HashMap<>();
+            for (ConstraintViolation<T> violacion : violaciones) {
+                errores.put(violacion.getPropertyPath().toString(), violacion.getMessage());
+            }
+            throw new PatchInvalidoException("Validation error", errores);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,25 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Sube el contador de ModificacionesTablas de la tabla de la entidad en cada INSERT, UPDATE o DELETE que hace JPA.
+ * Los DELETE por conjuntos de BorradoMasivoRepository no pasan por aquí: los cuenta BorradosMasivos.
+ */
+public class ModificacionesListener {
+
+    @Autowired
+    @Lazy
+    private ModificacionesTablas modificacionesTablas;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void modificada(Object entidad) {
+        modificacionesTablas.modificada(FiltroIdsListener.clave(entidad));
+    }
+}
@@ -0,0 +1,118 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de modificaciones por tabla (claves de CacheDtos), del que salen los ETag de los listados
+ * sin leer ni serializar los datos: basta con el contador y los filtros de la petición.
+ * Cada escritura lo sube dos veces, al llegar a la base de datos y al terminar la transacción. Así un listado
+ * que se lee mientras tanto (con los datos de antes o de después) queda con un ETag que ya no vale.
+ * El ETag va también en la clave de LecturasCompartidas, para no compartir una lectura anterior a un cambio.
+ * Los contadores viven en memoria, así que con varias instancias escribiendo en la misma base de datos
+ * hay que desactivarlo (listados.etag.activo=false), igual que FiltroIds.
+ */
+@Component
+public class ModificacionesTablas {
+
+    // Tras reiniciar los contadores vuelven a 0: el arranque en el ETag evita que coincidan con los de antes
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, Tabla> tablas = new ConcurrentHashMap<>();
+
+    @Value("${listados.etag.activo:true}")
+    private boolean activo;
+
+    @Value("${replicas.urls:}")
+    private List<String> replicas;
+
+    @Value("${replicas.lectura-tras-escritura:5s}")
+    private Duration retrasoReplicas;
+
+    private static class Tabla {
+        private final AtomicLong contador = new AtomicLong();
+        // System.nanoTime() a partir del cual las réplicas ya tienen la última modificación
+        private volatile long estable = System.nanoTime();
+    }
+
+    public void modificada(String tabla) {
+        Tabla t = tabla(tabla);
+        t.contador.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    t.contador.incrementAndGet();
+                    t.estable = System.nanoTime() + retrasoReplicas.toNanos();
+                }
+            });
+        } else {
+            t.estable = System.nanoTime() + retrasoReplicas.toNanos();
+        }
+    }
+
+    /**
+     * ETag fuerte del listado de una tabla con esos filtros, o null si no se puede dar uno:
+     * desactivado, o la tabla ha cambiado hace menos del retraso admitido de las réplicas, que aún
+     * pueden devolver los datos de antes y quedarían guardados con el ETag nuevo.
+     * Hay que pedirlo antes de leer el listado.
+     */
+    public String etag(String tabla, Object... filtros) {
+        if (!activo) {
+            return null;
+        }
+        Tabla t = tabla(tabla);
+        long contador = t.contador.get();
+        if (!replicas.isEmpty() && System.nanoTime() - t.estable < 0) {
+            return null;
+        }
+        return "\"" + tabla + "-" + arranque + "-" + contador + "-" + resumen(filtros) + "\"";
+    }
+
+    // SHA-256 de los filtros: dos combinaciones distintas (cursores after, listas de fields) no pueden
+    // compartir ETag, algo que un hash de 32 bits no garantiza
+    private static String resumen(Object... filtros) {
+        StringBuilder canonico = new StringBuilder();
+        for (Object filtro : filtros) {
+            canonico(canonico, filtro);
+        }
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(canonico.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(resumen);
+        } catch (NoSuchAlgorithmException e) {
+            // Toda JVM tiene SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Cada valor con su longitud delante, para que ningún separador dentro de un valor cambie la lectura;
+    // null (filtro ausente) y las listas tienen su propia marca
+    private static void canonico(StringBuilder canonico, Object valor) {
+        if (valor == null) {
+            canonico.append('~');
+        } else if (valor instanceof Collection<?> lista) {
+            canonico.append('[').append(lista.size()).append(':');
+            lista.forEach(elemento -> canonico(canonico, elemento));
+        } else {
+            String texto = valor.toString();
+            canonico.append(texto.length()).append(':').append(texto);
+        }
+    }
+
+    private Tabla tabla(String tabla) {
+        return tablas.computeIfAbsent(tabla, t -> new Tabla());
+    }
+}
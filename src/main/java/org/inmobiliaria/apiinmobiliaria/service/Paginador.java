@@ -0,0 +1,68 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+import org.inmobiliaria.apiinmobiliaria.repository.KeysetSpecifications;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Paginación por cursor (keyset) común a todos los listados.
+ * Se pide una fila más que el límite para saber si hay página siguiente sin hacer un COUNT.
+ */
+public final class Paginador {
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    private Paginador() {
+    }
+
+    public static <T, D> PaginaOutDto<D> paginar(JpaSpecificationExecutor<T> repositorio, Specification<T> filtro,
+                                                 Set<String> ordenesPermitidos, String orden, String after,
+                                                 Integer limit, Function<List<T>, List<D>> mapeo) {
+        // 1. Validamos orden y límite
+        String campo = (orden != null) ? orden : "id";
+        if (!ordenesPermitidos.contains(campo)) {
+            throw new PaginacionInvalidaException("No se puede ordenar por " + campo + ". Valores permitidos: " + ordenesPermitidos);
+        }
+        int tamano = (limit != null) ? limit : LIMITE_POR_DEFECTO;
+        if (tamano < 1 || tamano > LIMITE_MAXIMO) {
+            throw new PaginacionInvalidaException("El límite tiene que estar entre 1 y " + LIMITE_MAXIMO);
+        }
+
+        // 2. Si hay cursor, añadimos la condición de seek a los filtros
+        Specification<T> especificacion = filtro;
+        if (after != null) {
+            Cursor cursor = Cursor.decodificar(after);
+            if (!cursor.campo().equals(campo)) {
+                throw new PaginacionInvalidaException("El cursor no corresponde al orden " + campo);
+            }
+            especificacion = filtro.and(KeysetSpecifications.despuesDe(campo, cursor.valor(), cursor.id()));
+        }
+
+        // 3. Consulta con ORDER BY campo, id y LIMIT tamano + 1
+        List<T> filas = repositorio.findBy(especificacion,
+                consulta -> consulta.sortBy(KeysetSpecifications.orden(campo)).limit(tamano + 1).all());
+
+        // 4. Si ha venido la fila de más, hay página siguiente y el cursor apunta a la última que devolvemos
+        String siguiente = null;
+        if (filas.size() > tamano) {
+            filas = filas.subList(0, tamano);
+            siguiente = cursorDe(filas.get(tamano - 1), campo).codificar();
+        }
+
+        return new PaginaOutDto<>(mapeo.apply(filas), siguiente);
+    }
+
+    private static Cursor cursorDe(Object entidad, String campo) {
+        var propiedades = PropertyAccessorFactory.forBeanPropertyAccess(entidad);
+        long id = (Long) propiedades.getPropertyValue("id");
+        return new Cursor(campo, String.valueOf(propiedades.getPropertyValue(campo)), id);
+    }
+}
@@ -1,37 +1,89 @@
 package org.inmobiliaria.apiinmobiliaria.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.PropietarioMapper;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.inmobiliaria.apiinmobiliaria.repository.PropietarioSpecifications;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Transactional(readOnly = true)
 public class PropietarioService {
 
+    // Campos por los que se puede ordenar el listado paginado (todos con índice)
+    private static final Set<String> ORDENES = Set.of("id", "nombre");
+
+    // Campos que se pueden pedir con ?fields=
+    private static final Map<String, String> COLUMNAS = Map.of(
+            "id", "id",
+            "dni", "dni",
+            "nombre", "nombre",
+            "telefono", "telefono",
+            "comision", "comision",
+            "esEmpresa", "esEmpresa",
+            "fechaAlta", "fechaAlta");
+
     @Autowired
     private PropietarioRepository propietarioRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProyeccionRepository proyeccionRepository;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private PropietarioMapper propietarioMapper;
+
+    @Autowired
+    private MergePatch mergePatch;
+
+    @Autowired
+    private BorradoMasivoRepository borradoMasivoRepository;
+
+    @Autowired
+    private BorradosMasivos borradosMasivos;
 
     // ADD: Recibe Entidad, devuelve Entidad
+    @Transactional
     public Propietario add(Propietario propietario) {
         return propietarioRepository.save(propietario);
     }
 
     // DELETE
-    public void delete(long id) throws PropietarioNotFoundException {
-        Propietario propietario = propietarioRepository.findById(id)
-                .orElseThrow(() -> new PropietarioNotFoundException("Propietario no encontrado con ID: " + id));
-
-        propietarioRepository.delete(propietario);
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.PROPIETARIOS, key = "#id")
+    public BorradoOutDto delete(long id, Long versionEsperada) throws PropietarioNotFoundException {
+        if (versionEsperada != null) {
+            // Se bloquea la fila para que nadie la modifique entre la comprobación y el DELETE
+            long version = borradoMasivoRepository.versionBloqueada(Propietario.class, id)
+                    .orElseThrow(() -> PropietarioNotFoundException.INSTANCIA);
+            Versiones.comprobar(versionEsperada, version);
+        }
+        // Sus inmuebles y las visitas de estos caen con DELETE por conjuntos
+        BorradoMasivoRepository.Borrado borrado = borradoMasivoRepository.borrarPropietario(id);
+        if (borrado.filas() == 0) {
+            throw PropietarioNotFoundException.INSTANCIA;
+        }
+        return borradosMasivos.aplicar(CacheDtos.PROPIETARIOS, id, borrado);
     }
 
     // FIND ALL: Lógica condicional para filtros
@@ -52,35 +104,68 @@ public class PropietarioService {
             propietarios = propietarioRepository.findAll();
         }
 
-        return modelMapper.map(propietarios, new TypeToken<List<PropietarioOutDto>>() {}.getType());
+        return propietarioMapper.toOutDtoList(propietarios);
+    }
+
+    // FIND ALL con ?fields=: mismos filtros, solo esas columnas
+    public List<PropietarioOutDto> findProyeccion(String dni, String nombre, Boolean esEmpresa, List<String> campos) {
+        return Proyecciones.proyectar(proyeccionRepository, Propietario.class, PropietarioSpecifications.filtro(dni, nombre, esEmpresa),
+                COLUMNAS, campos, PropietarioOutDto::new);
+    }
+
+    // FIND PAGINADO: mismos filtros que findAll, con cursor
+    public PaginaOutDto<PropietarioOutDto> findPagina(String dni, String nombre, Boolean esEmpresa, String orden, String after, Integer limit) {
+        return Paginador.paginar(propietarioRepository, PropietarioSpecifications.filtro(dni, nombre, esEmpresa), ORDENES, orden, after, limit,
+                propietarioMapper::toOutDtoList);
     }
 
     // FIND BY ID
+    @Cacheable(cacheNames = CacheDtos.PROPIETARIOS, key = "#id")
     public PropietarioOutDto findById(long id) throws PropietarioNotFoundException {
-        Propietario propietario = propietarioRepository.findById(id)
-                .orElseThrow(() -> new PropietarioNotFoundException("Propietario no encontrado con ID: " + id));
+        // Lo leído se queda en la caché: de la primaria, no de una réplica que puede ir atrasada
+        Propietario propietario = LecturaPrimaria.leer(() -> filtroIds.buscar(CacheDtos.PROPIETARIOS, id, propietarioRepository::findById))
+                .orElseThrow(() -> PropietarioNotFoundException.INSTANCIA);
 
-        return modelMapper.map(propietario, PropietarioOutDto.class);
+        return propietarioMapper.toOutDto(propietario);
     }
 
     // MODIFY
-    public PropietarioOutDto modify(long id, PropietarioInDto propietarioInDto) throws PropietarioNotFoundException {
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.PROPIETARIOS, key = "#id")
+    public PropietarioOutDto modify(long id, PropietarioInDto propietarioInDto, Long versionEsperada) throws PropietarioNotFoundException {
         Propietario propietarioExistente = propietarioRepository.findById(id)
-                .orElseThrow(() -> new PropietarioNotFoundException("Propietario no encontrado con ID: " + id));
+                .orElseThrow(() -> PropietarioNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, propietarioExistente.getVersion());
 
         // Mapeamos los cambios del DTO a la entidad existente
-        modelMapper.map(propietarioInDto, propietarioExistente);
+        propietarioMapper.updateEntity(propietarioInDto, propietarioExistente);
 
         // Aseguramos que el ID no cambie
         propietarioExistente.setId(id);
 
+        // Con flush el DTO sale ya con la versión nueva, que es el ETag de la respuesta
         Propietario propietarioGuardado = propietarioRepository.save(propietarioExistente);
-        return modelMapper.map(propietarioGuardado, PropietarioOutDto.class);
+        propietarioRepository.flush();
+        return propietarioMapper.toOutDto(propietarioGuardado);
+    }
+
+    // PATCH: aplica solo los campos recibidos
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.PROPIETARIOS, key = "#id")
+    public PropietarioOutDto patch(long id, JsonNode cambios, Long versionEsperada) throws PropietarioNotFoundException {
+        Propietario propietario = propietarioRepository.findById(id)
+                .orElseThrow(() -> PropietarioNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, propietario.getVersion());
+
+        PropietarioInDto propietarioInDto = mergePatch.aplicar(propietarioMapper.toInDto(propietario), cambios);
+        propietarioMapper.updateEntity(propietarioInDto, propietario);
+        propietarioRepository.flush();
+        return propietarioMapper.toOutDto(propietario);
     }
 
     // SQL: FIND PROPIETARIO ES EMPRESA
     public List<PropietarioOutDto> getEmpresasSql() {
         List<Propietario> lista = propietarioRepository.findEmpresasNativas();
-        return modelMapper.map(lista, new TypeToken<List<PropietarioOutDto>>() {}.getType());
+        return propietarioMapper.toOutDtoList(lista);
     }
 }
\ No newline at end of file
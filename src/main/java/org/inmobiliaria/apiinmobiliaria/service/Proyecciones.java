@@ -0,0 +1,61 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import org.inmobiliaria.apiinmobiliaria.exception.CamposInvalidosException;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Listados con sparse fieldsets (?fields=id,titulo,precio) común a todas las entidades.
+ * El id va siempre. Los DTO salen con el resto de propiedades vacías; el controlador solo escribe las pedidas.
+ */
+public final class Proyecciones {
+
+    private Proyecciones() {
+    }
+
+    // disponibles: propiedad del DTO -> propiedad de la entidad (las claves ajenas como "agencia.id")
+    public static <T, D> List<D> proyectar(ProyeccionRepository repositorio, Class<T> tipo, Specification<T> filtro,
+                                           Map<String, String> disponibles, List<String> campos, Supplier<D> nuevo) {
+        // 1. Validamos los campos pedidos antes de consultar
+        Map<String, String> columnas = new LinkedHashMap<>();
+        columnas.put("id", disponibles.get("id"));
+        for (String campo : campos) {
+            String nombre = campo.trim();
+            if (nombre.isEmpty()) {
+                continue;
+            }
+            String propiedad = disponibles.get(nombre);
+            if (propiedad == null) {
+                throw new CamposInvalidosException("El campo " + nombre + " no existe. Valores permitidos: "
+                        + new TreeSet<>(disponibles.keySet()));
+            }
+            columnas.put(nombre, propiedad);
+        }
+
+        // 2. SELECT solo de esas columnas, con los mismos filtros que el listado completo
+        List<Tuple> filas = repositorio.buscar(tipo, filtro, columnas);
+
+        // 3. Cada fila a un DTO: cada alias es el nombre de la propiedad
+        List<D> dtos = new ArrayList<>(filas.size());
+        for (Tuple fila : filas) {
+            D dto = nuevo.get();
+            BeanWrapper destino = PropertyAccessorFactory.forBeanPropertyAccess(dto);
+            for (TupleElement<?> columna : fila.getElements()) {
+                destino.setPropertyValue(columna.getAlias(), fila.get(columna));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,28 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cambios en estructuras en memoria (índice geográfico, filtro de ids, DTO cacheados) que tienen que reflejar
+ * solo lo confirmado: dentro de una transacción se aplican en afterCommit (si se deshace, no se aplican);
+ * fuera de ella, en el momento.
+ */
+public final class TrasCommit {
+
+    private TrasCommit() {
+    }
+
+    public static void ejecutar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.inmobiliaria.apiinmobiliaria.service;
+
+import org.inmobiliaria.apiinmobiliaria.exception.VersionNoCoincideException;
+
+/**
+ * Comprobación del If-Match en los servicios. Solo adelanta el error: aunque dos escrituras pasen a la vez
+ * esta comprobación, @Version hace que el UPDATE o el DELETE de la segunda no encuentre la fila.
+ */
+final class Versiones {
+
+    private Versiones() {
+    }
+
+    // esperada null: la petición no trae If-Match y no se comprueba nada
+    static void comprobar(Long esperada, long actual) {
+        if (esperada != null && esperada != actual) {
+            throw new VersionNoCoincideException("La versión actual es " + actual + ", no " + esperada);
+        }
+    }
+}
@@ -1,30 +1,68 @@
 package org.inmobiliaria.apiinmobiliaria.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import org.inmobiliaria.apiinmobiliaria.config.LecturaPrimaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
 import org.inmobiliaria.apiinmobiliaria.domain.Visita;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.exception.VisitaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.VisitaMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ProyeccionRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.VisitaRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.inmobiliaria.apiinmobiliaria.repository.VisitaSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
+@Transactional(readOnly = true)
 public class VisitaService {
 
+    // Orden del listado paginado: solo columnas indexadas
+    private static final Set<String> ORDENES = Set.of("id", "fechaHora");
+
+    // Campos de ?fields=; clienteId e inmuebleId se leen de las claves ajenas
+    private static final Map<String, String> COLUMNAS = Map.of(
+            "id", "id",
+            "fechaHora", "fechaHora",
+            "comentarios", "comentarios",
+            "estado", "estado",
+            "valoracion", "valoracion",
+            "duracionEstimada", "duracionEstimada",
+            "recordatorioActivo", "recordatorioActivo",
+            "clienteId", "cliente.id",
+            "inmuebleId", "inmueble.id");
+
     @Autowired
     private VisitaRepository visitaRepository;
 
+    @Autowired
+    private ProyeccionRepository proyeccionRepository;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private ExportacionRepository exportacionRepository;
+
     @Autowired
     private ClienteRepository clienteRepository;
 
@@ -32,9 +70,13 @@ public class VisitaService {
     private InmuebleRepository inmuebleRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private VisitaMapper visitaMapper;
+
+    @Autowired
+    private MergePatch mergePatch;
 
     // ADD
+    @Transactional
     public VisitaOutDto add(VisitaInDto visitaInDto) {
         // 1. Buscamos el Cliente por su ID
         Cliente cliente = clienteRepository.findById(visitaInDto.getClienteId())
@@ -46,7 +88,7 @@ public class VisitaService {
 
         // 3. Creamos la Visita y mapeamos los datos básicos (fecha, comentario, etc.)
         Visita visita = new Visita();
-        modelMapper.map(visitaInDto, visita);
+        visitaMapper.updateEntity(visitaInDto, visita);
 
         // 4. ASIGNAMOS LAS RELACIONES
         visita.setCliente(cliente);
@@ -54,13 +96,16 @@ public class VisitaService {
 
         // 5. Guardamos y devolvemos DTO
         Visita visitaGuardada = visitaRepository.save(visita);
-        return modelMapper.map(visitaGuardada, VisitaOutDto.class);
+        return visitaMapper.toOutDto(visitaGuardada);
     }
 
     // DELETE
-    public void delete(long id) throws VisitaNotFoundException {
+    @Transactional
+    @CacheEvict(cacheNames = CacheDtos.VISITAS, key = "#id")
+    public void delete(long id, Long versionEsperada) throws VisitaNotFoundException {
         Visita visita = visitaRepository.findById(id)
-                .orElseThrow(() -> new VisitaNotFoundException("Visita no encontrada con ID: " + id));
+                .orElseThrow(() -> VisitaNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, visita.getVersion());
 
         visitaRepository.delete(visita);
     }
@@ -80,32 +125,88 @@ public class VisitaService {
             visitas = visitaRepository.findAll();
         }
 
-        return modelMapper.map(visitas, new TypeToken<List<VisitaOutDto>>() {}.getType());
+        return visitaMapper.toOutDtoList(visitas);
+    }
+
+    // FIND ALL con ?fields=: solo las columnas pedidas
+    public List<VisitaOutDto> findProyeccion(String estado, LocalDateTime fechaDesde, Float valoracionMin, List<String> campos) {
+        return Proyecciones.proyectar(proyeccionRepository, Visita.class, VisitaSpecifications.filtro(estado, fechaDesde, valoracionMin),
+                COLUMNAS, campos, VisitaOutDto::new);
+    }
+
+    // FIND PAGINADO (cursor por fecha o por id)
+    public PaginaOutDto<VisitaOutDto> findPagina(String estado, LocalDateTime fechaDesde, Float valoracionMin, String orden, String after, Integer limit) {
+        return Paginador.paginar(visitaRepository, VisitaSpecifications.filtro(estado, fechaDesde, valoracionMin), ORDENES, orden, after, limit,
+                visitaMapper::toOutDtoList);
+    }
+
+    // EXPORTAR en streaming (mismos filtros que findAll)
+    public void exportar(String estado, LocalDateTime fechaDesde, Float valoracionMin, Consumer<VisitaOutDto> destino) {
+        exportacionRepository.recorrer(Visita.class, VisitaSpecifications.filtro(estado, fechaDesde, valoracionMin),
+                visita -> destino.accept(visitaMapper.toOutDto(visita)));
     }
 
     // FIND BY ID
+    @Cacheable(cacheNames = CacheDtos.VISITAS, key = "#id")
     public VisitaOutDto findById(long id) throws VisitaNotFoundException {
-        Visita visita = visitaRepository.findById(id)
-                .orElseThrow(() -> new VisitaNotFoundException("Visita no encontrada con ID: " + id));
+        // Lo leído se queda en la caché: de la primaria, no de una réplica que puede ir atrasada
+        Visita visita = LecturaPrimaria.leer(() -> filtroIds.buscar(CacheDtos.VISITAS, id, visitaRepository::findById))
+                .orElseThrow(() -> VisitaNotFoundException.INSTANCIA);
 
-        return modelMapper.map(visita, VisitaOutDto.class);
+        return visitaMapper.toOutDto(visita);
     }
 
     // MODIFY
-    public VisitaOutDto modify(long id, VisitaInDto visitaInDto) throws VisitaNotFoundException {
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.VISITAS, key = "#id")
+    public VisitaOutDto modify(long id, VisitaInDto visitaInDto, Long versionEsperada) throws VisitaNotFoundException {
         Visita visitaExistente = visitaRepository.findById(id)
-                .orElseThrow(() -> new VisitaNotFoundException("Visita no encontrada con ID: " + id));
+                .orElseThrow(() -> VisitaNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, visitaExistente.getVersion());
 
-        modelMapper.map(visitaInDto, visitaExistente);
+        // También cambia de cliente o de inmueble, como en PATCH
+        asignarRelaciones(visitaInDto, visitaExistente);
+        visitaMapper.updateEntity(visitaInDto, visitaExistente);
         visitaExistente.setId(id);
 
+        // Con flush el DTO sale ya con la versión nueva, que es el ETag de la respuesta
         Visita visitaGuardada = visitaRepository.save(visitaExistente);
-        return modelMapper.map(visitaGuardada, VisitaOutDto.class);
+        visitaRepository.flush();
+        return visitaMapper.toOutDto(visitaGuardada);
+    }
+
+    // PATCH
+    @Transactional
+    @CachePut(cacheNames = CacheDtos.VISITAS, key = "#id")
+    public VisitaOutDto patch(long id, JsonNode cambios, Long versionEsperada) throws VisitaNotFoundException {
+        Visita visita = visitaRepository.findById(id)
+                .orElseThrow(() -> VisitaNotFoundException.INSTANCIA);
+        Versiones.comprobar(versionEsperada, visita.getVersion());
+
+        VisitaInDto visitaInDto = mergePatch.aplicar(visitaMapper.toInDto(visita), cambios);
+
+        // Cliente e inmueble solo se buscan si el parche los cambia
+        asignarRelaciones(visitaInDto, visita);
+        visitaMapper.updateEntity(visitaInDto, visita);
+        visitaRepository.flush();
+        return visitaMapper.toOutDto(visita);
+    }
+
+    // PUT y PATCH: cliente e inmueble solo se buscan si el DTO los cambia
+    private void asignarRelaciones(VisitaInDto visitaInDto, Visita visita) {
+        if (!Objects.equals(visitaInDto.getClienteId(), visita.getClienteId())) {
+            visita.setCliente(clienteRepository.findById(visitaInDto.getClienteId())
+                    .orElseThrow(() -> new ClienteNotFoundException("El cliente con ID " + visitaInDto.getClienteId() + " no existe")));
+        }
+        if (!Objects.equals(visitaInDto.getInmuebleId(), visita.getInmuebleId())) {
+            visita.setInmueble(inmuebleRepository.findById(visitaInDto.getInmuebleId())
+                    .orElseThrow(() -> new InmuebleNotFoundException("El inmueble con ID " + visitaInDto.getInmuebleId() + " no existe")));
+        }
     }
 
     // SQL FIND VISITAS PASADAS
     public List<VisitaOutDto> getPasadasSql() {
         List<Visita> lista = visitaRepository.findVisitasPasadasNativas();
-        return modelMapper.map(lista, new TypeToken<List<VisitaOutDto>>() {}.getType());
+        return visitaMapper.toOutDtoList(lista);
     }
 }
\ No newline at end of file
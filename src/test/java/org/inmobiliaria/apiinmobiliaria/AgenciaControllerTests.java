@@ -2,14 +2,17 @@ package org.inmobiliaria.apiinmobiliaria;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.inmobiliaria.apiinmobiliaria.controller.AgenciaController;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.AgenciaMapper;
 import org.inmobiliaria.apiinmobiliaria.service.AgenciaService;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
@@ -20,15 +23,22 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.List;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
+import org.springframework.context.annotation.Import;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AgenciaController.class)
+@Import({LecturasCompartidas.class, ModificacionesTablas.class, SimpleMeterRegistry.class})
 public class AgenciaControllerTests {
 
     @Autowired
@@ -38,7 +48,7 @@ public class AgenciaControllerTests {
     private AgenciaService agenciaService;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private AgenciaMapper agenciaMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -97,6 +107,52 @@ public class AgenciaControllerTests {
                 .andExpect(jsonPath("$[0].nombre").value("Inmobiliaria Norte"));
     }
 
+    // GET ALL paginado (200 OK) - El cursor de la página siguiente va en las cabeceras
+    @Test
+    public void testGetAllPaginado() throws Exception {
+        PaginaOutDto<AgenciaOutDto> pagina = new PaginaOutDto<>(List.of(
+                new AgenciaOutDto(1L, "Agencia A", "Calle A", 100f, 28000, true, LocalDate.of(2020, 1, 1))
+        ), "c2lndWllbnRl");
+
+        when(agenciaService.findPagina(null, null, null, "nombre", null, 1)).thenReturn(pagina);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias")
+                        .param("orden", "nombre")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("Agencia A"))
+                .andExpect(header().string("X-Next-Cursor", "c2lndWllbnRl"))
+                .andExpect(header().string("Link", containsString("after=c2lndWllbnRl")));
+
+        verify(agenciaService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL con If-None-Match (304) - Sin cambios en la tabla no se llama al servicio
+    @Test
+    public void testGetAllNoModificado() throws Exception {
+        when(agenciaService.findAll(null, 28000, null)).thenReturn(List.of());
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/agencias").param("codigoPostal", "28000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "public, max-age=60"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias").param("codigoPostal", "28000")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "public, max-age=60"));
+
+        // Con otros filtros el ETag es otro
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias").param("codigoPostal", "28001")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk());
+
+        verify(agenciaService, times(1)).findAll(null, 28000, null);
+    }
+
     // GET BY ID (200 OK)
     @Test
     public void testGetById() throws Exception {
@@ -133,9 +189,9 @@ public class AgenciaControllerTests {
         AgenciaOutDto outDto = new AgenciaOutDto(1L, "Nueva", "Dir", 1000f, 28000, true, LocalDate.of(2023, 1, 1));
 
         // Hacemos mock del service
-        when(modelMapper.map(any(AgenciaInDto.class), eq(Agencia.class))).thenReturn(agenciaEntity);
+        when(agenciaMapper.toEntity(any(AgenciaInDto.class))).thenReturn(agenciaEntity);
         when(agenciaService.add(any(Agencia.class))).thenReturn(agenciaGuardada);
-        when(modelMapper.map(any(Agencia.class), eq(AgenciaOutDto.class))).thenReturn(outDto);
+        when(agenciaMapper.toOutDto(any(Agencia.class))).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.post("/agencias")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -165,7 +221,7 @@ public class AgenciaControllerTests {
         AgenciaInDto inDto = new AgenciaInDto("Modificada", "Dir", 500f, 28000, false, LocalDate.of(2023, 1, 1));
         AgenciaOutDto outDto = new AgenciaOutDto(id, "Modificada", "Dir", 500f, 28000, false, LocalDate.of(2023, 1, 1));
 
-        when(agenciaService.modify(eq(id), any(AgenciaInDto.class))).thenReturn(outDto);
+        when(agenciaService.modify(eq(id), any(AgenciaInDto.class), isNull())).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/agencias/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -180,7 +236,7 @@ public class AgenciaControllerTests {
         Long id = 99L;
         AgenciaInDto inDto = new AgenciaInDto("X", "X", 1f, 1, true, LocalDate.of(2023, 1, 1));
 
-        when(agenciaService.modify(eq(id), any(AgenciaInDto.class)))
+        when(agenciaService.modify(eq(id), any(AgenciaInDto.class), isNull()))
                 .thenThrow(new AgenciaNotFoundException("No existe"));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/agencias/" + id)
@@ -205,17 +261,19 @@ public class AgenciaControllerTests {
     @Test
     public void testDeleteAgencia() throws Exception {
         Long id = 1L;
-        doNothing().when(agenciaService).delete(id);
+        when(agenciaService.delete(id, null)).thenReturn(new BorradoOutDto(3, 7));
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + id))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Borrados-Inmuebles", "3"))
+                .andExpect(header().string("X-Borrados-Visitas", "7"));
     }
 
     // DELETE (404 NOT FOUND )
     @Test
     public void testDeleteAgenciaNotFound() throws Exception {
         Long id = 99L;
-        doThrow(new AgenciaNotFoundException("No existe")).when(agenciaService).delete(id);
+        doThrow(new AgenciaNotFoundException("No existe")).when(agenciaService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + id))
                 .andExpect(status().isNotFound());
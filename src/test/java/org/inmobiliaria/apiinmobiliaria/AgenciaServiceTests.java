@@ -3,16 +3,21 @@ package org.inmobiliaria.apiinmobiliaria;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.AgenciaOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.AgenciaMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
 import org.inmobiliaria.apiinmobiliaria.service.AgenciaService;
+import org.inmobiliaria.apiinmobiliaria.service.BorradosMasivos;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -33,7 +38,17 @@ public class AgenciaServiceTests {
     private AgenciaRepository agenciaRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private AgenciaMapper agenciaMapper;
+
+    @Mock
+    private BorradoMasivoRepository borradoMasivoRepository;
+
+    @Mock
+    private BorradosMasivos borradosMasivos;
+
+    // Sin cargar, el filtro deja pasar todas las búsquedas al repositorio
+    @Spy
+    private FiltroIds filtroIds = new FiltroIds();
 
     // TEST ADD
     @Test
@@ -54,7 +69,7 @@ public class AgenciaServiceTests {
 
         // Mocking
         when(agenciaRepository.findAll()).thenReturn(mockAgenciaList);
-        when(modelMapper.map(mockAgenciaList, new TypeToken<List<AgenciaOutDto>>() {}.getType())).thenReturn(modelMapperOut);
+        when(agenciaMapper.toOutDtoList(mockAgenciaList)).thenReturn(modelMapperOut);
 
         // Ejecución
         List<AgenciaOutDto> actualAgenciaList = agenciaService.findAll(null, null, null);
@@ -85,7 +100,7 @@ public class AgenciaServiceTests {
 
         when(agenciaRepository.findByFilter(nombre, cp, sabados))
                 .thenReturn(mockAgenciaList);
-        when(modelMapper.map(mockAgenciaList, new TypeToken<List<AgenciaOutDto>>() {}.getType())).thenReturn(mockModelMapperOut);
+        when(agenciaMapper.toOutDtoList(mockAgenciaList)).thenReturn(mockModelMapperOut);
 
         // Ejecución
         List<AgenciaOutDto> actualAgenciaList = agenciaService.findAll(nombre, cp, sabados);
@@ -107,7 +122,7 @@ public class AgenciaServiceTests {
         AgenciaOutDto mockOutDto = new AgenciaOutDto(1L, "Inmobiliaria Norte", "Calle A, 1", 1000.0f, 28001, true, LocalDate.of(2010, 1, 1));
 
         when(agenciaRepository.findById(1L)).thenReturn(Optional.of(mockAgencia));
-        when(modelMapper.map(mockAgencia, AgenciaOutDto.class)).thenReturn(mockOutDto);
+        when(agenciaMapper.toOutDto(mockAgencia)).thenReturn(mockOutDto);
 
         AgenciaOutDto result = agenciaService.findById(1L);
 
@@ -136,7 +151,7 @@ public class AgenciaServiceTests {
         Agencia agenciaGuardada = new Agencia(1L, "Nueva Agencia", "Calle X", 1000f, 28000, true, LocalDate.now(), null);
 
         // Mocking
-        // Aquí NO mockeamos modelMapper porque add no lo usa.
+        // Aquí NO mockeamos el mapper porque add no lo usa.
         when(agenciaRepository.save(agenciaInput)).thenReturn(agenciaGuardada);
 
         // Ejecución
@@ -170,23 +185,23 @@ public class AgenciaServiceTests {
         when(agenciaRepository.findById(id)).thenReturn(Optional.of(agenciaExistente));
 
         // Le decimos a Mockito que cuando el servicio intente volcar los datos  no haga nada y no se queje.
-        doNothing().when(modelMapper).map(inDto, agenciaExistente);
+        doNothing().when(agenciaMapper).updateEntity(inDto, agenciaExistente);
 
         // Guardar
         when(agenciaRepository.save(agenciaExistente)).thenReturn(agenciaGuardada);
 
         // Convertir resultado a OutDto
-        when(modelMapper.map(agenciaGuardada, AgenciaOutDto.class)).thenReturn(outDto);
+        when(agenciaMapper.toOutDto(agenciaGuardada)).thenReturn(outDto);
 
         // Ejecución
-        AgenciaOutDto resultado = agenciaService.modify(id, inDto);
+        AgenciaOutDto resultado = agenciaService.modify(id, inDto, null);
 
         // Aserciones
         assertEquals("Nombre Modificado", resultado.getNombre());
 
         // Verificamos el flujo completo
         verify(agenciaRepository).findById(id);
-        verify(modelMapper).map(inDto, agenciaExistente);
+        verify(agenciaMapper).updateEntity(inDto, agenciaExistente);
         verify(agenciaRepository).save(agenciaExistente);
     }
 
@@ -198,42 +213,45 @@ public class AgenciaServiceTests {
         when(agenciaRepository.findById(id)).thenReturn(Optional.empty());
 
         assertThrows(AgenciaNotFoundException.class, () -> {
-            agenciaService.modify(id, inDto);
+            agenciaService.modify(id, inDto, null);
         });
 
         verify(agenciaRepository, never()).save(any());
     }
 
-    // TEST DELETE (El método busca primero y luego borra la entidad)
+    // TEST DELETE (DELETE masivo sin cargar la agencia ni sus inmuebles)
     @Test
     public void testDelete() throws AgenciaNotFoundException {
-        Long id = 1L;
-        Agencia agenciaParaBorrar = new Agencia(id, "A Borrar", "C/ Borrar", 0f, 0, false, LocalDate.now(), null);
+        long id = 1L;
+        BorradoMasivoRepository.Borrado borrado = new BorradoMasivoRepository.Borrado(1, List.of(10L, 11L), List.of(20L));
 
         // Mocking
-        when(agenciaRepository.findById(id)).thenReturn(Optional.of(agenciaParaBorrar));
+        when(borradoMasivoRepository.borrarAgencia(id)).thenReturn(borrado);
+        when(borradosMasivos.aplicar(CacheDtos.AGENCIAS, id, borrado)).thenReturn(new BorradoOutDto(2, 1));
 
         // Ejecución
-        agenciaService.delete(id);
+        BorradoOutDto resultado = agenciaService.delete(id, null);
 
         // Verificación
-        verify(agenciaRepository, times(1)).findById(id);
-        // OJO: Tu servicio usa delete(entidad), NO deleteById(id)
-        verify(agenciaRepository, times(1)).delete(agenciaParaBorrar);
+        assertEquals(2, resultado.getInmuebles());
+        assertEquals(1, resultado.getVisitas());
+        // Ni se busca la entidad ni se borra por el repositorio de Spring Data
+        verify(agenciaRepository, never()).findById(anyLong());
+        verify(agenciaRepository, never()).delete(any(Agencia.class));
     }
 
     @Test
     public void testDeleteNotFound() {
-        Long id = 99L;
+        long id = 99L;
 
-        when(agenciaRepository.findById(id)).thenReturn(Optional.empty());
+        when(borradoMasivoRepository.borrarAgencia(id)).thenReturn(new BorradoMasivoRepository.Borrado(0, List.of(), List.of()));
 
         assertThrows(AgenciaNotFoundException.class, () -> {
-            agenciaService.delete(id);
+            agenciaService.delete(id, null);
         });
 
-        // Aseguramos que no se llamó a borrar nada
-        verify(agenciaRepository, never()).delete(any());
+        // Sin fila raíz no se toca ninguna caché
+        verify(borradosMasivos, never()).aplicar(any(), anyLong(), any());
     }
 
     @Test
@@ -251,7 +269,7 @@ public class AgenciaServiceTests {
         when(agenciaRepository.findAgenciasMaximaFacturacionAndAbiertoSabados(minFacturacion))
                 .thenReturn(mockAgenciaList);
 
-        when(modelMapper.map(mockAgenciaList, new TypeToken<List<AgenciaOutDto>>() {}.getType()))
+        when(agenciaMapper.toOutDtoList(mockAgenciaList))
                 .thenReturn(mockModelMapperOut);
 
         List<AgenciaOutDto> actualAgenciaList = agenciaService.findAgenciasMaximaFacturacionAndAbiertoSabados(minFacturacion);
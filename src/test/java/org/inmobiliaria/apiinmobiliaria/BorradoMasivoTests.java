@@ -0,0 +1,155 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleGeoIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los DELETE de agencias, propietarios e inmuebles borran la cascada con un número fijo de sentencias,
+ * sea cual sea el tamaño del grafo, y cuentan en las cabeceras lo que se ha llevado por delante.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:borrados;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class BorradoMasivoTests {
+
+    private static final int INMUEBLES = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    @Autowired
+    private InmuebleGeoIndex geoIndex;
+
+    private ContadorConsultas contador;
+    private Agencia agencia;
+    private Propietario propietario;
+    private List<Inmueble> inmuebles;
+    private List<Visita> visitas;
+    private double latitud;
+
+    // Una agencia y un propietario con INMUEBLES inmuebles, y una visita en cada inmueble par
+    @BeforeEach
+    public void setUp() {
+        contador = new ContadorConsultas(entityManagerFactory);
+        // Coordenadas distintas en cada test para que las búsquedas en el índice no se mezclen
+        latitud = 10 + (System.nanoTime() % 70_000) / 1000.0;
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Grande", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        Cliente cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+
+        inmuebles = new ArrayList<>();
+        visitas = new ArrayList<>();
+        for (int i = 0; i < INMUEBLES; i++) {
+            Inmueble inmueble = inmuebleRepository.save(new Inmueble(0, "Piso " + i, 100000f + i, 80, latitud, -0.88,
+                    true, LocalDate.of(2024, 1, 1), agencia, propietario, null));
+            geoIndex.actualizar(inmueble);
+            inmuebles.add(inmueble);
+            if (i % 2 == 0) {
+                visitas.add(visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Visita " + i,
+                        "PENDIENTE", 4f, 30, true, cliente, inmueble)));
+            }
+        }
+    }
+
+    @Test
+    public void testBorrarAgencia() throws Throwable {
+        // 2 SELECT de ids + 3 DELETE, tenga la agencia 30 inmuebles o 50.000
+        contador.assertMaximoConsultas(5, () ->
+                mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + agencia.getId()))
+                        .andExpect(status().isNoContent())
+                        .andExpect(header().string("X-Borrados-Inmuebles", String.valueOf(INMUEBLES)))
+                        .andExpect(header().string("X-Borrados-Visitas", String.valueOf(visitas.size()))));
+
+        assertFalse(agenciaRepository.existsById(agencia.getId()));
+        for (Inmueble inmueble : inmuebles) {
+            assertFalse(inmuebleRepository.existsById(inmueble.getId()));
+        }
+        for (Visita visita : visitas) {
+            assertFalse(visitaRepository.existsById(visita.getId()));
+        }
+        // El propietario sigue, sin inmuebles
+        assertTrue(propietarioRepository.existsById(propietario.getId()));
+        assertTrue(geoIndex.buscarEnRadio(latitud, -0.88, 1).isEmpty());
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmuebles.getFirst().getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testBorrarPropietario() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/propietarios/" + propietario.getId()))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Borrados-Inmuebles", String.valueOf(INMUEBLES)))
+                .andExpect(header().string("X-Borrados-Visitas", String.valueOf(visitas.size())));
+
+        assertFalse(propietarioRepository.existsById(propietario.getId()));
+        assertTrue(agenciaRepository.existsById(agencia.getId()));
+        assertFalse(inmuebleRepository.existsById(inmuebles.getLast().getId()));
+    }
+
+    @Test
+    public void testBorrarInmueble() throws Exception {
+        Inmueble inmueble = inmuebles.getFirst();
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/inmuebles/" + inmueble.getId()))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Borrados-Inmuebles", "1"))
+                .andExpect(header().string("X-Borrados-Visitas", "1"));
+
+        assertFalse(visitaRepository.existsById(visitas.getFirst().getId()));
+        assertTrue(visitaRepository.existsById(visitas.getLast().getId()));
+        assertEquals(INMUEBLES - 1, geoIndex.buscarEnRadio(latitud, -0.88, 1).size());
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas/" + visitas.getFirst().getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    // Sin fila raíz la transacción se deshace y no se borra ningún hijo
+    @Test
+    public void testBorrarInexistente() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + (agencia.getId() + 100_000)))
+                .andExpect(status().isNotFound());
+
+        assertTrue(inmuebleRepository.existsById(inmuebles.getFirst().getId()));
+    }
+}
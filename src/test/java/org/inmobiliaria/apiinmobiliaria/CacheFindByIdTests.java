@@ -0,0 +1,136 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Caché de los findById: la segunda lectura no va a la base de datos y las escrituras
+ * (también los borrados en cascada) dejan la caché al día.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cache;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class CacheFindByIdTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    private ContadorConsultas contador;
+    private Agencia agencia;
+    private Inmueble inmueble;
+    private Visita visita;
+
+    @BeforeEach
+    public void setUp() {
+        contador = new ContadorConsultas(entityManagerFactory);
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        inmueble = inmuebleRepository.save(new Inmueble(0, "Piso Centro", 150000f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+        Cliente cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+        visita = visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Primera visita",
+                "PENDIENTE", 4f, 30, true, cliente, inmueble));
+    }
+
+    @Test
+    public void testSegundaLecturaSinConsultas() throws Throwable {
+        leerInmueble("Piso Centro");
+
+        long consultas = contador.contar(() -> leerInmueble("Piso Centro"));
+
+        assertEquals(0, consultas);
+        assertNotNull(cacheManager.getCache(CacheDtos.INMUEBLES).get(inmueble.getId()));
+    }
+
+    @Test
+    public void testModificarActualizaLaCache() throws Throwable {
+        leerInmueble("Piso Centro");
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/inmuebles/" + inmueble.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Piso reformado\",\"precio\":160000,\"metros\":80,\"latitud\":41.65,"
+                                + "\"longitud\":-0.88,\"ascensor\":true,\"fechaPublicacion\":\"2024-01-01\","
+                                + "\"agenciaId\":" + agencia.getId() + ",\"propietarioId\":1}"))
+                .andExpect(status().isOk());
+
+        // La versión nueva ya está en la caché
+        assertEquals(0, contador.contar(() -> leerInmueble("Piso reformado")));
+    }
+
+    @Test
+    public void testBorrarEnCascadaEvictaLosHijos() throws Exception {
+        leerInmueble("Piso Centro");
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas/" + visita.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + agencia.getId()))
+                .andExpect(status().isNoContent());
+
+        assertNull(cacheManager.getCache(CacheDtos.INMUEBLES).get(inmueble.getId()));
+        assertNull(cacheManager.getCache(CacheDtos.VISITAS).get(visita.getId()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas/" + visita.getId())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testMetricas() throws Exception {
+        leerInmueble("Piso Centro");
+        leerInmueble("Piso Centro");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:" + CacheDtos.INMUEBLES, "result:hit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+    }
+
+    private void leerInmueble(String titulo) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.titulo").value(titulo));
+    }
+}
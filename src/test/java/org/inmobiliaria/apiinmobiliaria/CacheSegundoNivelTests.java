@@ -0,0 +1,136 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Caché de segundo nivel de Agencia y Propietario y caché de consultas de los listados de agencias:
+ * las lecturas repetidas no van a la base de datos y las modificaciones y borrados se ven enseguida.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:segundonivel;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class CacheSegundoNivelTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    private ContadorConsultas contador;
+    private Statistics estadisticas;
+    private Agencia agencia;
+    private Propietario propietario;
+
+    @BeforeEach
+    public void setUp() {
+        contador = new ContadorConsultas(entityManagerFactory);
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia " + System.nanoTime(), "Calle Mayor 1", 1000f,
+                50001, true, LocalDate.of(2000, 1, 1), null));
+        propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana", "600000000",
+                3f, false, LocalDate.of(2020, 1, 1), null));
+    }
+
+    // Las búsquedas por id de InmuebleService.add salen de la caché
+    @Test
+    public void testFindByIdSinConsultas() throws Throwable {
+        agenciaRepository.findById(agencia.getId());
+        propietarioRepository.findById(propietario.getId());
+
+        long consultas = contador.contar(() -> {
+            assertTrue(agenciaRepository.findById(agencia.getId()).isPresent());
+            assertTrue(propietarioRepository.findById(propietario.getId()).isPresent());
+        });
+
+        assertEquals(0, consultas);
+        assertEquals(2, estadisticas.getSecondLevelCacheHitCount());
+    }
+
+    // El alta de un inmueble solo hace el INSERT (y como mucho la secuencia)
+    @Test
+    public void testAltaInmuebleSinBuscarRelaciones() throws Throwable {
+        agenciaRepository.findById(agencia.getId());
+        propietarioRepository.findById(propietario.getId());
+
+        long consultas = contador.contar(() -> mockMvc.perform(MockMvcRequestBuilders.post("/inmuebles")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(inmueble()))
+                .andExpect(status().isCreated()));
+
+        assertTrue(consultas <= 2, "Consultas: " + consultas);
+        assertEquals(2, estadisticas.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void testListadoDesdeCacheDeConsultas() throws Throwable {
+        listarAgencias();
+
+        assertEquals(0, contador.contar(this::listarAgencias));
+        assertEquals(1, estadisticas.getQueryCacheHitCount());
+    }
+
+    // Modificar y borrar invalidan tanto la entidad como los listados cacheados
+    @Test
+    public void testModificarYBorrarInvalidan() throws Exception {
+        listarAgencias();
+        agenciaRepository.findById(agencia.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/agencias/" + agencia.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\":\"Agencia renombrada\",\"direccion\":\"Calle Mayor 1\",\"facturacionAnual\":1000,"
+                                + "\"codigoPostal\":50001,\"abiertoSabados\":true,\"fechaFundacion\":\"2000-01-01\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Agencia renombrada", agenciaRepository.findById(agencia.getId()).orElseThrow().getNombre());
+        listarAgencias().andExpect(jsonPath("$[*].nombre", hasItem("Agencia renombrada")));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + agencia.getId()))
+                .andExpect(status().isNoContent());
+
+        assertTrue(agenciaRepository.findById(agencia.getId()).isEmpty());
+        listarAgencias().andExpect(jsonPath("$[*].id", not(hasItem((int) agencia.getId()))));
+    }
+
+    private ResultActions listarAgencias() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/agencias").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    private String inmueble() {
+        return "{\"titulo\":\"Piso Centro\",\"precio\":150000,\"metros\":80,\"latitud\":41.65,\"longitud\":-0.88,"
+                + "\"ascensor\":true,\"fechaPublicacion\":\"2024-01-01\",\"agenciaId\":" + agencia.getId()
+                + ",\"propietarioId\":" + propietario.getId() + "}";
+    }
+}
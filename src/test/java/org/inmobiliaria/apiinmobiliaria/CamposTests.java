@@ -0,0 +1,113 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sparse fieldsets (?fields=): el listado lee solo las columnas pedidas y todas las respuestas GET
+ * escriben únicamente esas propiedades y el id.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:campos;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.inmobiliaria.apiinmobiliaria.InspectorSentencias"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class CamposTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    private Agencia agencia;
+    private Inmueble inmueble;
+
+    @BeforeEach
+    public void setUp() {
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        inmueble = inmuebleRepository.save(new Inmueble(0, "Piso Campos", 123456f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+        clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+    }
+
+    @Test
+    public void testListadoSoloConLasColumnasPedidas() throws Exception {
+        InspectorSentencias.vaciar();
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .param("precioMax", "123456")
+                        .param("fields", "titulo,precio,latitud,longitud,agenciaId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + inmueble.getId() + ")].titulo").value("Piso Campos"))
+                .andExpect(jsonPath("$[?(@.id == " + inmueble.getId() + ")].agenciaId").value((int) agencia.getId()))
+                .andExpect(jsonPath("$[0].precio").exists())
+                .andExpect(jsonPath("$[0].metros").doesNotExist())
+                .andExpect(jsonPath("$[0].propietarioId").doesNotExist())
+                .andExpect(jsonPath("$[0].fechaPublicacion").doesNotExist());
+
+        // Un solo SELECT, sin JOIN y sin las columnas que no se han pedido
+        List<String> selects = InspectorSentencias.empiezanPor("select");
+        assertEquals(1, selects.size(), selects.toString());
+        String sql = selects.get(0);
+        assertTrue(sql.contains("titulo") && sql.contains("agencia_id"), sql);
+        assertFalse(sql.contains("metros") || sql.contains("propietario_id") || sql.contains("join"), sql);
+    }
+
+    @Test
+    public void testPorIdYPaginaSoloEscribenLosCampos() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias/" + agencia.getId()).param("fields", "nombre"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value((int) agencia.getId()))
+                .andExpect(jsonPath("$.nombre").value("Agencia Centro"))
+                .andExpect(jsonPath("$.direccion").doesNotExist());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").param("limit", "1").param("fields", "email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").exists())
+                .andExpect(jsonPath("$[0].telefono").doesNotExist());
+
+        // Sin fields sale todo
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias/" + agencia.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.direccion").value("Calle Mayor 1"));
+    }
+
+    @Test
+    public void testCampoDesconocido() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").param("fields", "email,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId()).param("fields", "precio,nope"))
+                .andExpect(status().isBadRequest());
+    }
+}
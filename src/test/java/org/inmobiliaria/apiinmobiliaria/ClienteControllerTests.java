@@ -2,15 +2,17 @@ package org.inmobiliaria.apiinmobiliaria;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.inmobiliaria.apiinmobiliaria.controller.ClienteController;
 import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.ClienteMapper;
 import org.inmobiliaria.apiinmobiliaria.service.ClienteService;
 import org.inmobiliaria.apiinmobiliaria.service.ClienteServiceV2;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -23,15 +25,25 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
+import org.springframework.context.annotation.Import;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ClienteController.class)
+@Import({LecturasCompartidas.class, ModificacionesTablas.class, SimpleMeterRegistry.class})
 public class ClienteControllerTests {
 
     @Autowired
@@ -45,7 +57,7 @@ public class ClienteControllerTests {
 
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private ClienteMapper clienteMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -105,6 +117,63 @@ public class ClienteControllerTests {
                 .andExpect(jsonPath("$[0].email").value("ana@test.com"));
     }
 
+    // GET ALL paginado (200 OK) - El cursor de la página siguiente va en las cabeceras
+    @Test
+    public void testGetAllPaginado() throws Exception {
+        PaginaOutDto<ClienteOutDto> pagina = new PaginaOutDto<>(List.of(
+                new ClienteOutDto(1L, "ana@test.com", "600111222", 150000f, 30, true)
+        ), "c2lndWllbnRl");
+
+        when(clienteService.findPagina(null, null, null, "fechaAlta", null, 1)).thenReturn(pagina);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes")
+                        .param("orden", "fechaAlta")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].email").value("ana@test.com"))
+                .andExpect(header().string("X-Next-Cursor", "c2lndWllbnRl"))
+                .andExpect(header().string("Link", containsString("after=c2lndWllbnRl")));
+
+        verify(clienteService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL en NDJSON (200 OK) - Un objeto JSON por línea
+    @Test
+    public void testExportarNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ClienteOutDto> destino = invocation.getArgument(3);
+            destino.accept(new ClienteOutDto(1L, "ana@test.com", "600111222", 150000f, 30, true));
+            destino.accept(new ClienteOutDto(2L, "luis@test.com", "600333444", 90000f, 45, false));
+            return null;
+        }).when(clienteService).exportar(eq(null), eq(null), eq(null), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/clientes")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lineas = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].contains("\"email\":\"ana@test.com\""));
+        assertTrue(lineas[1].contains("\"email\":\"luis@test.com\""));
+        verify(clienteService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL sin Accept concreto: se sigue devolviendo la lista JSON
+    @Test
+    public void testGetAllAcceptCualquiera() throws Exception {
+        when(clienteService.findAll(null, null, null)).thenReturn(List.of(new ClienteOutDto(1L, "ana@test.com", "600111222", 150000f, 30, true)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.size()").value(1));
+    }
+
     // GET BY ID (200 OK)
     @Test
     public void testGetById() throws Exception {
@@ -144,9 +213,9 @@ public class ClienteControllerTests {
         ClienteOutDto outDto = new ClienteOutDto(1L, "new@test.com", "666777888", 100f, 25, true);
 
         // Mocking: Dto -> Entity -> Service -> Entity -> Dto
-        when(modelMapper.map(any(ClienteInDto.class), eq(Cliente.class))).thenReturn(clienteEntity);
+        when(clienteMapper.toEntity(any(ClienteInDto.class))).thenReturn(clienteEntity);
         when(clienteService.add(any(Cliente.class))).thenReturn(clienteGuardado);
-        when(modelMapper.map(any(Cliente.class), eq(ClienteOutDto.class))).thenReturn(outDto);
+        when(clienteMapper.toOutDto(any(Cliente.class))).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.post("/clientes")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -176,7 +245,7 @@ public class ClienteControllerTests {
         ClienteInDto inDto = new ClienteInDto("edit@test.com", "1234", "666", 200f, 30, LocalDate.now(), false);
         ClienteOutDto outDto = new ClienteOutDto(id, "edit@test.com", "666", 200f, 30, false);
 
-        when(clienteService.modify(eq(id), any(ClienteInDto.class))).thenReturn(outDto);
+        when(clienteService.modify(eq(id), any(ClienteInDto.class), isNull())).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/clientes/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -191,7 +260,7 @@ public class ClienteControllerTests {
         Long id = 99L;
         ClienteInDto inDto = new ClienteInDto("x@x.com", "x", "x", 1f, 18, LocalDate.now(), true);
 
-        when(clienteService.modify(eq(id), any(ClienteInDto.class)))
+        when(clienteService.modify(eq(id), any(ClienteInDto.class), isNull()))
                 .thenThrow(new ClienteNotFoundException("No existe"));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/clientes/" + id)
@@ -217,7 +286,7 @@ public class ClienteControllerTests {
     @Test
     public void testDeleteCliente() throws Exception {
         Long id = 1L;
-        doNothing().when(clienteService).delete(id);
+        doNothing().when(clienteService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/clientes/" + id))
                 .andExpect(status().isNoContent());
@@ -227,7 +296,7 @@ public class ClienteControllerTests {
     @Test
     public void testDeleteClienteNotFound() throws Exception {
         Long id = 99L;
-        doThrow(new ClienteNotFoundException("No existe")).when(clienteService).delete(id);
+        doThrow(new ClienteNotFoundException("No existe")).when(clienteService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/clientes/" + id))
                 .andExpect(status().isNotFound());
@@ -4,23 +4,29 @@ import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.ClienteOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException; // Asegúrate de tener esta excepción creada
+import org.inmobiliaria.apiinmobiliaria.mapper.ClienteMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
 import org.inmobiliaria.apiinmobiliaria.service.ClienteService;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,7 +39,16 @@ public class ClienteServiceTests {
     private ClienteRepository clienteRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private ClienteMapper clienteMapper;
+
+    @Mock
+    private ExportacionRepository exportacionRepository;
+
+    @Mock
+    private CacheDtos cacheDtos;
+
+    @Spy
+    private FiltroIds filtroIds = new FiltroIds();
 
 
     // TEST FIND ALL (Sin filtros)
@@ -55,8 +70,7 @@ public class ClienteServiceTests {
 
         // Mocking
         when(clienteRepository.findAll()).thenReturn(mockLista);
-        when(modelMapper.map(mockLista, new TypeToken<List<ClienteOutDto>>() {
-        }.getType())).thenReturn(mockOutDtos);
+        when(clienteMapper.toOutDtoList(mockLista)).thenReturn(mockOutDtos);
 
         // Ejecución (Pasamos nulls asumiendo que tu servicio recibe 3 filtros, ajusta si son diferentes)
         List<ClienteOutDto> resultado = clienteService.findAll(null, null, null);
@@ -89,8 +103,7 @@ public class ClienteServiceTests {
         // Mocking
         when(clienteRepository.findByFilter(email, telefono, suscrito))
                 .thenReturn(mockLista);
-        when(modelMapper.map(mockLista, new TypeToken<List<ClienteOutDto>>() {
-        }.getType())).thenReturn(mockOutDtos);
+        when(clienteMapper.toOutDtoList(mockLista)).thenReturn(mockOutDtos);
 
         // Ejecución
         List<ClienteOutDto> resultado = clienteService.findAll(email, telefono, suscrito);
@@ -101,6 +114,25 @@ public class ClienteServiceTests {
         verify(clienteRepository, times(1)).findByFilter(email, telefono, suscrito);
     }
 
+    // TEST EXPORTAR (streaming): cada fila se mapea y se entrega al destino según llega
+    @Test
+    public void testExportar() {
+        Cliente cliente = new Cliente();
+        ClienteOutDto outDto = new ClienteOutDto();
+        doAnswer(invocation -> {
+            Consumer<Cliente> accion = invocation.getArgument(2);
+            accion.accept(cliente);
+            return null;
+        }).when(exportacionRepository).recorrer(eq(Cliente.class), any(), any());
+        when(clienteMapper.toOutDto(cliente)).thenReturn(outDto);
+
+        List<ClienteOutDto> recibidos = new ArrayList<>();
+        clienteService.exportar(null, null, true, recibidos::add);
+
+        assertEquals(List.of(outDto), recibidos);
+        verify(clienteRepository, never()).findAll();
+    }
+
     // TEST FIND BY ID
     @Test
     public void testFindById() throws ClienteNotFoundException {
@@ -110,7 +142,7 @@ public class ClienteServiceTests {
         ClienteOutDto mockOutDto = new ClienteOutDto(1L, "ana@mail.com", "600111222", 150000f, 30, true);
 
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(mockCliente));
-        when(modelMapper.map(mockCliente, ClienteOutDto.class)).thenReturn(mockOutDto);
+        when(clienteMapper.toOutDto(mockCliente)).thenReturn(mockOutDto);
 
         ClienteOutDto result = clienteService.findById(1L);
 
@@ -172,20 +204,20 @@ public class ClienteServiceTests {
         when(clienteRepository.findById(id)).thenReturn(Optional.of(existente));
 
         // Evitar error Strict
-        doNothing().when(modelMapper).map(inDto, existente);
+        doNothing().when(clienteMapper).updateEntity(inDto, existente);
 
         when(clienteRepository.save(existente)).thenReturn(guardado);
-        when(modelMapper.map(guardado, ClienteOutDto.class)).thenReturn(outDto);
+        when(clienteMapper.toOutDto(guardado)).thenReturn(outDto);
 
         // Ejecución
-        ClienteOutDto resultado = clienteService.modify(id, inDto);
+        ClienteOutDto resultado = clienteService.modify(id, inDto, null);
 
         // Aserciones
         assertEquals("modificado@mail.com", resultado.getEmail());
         assertEquals(300f, resultado.getPresupuestoMaximo());
 
         verify(clienteRepository).findById(id);
-        verify(modelMapper).map(inDto, existente);
+        verify(clienteMapper).updateEntity(inDto, existente);
         verify(clienteRepository).save(existente);
     }
 
@@ -197,7 +229,7 @@ public class ClienteServiceTests {
         when(clienteRepository.findById(id)).thenReturn(Optional.empty());
 
         assertThrows(ClienteNotFoundException.class, () -> {
-            clienteService.modify(id, inDto);
+            clienteService.modify(id, inDto, null);
         });
 
         verify(clienteRepository, never()).save(any());
@@ -213,11 +245,12 @@ public class ClienteServiceTests {
         when(clienteRepository.findById(id)).thenReturn(Optional.of(clienteABorrar));
 
         // Ejecución
-        clienteService.delete(id);
+        clienteService.delete(id, null);
 
         // Verificación
         verify(clienteRepository, times(1)).findById(id);
         verify(clienteRepository, times(1)).delete(clienteABorrar);
+        verify(cacheDtos).evictarVisitas(clienteABorrar.getVisitas());
     }
 
     @Test
@@ -227,10 +260,10 @@ public class ClienteServiceTests {
         when(clienteRepository.findById(id)).thenReturn(Optional.empty());
 
         assertThrows(ClienteNotFoundException.class, () -> {
-            clienteService.delete(id);
+            clienteService.delete(id, null);
         });
 
-        verify(clienteRepository, never()).delete(any());
+        verify(clienteRepository, never()).delete(any(Cliente.class));
     }
 
     //
@@ -249,8 +282,7 @@ public class ClienteServiceTests {
         when(clienteRepository.findClientesVip(presupuesto))
                 .thenReturn(mockClienteList);
 
-        when(modelMapper.map(mockClienteList, new TypeToken<List<ClienteOutDto>>() {
-        }.getType()))
+        when(clienteMapper.toOutDtoList(mockClienteList))
                 .thenReturn(mockModelMapperOut);
 
         List<ClienteOutDto> result = clienteService.findClientesVip(presupuesto);
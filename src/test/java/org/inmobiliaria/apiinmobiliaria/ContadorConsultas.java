@@ -0,0 +1,34 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cuenta las sentencias SQL que prepara Hibernate mientras se ejecuta un bloque de código.
+ * Sirve para que un test falle si un listado vuelve a hacer una consulta por fila (N+1).
+ */
+public class ContadorConsultas {
+
+    private final Statistics estadisticas;
+
+    public ContadorConsultas(EntityManagerFactory entityManagerFactory) {
+        this.estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.estadisticas.setStatisticsEnabled(true);
+    }
+
+    public long contar(Executable accion) throws Throwable {
+        estadisticas.clear();
+        accion.execute();
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    public void assertMaximoConsultas(long maximo, Executable accion) throws Throwable {
+        long consultas = contar(accion);
+        assertTrue(consultas <= maximo,
+                "Se esperaban como mucho " + maximo + " consultas y se han ejecutado " + consultas + " (¿N+1?)");
+    }
+}
@@ -0,0 +1,138 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Filtro de ids existentes: los ids que no existen dan 404 sin consultar la base de datos,
+ * y las altas y bajas (por la API o directamente con los repositorios) lo mantienen al día.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filtroids;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class FiltroIdsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FiltroIds filtroIds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ContadorConsultas contador;
+    private Cliente cliente;
+
+    @BeforeEach
+    public void setUp() {
+        contador = new ContadorConsultas(entityManagerFactory);
+        cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+    }
+
+    // Un id que nunca ha existido: 404 sin ninguna consulta
+    @Test
+    public void testIdInexistenteSinConsultas() throws Throwable {
+        double descartados = contador("descartado");
+
+        long consultas = contador.contar(() -> {
+            mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + (cliente.getId() + 100_000)))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(MockMvcRequestBuilders.get("/v2/clientes/" + (cliente.getId() + 100_000)))
+                    .andExpect(status().isNotFound());
+        });
+
+        assertEquals(0, consultas);
+        assertEquals(descartados + 2, contador("descartado"));
+    }
+
+    // Altas y bajas por la API
+    @Test
+    public void testAltaYBajaPorLaApi() throws Throwable {
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/clientes/" + cliente.getId()))
+                .andExpect(status().isNoContent());
+
+        assertEquals(0, contador.contar(() -> mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId()))
+                .andExpect(status().isNotFound())));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/v2/clientes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"v2" + System.nanoTime() + "@mail.com\",\"password\":\"pw123456\","
+                                + "\"telefono\":\"700000000\",\"presupuestoMaximo\":1000,\"edad\":30,"
+                                + "\"fechaAlta\":\"2024-01-01\",\"suscrito\":true,\"tipoVivienda\":\"PISO\"}"))
+                .andExpect(status().isCreated());
+        long nuevo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cliente", Long.class);
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + nuevo)).andExpect(status().isOk());
+    }
+
+    // Un borrado hecho fuera de JPA deja el id marcado: se consulta y cuenta como falso positivo
+    @Test
+    public void testFalsoPositivo() throws Exception {
+        double falsosPositivos = contador("falso_positivo");
+        jdbcTemplate.update("DELETE FROM cliente WHERE id = ?", cliente.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId())).andExpect(status().isNotFound());
+
+        assertEquals(falsosPositivos + 1, contador("falso_positivo"));
+    }
+
+    // Ids en páginas distintas del mapa de bits, incluidos los límites de página
+    @Test
+    public void testMapaDeBits() {
+        List<Long> ids = List.of(65_535L, 65_536L, 131_071L, 10_000_000_000L);
+        filtroIds.cargar("prueba", ids);
+
+        for (long id : ids) {
+            assertFalse(filtroIds.descartado("prueba", id));
+        }
+        assertTrue(filtroIds.descartado("prueba", 65_537L));
+        assertTrue(filtroIds.descartado("prueba", 1L));
+
+        filtroIds.eliminar("prueba", 65_536L);
+        assertTrue(filtroIds.descartado("prueba", 65_536L));
+        assertFalse(filtroIds.descartado("prueba", 65_535L));
+    }
+
+    private double contador(String resultado) {
+        Counter contador = meterRegistry.find(FiltroIds.METRICA)
+                .tag("entidad", CacheDtos.CLIENTES)
+                .tag("resultado", resultado)
+                .counter();
+        return (contador == null) ? 0 : contador.count();
+    }
+}
@@ -1,14 +1,27 @@
 package org.inmobiliaria.apiinmobiliaria;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.inmobiliaria.apiinmobiliaria.controller.InmuebleController;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ErrorImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleClusterOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.BusquedaGeoInvalidaException;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+import org.inmobiliaria.apiinmobiliaria.exception.PatchInvalidoException;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleImportacionService;
 import org.inmobiliaria.apiinmobiliaria.service.InmuebleService;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
@@ -18,16 +31,28 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
+import org.springframework.context.annotation.Import;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(InmuebleController.class)
+@Import({LecturasCompartidas.class, ModificacionesTablas.class, SimpleMeterRegistry.class})
 public class InmuebleControllerTests {
 
     @Autowired
@@ -37,7 +62,7 @@ public class InmuebleControllerTests {
     private InmuebleService inmuebleService;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private InmuebleImportacionService inmuebleImportacionService;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -95,6 +120,136 @@ public class InmuebleControllerTests {
                 .andExpect(jsonPath("$[0].titulo").value("Piso Barato"));
     }
 
+    // GET ALL paginado (200 OK) - El cursor de la página siguiente va en las cabeceras
+    @Test
+    public void testGetAllPaginado() throws Exception {
+        PaginaOutDto<InmuebleOutDto> pagina = new PaginaOutDto<>(List.of(
+                new InmuebleOutDto(1L, "Piso Barato", 100000f, 80, 0d, 0d, true, LocalDate.now(), 1L, 1L)
+        ), "c2lndWllbnRl");
+
+        when(inmuebleService.findPagina(150000f, null, null, "precio", null, 1)).thenReturn(pagina);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .param("precioMax", "150000")
+                        .param("orden", "precio")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].titulo").value("Piso Barato"))
+                .andExpect(header().string("X-Next-Cursor", "c2lndWllbnRl"))
+                .andExpect(header().string("Link", containsString("after=c2lndWllbnRl")));
+
+        verify(inmuebleService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL en NDJSON (200 OK) - Un objeto JSON por línea
+    @Test
+    public void testExportarNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<InmuebleOutDto> destino = invocation.getArgument(3);
+            destino.accept(new InmuebleOutDto(1L, "Piso Centro", 100000f, 80, 0d, 0d, true, LocalDate.now(), 1L, 1L));
+            destino.accept(new InmuebleOutDto(2L, "Ático", 250000f, 120, 0d, 0d, false, LocalDate.now(), 1L, 1L));
+            return null;
+        }).when(inmuebleService).exportar(eq(null), eq(null), eq(null), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lineas = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].contains("\"titulo\":\"Piso Centro\""));
+        assertTrue(lineas[1].contains("\"titulo\":\"Ático\""));
+        verify(inmuebleService, never()).findAll(any(), any(), any());
+    }
+
+    // IMPORTACIÓN CSV (200 OK con el informe por fila)
+    @Test
+    public void testImportarCsv() throws Exception {
+        ImportacionOutDto informe = new ImportacionOutDto(2, 1,
+                List.of(new ErrorImportacionOutDto(3, Map.of("precio", "El precio tiene que ser positivo"))));
+        when(inmuebleImportacionService.importarCsv(any(InputStream.class))).thenReturn(informe);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/inmuebles/importacion")
+                        .contentType("text/csv")
+                        .content("titulo,precio\nPiso,1\nÁtico,-1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.importados").value(1))
+                .andExpect(jsonPath("$.errores[0].fila").value(3))
+                .andExpect(jsonPath("$.errores[0].errores.precio").value("El precio tiene que ser positivo"));
+
+        verify(inmuebleImportacionService, never()).importarNdjson(any());
+    }
+
+    // IMPORTACIÓN NDJSON (200 OK)
+    @Test
+    public void testImportarNdjson() throws Exception {
+        when(inmuebleImportacionService.importarNdjson(any(InputStream.class))).thenReturn(new ImportacionOutDto(1, 1, List.of()));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/inmuebles/importacion")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"titulo\":\"Piso\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importados").value(1));
+
+        verify(inmuebleImportacionService, never()).importarCsv(any());
+    }
+
+    // IMPORTACIÓN con un formato no soportado (415)
+    @Test
+    public void testImportarFormatoNoSoportado() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/inmuebles/importacion")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<inmuebles/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    // GET ALL sin Accept concreto: se sigue devolviendo la lista JSON
+    @Test
+    public void testGetAllAcceptCualquiera() throws Exception {
+        when(inmuebleService.findAll(null, null, null)).thenReturn(List.of(new InmuebleOutDto(1L, "Piso Centro", 100000f, 80, 0d, 0d, true, LocalDate.now(), 1L, 1L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.size()").value(1));
+    }
+
+    // GET ALL paginado (400 Bad Request) - Cursor no válido
+    @Test
+    public void testGetAllPaginadoCursorNoValido() throws Exception {
+        when(inmuebleService.findPagina(null, null, null, null, "xx", null))
+                .thenThrow(new PaginacionInvalidaException("Cursor no válido"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .param("after", "xx")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor no válido"));
+    }
+
+    // GET por lote de ids (200 OK) - Orden pedido y los que no existen en la cabecera
+    @Test
+    public void testGetByIds() throws Exception {
+        InmuebleOutDto tres = new InmuebleOutDto(3L, "Casa", 200000f, 120, 0d, 0d, true, LocalDate.now(), 1L, 1L);
+        InmuebleOutDto uno = new InmuebleOutDto(1L, "Piso", 100000f, 80, 0d, 0d, true, LocalDate.now(), 1L, 1L);
+        when(inmuebleService.findByIds(List.of(3L, 1L, 9L))).thenReturn(new LoteOutDto<>(List.of(tres, uno), List.of(9L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles").param("ids", "3,1,9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(header().string("X-No-Encontrados", "9"));
+
+        verify(inmuebleService, never()).findAll(any(), any(), any());
+    }
+
     // GET BY ID (200 OK)
     @Test
     public void testGetById() throws Exception {
@@ -119,6 +274,36 @@ public class InmuebleControllerTests {
                 .andExpect(status().isNotFound());
     }
 
+    // GET BY ID (404 NOT FOUND) con la excepción compartida: cuerpo ya serializado y sin traza
+    @Test
+    public void testGetByIdNotFoundInstanciaCompartida() throws Exception {
+        when(inmuebleService.findById(98L)).thenThrow(InmuebleNotFoundException.INSTANCIA);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/98")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(404))
+                .andExpect(jsonPath("$.title").value("not-found"))
+                .andExpect(jsonPath("$.message").value("El inmueble no existe"));
+
+        assertEquals(0, InmuebleNotFoundException.INSTANCIA.getStackTrace().length);
+    }
+
+    // POST con una agencia que no existe: 404 con el mensaje de la relación (ManejoErrores es común a todos)
+    @Test
+    public void testAddInmuebleAgenciaNoExiste() throws Exception {
+        InmuebleInDto inDto = new InmuebleInDto("Nuevo Piso", 150000f, 90, 10d, 20d, true, LocalDate.now(), 7L, 2L);
+        when(inmuebleService.add(any(InmuebleInDto.class)))
+                .thenThrow(new AgenciaNotFoundException("La agencia con ID 7 no existe"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/inmuebles")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inDto)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("La agencia con ID 7 no existe"));
+    }
+
     // POST (201 CREATED)
     @Test
     public void testAddInmueble() throws Exception {
@@ -158,7 +343,7 @@ public class InmuebleControllerTests {
         InmuebleInDto inDto = new InmuebleInDto("Editado", 200000f, 100, 10d, 20d, false, LocalDate.now(), 1L, 2L);
         InmuebleOutDto outDto = new InmuebleOutDto(id, "Editado", 200000f, 100, 10d, 20d, false, LocalDate.now(), 1L, 2L);
 
-        when(inmuebleService.modify(eq(id), any(InmuebleInDto.class))).thenReturn(outDto);
+        when(inmuebleService.modify(eq(id), any(InmuebleInDto.class), isNull())).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/inmuebles/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -173,7 +358,7 @@ public class InmuebleControllerTests {
         Long id = 99L;
         InmuebleInDto inDto = new InmuebleInDto("X", 1f, 1, 1d, 1d, true, LocalDate.now(), 1L, 1L);
 
-        when(inmuebleService.modify(eq(id), any(InmuebleInDto.class)))
+        when(inmuebleService.modify(eq(id), any(InmuebleInDto.class), isNull()))
                 .thenThrow(new InmuebleNotFoundException("No existe"));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/inmuebles/" + id)
@@ -195,21 +380,55 @@ public class InmuebleControllerTests {
                 .andExpect(status().isBadRequest());
     }
 
+    // PATCH (200 OK) con application/merge-patch+json
+    @Test
+    public void testPatchInmueble() throws Exception {
+        Long id = 1L;
+        InmuebleOutDto outDto = new InmuebleOutDto(id, "Piso", 95000f, 100, 10d, 20d, false, LocalDate.now(), 1L, 2L);
+
+        when(inmuebleService.patch(eq(id), any(JsonNode.class), isNull())).thenReturn(outDto);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + id)
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"precio\": 95000}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.precio").value(95000));
+
+        verify(inmuebleService).patch(id, objectMapper.readTree("{\"precio\": 95000}"), null);
+    }
+
+    // PATCH (400 BAD REQUEST): el parche deja el InDto inválido
+    @Test
+    public void testPatchInmuebleBadRequest() throws Exception {
+        Long id = 1L;
+
+        when(inmuebleService.patch(eq(id), any(JsonNode.class), isNull()))
+                .thenThrow(new PatchInvalidoException("Validation error", Map.of("precio", "El precio es obligatorio")));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + id)
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"precio\": null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.precio").value("El precio es obligatorio"));
+    }
+
     // DELETE (204 NO CONTENT)
     @Test
     public void testDeleteInmueble() throws Exception {
         Long id = 1L;
-        doNothing().when(inmuebleService).delete(id);
+        when(inmuebleService.delete(id, null)).thenReturn(new BorradoOutDto(1, 4));
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/inmuebles/" + id))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Borrados-Inmuebles", "1"))
+                .andExpect(header().string("X-Borrados-Visitas", "4"));
     }
 
     // DELETE (404 NOT FOUND)
     @Test
     public void testDeleteInmuebleNotFound() throws Exception {
         Long id = 99L;
-        doThrow(new InmuebleNotFoundException("No existe")).when(inmuebleService).delete(id);
+        doThrow(new InmuebleNotFoundException("No existe")).when(inmuebleService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/inmuebles/" + id))
                 .andExpect(status().isNotFound());
@@ -250,4 +469,86 @@ public class InmuebleControllerTests {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].metros").value(500));
     }
+
+    //GEO ENDPOINT (200 OK)
+    @Test
+    public void testGetCerca() throws Exception {
+        List<InmuebleOutDto> mockList = List.of(
+                new InmuebleOutDto(1L, "Piso Sol", 300000f, 90, 40.4168, -3.7038, true, LocalDate.now(), 1L, 1L)
+        );
+
+        when(inmuebleService.findCerca(40.4168, -3.7038, 2.0)).thenReturn(mockList);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/cerca")
+                        .param("lat", "40.4168")
+                        .param("lon", "-3.7038")
+                        .param("radioKm", "2.0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].titulo").value("Piso Sol"));
+    }
+
+    //GEO ENDPOINT (400 BAD REQUEST: radio demasiado grande)
+    @Test
+    public void testGetCercaRadioDemasiadoGrande() throws Exception {
+        when(inmuebleService.findCerca(40.4168, -3.7038, 500.0))
+                .thenThrow(new BusquedaGeoInvalidaException("El radio no puede pasar de 50.0 km"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/cerca")
+                        .param("lat", "40.4168")
+                        .param("lon", "-3.7038")
+                        .param("radioKm", "500")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    //GEO KNN ENDPOINT (200 OK)
+    @Test
+    public void testGetMasCercanos() throws Exception {
+        List<InmuebleOutDto> mockList = List.of(
+                new InmuebleOutDto(1L, "Piso Sol", 300000f, 90, 40.4168, -3.7038, true, LocalDate.now(), 1L, 1L)
+        );
+
+        when(inmuebleService.findMasCercanos(40.4168, -3.7038, 20, null, null, true)).thenReturn(mockList);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/cercanos")
+                        .param("lat", "40.4168")
+                        .param("lon", "-3.7038")
+                        .param("ascensor", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].titulo").value("Piso Sol"));
+    }
+
+    //GEO COMPARABLES (404 NOT FOUND)
+    @Test
+    public void testGetComparablesNotFound() throws Exception {
+        when(inmuebleService.findComparables(99L, 20, null, null, null))
+                .thenThrow(new InmuebleNotFoundException("No existe"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/99/comparables")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    //GEO CLUSTERS ENDPOINT (200 OK)
+    @Test
+    public void testGetClusters() throws Exception {
+        List<InmuebleClusterOutDto> mockList = List.of(
+                new InmuebleClusterOutDto(120, 40.42, -3.70, 90000f, 310000f, 1200000f)
+        );
+
+        when(inmuebleService.findClusters(40.0, -4.0, 41.0, -3.0, 9)).thenReturn(mockList);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/clusters")
+                        .param("latMin", "40.0")
+                        .param("lonMin", "-4.0")
+                        .param("latMax", "41.0")
+                        .param("lonMax", "-3.0")
+                        .param("zoom", "9")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].cantidad").value(120))
+                .andExpect(jsonPath("$[0].precioMedio").value(310000));
+    }
 }
\ No newline at end of file
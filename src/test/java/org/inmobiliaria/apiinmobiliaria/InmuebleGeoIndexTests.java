@@ -0,0 +1,168 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleClusterIndex;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleGeoIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InmuebleGeoIndexTests {
+
+    private InmuebleGeoIndex geoIndex;
+
+    @BeforeEach
+    public void setUp() {
+        geoIndex = new InmuebleGeoIndex();
+        geoIndex.actualizar(new InmuebleGeoIndex.Punto(1L, 40.4168, -3.7038, 300000f, 60, false));  // Madrid (Sol)
+        geoIndex.actualizar(new InmuebleGeoIndex.Punto(2L, 40.4530, -3.6883, 450000f, 120, true));  // Madrid (Bernabéu) ~4 km
+        geoIndex.actualizar(new InmuebleGeoIndex.Punto(3L, 41.3874, 2.1686, 350000f, 90, true));    // Barcelona ~500 km
+    }
+
+    private static InmuebleGeoIndex.Punto punto(long id, double latitud, double longitud) {
+        return new InmuebleGeoIndex.Punto(id, latitud, longitud, 100000f, 80, true);
+    }
+
+    // RADIO: solo devuelve los que están dentro y ordenados por distancia
+    @Test
+    public void testBuscarEnRadio() {
+        List<InmuebleGeoIndex.Resultado> resultados = geoIndex.buscarEnRadio(40.4170, -3.7040, 10);
+
+        assertEquals(2, resultados.size());
+        assertEquals(1L, resultados.get(0).id());
+        assertEquals(2L, resultados.get(1).id());
+        assertTrue(resultados.get(0).distanciaKm() < resultados.get(1).distanciaKm());
+    }
+
+    // RADIO: un radio muy grande recorre las celdas ocupadas y encuentra todos
+    @Test
+    public void testBuscarEnRadioGrande() {
+        assertEquals(3, geoIndex.buscarEnRadio(40.4168, -3.7038, 1000).size());
+    }
+
+    // MODIFICACIÓN: el inmueble se mueve de celda
+    @Test
+    public void testActualizarMueveDeCelda() {
+        geoIndex.actualizar(punto(3L, 40.4200, -3.7000));
+
+        assertEquals(3, geoIndex.buscarEnRadio(40.4168, -3.7038, 10).size());
+        assertEquals(3, geoIndex.tamano());
+    }
+
+    // BAJA
+    @Test
+    public void testEliminar() {
+        geoIndex.eliminar(1L);
+
+        List<InmuebleGeoIndex.Resultado> resultados = geoIndex.buscarEnRadio(40.4168, -3.7038, 10);
+        assertEquals(1, resultados.size());
+        assertEquals(2L, resultados.get(0).id());
+        assertEquals(2, geoIndex.tamano());
+    }
+
+    // RECTÁNGULO
+    @Test
+    public void testBuscarEnRectangulo() {
+        List<InmuebleGeoIndex.Punto> puntos = geoIndex.buscarEnRectangulo(40.0, -4.0, 41.0, -3.0);
+
+        assertEquals(2, puntos.size());
+    }
+
+    // RECTÁNGULO que cruza el antimeridiano
+    @Test
+    public void testBuscarEnRectanguloAntimeridiano() {
+        geoIndex.actualizar(punto(4L, -17.7, 179.9));   // Fiyi
+        geoIndex.actualizar(punto(5L, -17.7, -179.9));
+
+        List<InmuebleGeoIndex.Punto> puntos = geoIndex.buscarEnRectangulo(-18.0, 179.0, -17.0, -179.0);
+
+        assertEquals(2, puntos.size());
+    }
+
+    // KNN: los k más cercanos en orden
+    @Test
+    public void testBuscarMasCercanos() {
+        List<InmuebleGeoIndex.Resultado> resultados =
+                geoIndex.buscarMasCercanos(40.4168, -3.7038, 2, InmuebleGeoIndex.filtro(null, null, null));
+
+        assertEquals(2, resultados.size());
+        assertEquals(1L, resultados.get(0).id());
+        assertEquals(2L, resultados.get(1).id());
+    }
+
+    // KNN con filtros: tiene que salir de Madrid para encontrar el segundo con ascensor
+    @Test
+    public void testBuscarMasCercanosConFiltro() {
+        List<InmuebleGeoIndex.Resultado> resultados =
+                geoIndex.buscarMasCercanos(40.4168, -3.7038, 2, InmuebleGeoIndex.filtro(null, null, true));
+
+        assertEquals(2, resultados.size());
+        assertEquals(2L, resultados.get(0).id());
+        assertEquals(3L, resultados.get(1).id());
+    }
+
+    // KNN: mismo resultado que recorrer todos los puntos
+    @Test
+    public void testBuscarMasCercanosIgualQueRecorridoCompleto() {
+        Random random = new Random(42);
+        InmuebleGeoIndex grande = new InmuebleGeoIndex();
+        List<InmuebleGeoIndex.Punto> todos = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            InmuebleGeoIndex.Punto punto = new InmuebleGeoIndex.Punto(id,
+                    36 + random.nextDouble() * 7, -9 + random.nextDouble() * 12, 100000f, 80, random.nextBoolean());
+            todos.add(punto);
+            grande.actualizar(punto);
+        }
+
+        Predicate<InmuebleGeoIndex.Punto> filtro = InmuebleGeoIndex.filtro(null, null, true);
+        List<Long> esperados = todos.stream()
+                .filter(filtro)
+                .sorted(Comparator.comparingDouble(p -> InmuebleGeoIndex.distanciaKm(40.4, -3.7, p.latitud(), p.longitud())))
+                .limit(20)
+                .map(InmuebleGeoIndex.Punto::id)
+                .toList();
+
+        List<Long> obtenidos = grande.buscarMasCercanos(40.4, -3.7, 20, filtro).stream()
+                .map(InmuebleGeoIndex.Resultado::id)
+                .toList();
+
+        assertEquals(esperados, obtenidos);
+    }
+
+    // CLUSTERS: a zoom bajo Madrid sale como un único grupo y Barcelona como otro
+    @Test
+    public void testBuscarClusters() {
+        List<InmuebleClusterIndex.Cluster> clusters = geoIndex.buscarClusters(35.0, -10.0, 44.0, 5.0, 6);
+
+        assertEquals(2, clusters.size());
+        InmuebleClusterIndex.Cluster madrid = clusters.stream().filter(c -> c.cantidad() == 2).findFirst().orElseThrow();
+        assertEquals(300000f, madrid.precioMin());
+        assertEquals(450000f, madrid.precioMax());
+        assertEquals(375000f, madrid.precioMedio());
+    }
+
+    // CLUSTERS: a zoom alto cada inmueble cae en su propia celda
+    @Test
+    public void testBuscarClustersZoomAlto() {
+        assertEquals(2, geoIndex.buscarClusters(40.0, -4.0, 41.0, -3.0, 18).size());
+    }
+
+    // CLUSTERS: al borrar el más barato el mínimo se recalcula
+    @Test
+    public void testBuscarClustersTrasEliminar() {
+        geoIndex.eliminar(1L);
+
+        List<InmuebleClusterIndex.Cluster> clusters = geoIndex.buscarClusters(40.0, -4.0, 41.0, -3.0, 6);
+
+        assertEquals(1, clusters.size());
+        assertEquals(1, clusters.get(0).cantidad());
+        assertEquals(450000f, clusters.get(0).precioMin());
+    }
+}
\ No newline at end of file
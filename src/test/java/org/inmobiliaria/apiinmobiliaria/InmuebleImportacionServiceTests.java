@@ -0,0 +1,211 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.ErrorImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.ImportacionOutDto;
+import org.inmobiliaria.apiinmobiliaria.mapper.InmuebleMapper;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ImportacionRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleGeoIndex;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleImportacionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InmuebleImportacionServiceTests {
+
+    @InjectMocks
+    private InmuebleImportacionService importacionService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private InmuebleMapper inmuebleMapper = new InmuebleMapper();
+
+    @Mock
+    private AgenciaRepository agenciaRepository;
+
+    @Mock
+    private PropietarioRepository propietarioRepository;
+
+    @Mock
+    private ImportacionRepository importacionRepository;
+
+    @Mock
+    private InmuebleGeoIndex geoIndex;
+
+    private final Agencia agencia = new Agencia(1L, "Agencia Centro", "Calle Mayor 1", 1000f, 50001, true, LocalDate.of(2000, 1, 1), null);
+    private final Propietario propietario = new Propietario(2L, "12345678A", "Ana", "600000000", 3f, false, LocalDate.of(2020, 1, 1), null);
+
+    // NDJSON correcto: todas las filas se guardan en un lote con sus relaciones
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportarNdjson() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+
+        ImportacionOutDto informe = importacionService.importarNdjson(entrada(
+                fila("Piso Centro", 1L, 2L) + "\n\n" + fila("Ático", 1L, 2L) + "\n"));
+
+        assertEquals(2, informe.getTotal());
+        assertEquals(2, informe.getImportados());
+        assertTrue(informe.getErrores().isEmpty());
+
+        ArgumentCaptor<List<Inmueble>> lote = ArgumentCaptor.forClass(List.class);
+        verify(importacionRepository, times(1)).guardarLote(lote.capture());
+        assertEquals(2, lote.getValue().size());
+        assertEquals("Ático", lote.getValue().get(1).getTitulo());
+        assertEquals(agencia, lote.getValue().get(1).getAgencia());
+        assertEquals(propietario, lote.getValue().get(1).getPropietario());
+        verify(geoIndex, times(2)).actualizar(any(Inmueble.class));
+    }
+
+    // Errores por fila: JSON roto, tipo no válido, validación y relaciones que no existen
+    @Test
+    public void testImportarNdjsonConErrores() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L, 9L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+
+        ImportacionOutDto informe = importacionService.importarNdjson(entrada(String.join("\n",
+                fila("Piso Centro", 1L, 2L),
+                "{\"titulo\": ",
+                fila("Ático", 1L, 2L).replace("250000", "\"caro\""),
+                fila("", 1L, 2L),
+                fila("Bajo", 9L, 2L))));
+
+        assertEquals(5, informe.getTotal());
+        assertEquals(1, informe.getImportados());
+        List<ErrorImportacionOutDto> errores = informe.getErrores();
+        assertEquals(4, errores.size());
+        assertEquals(2, errores.get(0).getFila());
+        assertTrue(errores.get(0).getErrores().containsKey("fila"));
+        assertEquals(3, errores.get(1).getFila());
+        assertEquals("Valor no válido", errores.get(1).getErrores().get("precio"));
+        assertEquals(4, errores.get(2).getFila());
+        assertEquals("El título es obligatorio", errores.get(2).getErrores().get("titulo"));
+        assertEquals(5, errores.get(3).getFila());
+        assertEquals("La agencia con ID 9 no existe", errores.get(3).getErrores().get("agenciaId"));
+        verify(importacionRepository, times(1)).guardarLote(anyList());
+    }
+
+    // CSV: cabecera con los nombres de los campos, comillas opcionales y celdas vacías como nulos
+    // "null", un array o un número no son filas: error en su fila y el resto se importa
+    @Test
+    public void testImportarNdjsonLineasQueNoSonObjetos() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+
+        ImportacionOutDto informe = importacionService.importarNdjson(entrada(String.join("\n",
+                "null",
+                fila("Piso Centro", 1L, 2L),
+                "[1, 2]",
+                " 42")));
+
+        assertEquals(4, informe.getTotal());
+        assertEquals(1, informe.getImportados());
+        List<ErrorImportacionOutDto> errores = informe.getErrores();
+        assertEquals(List.of(1, 3, 4), errores.stream().map(ErrorImportacionOutDto::getFila).toList());
+        errores.forEach(error -> assertTrue(error.getErrores().containsKey("fila")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportarCsv() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+
+        String csv = """
+                titulo,precio,metros,latitud,longitud,ascensor,fechaPublicacion,agenciaId,propietarioId
+                "Piso ""reformado"", centro",150000,80,41.65,-0.88,true,2024-05-01,1,2
+                Sin metros,90000,,41.65,-0.88,false,2024-05-01,1,2
+                Columnas de menos,90000
+                """;
+        ImportacionOutDto informe = importacionService.importarCsv(entrada(csv));
+
+        assertEquals(3, informe.getTotal());
+        assertEquals(1, informe.getImportados());
+        assertEquals(3, informe.getErrores().get(0).getFila());
+        assertEquals("Los metros son obligatorios", informe.getErrores().get(0).getErrores().get("metros"));
+        assertEquals(4, informe.getErrores().get(1).getFila());
+
+        ArgumentCaptor<List<Inmueble>> lote = ArgumentCaptor.forClass(List.class);
+        verify(importacionRepository).guardarLote(lote.capture());
+        Inmueble inmueble = lote.getValue().get(0);
+        assertEquals("Piso \"reformado\", centro", inmueble.getTitulo());
+        assertEquals(150000f, inmueble.getPrecio());
+        assertEquals(LocalDate.of(2024, 5, 1), inmueble.getFechaPublicacion());
+    }
+
+    // Más filas que TAMANO_LOTE: un lote (y una consulta por relación) cada TAMANO_LOTE filas
+    @Test
+    public void testImportarVariosLotes() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+
+        StringBuilder ndjson = new StringBuilder();
+        int numFilas = InmuebleImportacionService.TAMANO_LOTE + 1;
+        for (int i = 0; i < numFilas; i++) {
+            ndjson.append(fila("Inmueble " + i, 1L, 2L)).append('\n');
+        }
+        ImportacionOutDto informe = importacionService.importarNdjson(entrada(ndjson.toString()));
+
+        assertEquals(numFilas, informe.getImportados());
+        verify(importacionRepository, times(2)).guardarLote(anyList());
+        verify(agenciaRepository, times(2)).findAllById(any());
+        verify(propietarioRepository, times(2)).findAllById(any());
+    }
+
+    // Si falla el guardado de un lote, sus filas aparecen como errores y no se indexan
+    @Test
+    public void testImportarLoteFallido() throws Exception {
+        when(agenciaRepository.findAllById(Set.of(1L))).thenReturn(List.of(agencia));
+        when(propietarioRepository.findAllById(Set.of(2L))).thenReturn(List.of(propietario));
+        doThrow(new DataIntegrityViolationException("duplicado")).when(importacionRepository).guardarLote(anyList());
+
+        ImportacionOutDto informe = importacionService.importarNdjson(entrada(fila("Piso Centro", 1L, 2L)));
+
+        assertEquals(1, informe.getTotal());
+        assertEquals(0, informe.getImportados());
+        assertEquals(1, informe.getErrores().get(0).getFila());
+        verify(geoIndex, never()).actualizar(any(Inmueble.class));
+    }
+
+    private static String fila(String titulo, long agenciaId, long propietarioId) {
+        return "{\"titulo\":\"" + titulo + "\",\"precio\":250000,\"metros\":90,\"latitud\":41.65,\"longitud\":-0.88,"
+                + "\"ascensor\":true,\"fechaPublicacion\":\"2024-05-01\",\"agenciaId\":" + agenciaId
+                + ",\"propietarioId\":" + propietarioId + "}";
+    }
+
+    private static InputStream entrada(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,32 +1,58 @@
 package org.inmobiliaria.apiinmobiliaria;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
 import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
 import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleClusterOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.LoteOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.AgenciaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.BusquedaGeoInvalidaException;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.LoteInvalidoException;
+import org.inmobiliaria.apiinmobiliaria.exception.PatchInvalidoException;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.InmuebleMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.inmobiliaria.apiinmobiliaria.service.BorradosMasivos;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleClusterIndex;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleGeoIndex;
 import org.inmobiliaria.apiinmobiliaria.service.InmuebleService;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasPorIds;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,7 +71,33 @@ public class InmuebleServiceTests {
     private PropietarioRepository propietarioRepository; // Necesario para ADD
 
     @Mock
-    private ModelMapper modelMapper;
+    private InmuebleMapper inmuebleMapper;
+
+    @Mock
+    private ExportacionRepository exportacionRepository;
+
+    @Mock
+    private InmuebleGeoIndex geoIndex;
+
+    @Mock
+    private BorradoMasivoRepository borradoMasivoRepository;
+
+    @Mock
+    private BorradosMasivos borradosMasivos;
+
+    @Spy
+    private FiltroIds filtroIds = new FiltroIds();
+
+    // Caché de findById de verdad (en memoria), para comprobar que el multi-get la usa
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+    @Spy
+    private LecturasPorIds lecturasPorIds = new LecturasPorIds(cacheManager, filtroIds);
+
+    // El parche se aplica de verdad (Jackson + Bean Validation); solo el mapper es un mock
+    @Spy
+    private MergePatch mergePatch = new MergePatch(JsonMapper.builder().findAndAddModules().build(),
+            Validation.buildDefaultValidatorFactory().getValidator());
 
 
     // TEST FIND ALL (Sin filtros)
@@ -60,7 +112,7 @@ public class InmuebleServiceTests {
         );
 
         when(inmuebleRepository.findAll()).thenReturn(mockLista);
-        when(modelMapper.map(mockLista, new TypeToken<List<InmuebleOutDto>>() {}.getType())).thenReturn(mockOutDtos);
+        when(inmuebleMapper.toOutDtoList(mockLista)).thenReturn(mockOutDtos);
 
         List<InmuebleOutDto> resultado = inmuebleService.findAll(null, null, null);
 
@@ -81,7 +133,7 @@ public class InmuebleServiceTests {
         when(inmuebleRepository.findByFilter(precioMax, metrosMin, ascensor))
                 .thenReturn(mockLista);
 
-        when(modelMapper.map(mockLista, new TypeToken<List<InmuebleOutDto>>() {}.getType()))
+        when(inmuebleMapper.toOutDtoList(mockLista))
                 .thenReturn(mockOutDtos);
 
         List<InmuebleOutDto> resultado = inmuebleService.findAll(precioMax, metrosMin, ascensor);
@@ -90,6 +142,25 @@ public class InmuebleServiceTests {
         verify(inmuebleRepository).findByFilter(precioMax, metrosMin, ascensor);
     }
 
+    // TEST EXPORTAR (streaming): cada fila se mapea y se entrega al destino según llega
+    @Test
+    public void testExportar() {
+        Inmueble inmueble = new Inmueble();
+        InmuebleOutDto outDto = new InmuebleOutDto();
+        doAnswer(invocation -> {
+            Consumer<Inmueble> accion = invocation.getArgument(2);
+            accion.accept(inmueble);
+            return null;
+        }).when(exportacionRepository).recorrer(eq(Inmueble.class), any(), any());
+        when(inmuebleMapper.toOutDto(inmueble)).thenReturn(outDto);
+
+        List<InmuebleOutDto> recibidos = new ArrayList<>();
+        inmuebleService.exportar(200000f, null, null, recibidos::add);
+
+        assertEquals(List.of(outDto), recibidos);
+        verify(inmuebleRepository, never()).findAll();
+    }
+
     // TEST FIND BY ID
     @Test
     public void testFindById() throws InmuebleNotFoundException {
@@ -97,13 +168,60 @@ public class InmuebleServiceTests {
         InmuebleOutDto mockOutDto = new InmuebleOutDto(1L, "Piso", 100f, 50, 0d, 0d, false, LocalDate.now(), 1L, 1L);
 
         when(inmuebleRepository.findById(1L)).thenReturn(Optional.of(mockInmueble));
-        when(modelMapper.map(mockInmueble, InmuebleOutDto.class)).thenReturn(mockOutDto);
+        when(inmuebleMapper.toOutDto(mockInmueble)).thenReturn(mockOutDto);
 
         InmuebleOutDto result = inmuebleService.findById(1L);
 
         assertEquals("Piso", result.getTitulo());
     }
 
+    // TEST FIND BY IDS - Orden pedido, caché de findById y ids que no existen
+    @Test
+    public void testFindByIds() {
+        InmuebleOutDto cacheado = new InmuebleOutDto(2L, "Ático", 300f, 90, 0d, 0d, true, LocalDate.now(), 1L, 1L);
+        cacheManager.getCache(CacheDtos.INMUEBLES).put(2L, cacheado);
+
+        Inmueble uno = new Inmueble(1L, "Piso", 100f, 50, 0d, 0d, false, LocalDate.now(), null, null, null);
+        Inmueble tres = new Inmueble(3L, "Casa", 200f, 120, 0d, 0d, false, LocalDate.now(), null, null, null);
+        InmuebleOutDto unoOut = new InmuebleOutDto(1L, "Piso", 100f, 50, 0d, 0d, false, LocalDate.now(), 1L, 1L);
+        InmuebleOutDto tresOut = new InmuebleOutDto(3L, "Casa", 200f, 120, 0d, 0d, false, LocalDate.now(), 1L, 1L);
+        // La base de datos los devuelve en cualquier orden
+        when(inmuebleRepository.findAllById(List.of(3L, 1L, 4L))).thenReturn(List.of(uno, tres));
+        when(inmuebleMapper.toOutDto(uno)).thenReturn(unoOut);
+        when(inmuebleMapper.toOutDto(tres)).thenReturn(tresOut);
+
+        LoteOutDto<InmuebleOutDto> lote = inmuebleService.findByIds(List.of(3L, 2L, 1L, 4L, 3L));
+
+        assertEquals(List.of(tresOut, cacheado, unoOut), lote.getContenido());
+        assertEquals(List.of(4L), lote.getNoEncontrados());
+        // Lo leído queda en la caché para los findById
+        assertEquals(unoOut, cacheManager.getCache(CacheDtos.INMUEBLES).get(1L).get());
+        verify(inmuebleRepository, times(1)).findAllById(any());
+    }
+
+    // TEST FIND BY IDS - Una consulta IN por cada bloque de ids
+    @Test
+    public void testFindByIdsEnBloques() {
+        List<Long> ids = LongStream.rangeClosed(1, 450).boxed().toList();
+        when(inmuebleRepository.findAllById(any())).thenReturn(List.of());
+
+        LoteOutDto<InmuebleOutDto> lote = inmuebleService.findByIds(ids);
+
+        assertEquals(450, lote.getNoEncontrados().size());
+        verify(inmuebleRepository).findAllById(ids.subList(0, 200));
+        verify(inmuebleRepository).findAllById(ids.subList(200, 400));
+        verify(inmuebleRepository).findAllById(ids.subList(400, 450));
+    }
+
+    // TEST FIND BY IDS - Demasiados ids
+    @Test
+    public void testFindByIdsDemasiados() {
+        List<Long> ids = LongStream.rangeClosed(1, LecturasPorIds.MAXIMO_IDS + 1).boxed().toList();
+
+        assertThrows(LoteInvalidoException.class, () -> inmuebleService.findByIds(ids));
+        verify(inmuebleRepository, never()).findAllById(any());
+    }
+
     // TEST FIND BY ID - NOT FOUND
     @Test
     public void testFindByIdNotFound() {
@@ -143,10 +261,10 @@ public class InmuebleServiceTests {
         when(propietarioRepository.findById(20L)).thenReturn(Optional.of(mockPropietario));
 
         // Usamos any(Inmueble.class) para decirle "cuando mapees a cualquier inmueble, no hagas nada"
-        doNothing().when(modelMapper).map(eq(inDto), any(Inmueble.class));
+        doNothing().when(inmuebleMapper).updateEntity(eq(inDto), any(Inmueble.class));
 
         when(inmuebleRepository.save(any(Inmueble.class))).thenReturn(inmuebleGuardado);
-        when(modelMapper.map(inmuebleGuardado, InmuebleOutDto.class)).thenReturn(outDto);
+        when(inmuebleMapper.toOutDto(inmuebleGuardado)).thenReturn(outDto);
 
         // Ejecución
         InmuebleOutDto result = inmuebleService.add(inDto);
@@ -174,25 +292,52 @@ public class InmuebleServiceTests {
         Long id = 1L;
         InmuebleInDto inDto = new InmuebleInDto("Editado", 200000f, 100, 0d, 0d, false, LocalDate.now(), 10L, 20L);
 
-        Inmueble existente = new Inmueble(id, "Viejo", 100f, 50, 0d, 0d, false, LocalDate.now(), null, null, null);
-        Inmueble guardado = new Inmueble(id, "Editado", 200000f, 100, 0d, 0d, false, LocalDate.now(), null, null, null);
+        Agencia agencia = new Agencia(); agencia.setId(10L);
+        Propietario propietario = new Propietario(); propietario.setId(20L);
+        Inmueble existente = new Inmueble(id, "Viejo", 100f, 50, 0d, 0d, false, LocalDate.now(), agencia, propietario, null);
+        Inmueble guardado = new Inmueble(id, "Editado", 200000f, 100, 0d, 0d, false, LocalDate.now(), agencia, propietario, null);
         InmuebleOutDto outDto = new InmuebleOutDto(id, "Editado", 200000f, 100, 0d, 0d, false, LocalDate.now(), 10L, 20L);
 
         when(inmuebleRepository.findById(id)).thenReturn(Optional.of(existente));
 
         // Evitar Strict Stubbing error
-        doNothing().when(modelMapper).map(inDto, existente);
+        doNothing().when(inmuebleMapper).updateEntity(inDto, existente);
 
         when(inmuebleRepository.save(existente)).thenReturn(guardado);
-        when(modelMapper.map(guardado, InmuebleOutDto.class)).thenReturn(outDto);
+        when(inmuebleMapper.toOutDto(guardado)).thenReturn(outDto);
 
-        InmuebleOutDto result = inmuebleService.modify(id, inDto);
+        InmuebleOutDto result = inmuebleService.modify(id, inDto, null);
 
         assertEquals("Editado", result.getTitulo());
         verify(inmuebleRepository).findById(id);
         verify(inmuebleRepository).save(existente);
     }
 
+    // TEST MODIFY: PUT también cambia de agencia, igual que PATCH
+    @Test
+    public void testModifyCambiaAgencia() throws InmuebleNotFoundException {
+        long id = 1L;
+        Agencia agencia = new Agencia(); agencia.setId(10L);
+        Agencia nueva = new Agencia(); nueva.setId(11L);
+        Propietario propietario = new Propietario(); propietario.setId(20L);
+        Inmueble existente = new Inmueble(id, "Viejo", 100f, 50, 0d, 0d, false, LocalDate.now(), agencia, propietario, null);
+        InmuebleInDto inDto = new InmuebleInDto("Viejo", 100f, 50, 0d, 0d, false, LocalDate.now(), 11L, 20L);
+
+        when(inmuebleRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(agenciaRepository.findById(11L)).thenReturn(Optional.of(nueva));
+        when(inmuebleRepository.save(existente)).thenReturn(existente);
+
+        inmuebleService.modify(id, inDto, null);
+
+        assertEquals(11L, existente.getAgenciaId());
+        verify(propietarioRepository, never()).findById(anyLong());
+
+        // Una agencia que no existe da 404, como en PATCH
+        inDto.setAgenciaId(12L);
+        when(agenciaRepository.findById(12L)).thenReturn(Optional.empty());
+        assertThrows(AgenciaNotFoundException.class, () -> inmuebleService.modify(id, inDto, null));
+    }
+
     // TEST MODIFY - NOT FOUND
     @Test
     public void testModifyNotFound() {
@@ -204,31 +349,92 @@ public class InmuebleServiceTests {
 
         // Ejecutamos y esperamos el error
         assertThrows(InmuebleNotFoundException.class, () -> {
-            inmuebleService.modify(id, inDto);
+            inmuebleService.modify(id, inDto, null);
         });
 
         // Aseguramos que NUNCA se intentó guardar nada
         verify(inmuebleRepository, never()).save(any());
     }
 
+    // TEST PATCH: solo cambia el precio, el resto del InDto sale de la entidad
+    @Test
+    public void testPatchPrecio() throws Exception {
+        long id = 1L;
+        Agencia agencia = new Agencia(); agencia.setId(10L);
+        Propietario propietario = new Propietario(); propietario.setId(20L);
+        Inmueble existente = new Inmueble(id, "Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), agencia, propietario, null);
+        InmuebleOutDto outDto = new InmuebleOutDto(id, "Viejo", 95000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), 10L, 20L);
+
+        when(inmuebleRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(inmuebleMapper.toInDto(existente)).thenReturn(
+                new InmuebleInDto("Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), 10L, 20L));
+        when(inmuebleMapper.toOutDto(existente)).thenReturn(outDto);
+
+        InmuebleOutDto result = inmuebleService.patch(id, new ObjectMapper().readTree("{\"precio\": 95000}"), null);
+
+        assertEquals(95000f, result.getPrecio());
+        ArgumentCaptor<InmuebleInDto> captor = ArgumentCaptor.forClass(InmuebleInDto.class);
+        verify(inmuebleMapper).updateEntity(captor.capture(), eq(existente));
+        assertEquals(95000f, captor.getValue().getPrecio());
+        assertEquals("Viejo", captor.getValue().getTitulo());
+        // Sin cambio de relaciones no se consulta nada más, y no hace falta save() sobre la entidad gestionada
+        verify(agenciaRepository, never()).findById(anyLong());
+        verify(propietarioRepository, never()).findById(anyLong());
+        verify(inmuebleRepository, never()).save(any());
+    }
+
+    // Un null en un campo obligatorio no pasa la validación
+    @Test
+    public void testPatchCampoObligatorioANull() throws Exception {
+        long id = 1L;
+        Inmueble existente = new Inmueble(id, "Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), null, null, null);
+
+        when(inmuebleRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(inmuebleMapper.toInDto(existente)).thenReturn(
+                new InmuebleInDto("Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), 10L, 20L));
+
+        PatchInvalidoException e = assertThrows(PatchInvalidoException.class,
+                () -> inmuebleService.patch(id, new ObjectMapper().readTree("{\"precio\": null}"), null));
+
+        assertEquals("El precio es obligatorio", e.getErrores().get("precio"));
+        verify(inmuebleMapper, never()).updateEntity(any(), any());
+    }
+
+    // Cambiar de agencia obliga a buscarla
+    @Test
+    public void testPatchAgenciaInexistente() throws Exception {
+        long id = 1L;
+        Inmueble existente = new Inmueble(id, "Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), null, null, null);
+
+        when(inmuebleRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(inmuebleMapper.toInDto(existente)).thenReturn(
+                new InmuebleInDto("Viejo", 100000f, 50, 1d, 2d, false, LocalDate.of(2024, 1, 1), 10L, 20L));
+        when(agenciaRepository.findById(11L)).thenReturn(Optional.empty());
+
+        assertThrows(AgenciaNotFoundException.class,
+                () -> inmuebleService.patch(id, new ObjectMapper().readTree("{\"agenciaId\": 11}"), null));
+    }
+
     // TEST DELETE
     @Test
     public void testDelete() throws InmuebleNotFoundException {
-        Long id = 1L;
-        Inmueble aBorrar = new Inmueble(); aBorrar.setId(id);
+        long id = 1L;
+        BorradoMasivoRepository.Borrado borrado = new BorradoMasivoRepository.Borrado(1, List.of(id), List.of(5L, 6L));
 
-        when(inmuebleRepository.findById(id)).thenReturn(Optional.of(aBorrar));
+        when(borradoMasivoRepository.borrarInmueble(id)).thenReturn(borrado);
+        when(borradosMasivos.aplicar(CacheDtos.INMUEBLES, id, borrado)).thenReturn(new BorradoOutDto(1, 2));
 
-        inmuebleService.delete(id);
+        assertEquals(2, inmuebleService.delete(id, null).getVisitas());
 
-        verify(inmuebleRepository).delete(aBorrar);
+        verify(inmuebleRepository, never()).delete(any(Inmueble.class));
     }
 
     @Test
     public void testDeleteNotFound() {
-        Long id = 99L;
-        when(inmuebleRepository.findById(id)).thenReturn(Optional.empty());
-        assertThrows(InmuebleNotFoundException.class, () -> inmuebleService.delete(id));
+        long id = 99L;
+        when(borradoMasivoRepository.borrarInmueble(id)).thenReturn(new BorradoMasivoRepository.Borrado(0, List.of(), List.of()));
+        assertThrows(InmuebleNotFoundException.class, () -> inmuebleService.delete(id, null));
+        verify(borradosMasivos, never()).aplicar(any(), anyLong(), any());
     }
 
     //TEST JPQL
@@ -249,7 +455,7 @@ public class InmuebleServiceTests {
         when(inmuebleRepository.findInmueblesRangoPrecio(min, max))
                 .thenReturn(mockInmuebleList);
 
-        when(modelMapper.map(mockInmuebleList, new TypeToken<List<InmuebleOutDto>>() {}.getType()))
+        when(inmuebleMapper.toOutDtoList(mockInmuebleList))
                 .thenReturn(mockModelMapperOut);
 
         List<InmuebleOutDto> actualInmuebleList = inmuebleService.findInmueblesRangoPrecio(min, max);
@@ -274,7 +480,7 @@ public class InmuebleServiceTests {
 
         Integer metros = 200;
         when(inmuebleRepository.findInmueblesGrandesNativo(metros)).thenReturn(mockList);
-        when(modelMapper.map(mockList, new TypeToken<List<InmuebleOutDto>>() {}.getType()))
+        when(inmuebleMapper.toOutDtoList(mockList))
                 .thenReturn(mockOut);
 
         List<InmuebleOutDto> result = inmuebleService.getGrandesSql(metros);
@@ -284,4 +490,123 @@ public class InmuebleServiceTests {
 
         verify(inmuebleRepository, times(1)).findInmueblesGrandesNativo(metros);
     }
+
+    // TEST GEO: búsqueda por radio (orden por distancia)
+    @Test
+    public void testFindCerca() {
+        Inmueble lejos = new Inmueble(1L, "Lejos", 100f, 50, 40.0, -3.0, true, LocalDate.now(), null, null, null);
+        Inmueble cerca = new Inmueble(2L, "Cerca", 100f, 50, 40.0, -3.0, true, LocalDate.now(), null, null, null);
+        InmuebleOutDto lejosOut = new InmuebleOutDto(1L, "Lejos", 100f, 50, 40.0, -3.0, true, LocalDate.now(), 1L, 1L);
+        InmuebleOutDto cercaOut = new InmuebleOutDto(2L, "Cerca", 100f, 50, 40.0, -3.0, true, LocalDate.now(), 1L, 1L);
+
+        when(geoIndex.buscarEnRadio(40.0, -3.0, 5.0)).thenReturn(List.of(
+                new InmuebleGeoIndex.Resultado(2L, 0.5),
+                new InmuebleGeoIndex.Resultado(1L, 3.0)
+        ));
+        when(inmuebleRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(lejos, cerca));
+        when(inmuebleMapper.toOutDto(cerca)).thenReturn(cercaOut);
+        when(inmuebleMapper.toOutDto(lejos)).thenReturn(lejosOut);
+
+        List<InmuebleOutDto> result = inmuebleService.findCerca(40.0, -3.0, 5.0);
+
+        assertEquals(2, result.size());
+        assertEquals("Cerca", result.get(0).getTitulo());
+        assertEquals("Lejos", result.get(1).getTitulo());
+        verify(inmuebleRepository, never()).findAll();
+    }
+
+    // TEST GEO: un id del índice que la consulta no ve (réplica atrasada, alta sin confirmar) no se quita del índice
+    @Test
+    public void testFindCercaNoTocaElIndice() {
+        Inmueble cerca = new Inmueble(2L, "Cerca", 100f, 50, 40.0, -3.0, true, LocalDate.now(), null, null, null);
+        InmuebleOutDto cercaOut = new InmuebleOutDto(2L, "Cerca", 100f, 50, 40.0, -3.0, true, LocalDate.now(), 1L, 1L);
+
+        when(geoIndex.buscarEnRadio(40.0, -3.0, 5.0)).thenReturn(List.of(
+                new InmuebleGeoIndex.Resultado(2L, 0.5),
+                new InmuebleGeoIndex.Resultado(3L, 1.0)
+        ));
+        when(inmuebleRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(cerca));
+        when(inmuebleMapper.toOutDto(cerca)).thenReturn(cercaOut);
+
+        List<InmuebleOutDto> result = inmuebleService.findCerca(40.0, -3.0, 5.0);
+
+        assertEquals(1, result.size());
+        verify(geoIndex, never()).eliminar(anyLong());
+    }
+
+    // TEST GEO: radio y k acotados; de un radio con muchos inmuebles se leen los K_MAXIMO más cercanos por bloques
+    @Test
+    public void testBusquedasGeoAcotadas() {
+        assertThrows(BusquedaGeoInvalidaException.class, () -> inmuebleService.findCerca(40.0, -3.0, 20000.0));
+        assertThrows(BusquedaGeoInvalidaException.class,
+                () -> inmuebleService.findMasCercanos(40.0, -3.0, InmuebleService.K_MAXIMO + 1, null, null, null));
+        assertThrows(BusquedaGeoInvalidaException.class, () -> inmuebleService.findComparables(1L, 0, null, null, null));
+        verifyNoInteractions(geoIndex, inmuebleRepository);
+
+        List<InmuebleGeoIndex.Resultado> resultados = LongStream.rangeClosed(1, 1500)
+                .mapToObj(id -> new InmuebleGeoIndex.Resultado(id, id / 1000.0))
+                .toList();
+        when(geoIndex.buscarEnRadio(40.0, -3.0, 50.0)).thenReturn(resultados);
+        when(inmuebleRepository.findAllById(any())).thenReturn(List.of());
+
+        inmuebleService.findCerca(40.0, -3.0, 50.0);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> bloques = ArgumentCaptor.forClass(List.class);
+        verify(inmuebleRepository, times(5)).findAllById(bloques.capture());
+        assertEquals(200, bloques.getAllValues().get(0).size());
+        assertEquals(1000L, bloques.getAllValues().get(4).get(199));
+    }
+
+    // TEST GEO KNN: comparables de un inmueble (se excluye a sí mismo)
+    @Test
+    public void testFindComparables() {
+        Inmueble base = new Inmueble(1L, "Base", 100f, 50, 40.0, -3.0, true, LocalDate.now(), null, null, null);
+        Inmueble vecino = new Inmueble(2L, "Vecino", 100f, 50, 40.001, -3.0, true, LocalDate.now(), null, null, null);
+        InmuebleOutDto vecinoOut = new InmuebleOutDto(2L, "Vecino", 100f, 50, 40.001, -3.0, true, LocalDate.now(), 1L, 1L);
+
+        when(inmuebleRepository.findById(1L)).thenReturn(Optional.of(base));
+        when(geoIndex.buscarMasCercanos(eq(40.0), eq(-3.0), eq(5), any()))
+                .thenReturn(List.of(new InmuebleGeoIndex.Resultado(2L, 0.1)));
+        when(inmuebleRepository.findAllById(List.of(2L))).thenReturn(List.of(vecino));
+        when(inmuebleMapper.toOutDto(vecino)).thenReturn(vecinoOut);
+
+        List<InmuebleOutDto> result = inmuebleService.findComparables(1L, 5, null, null, null);
+
+        assertEquals(1, result.size());
+        assertEquals("Vecino", result.get(0).getTitulo());
+    }
+
+    // TEST GEO KNN: un inmueble sin coordenadas no tiene comparables
+    @Test
+    public void testFindComparablesSinCoordenadas() {
+        Inmueble base = new Inmueble(1L, "Base", 100f, 50, null, null, true, LocalDate.now(), null, null, null);
+        when(inmuebleRepository.findById(1L)).thenReturn(Optional.of(base));
+
+        assertEquals(List.of(), inmuebleService.findComparables(1L, 5, null, null, null));
+        verifyNoInteractions(geoIndex);
+    }
+
+    @Test
+    public void testFindComparablesNotFound() {
+        when(inmuebleRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(InmuebleNotFoundException.class, () -> inmuebleService.findComparables(99L, 5, null, null, null));
+        verifyNoInteractions(geoIndex);
+    }
+
+    // TEST GEO CLUSTERS: se convierten los agregados del índice a DTO
+    @Test
+    public void testFindClusters() {
+        InmuebleClusterIndex.Cluster cluster = new InmuebleClusterIndex.Cluster(2, 80.0, -6.0, 2, 400000, 100000f, 300000f);
+        when(geoIndex.buscarClusters(39.0, -4.0, 41.0, -2.0, 8)).thenReturn(List.of(cluster));
+
+        List<InmuebleClusterOutDto> result = inmuebleService.findClusters(39.0, -4.0, 41.0, -2.0, 8);
+
+        assertEquals(1, result.size());
+        assertEquals(2, result.get(0).getCantidad());
+        assertEquals(40.0, result.get(0).getLatitud());
+        assertEquals(200000f, result.get(0).getPrecioMedio());
+        verifyNoInteractions(inmuebleRepository);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Guarda el SQL que prepara Hibernate. Se registra con
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector, y Hibernate crea la instancia,
+ * así que la lista es estática: hay que vaciarla al empezar cada test.
+ */
+public class InspectorSentencias implements StatementInspector {
+
+    private static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        SENTENCIAS.add(sql);
+        return sql;
+    }
+
+    public static void vaciar() {
+        SENTENCIAS.clear();
+    }
+
+    public static List<String> empiezanPor(String prefijo) {
+        return SENTENCIAS.stream().filter(sql -> sql.regionMatches(true, 0, prefijo, 0, prefijo.length())).toList();
+    }
+}
@@ -0,0 +1,169 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class LecturasCompartidasTests {
+
+    private static final int PETICIONES = 20;
+
+    private LecturasCompartidas lecturasCompartidas;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService hilos;
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lecturasCompartidas = new LecturasCompartidas();
+        ReflectionTestUtils.setField(lecturasCompartidas, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(lecturasCompartidas, "ventana", Duration.ZERO);
+        hilos = Executors.newFixedThreadPool(PETICIONES);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hilos.shutdownNow();
+    }
+
+    // Peticiones simultáneas con la misma clave: una sola lectura y el mismo resultado para todas
+    @Test
+    public void testPeticionesSimultaneasCompartenLaLectura() throws Exception {
+        CountDownLatch terminar = new CountDownLatch(1);
+        List<Future<Object>> respuestas = lanzar(PETICIONES, () -> {
+            ejecuciones.incrementAndGet();
+            esperar(terminar);
+            return new Object();
+        }, 7L);
+
+        esperarCompartidas("inmuebles.findById", PETICIONES - 1);
+        terminar.countDown();
+
+        Object primera = respuestas.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Object> respuesta : respuestas) {
+            assertSame(primera, respuesta.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, contador("inmuebles.findById", "ejecutada"));
+        assertEquals(PETICIONES - 1, contador("inmuebles.findById", "compartida"));
+    }
+
+    // Parámetros distintos (también nulos en otra posición) no se agrupan
+    @Test
+    public void testParametrosDistintosNoSeComparten() {
+        lecturasCompartidas.leer("inmuebles.findAll", ejecuciones::incrementAndGet, 100f, null, true);
+        lecturasCompartidas.leer("inmuebles.findAll", ejecuciones::incrementAndGet, null, 100, true);
+        lecturasCompartidas.leer("agencias.findAll", ejecuciones::incrementAndGet, 100f, null, true);
+
+        assertEquals(3, ejecuciones.get());
+        assertEquals(0, contador("inmuebles.findAll", "compartida"));
+    }
+
+    // La excepción de la lectura (el 404) llega a todas las peticiones agrupadas y no se guarda
+    @Test
+    public void testExcepcionCompartida() throws Exception {
+        CountDownLatch terminar = new CountDownLatch(1);
+        List<Future<Object>> respuestas = lanzar(PETICIONES, () -> {
+            ejecuciones.incrementAndGet();
+            esperar(terminar);
+            throw new InmuebleNotFoundException("Inmueble no encontrado con ID: 7");
+        }, 7L);
+
+        esperarCompartidas("inmuebles.findById", PETICIONES - 1);
+        terminar.countDown();
+
+        for (Future<Object> respuesta : respuestas) {
+            Exception e = assertThrows(Exception.class, () -> respuesta.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(InmuebleNotFoundException.class, e.getCause());
+        }
+        assertEquals(1, ejecuciones.get());
+
+        // Una petición posterior vuelve a leer
+        assertEquals("ok", lecturasCompartidas.leer("inmuebles.findById", () -> "ok", 7L));
+    }
+
+    // Con ventana, una petición que llega justo después de terminar reutiliza el resultado
+    @Test
+    public void testVentana() throws Exception {
+        ReflectionTestUtils.setField(lecturasCompartidas, "ventana", Duration.ofMillis(300));
+
+        Object primera = lecturasCompartidas.leer("visitas.findById", () -> {
+            ejecuciones.incrementAndGet();
+            return new Object();
+        }, 3L);
+        Object segunda = lecturasCompartidas.leer("visitas.findById", Object::new, 3L);
+        assertSame(primera, segunda);
+
+        Thread.sleep(600);
+        Object tercera = lecturasCompartidas.leer("visitas.findById", Object::new, 3L);
+        assertTrue(primera != tercera);
+        assertEquals(1, ejecuciones.get());
+    }
+
+    // Sin ventana, en cuanto termina la lectura la siguiente petición vuelve a ejecutarla
+    @Test
+    public void testSinVentana() {
+        lecturasCompartidas.leer("visitas.findById", ejecuciones::incrementAndGet, 3L);
+        lecturasCompartidas.leer("visitas.findById", ejecuciones::incrementAndGet, 3L);
+
+        assertEquals(2, ejecuciones.get());
+        assertEquals(2, contador("visitas.findById", "ejecutada"));
+    }
+
+    private List<Future<Object>> lanzar(int peticiones, Supplier<Object> lectura, Object... parametros) {
+        List<Future<Object>> respuestas = new ArrayList<>();
+        for (int i = 0; i < peticiones; i++) {
+            respuestas.add(hilos.submit(() -> lecturasCompartidas.leer("inmuebles.findById", lectura, parametros)));
+        }
+        return respuestas;
+    }
+
+    private void esperarCompartidas(String operacion, int esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (contador(operacion, "compartida") < esperadas) {
+            if (System.nanoTime() > limite) {
+                fail("Solo se han agrupado " + contador(operacion, "compartida") + " peticiones");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private long contador(String operacion, String resultado) {
+        var contador = meterRegistry.find(LecturasCompartidas.METRICA)
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .counter();
+        return (contador == null) ? 0 : (long) contador.count();
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los listados tienen que hacer un número constante de consultas, sin importar cuántas filas devuelvan.
+ * Se levanta la aplicación entera contra una base de datos H2 en memoria.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:listados;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ListadosConsultasTests {
+
+    private static final int NUM_FILAS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    private ContadorConsultas contador;
+
+    @BeforeEach
+    public void setUp() {
+        contador = new ContadorConsultas(entityManagerFactory);
+        if (visitaRepository.count() > 0) {
+            return;
+        }
+
+        // Cada inmueble con su propia agencia y propietario, y cada visita con su cliente:
+        // con relaciones EAGER cada fila obligaría a hacer consultas adicionales
+        for (int i = 1; i <= NUM_FILAS; i++) {
+            Agencia agencia = agenciaRepository.save(new Agencia(0, "Agencia " + i, "Calle " + i, 1000f * i,
+                    50000 + i, i % 2 == 0, LocalDate.of(2000, 1, 1), null));
+            Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + i, "Propietario " + i,
+                    "600000" + i, 3f, false, LocalDate.of(2020, 1, 1), null));
+            Inmueble inmueble = inmuebleRepository.save(new Inmueble(0, "Inmueble " + i, 100000f + i, 50 + i,
+                    41.6 + i * 0.01, -0.9, true, LocalDate.of(2024, 1, 1), agencia, propietario, null));
+            Cliente cliente = clienteRepository.save(new Cliente(0, "cliente" + i + "@mail.com", "pw", "700000" + i,
+                    200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+            visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0).plusDays(i), "Visita " + i,
+                    "PENDIENTE", 4f, 30, true, cliente, inmueble));
+        }
+    }
+
+    @Test
+    public void testListadoInmuebles() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(NUM_FILAS))
+                .andExpect(jsonPath("$[0].agenciaId").isNumber()));
+    }
+
+    @Test
+    public void testListadoInmueblesFiltradoYPaginado() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .param("ascensor", "true")
+                        .param("orden", "precio")
+                        .param("limit", "10")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(10)));
+    }
+
+    @Test
+    public void testListadoVisitas() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(NUM_FILAS))
+                .andExpect(jsonPath("$[0].clienteId").isNumber())
+                .andExpect(jsonPath("$[0].inmuebleId").isNumber()));
+    }
+
+    @Test
+    public void testListadoVisitasFiltrado() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .param("estado", "PENDIENTE")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(NUM_FILAS)));
+    }
+
+    @Test
+    public void testListadoVisitasPasadas() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/visitas/pasadas")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testExportarVisitasNdjson() throws Throwable {
+        contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testListadosSinRelaciones() throws Throwable {
+        for (String ruta : new String[]{"/agencias", "/propietarios", "/clientes"}) {
+            contador.assertMaximoConsultas(1, () -> mockMvc.perform(MockMvcRequestBuilders.get(ruta)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size()").value(NUM_FILAS)));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETag de los listados a partir del contador de modificaciones de cada tabla: el 304 no consulta la base
+ * de datos, y cualquier escritura en la tabla (también los DELETE por conjuntos) cambia el ETag.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listadosetag;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.inmobiliaria.apiinmobiliaria.InspectorSentencias"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ListadosEtagTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    private Agencia agencia;
+    private Inmueble inmueble;
+    private Cliente cliente;
+
+    @BeforeEach
+    public void setUp() {
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        inmueble = inmuebleRepository.save(new Inmueble(0, "Piso Centro", 150000f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+        cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+        visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Primera visita",
+                "PENDIENTE", 4f, 30, true, cliente, inmueble));
+    }
+
+    @Test
+    public void testNoModificadoSinConsultas() throws Exception {
+        String etag = etag(MockMvcRequestBuilders.get("/inmuebles").param("precioMax", "200000"));
+
+        InspectorSentencias.vaciar();
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles").param("precioMax", "200000")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=10"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+        assertTrue(InspectorSentencias.empiezanPor("select").isEmpty(), InspectorSentencias.empiezanPor("select").toString());
+    }
+
+    @Test
+    public void testEscrituraCambiaElEtag() throws Exception {
+        String antes = etag(MockMvcRequestBuilders.get("/agencias"));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/agencias/" + agencia.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"nombre\": \"Agencia Norte\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias").header(HttpHeaders.IF_NONE_MATCH, antes))
+                .andExpect(status().isOk());
+        assertNotEquals(antes, etag(MockMvcRequestBuilders.get("/agencias")));
+    }
+
+    // El DELETE por conjuntos de un inmueble no pasa por las entidades, pero cambia los listados de inmuebles y visitas
+    @Test
+    public void testBorradoMasivoCambiaElEtag() throws Exception {
+        String inmuebles = etag(MockMvcRequestBuilders.get("/inmuebles"));
+        String visitas = etag(MockMvcRequestBuilders.get("/visitas"));
+        String clientes = etag(MockMvcRequestBuilders.get("/clientes"));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/inmuebles/" + inmueble.getId()))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles").header(HttpHeaders.IF_NONE_MATCH, inmuebles))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas").header(HttpHeaders.IF_NONE_MATCH, visitas))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").header(HttpHeaders.IF_NONE_MATCH, clientes))
+                .andExpect(status().isNotModified());
+    }
+
+    // DELETE /v2/clientes borra sus visitas con el ON DELETE CASCADE de la base de datos, sin pasar por las entidades
+    @Test
+    public void testBorradoV2CambiaElEtagDeVisitas() throws Exception {
+        String visitas = etag(MockMvcRequestBuilders.get("/visitas"));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/v2/clientes/" + cliente.getId()))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas").header(HttpHeaders.IF_NONE_MATCH, visitas))
+                .andExpect(status().isOk());
+    }
+
+    // "Aa" y "BB" tienen el mismo hashCode: dos filtros distintos nunca comparten ETag
+    @Test
+    public void testFiltrosDistintosNuncaCompartenEtag() throws Exception {
+        assertNotEquals(etag(MockMvcRequestBuilders.get("/agencias").param("nombre", "Aa")),
+                etag(MockMvcRequestBuilders.get("/agencias").param("nombre", "BB")));
+    }
+
+    @Test
+    public void testCacheControlYPaginas() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/propietarios").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=60"));
+    }
+
+    private String etag(MockHttpServletRequestBuilder peticion) throws Exception {
+        String etag = mockMvc.perform(peticion)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -0,0 +1,106 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Multi-get (GET /{entidad}?ids=...): una sola consulta IN para los que no están en la caché de findById,
+ * en el orden pedido y con los que no existen en X-No-Encontrados.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lotes;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.inmobiliaria.apiinmobiliaria.InspectorSentencias"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class LotesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    private Agencia agencia;
+    private Inmueble a;
+    private Inmueble b;
+    private Inmueble c;
+
+    @BeforeEach
+    public void setUp() {
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        a = inmueble("Piso A", agencia, propietario);
+        b = inmueble("Piso B", agencia, propietario);
+        c = inmueble("Piso C", agencia, propietario);
+    }
+
+    @Test
+    public void testInmueblesEnOrdenConCache() throws Exception {
+        // a ya está en la caché de findById
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + a.getId())).andExpect(status().isOk());
+        long noExiste = c.getId() + 100_000;
+
+        InspectorSentencias.vaciar();
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles")
+                        .param("ids", c.getId() + "," + noExiste + "," + a.getId() + "," + b.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[0].titulo").value("Piso C"))
+                .andExpect(jsonPath("$[1].titulo").value("Piso A"))
+                .andExpect(jsonPath("$[2].titulo").value("Piso B"))
+                .andExpect(header().string("X-No-Encontrados", String.valueOf(noExiste)));
+
+        // Solo b y c van a la base de datos, en una consulta (el id que no existe lo descarta FiltroIds)
+        List<String> selects = InspectorSentencias.empiezanPor("select");
+        assertEquals(1, selects.size(), selects.toString());
+
+        // Y quedan en la caché: pedirlos otra vez no consulta nada
+        InspectorSentencias.vaciar();
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles").param("ids", b.getId() + "," + c.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-No-Encontrados"));
+        assertEquals(0, InspectorSentencias.empiezanPor("select").size());
+    }
+
+    @Test
+    public void testAgenciasYLimite() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias").param("ids", String.valueOf(agencia.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nombre").value("Agencia Centro"));
+
+        String demasiados = String.join(",", LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf).toList());
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").param("ids", demasiados))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Inmueble inmueble(String titulo, Agencia agencia, Propietario propietario) {
+        return inmuebleRepository.save(new Inmueble(0, titulo, 150000f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+    }
+}
@@ -0,0 +1,121 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.config.AppConfig;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.dto.*;
+import org.inmobiliaria.apiinmobiliaria.mapper.*;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los mappers escritos a mano tienen que dar el mismo resultado que ModelMapper (STRICT),
+ * que es como se mapeaba antes.
+ */
+public class MapperTests {
+
+    private final ModelMapper modelMapper = new AppConfig().modelMapper();
+
+    private final AgenciaMapper agenciaMapper = new AgenciaMapper();
+    private final ClienteMapper clienteMapper = new ClienteMapper();
+    private final InmuebleMapper inmuebleMapper = new InmuebleMapper();
+    private final PropietarioMapper propietarioMapper = new PropietarioMapper();
+    private final VisitaMapper visitaMapper = new VisitaMapper();
+
+    // AGENCIA
+    @Test
+    public void testAgencia() {
+        Agencia agencia = new Agencia(1L, "Agencia Centro", "Calle Mayor 1", 500000f, 50001, true, LocalDate.of(2010, 5, 20), null);
+        AgenciaInDto inDto = new AgenciaInDto("Nueva", "Calle Nueva 2", 1000f, 50002, false, LocalDate.of(2020, 1, 1));
+
+        assertEquals(modelMapper.map(agencia, AgenciaOutDto.class), agenciaMapper.toOutDto(agencia));
+        assertEquals(modelMapper.map(inDto, Agencia.class), agenciaMapper.toEntity(inDto));
+    }
+
+    // CLIENTE: la contraseña no sale en el DTO
+    @Test
+    public void testCliente() {
+        Cliente cliente = new Cliente(2L, "ana@mail.com", "secreta", "600111222", 150000f, 30, LocalDate.of(2024, 3, 1), true, null);
+        ClienteInDto inDto = new ClienteInDto("luis@mail.com", "1234", "600333444", 90000f, 45, LocalDate.of(2025, 1, 1), false);
+
+        assertEquals(modelMapper.map(cliente, ClienteOutDto.class), clienteMapper.toOutDto(cliente));
+        assertEquals(modelMapper.map(inDto, Cliente.class), clienteMapper.toEntity(inDto));
+    }
+
+    // INMUEBLE: agenciaId y propietarioId se aplanan desde las relaciones
+    @Test
+    public void testInmueble() {
+        Agencia agencia = new Agencia();
+        agencia.setId(3L);
+        Propietario propietario = new Propietario();
+        propietario.setId(4L);
+        Inmueble inmueble = new Inmueble(5L, "Piso", 120000f, 80, 41.65, -0.88, true, LocalDate.of(2025, 6, 1), agencia, propietario, null);
+        Inmueble sinRelaciones = new Inmueble(6L, "Local", 90000f, 60, 41.6, -0.9, false, LocalDate.of(2025, 6, 2), null, null, null);
+
+        assertEquals(modelMapper.map(inmueble, InmuebleOutDto.class), inmuebleMapper.toOutDto(inmueble));
+        assertEquals(modelMapper.map(sinRelaciones, InmuebleOutDto.class), inmuebleMapper.toOutDto(sinRelaciones));
+        assertEquals(3L, inmuebleMapper.toOutDto(inmueble).getAgenciaId());
+        assertNull(inmuebleMapper.toOutDto(sinRelaciones).getPropietarioId());
+    }
+
+    // INMUEBLE (entrada): se copian también los nulos y no se tocan id ni relaciones
+    @Test
+    public void testInmuebleUpdateEntity() {
+        InmuebleInDto inDto = new InmuebleInDto("Ático", null, 95, 41.7, -0.87, false, LocalDate.of(2025, 7, 1), 8L, 9L);
+
+        Inmueble esperado = inmuebleExistente();
+        modelMapper.map(inDto, esperado);
+        Inmueble resultado = inmuebleExistente();
+        inmuebleMapper.updateEntity(inDto, resultado);
+
+        assertEquals(esperado, resultado);
+        assertNull(resultado.getPrecio());
+        assertEquals(7L, resultado.getId());
+        assertEquals(3L, resultado.getAgenciaId());
+    }
+
+    @Test
+    public void testPropietario() {
+        Propietario propietario = new Propietario(4L, "12345678A", "Juan", "600111", 5f, false, LocalDate.of(2023, 9, 9), null);
+        PropietarioInDto inDto = new PropietarioInDto("B1234567", "Inversiones SL", "976000000", 3.5f, true, LocalDate.of(2024, 2, 2));
+
+        assertEquals(modelMapper.map(propietario, PropietarioOutDto.class), propietarioMapper.toOutDto(propietario));
+        assertEquals(modelMapper.map(inDto, Propietario.class), propietarioMapper.toEntity(inDto));
+    }
+
+    // VISITA: clienteId e inmuebleId desde las relaciones; al entrar se ignoran
+    @Test
+    public void testVisita() {
+        Cliente cliente = new Cliente();
+        cliente.setId(2L);
+        Inmueble inmueble = new Inmueble();
+        inmueble.setId(5L);
+        Visita visita = new Visita(10L, LocalDateTime.of(2025, 5, 5, 10, 30), "Muy luminoso", "CONFIRMADA", 4.5f, 45, true, cliente, inmueble);
+        VisitaInDto inDto = new VisitaInDto(LocalDateTime.of(2025, 6, 1, 12, 0), "Segunda visita", "PENDIENTE", null, 30, false, 7L, 8L);
+
+        assertEquals(modelMapper.map(visita, VisitaOutDto.class), visitaMapper.toOutDto(visita));
+        assertEquals(modelMapper.map(inDto, Visita.class), visitaMapper.toEntity(inDto));
+        assertNull(visitaMapper.toEntity(inDto).getCliente());
+    }
+
+    @Test
+    public void testListas() {
+        List<Inmueble> inmuebles = List.of(inmuebleExistente(), inmuebleExistente());
+
+        List<InmuebleOutDto> esperado = modelMapper.map(inmuebles, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+        assertEquals(esperado, inmuebleMapper.toOutDtoList(inmuebles));
+        assertTrue(inmuebleMapper.toOutDtoList(List.of()).isEmpty());
+    }
+
+    private static Inmueble inmuebleExistente() {
+        Agencia agencia = new Agencia();
+        agencia.setId(3L);
+        return new Inmueble(7L, "Piso", 120000f, 80, 41.65, -0.88, true, LocalDate.of(2025, 6, 1), agencia, null, null);
+    }
+}
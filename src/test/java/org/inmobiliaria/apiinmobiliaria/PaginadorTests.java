@@ -0,0 +1,108 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
+import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.InmuebleSpecifications;
+import org.inmobiliaria.apiinmobiliaria.service.Cursor;
+import org.inmobiliaria.apiinmobiliaria.service.Paginador;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PaginadorTests {
+
+    private static final Set<String> ORDENES = Set.of("id", "precio");
+
+    @Mock
+    private InmuebleRepository inmuebleRepository;
+
+    // PÁGINA INTERMEDIA: viene una fila de más, así que hay cursor a la última devuelta
+    @Test
+    public void testPaginaConSiguiente() {
+        List<Inmueble> filas = List.of(inmueble(4L, 100000f), inmueble(2L, 200000f), inmueble(7L, 300000f));
+        when(inmuebleRepository.findBy(any(), any())).thenReturn(filas);
+
+        PaginaOutDto<Long> pagina = paginar("precio", null, 2);
+
+        assertEquals(List.of(4L, 2L), pagina.getContenido());
+        assertEquals(new Cursor("precio", "200000.0", 2L), Cursor.decodificar(pagina.getSiguiente()));
+    }
+
+    // ÚLTIMA PÁGINA: sin fila de más no hay cursor
+    @Test
+    public void testUltimaPagina() {
+        when(inmuebleRepository.findBy(any(), any())).thenReturn(List.of(inmueble(9L, 100000f)));
+
+        PaginaOutDto<Long> pagina = paginar("precio", new Cursor("precio", "50000.0", 3L).codificar(), 2);
+
+        assertEquals(List.of(9L), pagina.getContenido());
+        assertNull(pagina.getSiguiente());
+    }
+
+    // Sin orden se pagina por id
+    @Test
+    public void testOrdenPorDefecto() {
+        when(inmuebleRepository.findBy(any(), any())).thenReturn(List.of(inmueble(1L, 1f), inmueble(2L, 2f)));
+
+        PaginaOutDto<Long> pagina = paginar(null, null, 1);
+
+        assertEquals(new Cursor("id", "1", 1L), Cursor.decodificar(pagina.getSiguiente()));
+    }
+
+    // El cursor se decodifica igual aunque el valor contenga el separador
+    @Test
+    public void testCursorIdaYVuelta() {
+        Cursor cursor = new Cursor("nombre", "Pérez | Hijos", 15L);
+
+        assertEquals(cursor, Cursor.decodificar(cursor.codificar()));
+    }
+
+    @Test
+    public void testCursorNoValido() {
+        assertThrows(PaginacionInvalidaException.class, () -> paginar("precio", "no-es-un-cursor", 10));
+        verifyNoInteractions(inmuebleRepository);
+    }
+
+    // Un cursor generado con otro orden no sirve (saltaría o repetiría filas)
+    @Test
+    public void testCursorDeOtroOrden() {
+        String cursor = new Cursor("id", "5", 5L).codificar();
+
+        assertThrows(PaginacionInvalidaException.class, () -> paginar("precio", cursor, 10));
+        verifyNoInteractions(inmuebleRepository);
+    }
+
+    @Test
+    public void testOrdenNoPermitido() {
+        assertThrows(PaginacionInvalidaException.class, () -> paginar("titulo", null, 10));
+        verifyNoInteractions(inmuebleRepository);
+    }
+
+    @Test
+    public void testLimiteFueraDeRango() {
+        assertThrows(PaginacionInvalidaException.class, () -> paginar(null, null, 0));
+        assertThrows(PaginacionInvalidaException.class, () -> paginar(null, null, Paginador.LIMITE_MAXIMO + 1));
+        verifyNoInteractions(inmuebleRepository);
+    }
+
+    private PaginaOutDto<Long> paginar(String orden, String after, Integer limit) {
+        return Paginador.paginar(inmuebleRepository, InmuebleSpecifications.filtro(null, null, null), ORDENES,
+                orden, after, limit, inmuebles -> inmuebles.stream().map(Inmueble::getId).toList());
+    }
+
+    private static Inmueble inmueble(long id, float precio) {
+        return new Inmueble(id, "Inmueble " + id, precio, 80, 40d, -3d, true, LocalDate.now(), null, null, null);
+    }
+}
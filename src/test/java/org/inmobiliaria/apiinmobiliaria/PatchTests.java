@@ -0,0 +1,143 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * PATCH con JSON Merge Patch: cambia solo los campos enviados y el UPDATE solo lleva esas columnas.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:patch;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.inmobiliaria.apiinmobiliaria.InspectorSentencias"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class PatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    private Agencia agencia;
+    private Inmueble inmueble;
+    private Visita visita;
+
+    @BeforeEach
+    public void setUp() {
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        inmueble = inmuebleRepository.save(new Inmueble(0, "Piso Centro", 150000f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+        Cliente cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+        visita = visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Primera visita",
+                "PENDIENTE", 4f, 30, true, cliente, inmueble));
+        InspectorSentencias.vaciar();
+    }
+
+    @Test
+    public void testPatchPrecioActualizaSoloElPrecio() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"precio\": 139000}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.precio").value(139000))
+                .andExpect(jsonPath("$.titulo").value("Piso Centro"))
+                .andExpect(jsonPath("$.agenciaId").value(agencia.getId()));
+
+        List<String> updates = InspectorSentencias.empiezanPor("update");
+        assertEquals(1, updates.size(), updates.toString());
+        // El perfil h2 entrecomilla los identificadores; la versión va siempre (@Version)
+        assertEquals("update inmueble set precio=?,version=? where id=? and version=?", updates.getFirst().replace("\"", ""));
+
+        // La respuesta queda en la caché de los findById
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.precio").value(139000));
+    }
+
+    // Un parche que no cambia nada no llega a la base de datos
+    @Test
+    public void testPatchSinCambiosSinUpdate() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"precio\": 150000}"))
+                .andExpect(status().isOk());
+
+        assertTrue(InspectorSentencias.empiezanPor("update").isEmpty());
+    }
+
+    // null borra un campo opcional y da 400 en uno obligatorio
+    @Test
+    public void testPatchNulos() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/visitas/" + visita.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"comentarios\": null, \"valoracion\": 5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comentarios").doesNotExist())
+                .andExpect(jsonPath("$.valoracion").value(5))
+                .andExpect(jsonPath("$.estado").value("PENDIENTE"));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"titulo\": null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.titulo").exists());
+    }
+
+    @Test
+    public void testPatchTipoNoValido() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"metros\": \"muchos\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.metros").exists());
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("[1, 2]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testPatchNoEncontrado() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + (inmueble.getId() + 100_000))
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"precio\": 1}"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -2,14 +2,17 @@ package org.inmobiliaria.apiinmobiliaria;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.inmobiliaria.apiinmobiliaria.controller.PropietarioController;
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.PropietarioMapper;
 import org.inmobiliaria.apiinmobiliaria.service.PropietarioService;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
@@ -20,15 +23,22 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.List;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
+import org.springframework.context.annotation.Import;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(PropietarioController.class)
+@Import({LecturasCompartidas.class, ModificacionesTablas.class, SimpleMeterRegistry.class})
 public class PropietarioControllerTests {
 
     @Autowired
@@ -38,7 +48,7 @@ public class PropietarioControllerTests {
     private PropietarioService propietarioService;
 
     @MockitoBean
-    private ModelMapper modelMapper;
+    private PropietarioMapper propietarioMapper;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -96,6 +106,28 @@ public class PropietarioControllerTests {
                 .andExpect(jsonPath("$[0].dni").value("123A"));
     }
 
+    // GET ALL paginado (200 OK) - El cursor de la página siguiente va en las cabeceras
+    @Test
+    public void testGetAllPaginado() throws Exception {
+        PaginaOutDto<PropietarioOutDto> pagina = new PaginaOutDto<>(List.of(
+                new PropietarioOutDto(1L, "123A", "Juan", "600111", 5f, false, LocalDate.now())
+        ), "c2lndWllbnRl");
+
+        when(propietarioService.findPagina(null, null, null, "nombre", null, 1)).thenReturn(pagina);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/propietarios")
+                        .param("orden", "nombre")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("Juan"))
+                .andExpect(header().string("X-Next-Cursor", "c2lndWllbnRl"))
+                .andExpect(header().string("Link", containsString("after=c2lndWllbnRl")));
+
+        verify(propietarioService, never()).findAll(any(), any(), any());
+    }
+
     // GET BY ID (200 OK)
     @Test
     public void testGetById() throws Exception {
@@ -131,9 +163,9 @@ public class PropietarioControllerTests {
         Propietario savedEntity = new Propietario(); savedEntity.setId(1L); savedEntity.setNombre("Nuevo");
         PropietarioOutDto outDto = new PropietarioOutDto(1L, "NEW", "Nuevo", "666", 5f, false, LocalDate.now());
 
-        when(modelMapper.map(any(PropietarioInDto.class), eq(Propietario.class))).thenReturn(entity);
+        when(propietarioMapper.toEntity(any(PropietarioInDto.class))).thenReturn(entity);
         when(propietarioService.add(any(Propietario.class))).thenReturn(savedEntity);
-        when(modelMapper.map(any(Propietario.class), eq(PropietarioOutDto.class))).thenReturn(outDto);
+        when(propietarioMapper.toOutDto(any(Propietario.class))).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.post("/propietarios")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -163,7 +195,7 @@ public class PropietarioControllerTests {
         PropietarioOutDto outDto = new PropietarioOutDto(id, "EDIT", "Editado", "666", 5f, false, LocalDate.now());
 
         // En el PUT, tu controller pasa el DTO directo al servicio
-        when(propietarioService.modify(eq(id), any(PropietarioInDto.class))).thenReturn(outDto);
+        when(propietarioService.modify(eq(id), any(PropietarioInDto.class), isNull())).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/propietarios/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -178,7 +210,7 @@ public class PropietarioControllerTests {
         Long id = 99L;
         PropietarioInDto inDto = new PropietarioInDto("X", "X", "X", 1f, false, LocalDate.now());
 
-        when(propietarioService.modify(eq(id), any(PropietarioInDto.class)))
+        when(propietarioService.modify(eq(id), any(PropietarioInDto.class), isNull()))
                 .thenThrow(new PropietarioNotFoundException("No existe"));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/propietarios/" + id)
@@ -204,17 +236,19 @@ public class PropietarioControllerTests {
     @Test
     public void testDeletePropietario() throws Exception {
         Long id = 1L;
-        doNothing().when(propietarioService).delete(id);
+        when(propietarioService.delete(id, null)).thenReturn(new BorradoOutDto(2, 0));
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/propietarios/" + id))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Borrados-Inmuebles", "2"))
+                .andExpect(header().string("X-Borrados-Visitas", "0"));
     }
 
     // DELETE (404 NOT FOUND)
     @Test
     public void testDeletePropietarioNotFound() throws Exception {
         Long id = 99L;
-        doThrow(new PropietarioNotFoundException("No existe")).when(propietarioService).delete(id);
+        doThrow(new PropietarioNotFoundException("No existe")).when(propietarioService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/propietarios/" + id))
                 .andExpect(status().isNotFound());
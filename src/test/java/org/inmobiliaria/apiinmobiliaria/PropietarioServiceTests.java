@@ -1,18 +1,23 @@
 package org.inmobiliaria.apiinmobiliaria;
 
 import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.BorradoOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.PropietarioOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.PropietarioNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.PropietarioMapper;
+import org.inmobiliaria.apiinmobiliaria.repository.BorradoMasivoRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.PropietarioRepository;
+import org.inmobiliaria.apiinmobiliaria.service.BorradosMasivos;
+import org.inmobiliaria.apiinmobiliaria.service.CacheDtos;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
 import org.inmobiliaria.apiinmobiliaria.service.PropietarioService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -33,7 +38,16 @@ public class PropietarioServiceTests {
     private PropietarioRepository propietarioRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private PropietarioMapper propietarioMapper;
+
+    @Mock
+    private BorradoMasivoRepository borradoMasivoRepository;
+
+    @Mock
+    private BorradosMasivos borradosMasivos;
+
+    @Spy
+    private FiltroIds filtroIds = new FiltroIds();
 
 
     // TEST FIND ALL (Sin filtros)
@@ -53,7 +67,7 @@ public class PropietarioServiceTests {
 
         // Mocking
         when(propietarioRepository.findAll()).thenReturn(mockLista);
-        when(modelMapper.map(mockLista, new TypeToken<List<PropietarioOutDto>>() {}.getType()))
+        when(propietarioMapper.toOutDtoList(mockLista))
                 .thenReturn(mockOutDtos);
 
         // Ejecución
@@ -83,7 +97,7 @@ public class PropietarioServiceTests {
         when(propietarioRepository.findByFilter(dni, nombre, esEmpresa))
                 .thenReturn(mockLista);
 
-        when(modelMapper.map(mockLista, new TypeToken<List<PropietarioOutDto>>() {}.getType()))
+        when(propietarioMapper.toOutDtoList(mockLista))
                 .thenReturn(mockOutDtos);
 
         List<PropietarioOutDto> resultado = propietarioService.findAll(dni, nombre, esEmpresa);
@@ -99,7 +113,7 @@ public class PropietarioServiceTests {
         PropietarioOutDto mockDto = new PropietarioOutDto(1L, "123A", "Juan", "600", 5f, false, LocalDate.now());
 
         when(propietarioRepository.findById(1L)).thenReturn(Optional.of(mockEntity));
-        when(modelMapper.map(mockEntity, PropietarioOutDto.class)).thenReturn(mockDto);
+        when(propietarioMapper.toOutDto(mockEntity)).thenReturn(mockDto);
 
         PropietarioOutDto result = propietarioService.findById(1L);
 
@@ -146,12 +160,12 @@ public class PropietarioServiceTests {
         when(propietarioRepository.findById(id)).thenReturn(Optional.of(existente));
 
         // Evitamos Strict Stubbing error
-        doNothing().when(modelMapper).map(inDto, existente);
+        doNothing().when(propietarioMapper).updateEntity(inDto, existente);
 
         when(propietarioRepository.save(existente)).thenReturn(guardado);
-        when(modelMapper.map(guardado, PropietarioOutDto.class)).thenReturn(outDto);
+        when(propietarioMapper.toOutDto(guardado)).thenReturn(outDto);
 
-        PropietarioOutDto result = propietarioService.modify(id, inDto);
+        PropietarioOutDto result = propietarioService.modify(id, inDto, null);
 
         assertEquals("Editado", result.getNombre());
         verify(propietarioRepository).findById(id);
@@ -166,7 +180,7 @@ public class PropietarioServiceTests {
         when(propietarioRepository.findById(id)).thenReturn(Optional.empty());
 
         assertThrows(PropietarioNotFoundException.class, () -> {
-            propietarioService.modify(id, inDto);
+            propietarioService.modify(id, inDto, null);
         });
 
         verify(propietarioRepository, never()).save(any());
@@ -175,28 +189,28 @@ public class PropietarioServiceTests {
     // TEST DELETE
     @Test
     public void testDelete() throws PropietarioNotFoundException {
-        Long id = 1L;
-        Propietario aBorrar = new Propietario(id, "x", "x", "x", 0f, false, LocalDate.now(), null);
+        long id = 1L;
+        BorradoMasivoRepository.Borrado borrado = new BorradoMasivoRepository.Borrado(1, List.of(10L), List.of());
 
-        when(propietarioRepository.findById(id)).thenReturn(Optional.of(aBorrar));
+        when(borradoMasivoRepository.borrarPropietario(id)).thenReturn(borrado);
+        when(borradosMasivos.aplicar(CacheDtos.PROPIETARIOS, id, borrado)).thenReturn(new BorradoOutDto(1, 0));
 
-        propietarioService.delete(id);
+        assertEquals(1, propietarioService.delete(id, null).getInmuebles());
 
-        verify(propietarioRepository).findById(id);
-        verify(propietarioRepository).delete(aBorrar);
+        verify(propietarioRepository, never()).delete(any(Propietario.class));
     }
 
     @Test
     public void testDeleteNotFound() {
-        Long id = 99L;
+        long id = 99L;
 
-        when(propietarioRepository.findById(id)).thenReturn(Optional.empty());
+        when(borradoMasivoRepository.borrarPropietario(id)).thenReturn(new BorradoMasivoRepository.Borrado(0, List.of(), List.of()));
 
         assertThrows(PropietarioNotFoundException.class, () -> {
-            propietarioService.delete(id);
+            propietarioService.delete(id, null);
         });
 
-        verify(propietarioRepository, never()).delete(any());
+        verify(borradosMasivos, never()).aplicar(any(), anyLong(), any());
     }
 
     //TEST SQL GET EMPRESAS
@@ -212,7 +226,7 @@ public class PropietarioServiceTests {
         );
 
         when(propietarioRepository.findEmpresasNativas()).thenReturn(mockList);
-        when(modelMapper.map(mockList, new TypeToken<List<PropietarioOutDto>>() {}.getType()))
+        when(propietarioMapper.toOutDtoList(mockList))
                 .thenReturn(mockOut);
 
         List<PropietarioOutDto> result = propietarioService.getEmpresasSql();
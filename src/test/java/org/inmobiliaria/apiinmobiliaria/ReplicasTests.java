@@ -0,0 +1,191 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.Cookie;
+import org.inmobiliaria.apiinmobiliaria.config.DataSourceMedido;
+import org.inmobiliaria.apiinmobiliaria.config.EnrutadoDataSource;
+import org.inmobiliaria.apiinmobiliaria.config.EscrituraRecienteFilter;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Réplicas de lectura con dos H2 en memoria: la "réplica" solo recibe los datos de la primaria cuando el test
+ * llama a replicar(), así que lo que devuelve un GET dice de qué base de datos se ha leído.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primaria;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "replicas.urls=" + ReplicasTests.URL_REPLICA + ";IFEXISTS=TRUE",
+        "replicas.comprobacion=1h",
+        "replicas.timeout-conexion=3s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ReplicasTests {
+
+    static final String URL_REPLICA = "jdbc:h2:mem:replica;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    // La réplica tiene que existir antes de que arranque la aplicación, como en un despliegue real
+    static {
+        new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", "")).execute("SELECT 1");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Sin IFEXISTS: crea la réplica (y la vuelve a crear si un test la apaga)
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+
+    @BeforeEach
+    public void setUp() {
+        replicar();
+        enrutado().comprobarReplicas();
+    }
+
+    // Las lecturas de las peticiones van a la réplica: no ven lo que aún no se ha replicado
+    @Test
+    public void testLecturaEnReplica() throws Exception {
+        Cliente cliente = nuevoCliente();
+        long lecturasReplica = usos("replica-1");
+
+        buscar(cliente, 0, null);
+        replicar();
+        buscar(cliente, 1, null);
+
+        assertEquals(lecturasReplica + 2, usos("replica-1"));
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "replica-1").timer());
+    }
+
+    // Quien acaba de escribir lee de la primaria; el resto, y él mismo pasada la ventana, de la réplica
+    @Test
+    public void testLecturaTrasEscritura() throws Exception {
+        Cliente cliente = nuevoCliente();
+        replicar();
+
+        Cookie cookie = mockMvc.perform(MockMvcRequestBuilders.delete("/clientes/" + cliente.getId()))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getCookie(EscrituraRecienteFilter.COOKIE);
+        assertNotNull(cookie);
+
+        buscar(cliente, 0, cookie);
+        buscar(cliente, 1, null);
+        buscar(cliente, 1, new Cookie(EscrituraRecienteFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 60_000)));
+    }
+
+    // Lo que se guarda en una caché (findById, ?ids=, caché de consultas de agencias) se lee de la primaria:
+    // aún sin replicar, se encuentra
+    @Test
+    public void testLecturasQueLlenanCachesEnPrimaria() throws Exception {
+        Cliente cliente = nuevoCliente();
+        Cliente otro = nuevoCliente();
+        String nombre = "Agencia " + System.nanoTime();
+        agenciaRepository.save(new Agencia(0, nombre, "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").param("ids", String.valueOf(otro.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/agencias").param("nombre", nombre))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        // Los listados sin caché siguen en la réplica
+        buscar(cliente, 0, null);
+    }
+
+    // Con la réplica caída las lecturas pasan a la primaria, y vuelven a la réplica cuando responde
+    @Test
+    public void testReplicaCaida() throws Exception {
+        double caidas = caidas();
+        Cliente cliente = nuevoCliente();
+        replica.execute("SHUTDOWN");
+        // Hikari no revisa las conexiones usadas hace menos de 500 ms antes de entregarlas
+        Thread.sleep(600);
+
+        buscar(cliente, 1, null);
+        assertEquals(caidas + 1, caidas());
+
+        replicar();
+        enrutado().comprobarReplicas();
+        buscar(nuevoCliente(), 0, null);
+    }
+
+    private void buscar(Cliente cliente, int encontrados, Cookie cookie) throws Exception {
+        var peticion = MockMvcRequestBuilders.get("/clientes").param("email", cliente.getEmail());
+        if (cookie != null) {
+            peticion.cookie(cookie);
+        }
+        mockMvc.perform(peticion)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(encontrados)));
+    }
+
+    // Copia la primaria entera en la réplica
+    private void replicar() {
+        var script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private Cliente nuevoCliente() {
+        return clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+    }
+
+    private EnrutadoDataSource enrutado() {
+        return (EnrutadoDataSource) ((DelegatingDataSource) dataSource).getTargetDataSource();
+    }
+
+    private long usos(String destino) {
+        Timer timer = meterRegistry.find(DataSourceMedido.METRICA)
+                .tag("endpoint", "GET /clientes")
+                .tag("destino", destino)
+                .timer();
+        return (timer == null) ? 0 : timer.count();
+    }
+
+    private double caidas() {
+        Counter contador = meterRegistry.find(EnrutadoDataSource.METRICA_CAIDAS).tag("replica", "replica-1").counter();
+        return (contador == null) ? 0 : contador.count();
+    }
+}
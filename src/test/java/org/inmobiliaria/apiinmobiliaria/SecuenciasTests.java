@@ -0,0 +1,59 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.config.AjusteSecuencias;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.repository.AgenciaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una tabla que ya tiene filas por delante de su secuencia (la base de datos venía de IDENTITY):
+ * tras el ajuste del arranque, las altas en lote reciben ids libres en vez de chocar con las existentes.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:secuencias;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("h2")
+public class SecuenciasTests {
+
+    @Autowired
+    private AjusteSecuencias ajusteSecuencias;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testAltasEnTablaConFilas() {
+        // 1. Filas de antes con los ids que la secuencia va a dar en los próximos bloques
+        long siguiente = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR agencia_seq", Long.class);
+        for (long id = siguiente; id < siguiente + 300; id++) {
+            jdbcTemplate.update("INSERT INTO agencia (id, nombre, direccion, facturacion_anual, codigo_postal, "
+                            + "abierto_sabados, fecha_fundacion, version) VALUES (?, ?, 'Calle Mayor 1', 1000, 50001, true, ?, 0)",
+                    id, "Agencia antigua " + id, LocalDate.of(2000, 1, 1));
+        }
+        long maximo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM agencia", Long.class);
+
+        // 2. AJUSTE del arranque y altas en lote con ids de la secuencia
+        ajusteSecuencias.ajustar();
+        List<Agencia> nuevas = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            nuevas.add(new Agencia(0, "Agencia nueva " + i, "Calle Mayor 2", 1000f, 50001,
+                    true, LocalDate.of(2020, 1, 1), null));
+        }
+        agenciaRepository.saveAll(nuevas);
+
+        assertTrue(nuevas.stream().allMatch(agencia -> agencia.getId() > maximo));
+        assertEquals(420L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM agencia", Long.class));
+    }
+}
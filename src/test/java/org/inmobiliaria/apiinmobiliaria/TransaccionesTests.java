@@ -0,0 +1,108 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.inmobiliaria.apiinmobiliaria.config.DataSourceMedido;
+import org.inmobiliaria.apiinmobiliaria.domain.Cliente;
+import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sin open-session-in-view la conexión solo se ocupa dentro de las transacciones de los servicios,
+ * y jdbc.conexiones.uso lo mide por endpoint.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:transacciones;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class TransaccionesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Cliente cliente;
+
+    @BeforeEach
+    public void setUp() {
+        cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+    }
+
+    @Test
+    public void testSinOpenSessionInView() {
+        assertTrue(applicationContext.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+    }
+
+    // Cada listado saca una conexión del pool y la devuelve al terminar la transacción
+    @Test
+    public void testConexionPorEndpoint() throws Exception {
+        long antes = usos("GET /clientes");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes")).andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes").param("suscrito", "true")).andExpect(status().isOk());
+
+        assertEquals(antes + 2, usos("GET /clientes"));
+    }
+
+    // Los findById resueltos por la caché o por el filtro de ids no llegan a ocupar una conexión
+    @Test
+    public void testCacheYFiltroSinConexion() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId())).andExpect(status().isOk());
+        long antes = usos("GET /clientes/{id}");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + cliente.getId())).andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes/" + (cliente.getId() + 100_000)))
+                .andExpect(status().isNotFound());
+
+        assertEquals(antes, usos("GET /clientes/{id}"));
+    }
+
+    // La configuración del pool de application.properties llega a Hikari y sus métricas se publican con el nombre del pool
+    @Test
+    public void testPoolConfiguradoYMedido() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        assertEquals("inmobiliaria", pool.getPoolName());
+        assertEquals(3000, pool.getConnectionTimeout());
+        assertEquals(30000, pool.getLeakDetectionThreshold());
+        assertEquals("true", pool.getDataSourceProperties().getProperty("useServerPrepStmts"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/clientes")).andExpect(status().isOk());
+
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "inmobiliaria").timer());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "inmobiliaria").gauge());
+    }
+
+    private long usos(String endpoint) {
+        Timer timer = meterRegistry.find(DataSourceMedido.METRICA).tag("endpoint", endpoint).timer();
+        return (timer == null) ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,54 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.service.TrasCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los cambios en memoria se aplican al confirmar la transacción, nunca antes ni tras un rollback.
+ */
+public class TrasCommitTests {
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testDentroDeTransaccionEsperaAlCommit() {
+        AtomicInteger ejecutadas = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+
+        TrasCommit.ejecutar(ejecutadas::incrementAndGet);
+        assertEquals(0, ejecutadas.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, ejecutadas.get());
+    }
+
+    @Test
+    public void testRollbackNoEjecuta() {
+        AtomicInteger ejecutadas = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+
+        TrasCommit.ejecutar(ejecutadas::incrementAndGet);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(0, ejecutadas.get());
+    }
+
+    @Test
+    public void testSinTransaccionEjecutaEnElMomento() {
+        AtomicInteger ejecutadas = new AtomicInteger();
+        TrasCommit.ejecutar(ejecutadas::incrementAndGet);
+        assertEquals(1, ejecutadas.get());
+    }
+}
@@ -0,0 +1,219 @@
+package org.inmobiliaria.apiinmobiliaria;
+
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.inmobiliaria.apiinmobiliaria.repository.*;
+import org.inmobiliaria.apiinmobiliaria.service.MergePatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * La columna version sale como ETag: If-None-Match en los GET da 304 y If-Match en PUT, PATCH y DELETE
+ * da 412 si la entidad ha cambiado desde que se leyó.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:versiones;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class VersionesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private PropietarioRepository propietarioRepository;
+
+    @Autowired
+    private InmuebleRepository inmuebleRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private VisitaRepository visitaRepository;
+
+    private Agencia agencia;
+    private Inmueble inmueble;
+    private Visita visita;
+    private Cliente cliente;
+
+    @BeforeEach
+    public void setUp() {
+        agencia = agenciaRepository.save(new Agencia(0, "Agencia Centro", "Calle Mayor 1", 1000f, 50001,
+                true, LocalDate.of(2000, 1, 1), null));
+        Propietario propietario = propietarioRepository.save(new Propietario(0, "DNI" + System.nanoTime(), "Ana",
+                "600000000", 3f, false, LocalDate.of(2020, 1, 1), null));
+        inmueble = inmuebleRepository.save(new Inmueble(0, "Piso Centro", 150000f, 80, 41.65, -0.88, true,
+                LocalDate.of(2024, 1, 1), agencia, propietario, null));
+        cliente = clienteRepository.save(new Cliente(0, System.nanoTime() + "@mail.com", "pw", "700000000",
+                200000f, 30, LocalDate.of(2023, 1, 1), true, null));
+        visita = visitaRepository.save(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Primera visita",
+                "PENDIENTE", 4f, 30, true, cliente, inmueble));
+    }
+
+    @Test
+    public void testGetConEtag() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.titulo").value("Piso Centro"))
+                // La versión solo va en la cabecera
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    public void testIfNoneMatchDevuelve304SinCuerpo() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas/" + visita.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+
+        // Con otra versión se envía la entidad completa
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas/" + visita.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comentarios").value("Primera visita"));
+    }
+
+    @Test
+    public void testPatchSubeLaVersionYRechazaLaAnterior() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content("{\"precio\": 139000}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // Otro cliente que leyó la versión 0 no pisa el cambio
+        mockMvc.perform(MockMvcRequestBuilders.patch("/inmuebles/" + inmueble.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content("{\"precio\": 1}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(412));
+        assertEquals(139000f, inmuebleRepository.findById(inmueble.getId()).orElseThrow().getPrecio());
+
+        // El ETag que tenía el cliente ya no vale: el GET devuelve la versión nueva
+        mockMvc.perform(MockMvcRequestBuilders.get("/inmuebles/" + inmueble.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.precio").value(139000));
+    }
+
+    @Test
+    public void testPutConVersionAntigua() throws Exception {
+        String agenciaJson = """
+                {"nombre": "Agencia Norte", "direccion": "Calle Mayor 1", "facturacionAnual": 1000,
+                 "codigoPostal": 50001, "abiertoSabados": true, "fechaFundacion": "2000-01-01"}
+                """;
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/agencias/" + agencia.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content(agenciaJson))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("Agencia Centro", agenciaRepository.findById(agencia.getId()).orElseThrow().getNombre());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/agencias/" + agencia.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(agenciaJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.nombre").value("Agencia Norte"));
+    }
+
+    @Test
+    public void testDeleteConVersionAntigua() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + agencia.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"5\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/visitas/" + visita.getId())
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\""))
+                .andExpect(status().isPreconditionFailed());
+        assertTrue(agenciaRepository.existsById(agencia.getId()));
+        assertTrue(visitaRepository.existsById(visita.getId()));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/agencias/" + agencia.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isNoContent());
+        assertFalse(agenciaRepository.existsById(agencia.getId()));
+    }
+
+    // La V2 escribe la misma fila de cliente: mismo ETag y mismo If-Match
+    @Test
+    public void testClientesV2() throws Exception {
+        String clienteJson = """
+                {"email": "otro@mail.com", "password": "pw123456", "telefono": "711111111",
+                 "presupuestoMaximo": 1000, "edad": 31, "fechaAlta": "2024-01-01", "suscrito": true,
+                 "tipoVivienda": "PISO"}
+                """;
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/v2/clientes/" + cliente.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/v2/clientes/" + cliente.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"4\"")
+                        .content(clienteJson))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(MockMvcRequestBuilders.put("/v2/clientes/" + cliente.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(clienteJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.telefono").value("711111111"));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/v2/clientes/" + cliente.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+        assertTrue(clienteRepository.existsById(cliente.getId()));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/v2/clientes/" + cliente.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isOk());
+        assertFalse(clienteRepository.existsById(cliente.getId()));
+    }
+
+    // Sin If-Match (o con *) no se comprueba nada, y lo que no existe sigue siendo 404
+    @Test
+    public void testSinIfMatchYNoEncontrado() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/agencias/" + agencia.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"nombre\": \"Agencia Sur\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.patch("/agencias/" + agencia.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .content("{\"nombre\": \"Agencia Oeste\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/inmuebles/" + (inmueble.getId() + 100_000))
+                        .header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -2,13 +2,15 @@ package org.inmobiliaria.apiinmobiliaria;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.inmobiliaria.apiinmobiliaria.controller.VisitaController;
+import org.inmobiliaria.apiinmobiliaria.dto.PaginaOutDto;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaInDto;
 import org.inmobiliaria.apiinmobiliaria.dto.VisitaOutDto;
+import org.inmobiliaria.apiinmobiliaria.exception.PaginacionInvalidaException;
 import org.inmobiliaria.apiinmobiliaria.exception.VisitaNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.service.VisitaService;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
@@ -19,15 +21,25 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import org.inmobiliaria.apiinmobiliaria.service.LecturasCompartidas;
+import org.inmobiliaria.apiinmobiliaria.service.ModificacionesTablas;
+import org.springframework.context.annotation.Import;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(VisitaController.class)
+@Import({LecturasCompartidas.class, ModificacionesTablas.class, SimpleMeterRegistry.class})
 public class VisitaControllerTests {
 
     @Autowired
@@ -36,9 +48,6 @@ public class VisitaControllerTests {
     @MockitoBean
     private VisitaService visitaService;
 
-    @MockitoBean
-    private ModelMapper modelMapper;
-
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -96,6 +105,77 @@ public class VisitaControllerTests {
                 .andExpect(jsonPath("$[0].comentarios").value("Visita Filtrada"));
     }
 
+    // GET ALL paginado (200 OK) - El cursor de la página siguiente va en las cabeceras
+    @Test
+    public void testGetAllPaginado() throws Exception {
+        PaginaOutDto<VisitaOutDto> pagina = new PaginaOutDto<>(List.of(
+                new VisitaOutDto(1L, LocalDateTime.now(), "Visita 1", "PENDIENTE", 4f, 30, true, 1L, 1L)
+        ), "c2lndWllbnRl");
+
+        when(visitaService.findPagina("PENDIENTE", null, null, "fechaHora", null, 1)).thenReturn(pagina);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .param("estado", "PENDIENTE")
+                        .param("orden", "fechaHora")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].comentarios").value("Visita 1"))
+                .andExpect(header().string("X-Next-Cursor", "c2lndWllbnRl"))
+                .andExpect(header().string("Link", containsString("after=c2lndWllbnRl")));
+
+        verify(visitaService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL en NDJSON (200 OK) - Un objeto JSON por línea
+    @Test
+    public void testExportarNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<VisitaOutDto> destino = invocation.getArgument(3);
+            destino.accept(new VisitaOutDto(1L, LocalDateTime.now(), "Visita 1", "PENDIENTE", 4f, 30, true, 1L, 1L));
+            destino.accept(new VisitaOutDto(2L, LocalDateTime.now(), "Visita 2", "CONFIRMADA", 5f, 60, false, 2L, 2L));
+            return null;
+        }).when(visitaService).exportar(eq(null), eq(null), eq(null), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lineas = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].contains("\"comentarios\":\"Visita 1\""));
+        assertTrue(lineas[1].contains("\"comentarios\":\"Visita 2\""));
+        verify(visitaService, never()).findAll(any(), any(), any());
+    }
+
+    // GET ALL sin Accept concreto: se sigue devolviendo la lista JSON
+    @Test
+    public void testGetAllAcceptCualquiera() throws Exception {
+        when(visitaService.findAll(null, null, null)).thenReturn(List.of(new VisitaOutDto(1L, LocalDateTime.now(), "Visita 1", "PENDIENTE", 4f, 30, true, 1L, 1L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.size()").value(1));
+    }
+
+    // GET ALL paginado (400 Bad Request) - Cursor no válido
+    @Test
+    public void testGetAllPaginadoCursorNoValido() throws Exception {
+        when(visitaService.findPagina(null, null, null, null, "xx", null))
+                .thenThrow(new PaginacionInvalidaException("Cursor no válido"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visitas")
+                        .param("after", "xx")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor no válido"));
+    }
+
     // 2. GET BY ID (200 OK)
     @Test
     public void testGetById() throws Exception {
@@ -159,7 +239,7 @@ public class VisitaControllerTests {
         VisitaInDto inDto = new VisitaInDto(LocalDateTime.now(), "Editada", "CONFIRMADA", 5f, 45, false, 1L, 2L);
         VisitaOutDto outDto = new VisitaOutDto(id, LocalDateTime.now(), "Editada", "CONFIRMADA", 5f, 45, false, 1L, 2L);
 
-        when(visitaService.modify(eq(id), any(VisitaInDto.class))).thenReturn(outDto);
+        when(visitaService.modify(eq(id), any(VisitaInDto.class), isNull())).thenReturn(outDto);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/visitas/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -176,7 +256,7 @@ public class VisitaControllerTests {
         // DTO válido pero ID inexistente
         VisitaInDto inDto = new VisitaInDto(LocalDateTime.now(), "X", "PENDIENTE", 1f, 10, true, 1L, 1L);
 
-        when(visitaService.modify(eq(id), any(VisitaInDto.class)))
+        when(visitaService.modify(eq(id), any(VisitaInDto.class), isNull()))
                 .thenThrow(new VisitaNotFoundException("No existe"));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/visitas/" + id)
@@ -202,7 +282,7 @@ public class VisitaControllerTests {
     @Test
     public void testDeleteVisita() throws Exception {
         Long id = 1L;
-        doNothing().when(visitaService).delete(id);
+        doNothing().when(visitaService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/visitas/" + id))
                 .andExpect(status().isNoContent());
@@ -212,7 +292,7 @@ public class VisitaControllerTests {
     @Test
     public void testDeleteVisitaNotFound() throws Exception {
         Long id = 99L;
-        doThrow(new VisitaNotFoundException("No existe")).when(visitaService).delete(id);
+        doThrow(new VisitaNotFoundException("No existe")).when(visitaService).delete(id, null);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/visitas/" + id))
                 .andExpect(status().isNotFound());
@@ -8,21 +8,25 @@ import org.inmobiliaria.apiinmobiliaria.dto.VisitaOutDto;
 import org.inmobiliaria.apiinmobiliaria.exception.ClienteNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
 import org.inmobiliaria.apiinmobiliaria.exception.VisitaNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.mapper.VisitaMapper;
 import org.inmobiliaria.apiinmobiliaria.repository.ClienteRepository;
+import org.inmobiliaria.apiinmobiliaria.repository.ExportacionRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.InmuebleRepository;
 import org.inmobiliaria.apiinmobiliaria.repository.VisitaRepository;
+import org.inmobiliaria.apiinmobiliaria.service.FiltroIds;
 import org.inmobiliaria.apiinmobiliaria.service.VisitaService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -46,7 +50,13 @@ public class VisitaServiceTests {
     private InmuebleRepository inmuebleRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private VisitaMapper visitaMapper;
+
+    @Mock
+    private ExportacionRepository exportacionRepository;
+
+    @Spy
+    private FiltroIds filtroIds = new FiltroIds();
 
 
     // TEST FIND ALL (Sin filtros)
@@ -56,7 +66,7 @@ public class VisitaServiceTests {
         List<VisitaOutDto> mockOutDtos = List.of(new VisitaOutDto());
 
         when(visitaRepository.findAll()).thenReturn(mockLista);
-        when(modelMapper.map(mockLista, new TypeToken<List<VisitaOutDto>>() {}.getType())).thenReturn(mockOutDtos);
+        when(visitaMapper.toOutDtoList(mockLista)).thenReturn(mockOutDtos);
 
         List<VisitaOutDto> result = visitaService.findAll(null, null, null);
 
@@ -77,7 +87,7 @@ public class VisitaServiceTests {
         when(visitaRepository.findByFilter(estado, fecha, valoracion))
                 .thenReturn(mockLista);
 
-        when(modelMapper.map(mockLista, new TypeToken<List<VisitaOutDto>>() {}.getType())).thenReturn(mockOutDtos);
+        when(visitaMapper.toOutDtoList(mockLista)).thenReturn(mockOutDtos);
 
         List<VisitaOutDto> result = visitaService.findAll(estado, fecha, valoracion);
 
@@ -85,6 +95,25 @@ public class VisitaServiceTests {
         verify(visitaRepository).findByFilter(estado, fecha, valoracion);
     }
 
+    // TEST EXPORTAR (streaming): cada fila se mapea y se entrega al destino según llega
+    @Test
+    public void testExportar() {
+        Visita visita = new Visita();
+        VisitaOutDto outDto = new VisitaOutDto();
+        doAnswer(invocation -> {
+            Consumer<Visita> accion = invocation.getArgument(2);
+            accion.accept(visita);
+            return null;
+        }).when(exportacionRepository).recorrer(eq(Visita.class), any(), any());
+        when(visitaMapper.toOutDto(visita)).thenReturn(outDto);
+
+        List<VisitaOutDto> recibidos = new ArrayList<>();
+        visitaService.exportar("PENDIENTE", null, null, recibidos::add);
+
+        assertEquals(List.of(outDto), recibidos);
+        verify(visitaRepository, never()).findAll();
+    }
+
     // TEST FIND BY ID
     @Test
     public void testFindById() throws VisitaNotFoundException {
@@ -93,7 +122,7 @@ public class VisitaServiceTests {
         VisitaOutDto dto = new VisitaOutDto(); dto.setId(id); dto.setComentarios("Test");
 
         when(visitaRepository.findById(id)).thenReturn(Optional.of(visita));
-        when(modelMapper.map(visita, VisitaOutDto.class)).thenReturn(dto);
+        when(visitaMapper.toOutDto(visita)).thenReturn(dto);
 
         VisitaOutDto result = visitaService.findById(id);
 
@@ -125,10 +154,10 @@ public class VisitaServiceTests {
         when(inmuebleRepository.findById(20L)).thenReturn(Optional.of(mockInmueble));
 
         // Le decimos que ignore el mapeo void
-        doNothing().when(modelMapper).map(eq(inDto), any(Visita.class));
+        doNothing().when(visitaMapper).updateEntity(eq(inDto), any(Visita.class));
 
         when(visitaRepository.save(any(Visita.class))).thenReturn(guardada);
-        when(modelMapper.map(guardada, VisitaOutDto.class)).thenReturn(outDto);
+        when(visitaMapper.toOutDto(guardada)).thenReturn(outDto);
 
         // Ejecución
         VisitaOutDto result = visitaService.add(inDto);
@@ -159,23 +188,42 @@ public class VisitaServiceTests {
 
         when(visitaRepository.findById(id)).thenReturn(Optional.of(existente));
 
-        doNothing().when(modelMapper).map(inDto, existente);
+        doNothing().when(visitaMapper).updateEntity(inDto, existente);
 
         when(visitaRepository.save(existente)).thenReturn(guardada);
-        when(modelMapper.map(guardada, VisitaOutDto.class)).thenReturn(outDto);
+        when(visitaMapper.toOutDto(guardada)).thenReturn(outDto);
 
-        VisitaOutDto result = visitaService.modify(id, inDto);
+        VisitaOutDto result = visitaService.modify(id, inDto, null);
 
         assertEquals("Nuevo Comentario", result.getComentarios());
         verify(visitaRepository).findById(id);
         verify(visitaRepository).save(existente);
     }
 
+    // TEST MODIFY: PUT también cambia de inmueble, igual que PATCH
+    @Test
+    public void testModifyCambiaInmueble() throws VisitaNotFoundException {
+        long id = 1L;
+        Inmueble inmueble = new Inmueble(); inmueble.setId(5L);
+        Inmueble nuevo = new Inmueble(); nuevo.setId(6L);
+        Visita existente = new Visita(); existente.setId(id); existente.setInmueble(inmueble);
+        VisitaInDto inDto = new VisitaInDto(); inDto.setInmuebleId(6L);
+
+        when(visitaRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(inmuebleRepository.findById(6L)).thenReturn(Optional.of(nuevo));
+        when(visitaRepository.save(existente)).thenReturn(existente);
+
+        visitaService.modify(id, inDto, null);
+
+        assertEquals(6L, existente.getInmuebleId());
+        verify(clienteRepository, never()).findById(anyLong());
+    }
+
     @Test
     public void testModifyNotFound() {
         Long id = 99L;
         when(visitaRepository.findById(id)).thenReturn(Optional.empty());
-        assertThrows(VisitaNotFoundException.class, () -> visitaService.modify(id, new VisitaInDto()));
+        assertThrows(VisitaNotFoundException.class, () -> visitaService.modify(id, new VisitaInDto(), null));
         verify(visitaRepository, never()).save(any());
     }
 
@@ -187,7 +235,7 @@ public class VisitaServiceTests {
 
         when(visitaRepository.findById(id)).thenReturn(Optional.of(aBorrar));
 
-        visitaService.delete(id);
+        visitaService.delete(id, null);
 
         verify(visitaRepository).findById(id);
         verify(visitaRepository).delete(aBorrar);
@@ -197,7 +245,7 @@ public class VisitaServiceTests {
     public void testDeleteNotFound() {
         Long id = 99L;
         when(visitaRepository.findById(id)).thenReturn(Optional.empty());
-        assertThrows(VisitaNotFoundException.class, () -> visitaService.delete(id));
+        assertThrows(VisitaNotFoundException.class, () -> visitaService.delete(id, null));
     }
 
     // TEST SQL FIND CITAS PASADAS
@@ -212,7 +260,7 @@ public class VisitaServiceTests {
         );
 
         when(visitaRepository.findVisitasPasadasNativas()).thenReturn(mockList);
-        when(modelMapper.map(mockList, new TypeToken<List<VisitaOutDto>>() {}.getType()))
+        when(visitaMapper.toOutDtoList(mockList))
                 .thenReturn(mockOut);
 
         List<VisitaOutDto> result = visitaService.getPasadasSql();
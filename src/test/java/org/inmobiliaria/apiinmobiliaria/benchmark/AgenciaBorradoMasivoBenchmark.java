@@ -0,0 +1,148 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import org.h2.tools.Server;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrado de una agencia con toda su cartera (50.000 inmuebles y una visita por cada cinco):
+ * - cascada: session.remove(agencia) con CascadeType.ALL, como hacía AgenciaService.delete. Hibernate carga
+ *   los inmuebles, las visitas de cada uno y los borra fila a fila (en lotes de 50).
+ * - masivo: las sentencias de BorradoMasivoRepository, dos SELECT de ids y tres DELETE por conjuntos.
+ * Cada invocación consume los datos, así que se vuelven a insertar antes de cada una y se mide una sola
+ * ejecución (SingleShotTime). H2 en modo servidor TCP, como en InmuebleAltaMasivaBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class AgenciaBorradoMasivoBenchmark {
+
+    @Param({"50000"})
+    private int numInmuebles;
+
+    private Server servidor;
+    private SessionFactory sessionFactory;
+    private long propietarioId;
+    private long clienteId;
+    private long agenciaId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        servidor = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Agencia.class)
+                .addAnnotatedClass(Propietario.class)
+                .addAnnotatedClass(Inmueble.class)
+                .addAnnotatedClass(Cliente.class)
+                .addAnnotatedClass(Visita.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL,
+                        "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/mem:borrado_masivo;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                .setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "none")
+                // FiltroIdsListener necesita el contexto de Spring
+                .setProperty(AvailableSettings.JPA_CALLBACKS_ENABLED, "false")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            Propietario propietario = new Propietario(0, "BENCH0001", "Propietario Benchmark", "600000000",
+                    3f, false, LocalDate.of(2020, 1, 1), null);
+            Cliente cliente = new Cliente(0, "bench@mail.com", "pw", "700000000",
+                    200000f, 30, LocalDate.of(2023, 1, 1), true, null);
+            session.persist(propietario);
+            session.persist(cliente);
+            propietarioId = propietario.getId();
+            clienteId = cliente.getId();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        servidor.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void crearCartera() {
+        sessionFactory.inTransaction(session -> {
+            Agencia agencia = new Agencia(0, "Agencia Benchmark", "Calle Benchmark 1", 1000000f, 28001,
+                    true, LocalDate.of(2000, 1, 1), null);
+            session.persist(agencia);
+            agenciaId = agencia.getId();
+            Propietario propietario = session.getReference(Propietario.class, propietarioId);
+            Cliente cliente = session.getReference(Cliente.class, clienteId);
+            for (int i = 1; i <= numInmuebles; i++) {
+                Inmueble inmueble = new Inmueble(0, "Inmueble " + i, 50000f + i, 30 + i % 300,
+                        36 + (i % 7000) / 1000.0, -9 + (i % 12000) / 1000.0, i % 2 == 0,
+                        LocalDate.of(2025, 1, 1), agencia, propietario, null);
+                session.persist(inmueble);
+                if (i % 5 == 0) {
+                    session.persist(new Visita(0, LocalDateTime.of(2025, 1, 1, 10, 0), "Visita " + i,
+                            "PENDIENTE", 4f, 30, true, cliente, inmueble));
+                }
+                if (i % 50 == 0) {
+                    session.flush();
+                    session.clear();
+                    agencia = session.getReference(Agencia.class, agenciaId);
+                    propietario = session.getReference(Propietario.class, propietarioId);
+                    cliente = session.getReference(Cliente.class, clienteId);
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public long cascada() {
+        return sessionFactory.fromTransaction(session -> {
+            Agencia agencia = session.get(Agencia.class, agenciaId);
+            session.remove(agencia);
+            session.flush();
+            return agencia.getInmuebles().size();
+        });
+    }
+
+    @Benchmark
+    public long masivo() {
+        return sessionFactory.fromTransaction(session -> {
+            long ids = session.createSelectionQuery("SELECT i.id FROM Inmueble i WHERE i.agencia.id = :id", Long.class)
+                    .setParameter("id", agenciaId).getResultList().size();
+            ids += session.createSelectionQuery("SELECT v.id FROM Visita v WHERE v.inmueble.agencia.id = :id", Long.class)
+                    .setParameter("id", agenciaId).getResultList().size();
+            borrar(session, "DELETE FROM Visita v WHERE v.inmueble.id IN (SELECT i.id FROM Inmueble i WHERE i.agencia.id = :id)");
+            borrar(session, "DELETE FROM Inmueble i WHERE i.agencia.id = :id");
+            borrar(session, "DELETE FROM Agencia e WHERE e.id = :id");
+            return ids;
+        });
+    }
+
+    private void borrar(Session session, String hql) {
+        session.createMutationQuery(hql).setParameter("id", agenciaId).executeUpdate();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AgenciaBorradoMasivoBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
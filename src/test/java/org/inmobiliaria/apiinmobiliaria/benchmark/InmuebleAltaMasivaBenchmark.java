@@ -0,0 +1,121 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import org.h2.tools.Server;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta de la cartera de una agencia (miles de inmuebles) con Hibernate, sin lotes JDBC (batchSize = 1,
+ * un viaje a la base de datos por fila, como pasaba con IDENTITY) y con lotes de 50.
+ * La base de datos es un H2 en modo servidor TCP para que cada viaje pase por la red local.
+ * Ejecutar con el método main o desde el IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class InmuebleAltaMasivaBenchmark {
+
+    @Param({"1000"})
+    private int numInmuebles;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private Server servidor;
+    private SessionFactory sessionFactory;
+    private long agenciaId;
+    private long propietarioId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        servidor = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Agencia.class)
+                .addAnnotatedClass(Propietario.class)
+                .addAnnotatedClass(Inmueble.class)
+                .addAnnotatedClass(Cliente.class)
+                .addAnnotatedClass(Visita.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL,
+                        "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/mem:alta_masiva;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(batchSize))
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                .setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "none")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            Agencia agencia = new Agencia(0, "Agencia Benchmark", "Calle Benchmark 1", 1000000f, 28001,
+                    true, LocalDate.of(2000, 1, 1), null);
+            Propietario propietario = new Propietario(0, "BENCH0001", "Propietario Benchmark", "600000000",
+                    3f, false, LocalDate.of(2020, 1, 1), null);
+            session.persist(agencia);
+            session.persist(propietario);
+            agenciaId = agencia.getId();
+            propietarioId = propietario.getId();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        servidor.stop();
+    }
+
+    // Se vacía la tabla en cada iteración para que su tamaño no influya en la medida
+    @TearDown(Level.Iteration)
+    public void vaciar() {
+        sessionFactory.inTransaction(session ->
+                session.createMutationQuery("DELETE FROM Inmueble").executeUpdate());
+    }
+
+    @Benchmark
+    public long altaCartera() {
+        return sessionFactory.fromTransaction(session -> {
+            Agencia agencia = session.getReference(Agencia.class, agenciaId);
+            Propietario propietario = session.getReference(Propietario.class, propietarioId);
+            long ultimoId = 0;
+            for (int i = 1; i <= numInmuebles; i++) {
+                Inmueble inmueble = new Inmueble(0, "Inmueble " + i, 50000f + i, 30 + i % 300,
+                        36 + (i % 7000) / 1000.0, -9 + (i % 12000) / 1000.0, i % 2 == 0,
+                        LocalDate.of(2025, 1, 1), agencia, propietario, null);
+                session.persist(inmueble);
+                ultimoId = inmueble.getId();
+                vaciarSesion(session, i);
+            }
+            return ultimoId;
+        });
+    }
+
+    // Cada lote se envía y se suelta de la sesión para que no crezca con toda la cartera
+    private void vaciarSesion(Session session, int filas) {
+        if (filas % 50 == 0) {
+            session.flush();
+            session.clear();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InmuebleAltaMasivaBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,93 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.service.InmuebleGeoIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compara el KNN del índice geográfico con el recorrido completo de findAll()
+ * (calcular la distancia a todos los inmuebles, ordenar y quedarse con los k primeros).
+ * Ejecutar con el método main o desde el IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class InmuebleKnnBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int numInmuebles;
+
+    @Param({"20"})
+    private int k;
+
+    private List<Inmueble> inmuebles;
+    private InmuebleGeoIndex geoIndex;
+    private double[][] consultas;
+    private int siguiente;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        inmuebles = new ArrayList<>(numInmuebles);
+        geoIndex = new InmuebleGeoIndex();
+
+        // Inmuebles repartidos por la península
+        for (long id = 1; id <= numInmuebles; id++) {
+            Inmueble inmueble = new Inmueble(id, "Inmueble " + id, 50000f + random.nextInt(950000),
+                    30 + random.nextInt(300), 36 + random.nextDouble() * 7, -9 + random.nextDouble() * 12,
+                    random.nextBoolean(), LocalDate.now(), null, null, null);
+            inmuebles.add(inmueble);
+            geoIndex.actualizar(inmueble);
+        }
+
+        consultas = new double[1024][];
+        for (int i = 0; i < consultas.length; i++) {
+            consultas[i] = new double[]{36 + random.nextDouble() * 7, -9 + random.nextDouble() * 12};
+        }
+    }
+
+    @Benchmark
+    public List<InmuebleGeoIndex.Resultado> knnIndice() {
+        double[] consulta = siguienteConsulta();
+        return geoIndex.buscarMasCercanos(consulta[0], consulta[1], k, InmuebleGeoIndex.filtro(300000f, null, true));
+    }
+
+    @Benchmark
+    public List<Inmueble> knnRecorridoCompleto() {
+        double[] consulta = siguienteConsulta();
+        Predicate<Inmueble> filtro = i -> i.getPrecio() <= 300000f && i.getAscensor();
+        return inmuebles.stream()
+                .filter(filtro)
+                .sorted(Comparator.comparingDouble(i ->
+                        InmuebleGeoIndex.distanciaKm(consulta[0], consulta[1], i.getLatitud(), i.getLongitud())))
+                .limit(k)
+                .toList();
+    }
+
+    private double[] siguienteConsulta() {
+        siguiente = (siguiente + 1) % consultas.length;
+        return consultas[siguiente];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InmuebleKnnBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
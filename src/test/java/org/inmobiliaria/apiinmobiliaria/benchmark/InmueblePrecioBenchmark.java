@@ -0,0 +1,149 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import org.h2.tools.Server;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.inmobiliaria.apiinmobiliaria.domain.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cambio de precio de un inmueble, la escritura más frecuente, en una transacción por operación:
+ * - filaCompleta: SELECT por id y UPDATE de todas las columnas, el que lanzaba Hibernate sin @DynamicUpdate.
+ * - dinamico: SELECT por id y UPDATE solo del precio (@DynamicUpdate), lo que hace el PATCH.
+ * - directo: UPDATE ... WHERE id = ? sin leer antes la fila.
+ * H2 en modo servidor TCP, con tantos inmuebles como indique numInmuebles y los índices de Inmueble.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class InmueblePrecioBenchmark {
+
+    // Lo que enviaba Hibernate por cada modificación antes de @DynamicUpdate
+    private static final String UPDATE_FILA_COMPLETA = "UPDATE inmueble SET agencia_id = ?, ascensor = ?, fecha_publicacion = ?, "
+            + "latitud = ?, longitud = ?, metros = ?, precio = ?, propietario_id = ?, titulo = ? WHERE id = ?";
+
+    @Param({"10000"})
+    private int numInmuebles;
+
+    private Server servidor;
+    private SessionFactory sessionFactory;
+    private long primerId;
+    private long contador;
+
+    @Setup
+    public void setUp() throws SQLException {
+        servidor = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Agencia.class)
+                .addAnnotatedClass(Propietario.class)
+                .addAnnotatedClass(Inmueble.class)
+                .addAnnotatedClass(Cliente.class)
+                .addAnnotatedClass(Visita.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL,
+                        "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/mem:precio;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "none")
+                // FiltroIdsListener necesita el contexto de Spring
+                .setProperty(AvailableSettings.JPA_CALLBACKS_ENABLED, "false")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            Agencia agencia = new Agencia(0, "Agencia Benchmark", "Calle Benchmark 1", 1000000f, 28001,
+                    true, LocalDate.of(2000, 1, 1), null);
+            Propietario propietario = new Propietario(0, "BENCH0001", "Propietario Benchmark", "600000000",
+                    3f, false, LocalDate.of(2020, 1, 1), null);
+            session.persist(agencia);
+            session.persist(propietario);
+            for (int i = 1; i <= numInmuebles; i++) {
+                Inmueble inmueble = new Inmueble(0, "Inmueble " + i, 50000f + i, 30 + i % 300,
+                        36 + (i % 7000) / 1000.0, -9 + (i % 12000) / 1000.0, i % 2 == 0,
+                        LocalDate.of(2025, 1, 1), agencia, propietario, null);
+                session.persist(inmueble);
+                if (i == 1) {
+                    primerId = inmueble.getId();
+                }
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        servidor.stop();
+    }
+
+    @Benchmark
+    public long filaCompleta() {
+        long id = siguienteId();
+        float precio = siguientePrecio();
+        return sessionFactory.fromTransaction(session -> {
+            Inmueble inmueble = session.find(Inmueble.class, id);
+            return (long) session.createNativeMutationQuery(UPDATE_FILA_COMPLETA)
+                    .setParameter(1, inmueble.getAgenciaId())
+                    .setParameter(2, inmueble.getAscensor())
+                    .setParameter(3, inmueble.getFechaPublicacion())
+                    .setParameter(4, inmueble.getLatitud())
+                    .setParameter(5, inmueble.getLongitud())
+                    .setParameter(6, inmueble.getMetros())
+                    .setParameter(7, precio)
+                    .setParameter(8, inmueble.getPropietarioId())
+                    .setParameter(9, inmueble.getTitulo())
+                    .setParameter(10, id)
+                    .executeUpdate();
+        });
+    }
+
+    @Benchmark
+    public long dinamico() {
+        long id = siguienteId();
+        float precio = siguientePrecio();
+        return sessionFactory.fromTransaction(session -> {
+            Inmueble inmueble = session.find(Inmueble.class, id);
+            inmueble.setPrecio(precio);
+            return inmueble.getId();
+        });
+    }
+
+    @Benchmark
+    public long directo() {
+        long id = siguienteId();
+        float precio = siguientePrecio();
+        return sessionFactory.fromTransaction(session ->
+                (long) session.createMutationQuery("UPDATE Inmueble i SET i.precio = :precio WHERE i.id = :id")
+                        .setParameter("precio", precio)
+                        .setParameter("id", id)
+                        .executeUpdate());
+    }
+
+    // Se recorren todos los inmuebles y el precio cambia siempre, para que siempre haya UPDATE
+    private long siguienteId() {
+        return primerId + (contador++ % numInmuebles);
+    }
+
+    private float siguientePrecio() {
+        return 50000f + (contador % 1000);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InmueblePrecioBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,107 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import org.inmobiliaria.apiinmobiliaria.config.AppConfig;
+import org.inmobiliaria.apiinmobiliaria.domain.Agencia;
+import org.inmobiliaria.apiinmobiliaria.domain.Inmueble;
+import org.inmobiliaria.apiinmobiliaria.domain.Propietario;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleInDto;
+import org.inmobiliaria.apiinmobiliaria.dto.InmuebleOutDto;
+import org.inmobiliaria.apiinmobiliaria.mapper.InmuebleMapper;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara ModelMapper (STRICT, como estaba en AppConfig) con InmuebleMapper en el camino de GET /inmuebles:
+ * una lista de entidades a List&lt;InmuebleOutDto&gt;, un inmueble suelto y el volcado de un InDto sobre la entidad.
+ * El main activa el profiler de GC para ver también los bytes reservados por operación (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1", "1000"})
+    private int numInmuebles;
+
+    private ModelMapper modelMapper;
+    private InmuebleMapper inmuebleMapper;
+    private List<Inmueble> inmuebles;
+    private InmuebleInDto inDto;
+    private Inmueble destino;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new AppConfig().modelMapper();
+        inmuebleMapper = new InmuebleMapper();
+
+        Agencia agencia = new Agencia();
+        agencia.setId(1L);
+        Propietario propietario = new Propietario();
+        propietario.setId(2L);
+        inmuebles = new ArrayList<>(numInmuebles);
+        for (long id = 1; id <= numInmuebles; id++) {
+            inmuebles.add(new Inmueble(id, "Inmueble " + id, 100000f + id, 80, 41.65, -0.88, true,
+                    LocalDate.of(2025, 1, 1), agencia, propietario, null));
+        }
+        inDto = new InmuebleInDto("Piso", 150000f, 90, 41.6, -0.9, false, LocalDate.of(2025, 2, 1), 1L, 2L);
+        destino = new Inmueble();
+
+        // La primera llamada de ModelMapper crea el TypeMap; no queremos medir eso
+        modelMapper.map(inmuebles, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+        modelMapper.map(inDto, destino);
+    }
+
+    @Benchmark
+    public List<InmuebleOutDto> listaModelMapper() {
+        return modelMapper.map(inmuebles, new TypeToken<List<InmuebleOutDto>>() {}.getType());
+    }
+
+    @Benchmark
+    public List<InmuebleOutDto> listaMapper() {
+        return inmuebleMapper.toOutDtoList(inmuebles);
+    }
+
+    @Benchmark
+    public InmuebleOutDto unoModelMapper() {
+        return modelMapper.map(inmuebles.get(0), InmuebleOutDto.class);
+    }
+
+    @Benchmark
+    public InmuebleOutDto unoMapper() {
+        return inmuebleMapper.toOutDto(inmuebles.get(0));
+    }
+
+    @Benchmark
+    public Inmueble entradaModelMapper() {
+        modelMapper.map(inDto, destino);
+        return destino;
+    }
+
+    @Benchmark
+    public Inmueble entradaMapper() {
+        inmuebleMapper.updateEntity(inDto, destino);
+        return destino;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,95 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.inmobiliaria.apiinmobiliaria.controller.ManejoErrores;
+import org.inmobiliaria.apiinmobiliaria.exception.ErrorResponse;
+import org.inmobiliaria.apiinmobiliaria.exception.InmuebleNotFoundException;
+import org.inmobiliaria.apiinmobiliaria.exception.RecursoNoEncontradoException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coste de un 404 de GET /inmuebles/{id} desde que el servicio lanza la excepción hasta tener el cuerpo en bytes.
+ * "antes" reproduce el camino anterior: excepción nueva con traza y mensaje concatenado, ErrorResponse con su HashMap
+ * y serialización en cada petición. "ahora" lanza InmuebleNotFoundException.INSTANCIA y ManejoErrores devuelve la
+ * respuesta ya serializada. La excepción se lanza a profundidad frames para simular la pila de Tomcat + Spring MVC
+ * (el coste de la traza crece con ella). El main activa el profiler de GC (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoEncontradoBenchmark {
+
+    @Param({"20", "150"})
+    private int profundidad;
+
+    private ObjectMapper objectMapper;
+    private ManejoErrores manejoErrores;
+    private long id;
+
+    // Como era InmuebleNotFoundException: RuntimeException normal
+    private static class ExcepcionConTraza extends RuntimeException {
+        ExcepcionConTraza(String message) {
+            super(message);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        manejoErrores = new ManejoErrores(objectMapper);
+    }
+
+    @Benchmark
+    public byte[] antes() throws Exception {
+        long buscado = ++id;
+        try {
+            lanzar(profundidad, () -> new ExcepcionConTraza("Inmueble no encontrado con ID: " + buscado));
+            return null;
+        } catch (ExcepcionConTraza e) {
+            ErrorResponse errorResponse = ErrorResponse.validationError(new HashMap<>());
+            errorResponse.setCode(404);
+            errorResponse.setTitle("not-found");
+            errorResponse.setMessage("El inmueble no existe");
+            return objectMapper.writeValueAsBytes(errorResponse);
+        }
+    }
+
+    @Benchmark
+    public byte[] ahora() throws Exception {
+        try {
+            lanzar(profundidad, () -> InmuebleNotFoundException.INSTANCIA);
+            return null;
+        } catch (RecursoNoEncontradoException e) {
+            ResponseEntity<byte[]> respuesta = manejoErrores.handleException(e);
+            return respuesta.getBody();
+        }
+    }
+
+    private static void lanzar(int profundidad, Supplier<RuntimeException> excepcion) {
+        if (profundidad == 0) {
+            throw excepcion.get();
+        }
+        lanzar(profundidad - 1, excepcion);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NoEncontradoBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,107 @@
+package org.inmobiliaria.apiinmobiliaria.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga (no es JMH): N clientes concurrentes, cada uno en su hilo virtual, piden sin pausa
+ * los listados paginados de los cinco controladores durante un tiempo fijo y se mide throughput y latencia.
+ * Sirve para comparar la aplicación arrancada con spring.threads.virtual.enabled=true y =false:
+ * <pre>
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.inmobiliaria.apiinmobiliaria.benchmark.PruebaCarga \
+ *      http://localhost:8080 2000 30
+ * </pre>
+ * Argumentos (todos opcionales): URL base, número de clientes y segundos de medida (antes hay 5 s de calentamiento).
+ */
+public class PruebaCarga {
+
+    private static final List<String> RUTAS = List.of(
+            "/agencias?limit=20", "/clientes?limit=20", "/inmuebles?limit=20", "/propietarios?limit=20", "/visitas?limit=20");
+
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        String base = (args.length > 0) ? args[0] : "http://localhost:8080";
+        int clientes = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+        int segundos = (args.length > 2) ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<HttpRequest> peticiones = RUTAS.stream()
+                .map(ruta -> HttpRequest.newBuilder(URI.create(base + ruta)).timeout(Duration.ofSeconds(60)).GET().build())
+                .toList();
+
+        long inicioMedida = System.nanoTime() + CALENTAMIENTO.toNanos();
+        long fin = inicioMedida + Duration.ofSeconds(segundos).toNanos();
+        AtomicLong errores = new AtomicLong();
+
+        List<long[]> latencias = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<long[]>> resultados = new ArrayList<>(clientes);
+            for (int c = 0; c < clientes; c++) {
+                int primera = c;
+                resultados.add(hilos.submit(() -> cliente(http, peticiones, primera, inicioMedida, fin, errores)));
+            }
+            for (Future<long[]> resultado : resultados) {
+                latencias.add(resultado.get());
+            }
+        }
+
+        long[] todas = latencias.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("Clientes: %d, segundos: %d, peticiones: %d, errores: %d%n", clientes, segundos, todas.length, errores.get());
+        System.out.printf("Throughput: %.0f peticiones/s%n", todas.length / (double) segundos);
+        if (todas.length > 0) {
+            System.out.printf("Latencia (ms): p50 %.1f  p90 %.1f  p99 %.1f  máx %.1f%n",
+                    ms(percentil(todas, 50)), ms(percentil(todas, 90)), ms(percentil(todas, 99)), ms(todas[todas.length - 1]));
+        }
+    }
+
+    // Un cliente: pide las rutas en rueda y guarda la latencia de las respuestas 2xx del periodo de medida
+    private static long[] cliente(HttpClient http, List<HttpRequest> peticiones, int primera,
+                                  long inicioMedida, long fin, AtomicLong errores) {
+        long[] latencias = new long[1024];
+        int total = 0;
+        for (int i = primera; System.nanoTime() < fin; i++) {
+            long inicio = System.nanoTime();
+            boolean correcta;
+            try {
+                HttpResponse<Void> respuesta = http.send(peticiones.get(i % peticiones.size()), HttpResponse.BodyHandlers.discarding());
+                correcta = respuesta.statusCode() / 100 == 2;
+            } catch (Exception e) {
+                correcta = false;
+            }
+            if (inicio < inicioMedida) {
+                continue;
+            }
+            if (!correcta) {
+                errores.incrementAndGet();
+                continue;
+            }
+            if (total == latencias.length) {
+                latencias = Arrays.copyOf(latencias, total * 2);
+            }
+            latencias[total++] = System.nanoTime() - inicio;
+        }
+        return Arrays.copyOf(latencias, total);
+    }
+
+    private static long percentil(long[] ordenadas, int percentil) {
+        return ordenadas[Math.min(ordenadas.length - 1, (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1)];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,65 @@
+-- Benchmark de findByFilter sobre MariaDB (docker-compose.dev.yaml)
+-- Compara la consulta antigua "(:x IS NULL OR ...)" con la que genera InmuebleSpecifications.
+-- Uso: mariadb -u inmobiliaria_user -p inmobiliaria < findByFilter_inmueble.sql
+-- Necesita el motor SEQUENCE de MariaDB (seq_1_to_N), incluido por defecto.
+
+-- 1. Datos: 1 agencia, 1 propietario y 3 millones de inmuebles
+INSERT INTO agencia (nombre, direccion, facturacion_anual, codigo_postal, abierto_sabados, fecha_fundacion)
+VALUES ('Agencia Benchmark', 'Calle Benchmark 1', 1000000, 28001, true, '2000-01-01');
+
+INSERT INTO propietario (dni, nombre, telefono, comision, es_empresa, fecha_alta)
+VALUES ('BENCH0001', 'Propietario Benchmark', '600000000', 3, false, '2020-01-01');
+
+SET @agencia = (SELECT MAX(id) FROM agencia);
+SET @propietario = (SELECT MAX(id) FROM propietario);
+
+INSERT INTO inmueble (titulo, precio, metros, latitud, longitud, ascensor, fecha_publicacion, agencia_id, propietario_id)
+SELECT CONCAT('Inmueble ', seq),
+       50000 + (seq * 7919) % 950000,
+       30 + (seq * 104729) % 300,
+       36 + (seq % 7000) / 1000,
+       -9 + (seq % 12000) / 1000,
+       seq % 2 = 0,
+       DATE_SUB('2025-01-01', INTERVAL seq % 3650 DAY),
+       @agencia,
+       @propietario
+FROM seq_1_to_3000000;
+
+ANALYZE TABLE inmueble;
+
+-- 2. Consulta antigua: un único plan genérico para todas las combinaciones (full scan)
+EXPLAIN FORMAT=JSON
+SELECT * FROM inmueble i
+WHERE (100000 IS NULL OR i.precio <= 100000)
+  AND (NULL IS NULL OR i.metros >= NULL)
+  AND (true IS NULL OR i.ascensor = true);
+
+-- Con sentencias preparadas (como las lanza Hibernate) los parámetros no se conocen al planificar
+PREPARE antigua FROM
+    'SELECT COUNT(*) FROM inmueble i
+     WHERE (? IS NULL OR i.precio <= ?) AND (? IS NULL OR i.metros >= ?) AND (? IS NULL OR i.ascensor = ?)';
+SET @precio = 100000, @metros = NULL, @ascensor = true;
+SET profiling = 1;
+EXECUTE antigua USING @precio, @precio, @metros, @metros, @ascensor, @ascensor;
+
+-- 3. Consulta dinámica: solo los predicados informados -> range sobre idx_inmueble_ascensor_precio
+EXPLAIN FORMAT=JSON
+SELECT * FROM inmueble i
+WHERE i.precio <= 100000
+  AND i.ascensor = true;
+
+PREPARE dinamica FROM
+    'SELECT COUNT(*) FROM inmueble i WHERE i.precio <= ? AND i.ascensor = ?';
+EXECUTE dinamica USING @precio, @ascensor;
+
+-- Solo metros mínimos -> range sobre idx_inmueble_metros
+EXPLAIN SELECT * FROM inmueble i WHERE i.metros >= 320;
+
+SHOW PROFILES;
+
+-- 4. Limpieza
+DEALLOCATE PREPARE antigua;
+DEALLOCATE PREPARE dinamica;
+DELETE FROM inmueble WHERE agencia_id = @agencia;
+DELETE FROM agencia WHERE id = @agencia;
+DELETE FROM propietario WHERE id = @propietario;